@@ -0,0 +1,60 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the first argument once per configured thread count,
+ * always with the GC profiler attached so allocation rates show up next to throughput.
+ *
+ * <p>Thread counts are read from the {@code basil.benchmark.threads} system property as a comma separated list,
+ * where {@code N} stands for the number of available processors.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final String include = args.length == 0 ? ".*" : args[0];
+        for (final String threads : System.getProperty("basil.benchmark.threads", "1,4,N").split(",")) {
+            final Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(parseThreads(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private static int parseThreads(final String threads) {
+        return threads.equalsIgnoreCase("N") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+    }
+}
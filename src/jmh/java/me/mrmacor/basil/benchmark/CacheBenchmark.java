@@ -0,0 +1,161 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Compares the read and write paths of the raw caches with their basil-wrapped counterparts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    static final int KEY_SPACE = 1 << 16;
+    static final int SEQUENCE = 1 << 20;
+    static final int MASK = SEQUENCE - 1;
+    static final int BATCH = 16;
+
+    @Param({"GUAVA", "CAFFEINE", "BASIL_GUAVA", "BASIL_CAFFEINE", "BASIL_OFF_HEAP"})
+    CacheType cacheType;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    CacheType.Adapter<Integer, Integer> cache;
+    Integer[] keys;
+
+    @Setup
+    public void prepare() {
+        this.cache = this.cacheType.create(KEY_SPACE);
+        // keys are boxed up front so boxing does not show up in the allocation rate
+        this.keys = new Integer[SEQUENCE];
+        final int[] indices = this.distribution.indices(KEY_SPACE, SEQUENCE, 42);
+        for (int i = 0; i < SEQUENCE; i++) {
+            this.keys[i] = indices[i];
+        }
+        for (int i = 0; i < KEY_SPACE; i++) {
+            this.cache.put(i, i);
+        }
+    }
+
+    /**
+     * Per-thread position in the key sequence, and a reusable batch for the bulk operations.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int index = ThreadLocalRandom.current().nextInt(SEQUENCE);
+        final Integer[] batch = new Integer[BATCH];
+        final Integer[] values = new Integer[BATCH];
+        int consumed;
+        // created once, so the bulk reads that take a consumer do not allocate one per call
+        final BiConsumer<Integer, Integer> consumer = (key, value) -> this.consumed += value;
+        final List<Integer> batchView = Arrays.asList(this.batch);
+
+        Integer next(final Integer[] keys) {
+            return keys[this.index++ & MASK];
+        }
+
+        long next(final long[] keys) {
+            return keys[this.index++ & MASK];
+        }
+
+        List<Integer> nextBatch(final Integer[] keys) {
+            for (int i = 0; i < BATCH; i++) {
+                this.batch[i] = this.next(keys);
+            }
+            return this.batchView;
+        }
+    }
+
+    @Benchmark
+    public Integer get(final Cursor cursor) throws ExecutionException {
+        return this.cache.get(cursor.next(this.keys));
+    }
+
+    @Benchmark
+    @SuppressWarnings("checkstyle:MethodName")
+    public Integer getIfPresent(final Cursor cursor) {
+        return this.cache.getIfPresent(cursor.next(this.keys));
+    }
+
+    @Benchmark
+    public void put(final Cursor cursor) {
+        final Integer key = cursor.next(this.keys);
+        this.cache.put(key, key);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> allPresent(final Cursor cursor) {
+        return this.cache.allPresent(cursor.nextBatch(this.keys));
+    }
+
+    /**
+     * The allocation-free counterpart of {@link #allPresent(Cursor)}, which builds no map.
+     */
+    @Benchmark
+    public int forEachPresent(final Cursor cursor) {
+        this.cache.forEachPresent(cursor.nextBatch(this.keys), cursor.consumer);
+        return cursor.consumed;
+    }
+
+    /**
+     * The array counterpart of {@link #allPresent(Cursor)}, which reuses the cursor's value array.
+     */
+    @Benchmark
+    public int allPresentIntoArray(final Cursor cursor) {
+        cursor.nextBatch(this.keys);
+        return this.cache.allPresent(cursor.batch, cursor.values);
+    }
+
+    @Benchmark
+    public Integer asMap(final Cursor cursor) {
+        final ConcurrentMap<Integer, Integer> map = this.cache.asMap();
+        return map.get(cursor.next(this.keys));
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.codec.Codec;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * The caches under test: the raw Guava and Caffeine caches, the same caches wrapped by basil, sharded across one cache
+ * per processor, and basil's off-heap cache.
+ * Each is driven through the same {@link Adapter}, so the adapter's cost is shared by every candidate.
+ * The raw caches have no allocation-free bulk reads, so their adapters look the keys up one at a time.
+ */
+public enum CacheType {
+
+    GUAVA {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            final com.google.common.cache.Cache<Integer, Integer> cache = guava(maximumSize);
+            return new Adapter<>() {
+                @Override
+                public Integer get(final Integer key) throws ExecutionException {
+                    return cache.get(key, LOADER);
+                }
+
+                @Override
+                public Integer getIfPresent(final Integer key) {
+                    return cache.getIfPresent(key);
+                }
+
+                @Override
+                public void put(final Integer key, final Integer value) {
+                    cache.put(key, value);
+                }
+
+                @Override
+                public Map<Integer, Integer> allPresent(final Iterable<Integer> keys) {
+                    return cache.getAllPresent(keys);
+                }
+
+                @Override
+                public void forEachPresent(final Iterable<Integer> keys, final BiConsumer<? super Integer, ? super Integer> action) {
+                    for (final Integer key : keys) {
+                        final Integer value = cache.getIfPresent(key);
+                        if (value != null) {
+                            action.accept(key, value);
+                        }
+                    }
+                }
+
+                @Override
+                public int allPresent(final Integer[] keys, final Integer[] values) {
+                    int found = 0;
+                    for (int i = 0; i < keys.length; i++) {
+                        values[i] = cache.getIfPresent(keys[i]);
+                        if (values[i] != null) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+
+                @Override
+                public ConcurrentMap<Integer, Integer> asMap() {
+                    return cache.asMap();
+                }
+            };
+        }
+    },
+
+    CAFFEINE {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            final com.github.benmanes.caffeine.cache.Cache<Integer, Integer> cache = caffeine(maximumSize);
+            return new Adapter<>() {
+                @Override
+                public Integer get(final Integer key) {
+                    return cache.get(key, k -> 0);
+                }
+
+                @Override
+                public Integer getIfPresent(final Integer key) {
+                    return cache.getIfPresent(key);
+                }
+
+                @Override
+                public void put(final Integer key, final Integer value) {
+                    cache.put(key, value);
+                }
+
+                @Override
+                public Map<Integer, Integer> allPresent(final Iterable<Integer> keys) {
+                    return cache.getAllPresent(keys);
+                }
+
+                @Override
+                public void forEachPresent(final Iterable<Integer> keys, final BiConsumer<? super Integer, ? super Integer> action) {
+                    for (final Integer key : keys) {
+                        final Integer value = cache.getIfPresent(key);
+                        if (value != null) {
+                            action.accept(key, value);
+                        }
+                    }
+                }
+
+                @Override
+                public int allPresent(final Integer[] keys, final Integer[] values) {
+                    int found = 0;
+                    for (int i = 0; i < keys.length; i++) {
+                        values[i] = cache.getIfPresent(keys[i]);
+                        if (values[i] != null) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+
+                @Override
+                public ConcurrentMap<Integer, Integer> asMap() {
+                    return cache.asMap();
+                }
+            };
+        }
+    },
+
+    BASIL_GUAVA {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            return basil(BasilCacheBuilder.wrap(guava(maximumSize)).basilCache());
+        }
+    },
+
+    BASIL_CAFFEINE {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            return basil(BasilCacheBuilder.wrap(caffeine(maximumSize)).basilCache());
+        }
+    },
+
+    BASIL_SHARDED_GUAVA {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            final int shards = Runtime.getRuntime().availableProcessors();
+            return basil(BasilCacheBuilder.<Integer, Integer>newShardedCache(
+                    () -> BasilCacheBuilder.wrap(guava(maximumSize / shards)).basilCache()).shards(shards).build());
+        }
+    },
+
+    BASIL_SHARDED_CAFFEINE {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            final int shards = Runtime.getRuntime().availableProcessors();
+            return basil(BasilCacheBuilder.<Integer, Integer>newShardedCache(
+                    () -> BasilCacheBuilder.wrap(caffeine(maximumSize / shards)).basilCache()).shards(shards).build());
+        }
+    },
+
+    BASIL_OFF_HEAP {
+        @Override
+        Adapter<Integer, Integer> create(final long maximumSize) {
+            // every value takes a chunk of the smallest size class, 64 bytes
+            return basil(BasilCacheBuilder.newOffHeapCache(INTEGERS)
+                    .maximumBytes(maximumSize * 64)
+                    .pageSize(64 << 10)
+                    .build());
+        }
+    };
+
+    static final Callable<Integer> LOADER = () -> 0;
+
+    static final Codec<Integer> INTEGERS = new Codec<>() {
+        @Override
+        public int size(final Integer value) {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void encode(final Integer value, final ByteBuffer target) {
+            target.putInt(value);
+        }
+
+        @Override
+        public Integer decode(final ByteBuffer source) {
+            return source.getInt();
+        }
+    };
+
+    abstract Adapter<Integer, Integer> create(long maximumSize);
+
+    static com.google.common.cache.Cache<Integer, Integer> guava(final long maximumSize) {
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    static com.github.benmanes.caffeine.cache.Cache<Integer, Integer> caffeine(final long maximumSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    static Adapter<Integer, Integer> basil(final BasilCache<Integer, Integer> cache) {
+        return new Adapter<>() {
+            @Override
+            public Integer get(final Integer key) throws ExecutionException {
+                return cache.get(key, LOADER);
+            }
+
+            @Override
+            public Integer getIfPresent(final Integer key) {
+                return cache.getIfPresent(key);
+            }
+
+            @Override
+            public void put(final Integer key, final Integer value) {
+                cache.put(key, value);
+            }
+
+            @Override
+            public Map<Integer, Integer> allPresent(final Iterable<Integer> keys) {
+                return cache.allPresent(keys);
+            }
+
+            @Override
+            public void forEachPresent(final Iterable<Integer> keys, final BiConsumer<? super Integer, ? super Integer> action) {
+                cache.forEachPresent(keys, action);
+            }
+
+            @Override
+            public int allPresent(final Integer[] keys, final Integer[] values) {
+                return cache.allPresent(keys, values);
+            }
+
+            @Override
+            public ConcurrentMap<Integer, Integer> asMap() {
+                return cache.asMap();
+            }
+        };
+    }
+
+    /**
+     * The operations every benchmarked cache supports.
+     */
+    interface Adapter<K, V> {
+
+        V get(K key) throws ExecutionException;
+
+        @SuppressWarnings("checkstyle:MethodName")
+        V getIfPresent(K key);
+
+        void put(K key, V value);
+
+        Map<K, V> allPresent(Iterable<K> keys);
+
+        void forEachPresent(Iterable<K> keys, BiConsumer<? super K, ? super V> action);
+
+        int allPresent(K[] keys, V[] values);
+
+        ConcurrentMap<K, V> asMap();
+    }
+}
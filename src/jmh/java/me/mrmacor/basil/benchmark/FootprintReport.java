@@ -0,0 +1,70 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.CacheSet;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Prints how many bytes each {@link CacheSet} implementation retains per member, not counting the members themselves.
+ * Every set is bounded by size and expires after write, the configuration that costs the most per member.
+ */
+public final class FootprintReport {
+
+    private FootprintReport() {
+
+    }
+
+    public static void main(final String[] args) {
+        final int members = args.length == 0 ? 1_000_000 : Integer.parseInt(args[0]);
+        final Integer[] values = new Integer[members];
+        for (int i = 0; i < members; i++) {
+            values[i] = i;
+        }
+        final long valuesSize = GraphLayout.parseInstance((Object) values).totalSize();
+
+        System.out.printf("%-16s %12s %14s%n", "set", "members", "bytes/member");
+        report("BASIL_GUAVA", values, valuesSize, () -> BasilCacheBuilder.wrap(
+                CacheBuilder.newBuilder().maximumSize(members).expireAfterWrite(1, TimeUnit.HOURS).build()).cacheSet());
+        report("BASIL_CAFFEINE", values, valuesSize, () -> BasilCacheBuilder.wrap(
+                Caffeine.newBuilder().executor(Runnable::run).maximumSize(members).expireAfterWrite(1, TimeUnit.HOURS).build()).cacheSet());
+        report("COMPACT", values, valuesSize, () -> BasilCacheBuilder.newCacheSet()
+                .maximumSize(members).expireAfterWrite(1, TimeUnit.HOURS).build());
+    }
+
+    private static void report(final String name, final Integer[] values, final long valuesSize, final Supplier<CacheSet<Integer>> factory) {
+        final CacheSet<Integer> set = factory.get();
+        set.addAll(values);
+        set.cleanUp();
+        // measure the set together with the members, then take the members back out
+        final long size = GraphLayout.parseInstance(set, values).totalSize() - valuesSize;
+        System.out.printf("%-16s %12d %14.1f%n", name, set.size(), (double) size / set.size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * How benchmark threads pick the keys they operate on.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every key is equally likely.
+     */
+    UNIFORM {
+        @Override
+        int[] indices(final int keySpace, final int length, final long seed) {
+            final Random random = new Random(seed);
+            final int[] indices = new int[length];
+            for (int i = 0; i < length; i++) {
+                indices[i] = random.nextInt(keySpace);
+            }
+            return indices;
+        }
+    },
+
+    /**
+     * A few keys are far more likely than the rest, like most real cache traffic (theta = 0.99, as in YCSB).
+     * Ranks are scrambled so hot keys do not sit next to each other in the key space.
+     */
+    ZIPFIAN {
+        private static final double THETA = 0.99;
+
+        @Override
+        int[] indices(final int keySpace, final int length, final long seed) {
+            final double[] cumulative = new double[keySpace];
+            double sum = 0;
+            for (int rank = 0; rank < keySpace; rank++) {
+                sum += 1 / Math.pow(rank + 1, THETA);
+                cumulative[rank] = sum;
+            }
+
+            final Random random = new Random(seed);
+            final int[] indices = new int[length];
+            for (int i = 0; i < length; i++) {
+                final int found = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                final int rank = Math.min(found < 0 ? -found - 1 : found, keySpace - 1);
+                // an odd multiplier is a bijection modulo a power of two
+                indices[i] = (rank * 0x9E3779B1) & (keySpace - 1);
+            }
+            return indices;
+        }
+    };
+
+    /**
+     * Returns a precomputed sequence of key indices in {@code [0, keySpace)}, so that generating keys
+     * does not show up in the measurements.
+     *
+     * @param keySpace the number of distinct keys, a power of two
+     * @param length the length of the sequence
+     * @param seed the random seed
+     * @return the key indices
+     */
+    abstract int[] indices(int keySpace, int length, long seed);
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+/**
+ * A histogram of latencies in nanoseconds, with 32 buckets per power of two, so percentiles are within about 3%.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int LINEAR = 2 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS) << SUB_BUCKET_BITS];
+    private long total;
+    private long maximum;
+
+    void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        this.counts[index(value)]++;
+        this.total++;
+        this.maximum = Math.max(this.maximum, value);
+    }
+
+    private static int index(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (exponent << SUB_BUCKET_BITS) + (int) (value >>> exponent);
+    }
+
+    private static long highestValue(final int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        final int exponent = (index >>> SUB_BUCKET_BITS) - 1;
+        final long mantissa = index - ((long) exponent << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << exponent) - 1;
+    }
+
+    /**
+     * Returns the highest latency of the bucket holding the provided percentile, in (0, 100].
+     */
+    long percentile(final double percentile) {
+        final long rank = (long) Math.ceil(percentile / 100 * this.total);
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(highestValue(i), this.maximum);
+            }
+        }
+        return this.maximum;
+    }
+
+    long maximum() {
+        return this.maximum;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.primitive.LongLongCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static me.mrmacor.basil.benchmark.CacheBenchmark.KEY_SPACE;
+import static me.mrmacor.basil.benchmark.CacheBenchmark.SEQUENCE;
+
+/**
+ * Compares the primitive {@link LongLongCache} with a Caffeine cache of boxed longs.
+ * The keys lie outside of the {@link Long#valueOf(long)} cache, so the GC profiler shows the boxing the
+ * primitive cache avoids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+    private static final long OFFSET = 1L << 40;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    Cache<Long, Long> boxed;
+    LongLongCache primitive;
+    long[] keys;
+
+    @Setup
+    public void prepare() {
+        this.boxed = Caffeine.newBuilder().maximumSize(KEY_SPACE).build();
+        this.primitive = BasilCacheBuilder.newLongCache().maximumSize(KEY_SPACE).buildLongValued();
+        this.keys = new long[SEQUENCE];
+        final int[] indices = this.distribution.indices(KEY_SPACE, SEQUENCE, 42);
+        for (int i = 0; i < SEQUENCE; i++) {
+            this.keys[i] = OFFSET + indices[i];
+        }
+        for (long key = OFFSET; key < OFFSET + KEY_SPACE; key++) {
+            this.boxed.put(key, key);
+            this.primitive.put(key, key);
+        }
+    }
+
+    private static long square(final long key) {
+        return key * key;
+    }
+
+    @Benchmark
+    public Long boxedGet(final CacheBenchmark.Cursor cursor) {
+        return this.boxed.get(cursor.next(this.keys), PrimitiveBenchmark::square);
+    }
+
+    @Benchmark
+    public long primitiveGet(final CacheBenchmark.Cursor cursor) {
+        return this.primitive.get(cursor.next(this.keys), PrimitiveBenchmark::square);
+    }
+
+    @Benchmark
+    public void boxedPut(final CacheBenchmark.Cursor cursor) {
+        final long key = cursor.next(this.keys);
+        this.boxed.put(key, key);
+    }
+
+    @Benchmark
+    public void primitivePut(final CacheBenchmark.Cursor cursor) {
+        final long key = cursor.next(this.keys);
+        this.primitive.put(key, key);
+    }
+}
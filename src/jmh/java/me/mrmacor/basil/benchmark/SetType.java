@@ -0,0 +1,139 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.CacheSet;
+
+import java.util.List;
+
+/**
+ * The sets under test: raw Guava and Caffeine caches used as a set, and {@link CacheSet}s built on top of them.
+ */
+public enum SetType {
+
+    GUAVA {
+        @Override
+        Adapter<Integer> create(final long maximumSize) {
+            final com.google.common.cache.Cache<Integer, Integer> cache = CacheType.guava(maximumSize);
+            return new Adapter<>() {
+                @Override
+                public boolean contains(final Integer value) {
+                    return cache.getIfPresent(value) != null;
+                }
+
+                @Override
+                public void add(final Integer value) {
+                    cache.put(value, 0);
+                }
+
+                @Override
+                public void addAll(final List<Integer> values) {
+                    for (final Integer value : values) {
+                        cache.put(value, 0);
+                    }
+                }
+            };
+        }
+    },
+
+    CAFFEINE {
+        @Override
+        Adapter<Integer> create(final long maximumSize) {
+            final com.github.benmanes.caffeine.cache.Cache<Integer, Integer> cache = CacheType.caffeine(maximumSize);
+            return new Adapter<>() {
+                @Override
+                public boolean contains(final Integer value) {
+                    return cache.getIfPresent(value) != null;
+                }
+
+                @Override
+                public void add(final Integer value) {
+                    cache.put(value, 0);
+                }
+
+                @Override
+                public void addAll(final List<Integer> values) {
+                    for (final Integer value : values) {
+                        cache.put(value, 0);
+                    }
+                }
+            };
+        }
+    },
+
+    BASIL_GUAVA {
+        @Override
+        Adapter<Integer> create(final long maximumSize) {
+            return basil(BasilCacheBuilder.wrap(CacheType.guava(maximumSize)).cacheSet());
+        }
+    },
+
+    BASIL_CAFFEINE {
+        @Override
+        Adapter<Integer> create(final long maximumSize) {
+            return basil(BasilCacheBuilder.wrap(CacheType.caffeine(maximumSize)).cacheSet());
+        }
+    },
+
+    COMPACT {
+        @Override
+        Adapter<Integer> create(final long maximumSize) {
+            return basil(BasilCacheBuilder.newCacheSet().maximumSize(maximumSize).build());
+        }
+    };
+
+    abstract Adapter<Integer> create(long maximumSize);
+
+    static Adapter<Integer> basil(final CacheSet<Integer> set) {
+        return new Adapter<>() {
+            @Override
+            public boolean contains(final Integer value) {
+                return set.contains(value);
+            }
+
+            @Override
+            public void add(final Integer value) {
+                set.add(value);
+            }
+
+            @Override
+            public void addAll(final List<Integer> values) {
+                set.addAll(values);
+            }
+        };
+    }
+
+    /**
+     * The operations every benchmarked set supports.
+     */
+    interface Adapter<V> {
+
+        boolean contains(V value);
+
+        void add(V value);
+
+        void addAll(List<V> values);
+    }
+}
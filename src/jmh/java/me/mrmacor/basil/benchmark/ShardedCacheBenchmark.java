@@ -0,0 +1,93 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static me.mrmacor.basil.benchmark.CacheBenchmark.KEY_SPACE;
+import static me.mrmacor.basil.benchmark.CacheBenchmark.SEQUENCE;
+
+/**
+ * Compares how write-heavy workloads scale on a single wrapped cache and on the same cache sharded per processor.
+ * Run it with {@code -Pjmh.threads=1,2,4,8,16,32,64} to see the scaling from one to 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedCacheBenchmark {
+
+    @Param({"BASIL_GUAVA", "BASIL_CAFFEINE", "BASIL_SHARDED_GUAVA", "BASIL_SHARDED_CAFFEINE"})
+    CacheType cacheType;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    CacheType.Adapter<Integer, Integer> cache;
+    Integer[] keys;
+
+    @Setup
+    public void prepare() {
+        // half the key space fits, so puts keep evicting
+        this.cache = this.cacheType.create(KEY_SPACE / 2);
+        this.keys = new Integer[SEQUENCE];
+        final int[] indices = this.distribution.indices(KEY_SPACE, SEQUENCE, 42);
+        for (int i = 0; i < SEQUENCE; i++) {
+            this.keys[i] = indices[i];
+        }
+    }
+
+    @Benchmark
+    public void put(final CacheBenchmark.Cursor cursor) {
+        final Integer key = cursor.next(this.keys);
+        this.cache.put(key, key);
+    }
+
+    /**
+     * Three puts for every read.
+     */
+    @Benchmark
+    public Integer putHeavy(final CacheBenchmark.Cursor cursor) {
+        final Integer key = cursor.next(this.keys);
+        if ((cursor.index & 3) == 0) {
+            return this.cache.getIfPresent(key);
+        }
+        this.cache.put(key, key);
+        return key;
+    }
+}
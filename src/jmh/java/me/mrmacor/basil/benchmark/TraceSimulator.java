@@ -0,0 +1,118 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.benchmark;
+
+import me.mrmacor.basil.trace.Trace;
+import me.mrmacor.basil.trace.TraceOperation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays a trace written by a {@link me.mrmacor.basil.trace.TraceRecorder} against every {@link CacheType},
+ * or the ones named on the command line, and prints the hit ratio, throughput and latency percentiles of each.
+ *
+ * <p>Usage: {@code TraceSimulator <trace file> <maximum size> [cache types...]}. Every cache is first warmed up with
+ * one untimed replay on a separate instance, then the trace is replayed on a fresh instance on a single thread,
+ * timing every operation. A get that misses is replayed as a put of the key, like a load, and a contains or an add
+ * as a getIfPresent or a put. The timer itself costs a few tens of nanoseconds per operation.</p>
+ */
+public final class TraceSimulator {
+
+    private TraceSimulator() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TraceSimulator <trace file> <maximum size> [cache types...]");
+            System.exit(2);
+        }
+        final Trace trace = Trace.read(Path.of(args[0]));
+        final long maximumSize = Long.parseLong(args[1]);
+        final List<CacheType> types = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            types.add(CacheType.valueOf(args[i].toUpperCase(Locale.ROOT)));
+        }
+        if (types.isEmpty()) {
+            types.addAll(List.of(CacheType.values()));
+        }
+
+        final Integer[] keys = new Integer[trace.size()];
+        final TraceOperation[] operations = new TraceOperation[trace.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = trace.key(i);
+            operations[i] = trace.operation(i);
+        }
+
+        System.out.printf("%d records, maximum size %d%n", keys.length, maximumSize);
+        System.out.printf("%-24s %9s %12s %9s %9s %9s %9s%n", "cache", "hit ratio", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "max ns");
+        for (final CacheType type : types) {
+            try {
+                type.create(maximumSize);
+            } catch (final IllegalArgumentException e) {
+                System.out.printf("%-24s cannot be built at this size: %s%n", type, e.getMessage());
+                continue;
+            }
+            replay(type.create(maximumSize), keys, operations, new LatencyHistogram());
+            final LatencyHistogram latencies = new LatencyHistogram();
+            final long start = System.nanoTime();
+            final double hitRatio = replay(type.create(maximumSize), keys, operations, latencies);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-24s %9.4f %12.0f %9d %9d %9d %9d%n", type, hitRatio, keys.length / seconds,
+                    latencies.percentile(50), latencies.percentile(99), latencies.percentile(99.9), latencies.maximum());
+        }
+    }
+
+    /**
+     * Replays the trace against the cache, recording the latency of every operation, and returns the hit ratio.
+     */
+    static double replay(final CacheType.Adapter<Integer, Integer> cache, final Integer[] keys, final TraceOperation[] operations,
+                         final LatencyHistogram latencies) {
+        long reads = 0;
+        long hits = 0;
+        for (int i = 0; i < keys.length; i++) {
+            final Integer key = keys[i];
+            final TraceOperation operation = operations[i];
+            final long start = System.nanoTime();
+            if (operation == TraceOperation.PUT || operation == TraceOperation.ADD) {
+                cache.put(key, key);
+            } else if (operation == TraceOperation.INVALIDATE) {
+                cache.asMap().remove(key);
+            } else if (cache.getIfPresent(key) != null) {
+                hits++;
+            } else if (operation == TraceOperation.GET) {
+                cache.put(key, key);
+            }
+            latencies.record(System.nanoTime() - start);
+            if (operation.isRead()) {
+                reads++;
+            }
+        }
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.mrmacor.basil.sizing.AdaptiveSizer;
+import me.mrmacor.basil.sizing.MissRatioEstimator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link AdaptiveSizer}s, which resize a Caffeine cache to reach a target hit ratio.
+ * Start with {@link BasilCacheBuilder#newAdaptiveSizer(MissRatioEstimator, Cache)}.
+ *
+ * @since 1.1.0
+ */
+public final class AdaptiveSizerBuilder {
+
+    private final MissRatioEstimator<?> estimator;
+    private final Cache<?, ?> cache;
+    private double targetHitRatio = 0.9;
+    private long minimumSize = 1;
+    private long maximumSize;
+    private long memoryBudget;
+    private ScheduledExecutorService scheduler;
+    private long periodNanos = TimeUnit.MINUTES.toNanos(1);
+
+    AdaptiveSizerBuilder(@Nonnull final MissRatioEstimator<?> estimator, @Nonnull final Cache<?, ?> cache) {
+        this.estimator = Objects.requireNonNull(estimator, "estimator");
+        this.cache = Objects.requireNonNull(cache, "cache");
+        this.maximumSize = estimator.curve().maximumSize();
+    }
+
+    /**
+     * Sets the hit ratio to reach, 0.9 by default.
+     *
+     * @param targetHitRatio the hit ratio, in (0, 1]
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizerBuilder targetHitRatio(final double targetHitRatio) {
+        if (!(targetHitRatio > 0 && targetHitRatio <= 1)) {
+            throw new IllegalArgumentException("targetHitRatio must be in (0, 1]: " + targetHitRatio);
+        }
+        this.targetHitRatio = targetHitRatio;
+        return this;
+    }
+
+    /**
+     * Bounds the number of entries the cache is resized to, from 1 to the maximum size of the estimator by default.
+     *
+     * @param minimumSize the smallest number of entries
+     * @param maximumSize the largest number of entries
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizerBuilder sizeBounds(@Nonnegative final long minimumSize, @Nonnegative final long maximumSize) {
+        if (minimumSize <= 0 || minimumSize > maximumSize) {
+            throw new IllegalArgumentException("size bounds must be positive and ordered: " + minimumSize + ", " + maximumSize);
+        }
+        this.minimumSize = minimumSize;
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Caps the maximum weight a cache bounded by weight is resized to, usually in bytes. There is no budget by default.
+     *
+     * @param memoryBudget the largest maximum weight
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizerBuilder memoryBudget(@Nonnegative final long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Sets a scheduler to resize the cache on, once a minute by default.
+     * Without one, the cache is only resized on {@link AdaptiveSizer#resize()}.
+     *
+     * @param scheduler the scheduler
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizerBuilder scheduler(@Nonnull final ScheduledExecutorService scheduler) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        return this;
+    }
+
+    /**
+     * Sets how often the scheduler resizes the cache, once a minute by default.
+     *
+     * @param period the period
+     * @param unit the unit of the period
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizerBuilder period(@Nonnegative final long period, @Nonnull final TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.periodNanos = unit.toNanos(period);
+        return this;
+    }
+
+    /**
+     * Returns the adaptive sizer, starting it if a scheduler was provided.
+     *
+     * @return the sizer
+     * @since 1.1.0
+     */
+    @Nonnull
+    public AdaptiveSizer build() {
+        return new AdaptiveSizer(this.estimator, this.cache, this.targetHitRatio, this.minimumSize, this.maximumSize,
+                this.memoryBudget, this.scheduler, this.periodNanos);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import com.google.common.hash.Funnel;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.engine.ApproximateCacheSet;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link ApproximateCacheSet}s, which keep a fingerprint per member instead of the member itself.
+ * Start with {@link BasilCacheBuilder#newApproximateCacheSet(Funnel)}.
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class ApproximateCacheSetBuilder<V> {
+
+    private final Funnel<? super V> funnel;
+    private long maximumBytes = 64L << 20;
+    private double falsePositiveProbability = 0.001;
+    private long expireAfterWriteNanos;
+    private int generations = 4;
+    private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+    private Ticker ticker = Ticker.systemTicker();
+
+    ApproximateCacheSetBuilder(@Nonnull final Funnel<? super V> funnel) {
+        this.funnel = Objects.requireNonNull(funnel, "funnel");
+    }
+
+    /**
+     * Bounds the memory the filters take up, 64 MiB by default.
+     * A generation holds about {@code maximumBytes * 8 / (generations * fingerprint bits)} members.
+     *
+     * @param maximumBytes the memory budget in bytes
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> maximumBytes(@Nonnegative final long maximumBytes) {
+        if (maximumBytes < 0) {
+            throw new IllegalArgumentException("maximumBytes must not be negative: " + maximumBytes);
+        }
+        this.maximumBytes = maximumBytes;
+        return this;
+    }
+
+    /**
+     * Sets the probability of reporting a member that was never added, 0.001 by default.
+     * A lower probability takes more bits per member.
+     *
+     * @param falsePositiveProbability the false positive probability
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> falsePositiveProbability(final double falsePositiveProbability) {
+        if (!(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in (0, 1): " + falsePositiveProbability);
+        }
+        this.falsePositiveProbability = falsePositiveProbability;
+        return this;
+    }
+
+    /**
+     * Expires members once the provided duration has passed since they were added.
+     *
+     * @param duration how long members live after being added
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> expireAfterWrite(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the number of generations members expire in, 4 by default.
+     * More generations expire members closer to their lifetime, but each lookup checks every generation.
+     *
+     * @param generations the number of generations, at least two
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> generations(final int generations) {
+        if (generations < 2) {
+            throw new IllegalArgumentException("generations must be at least two: " + generations);
+        }
+        this.generations = generations;
+        return this;
+    }
+
+    /**
+     * Sets the expected number of threads writing at the same time.
+     *
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> concurrencyLevel(final int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * Sets the time source used for expiry, the system ticker by default.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSetBuilder<V> ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns an approximate {@link CacheSet}, see {@link ApproximateCacheSet}.
+     *
+     * @return the cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ApproximateCacheSet<V> build() {
+        return new ApproximateCacheSet<>(this.funnel, this.maximumBytes, this.falsePositiveProbability,
+                this.expireAfterWriteNanos, this.generations, this.concurrencyLevel, this.ticker);
+    }
+}
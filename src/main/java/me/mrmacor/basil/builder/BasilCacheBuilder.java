@@ -23,13 +23,28 @@
  */
 package me.mrmacor.basil.builder;
 
+import com.google.common.hash.Funnel;
+import me.mrmacor.basil.cache.AsyncBasilCache;
 import me.mrmacor.basil.cache.BasilCache;
 import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.codec.Codec;
+import me.mrmacor.basil.loader.CoalescingLoader;
+import me.mrmacor.basil.sizing.MissRatioEstimator;
 import me.mrmacor.basil.wrapper.CacheSetImpl;
+import me.mrmacor.basil.wrapper.EmulatedAsyncCache;
+import me.mrmacor.basil.wrapper.WrappedCaffeineAsyncCache;
 import me.mrmacor.basil.wrapper.WrappedCaffeineCache;
 import me.mrmacor.basil.wrapper.WrappedGuavaCache;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Utility class to convert {@link com.google.common.cache.Cache} and {@link com.github.benmanes.caffeine.cache.Cache} cache implementations into their Basil counterparts.
@@ -54,6 +69,19 @@ public final class BasilCacheBuilder {
         return new CaffeineCacheWrapper<>(cache);
     }
 
+    /**
+     * Start the conversion process for a {@link com.github.benmanes.caffeine.cache.AsyncCache}.
+     * Its loads run on the executor it was built with.
+     *
+     * @param cache to wrap
+     * @return the next step in the building process
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> AsyncCacheProvider<K, V> wrap(@Nonnull final com.github.benmanes.caffeine.cache.AsyncCache<K, V> cache) {
+        return new CaffeineAsyncCacheWrapper<>(cache);
+    }
+
     /**
      * Start the conversion process for a {@link com.google.common.cache.Cache}.
      *
@@ -66,6 +94,194 @@ public final class BasilCacheBuilder {
         return new GuavaCacheWrapper<>(cache);
     }
 
+    /**
+     * Start building a {@link CacheSet} that is not backed by a Guava or Caffeine cache,
+     * and stores nothing per member but the member itself and its expiry and recency metadata.
+     *
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static CacheSetBuilder newCacheSet() {
+        return new CacheSetBuilder();
+    }
+
+    /**
+     * Start building a {@link CacheSet} whose members each have their own time to live.
+     *
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static TimerWheelCacheSetBuilder newTimerWheelCacheSet() {
+        return new TimerWheelCacheSetBuilder();
+    }
+
+    /**
+     * Start building an approximate {@link CacheSet} for membership sets too large to store,
+     * which may report members that were never added at a configurable false positive probability.
+     *
+     * @param funnel to hash members with
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <V> ApproximateCacheSetBuilder<V> newApproximateCacheSet(@Nonnull final Funnel<? super V> funnel) {
+        return new ApproximateCacheSetBuilder<>(funnel);
+    }
+
+    /**
+     * Start building a cache or set keyed by primitive {@code long}s, which looks keys up without boxing them.
+     *
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static LongCacheBuilder newLongCache() {
+        return new LongCacheBuilder();
+    }
+
+    /**
+     * Start building a {@link BasilCache} that keeps its values outside of the Java heap, encoded by the provided codec.
+     *
+     * @param codec to convert values to and from bytes
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <V> OffHeapCacheBuilder<V> newOffHeapCache(@Nonnull final Codec<V> codec) {
+        return new OffHeapCacheBuilder<>(codec);
+    }
+
+    /**
+     * Start building a {@link BasilCache} that keeps its hot entries in a small Caffeine cache
+     * in front of the provided, larger cache.
+     *
+     * @param l2 to keep every entry in, such as an off-heap cache
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> TieredCacheBuilder<K, V> newTieredCache(@Nonnull final BasilCache<K, V> l2) {
+        return new TieredCacheBuilder<>(l2);
+    }
+
+    /**
+     * Start building a Guava or Caffeine backed {@link BasilCache} bounded by the total weight of its entries,
+     * by default the bytes they retain, so caches of values of very different sizes can be bounded by memory.
+     *
+     * @param maximumWeight the maximum total weight of the entries, in bytes for the default weigher
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static WeightedCacheBuilder<Object, Object> newWeightedCache(@Nonnegative final long maximumWeight) {
+        return new WeightedCacheBuilder<>(maximumWeight);
+    }
+
+    /**
+     * Start building a bus that delivers the removals of caches to subscribers in batches, on a separate thread.
+     * Install its Guava or Caffeine removal listener on the caches to observe before wrapping them.
+     *
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static RemovalEventBusBuilder newRemovalEventBus() {
+        return new RemovalEventBusBuilder();
+    }
+
+    /**
+     * Start building a tracker that samples the reads of caches to find their hottest keys.
+     *
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static HotKeyTrackerBuilder newHotKeyTracker() {
+        return new HotKeyTrackerBuilder();
+    }
+
+    /**
+     * Start building an estimator of the hit ratio a cache would have at every size up to the provided maximum,
+     * from the keys it is read with.
+     *
+     * @param maximumSize the largest cache size to estimate the hit ratio of
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static MissRatioEstimatorBuilder newMissRatioEstimator(@Nonnegative final long maximumSize) {
+        return new MissRatioEstimatorBuilder(maximumSize);
+    }
+
+    /**
+     * Start building a sizer that resizes the provided bounded Caffeine cache to the smallest size the estimator
+     * predicts reaches a target hit ratio. Wrapped caches expose theirs through
+     * {@link WrappedCaffeineCache#delegate()}.
+     *
+     * @param estimator to read the miss ratio curve from, tracking the cache's reads
+     * @param cache to resize, bounded by size or by weight
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static AdaptiveSizerBuilder newAdaptiveSizer(@Nonnull final MissRatioEstimator<?> estimator,
+                                                        @Nonnull final com.github.benmanes.caffeine.cache.Cache<?, ?> cache) {
+        return new AdaptiveSizerBuilder(estimator, cache);
+    }
+
+    /**
+     * Start building a recorder that writes the operations on caches to a trace file,
+     * which can be replayed against other caches.
+     *
+     * @param file to write the trace to
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static TraceRecorderBuilder newTraceRecorder(@Nonnull final Path file) {
+        return new TraceRecorderBuilder(file);
+    }
+
+    /**
+     * Start building a named {@link BasilCache} that reports the provided cache to Java Flight Recorder and JMX.
+     *
+     * @param name to report the cache as, unique among open monitored caches
+     * @param cache to monitor
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> MonitoredCacheBuilder<K, V> newMonitoredCache(@Nonnull final String name, @Nonnull final BasilCache<K, V> cache) {
+        return new MonitoredCacheBuilder<>(name, cache);
+    }
+
+    /**
+     * Start building a {@link BasilCache} that partitions its keys across independent caches, to spread contention.
+     *
+     * @param shardFactory to build each shard with, such as {@code () -> BasilCacheBuilder.wrap(Caffeine.newBuilder().build()).basilCache()}
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> ShardedCacheBuilder<K, V> newShardedCache(@Nonnull final Supplier<? extends BasilCache<K, V>> shardFactory) {
+        return new ShardedCacheBuilder<>(shardFactory);
+    }
+
+    /**
+     * Start building a {@link CoalescingLoader}, which gathers the keys that miss within a short window
+     * and loads them with one call to the provided bulk loader.
+     *
+     * @param bulkLoader to load the keys of a batch with
+     * @return the builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> CoalescingLoaderBuilder<K, V> newCoalescingLoader(@Nonnull final Function<Set<K>, Map<K, V>> bulkLoader) {
+        return new CoalescingLoaderBuilder<>(bulkLoader);
+    }
+
     /**
      * The last step in converting Guava and Caffeine caches to their Basil counterpart.
      *
@@ -91,6 +307,76 @@ public final class BasilCacheBuilder {
         default <U> CacheSet<U> cacheSet() {
             return new CacheSetImpl<>((BasilCache<U, Integer>) this.basilCache());
         }
+
+        /**
+         * Returns the cache provided in earlier steps in the form of an {@link AsyncBasilCache},
+         * which runs its loads on the provided executor and shares them while they are in flight.
+         * Any executor will do, including one that starts a virtual thread per task on runtimes that have them.
+         *
+         * @param executor to run loads on
+         * @return the cache as an {@link AsyncBasilCache}
+         * @since 1.1.0
+         */
+        @Nonnull
+        default AsyncBasilCache<K, V> asyncCache(@Nonnull final Executor executor) {
+            return new EmulatedAsyncCache<>(this.basilCache(), executor);
+        }
+
+        /**
+         * Starts building a cache over the cache provided in earlier steps that remembers keys its loaders found
+         * no value for, and loaders that failed, each for their own time to live.
+         *
+         * @return the builder
+         * @since 1.1.0
+         */
+        @Nonnull
+        default NegativeCachingCacheBuilder<K, V> negativeCaching() {
+            return new NegativeCachingCacheBuilder<>(this.basilCache());
+        }
+
+        /**
+         * Starts building a cache over the cache provided in earlier steps that reloads entries in the background
+         * shortly before they expire, serving the stale value in the meantime.
+         *
+         * @param expireAfterWrite the time to live the cache was built with
+         * @param unit the unit of the time to live
+         * @return the builder
+         * @since 1.1.0
+         */
+        @Nonnull
+        default RefreshAheadCacheBuilder<K, V> refreshAhead(@Nonnegative final long expireAfterWrite, @Nonnull final TimeUnit unit) {
+            return new RefreshAheadCacheBuilder<>(this.basilCache(), unit.toNanos(expireAfterWrite));
+        }
+
+        /**
+         * Starts building a named cache over the cache provided in earlier steps that reports what it does
+         * to Java Flight Recorder and JMX.
+         *
+         * @param name to report the cache as, unique among open monitored caches
+         * @return the builder
+         * @since 1.1.0
+         */
+        @Nonnull
+        default MonitoredCacheBuilder<K, V> monitored(@Nonnull final String name) {
+            return new MonitoredCacheBuilder<>(name, this.basilCache());
+        }
+    }
+
+    /**
+     * The last step in converting a Caffeine {@link com.github.benmanes.caffeine.cache.AsyncCache} to its Basil counterpart.
+     *
+     * @since 1.1.0
+     */
+    public interface AsyncCacheProvider<K, V> {
+
+        /**
+         * Returns the cache provided in earlier steps in the form of an {@link AsyncBasilCache}.
+         *
+         * @return the cache as an {@link AsyncBasilCache}
+         * @since 1.1.0
+         */
+        @Nonnull
+        AsyncBasilCache<K, V> asyncCache();
     }
 
     /**
@@ -113,6 +399,26 @@ public final class BasilCacheBuilder {
         }
     }
 
+    /**
+     * Implementation of {@link AsyncCacheProvider}, Caffeine-flavored.
+     *
+     * @since 1.1.0
+     */
+    public static class CaffeineAsyncCacheWrapper<K, V> implements AsyncCacheProvider<K, V> {
+
+        private final com.github.benmanes.caffeine.cache.AsyncCache<K, V> cache;
+
+        CaffeineAsyncCacheWrapper(final com.github.benmanes.caffeine.cache.AsyncCache<K, V> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        @Nonnull
+        public AsyncBasilCache<K, V> asyncCache() {
+            return new WrappedCaffeineAsyncCache<>(this.cache);
+        }
+    }
+
     /**
      * Implementation of {@link CacheProvider}, Guava-flavored.
      *
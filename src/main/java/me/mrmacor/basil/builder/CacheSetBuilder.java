@@ -0,0 +1,152 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.engine.CompactCacheSet;
+import me.mrmacor.basil.event.RemovalEventBus;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link CacheSet}s that are backed by basil's own storage instead of a Guava or Caffeine cache.
+ * Start with {@link BasilCacheBuilder#newCacheSet()}.
+ *
+ * @since 1.1.0
+ */
+public final class CacheSetBuilder {
+
+    private long maximumSize = -1;
+    private long expireAfterWriteNanos;
+    private long expireAfterAccessNanos;
+    private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+    private Ticker ticker = Ticker.systemTicker();
+
+    CacheSetBuilder() {
+
+    }
+
+    /**
+     * Bounds the number of members, evicting members that were not looked up recently once the bound is reached.
+     *
+     * @param maximumSize the maximum number of members
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CacheSetBuilder maximumSize(@Nonnegative final long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Expires members once the provided duration has passed since they were added.
+     *
+     * @param duration how long members live after being added
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CacheSetBuilder expireAfterWrite(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Expires members once the provided duration has passed since they were added or last found.
+     *
+     * @param duration how long members live after being added or found
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CacheSetBuilder expireAfterAccess(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        this.expireAfterAccessNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the expected number of threads adding members at the same time.
+     *
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CacheSetBuilder concurrencyLevel(final int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * Sets the time source used for expiry, the system ticker by default.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CacheSetBuilder ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns a {@link CacheSet} that only stores its members, see {@link CompactCacheSet}.
+     *
+     * @return the cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> CacheSet<V> build() {
+        return new CompactCacheSet<>(this.maximumSize, this.expireAfterWriteNanos, this.expireAfterAccessNanos,
+                this.concurrencyLevel, this.ticker, null);
+    }
+
+    /**
+     * Returns a {@link CacheSet} that only stores its members, see {@link CompactCacheSet},
+     * and publishes the members it evicts or expires to the provided bus.
+     *
+     * @param removals the bus to publish evicted members to
+     * @return the cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> CacheSet<V> build(@Nonnull final RemovalEventBus<? super V, ?> removals) {
+        return new CompactCacheSet<>(this.maximumSize, this.expireAfterWriteNanos, this.expireAfterAccessNanos,
+                this.concurrencyLevel, this.ticker, Objects.requireNonNull(removals, "removals"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.loader.CoalescingLoader;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds {@link CoalescingLoader}s, which turn concurrent single-key misses into bulk loads.
+ * Start with {@link BasilCacheBuilder#newCoalescingLoader(Function)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class CoalescingLoaderBuilder<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> bulkLoader;
+    private long windowNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private int maximumBatchSize = 256;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    CoalescingLoaderBuilder(@Nonnull final Function<Set<K>, Map<K, V>> bulkLoader) {
+        this.bulkLoader = Objects.requireNonNull(bulkLoader, "bulkLoader");
+    }
+
+    /**
+     * Sets how long a batch waits for more keys after its first one, 2 milliseconds by default.
+     *
+     * @param duration how long a batch stays open
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CoalescingLoaderBuilder<K, V> window(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.windowNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the number of keys that dispatches a batch before its window has passed, 256 by default.
+     *
+     * @param maximumBatchSize the maximum number of keys in a batch
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CoalescingLoaderBuilder<K, V> maximumBatchSize(final int maximumBatchSize) {
+        if (maximumBatchSize <= 0) {
+            throw new IllegalArgumentException("maximumBatchSize must be positive: " + maximumBatchSize);
+        }
+        this.maximumBatchSize = maximumBatchSize;
+        return this;
+    }
+
+    /**
+     * Sets the executor the bulk loader runs on, the common {@link ForkJoinPool} by default.
+     *
+     * @param executor to run the bulk loader on
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CoalescingLoaderBuilder<K, V> executor(@Nonnull final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Returns the coalescing loader.
+     *
+     * @return the loader
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CoalescingLoader<K, V> build() {
+        return new CoalescingLoader<>(this.bulkLoader, this.windowNanos, this.maximumBatchSize, this.executor);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.hotkey.HotKeyTracker;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Builds {@link HotKeyTracker}s, which find the keys that are read most often.
+ * Start with {@link BasilCacheBuilder#newHotKeyTracker()}.
+ *
+ * @since 1.1.0
+ */
+public final class HotKeyTrackerBuilder {
+
+    private int topK = 16;
+    private int sampleRate = 8;
+    private int width = 1024;
+
+    HotKeyTrackerBuilder() {
+
+    }
+
+    /**
+     * Sets the number of hot keys to track, 16 by default.
+     *
+     * @param topK the number of hot keys
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public HotKeyTrackerBuilder topK(@Nonnegative final int topK) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive: " + topK);
+        }
+        this.topK = topK;
+        return this;
+    }
+
+    /**
+     * Samples one read in the provided number, 8 by default. Use 1 to record every read.
+     *
+     * @param sampleRate the number of reads per sample
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public HotKeyTrackerBuilder sampleRate(@Nonnegative final int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * Sets the number of counters in each of the 4 rows of the sketch, 1024 by default, rounded up to a power of two.
+     * Wider sketches estimate more accurately, and age less often since they are halved every {@code 10 * width} samples.
+     *
+     * @param width the width of the sketch
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public HotKeyTrackerBuilder sketchWidth(@Nonnegative final int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be positive: " + width);
+        }
+        this.width = width;
+        return this;
+    }
+
+    /**
+     * Returns the hot key tracker.
+     *
+     * @return the tracker
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K> HotKeyTracker<K> build() {
+        return new HotKeyTracker<>(this.topK, this.sampleRate, this.width);
+    }
+}
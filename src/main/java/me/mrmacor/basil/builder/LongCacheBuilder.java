@@ -0,0 +1,159 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.primitive.LongBasilCache;
+import me.mrmacor.basil.primitive.LongCacheSet;
+import me.mrmacor.basil.primitive.LongIntCache;
+import me.mrmacor.basil.primitive.LongLongCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds caches and sets keyed by primitive {@code long}s, which never box their keys.
+ * Start with {@link BasilCacheBuilder#newLongCache()}.
+ *
+ * @since 1.1.0
+ */
+public final class LongCacheBuilder {
+
+    private long maximumSize = -1;
+    private long expireAfterWriteNanos;
+    private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+    private Ticker ticker = Ticker.systemTicker();
+
+    LongCacheBuilder() {
+
+    }
+
+    /**
+     * Bounds the number of entries, evicting entries that were not looked up recently once the bound is reached.
+     *
+     * @param maximumSize the maximum number of entries
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongCacheBuilder maximumSize(@Nonnegative final long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Expires entries once the provided duration has passed since they were written.
+     *
+     * @param duration how long entries live after being written
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongCacheBuilder expireAfterWrite(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets the expected number of threads writing at the same time.
+     *
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongCacheBuilder concurrencyLevel(final int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * Sets the time source used for expiry, the system ticker by default.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongCacheBuilder ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns a cache mapping {@code long} keys to objects.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> LongBasilCache<V> build() {
+        return new LongBasilCache<>(this.maximumSize, this.expireAfterWriteNanos, this.concurrencyLevel, this.ticker);
+    }
+
+    /**
+     * Returns a cache mapping {@code long} keys to {@code long} values.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongLongCache buildLongValued() {
+        return new LongLongCache(this.maximumSize, this.expireAfterWriteNanos, this.concurrencyLevel, this.ticker);
+    }
+
+    /**
+     * Returns a cache mapping {@code long} keys to {@code int} values.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongIntCache buildIntValued() {
+        return new LongIntCache(this.maximumSize, this.expireAfterWriteNanos, this.concurrencyLevel, this.ticker);
+    }
+
+    /**
+     * Returns a set of {@code long} members.
+     *
+     * @return the set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public LongCacheSet buildSet() {
+        return new LongCacheSet(this.maximumSize, this.expireAfterWriteNanos, this.concurrencyLevel, this.ticker);
+    }
+}
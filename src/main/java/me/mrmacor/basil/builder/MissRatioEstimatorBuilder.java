@@ -0,0 +1,112 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.sizing.MissRatioEstimator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Builds {@link MissRatioEstimator}s, which estimate the hit ratio a cache would have at other sizes.
+ * Start with {@link BasilCacheBuilder#newMissRatioEstimator(long)}.
+ *
+ * @since 1.1.0
+ */
+public final class MissRatioEstimatorBuilder {
+
+    private final long maximumSize;
+    private double samplingRate = 0.01;
+    private int maximumSampledKeys = 1 << 16;
+    private int buckets = 100;
+
+    MissRatioEstimatorBuilder(@Nonnegative final long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Sets the fraction of keys to sample, 0.01 by default.
+     * Memory use grows with the number of sampled keys up to {@link #maximumSampledKeys(int)},
+     * and accuracy drops when fewer than a few thousand are sampled.
+     *
+     * @param samplingRate the sampling rate, in (0, 1]
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MissRatioEstimatorBuilder samplingRate(final double samplingRate) {
+        if (!(samplingRate > 0 && samplingRate <= 1)) {
+            throw new IllegalArgumentException("samplingRate must be in (0, 1]: " + samplingRate);
+        }
+        this.samplingRate = samplingRate;
+        return this;
+    }
+
+    /**
+     * Bounds the number of sampled keys tracked at once, 65536 by default.
+     * Once more keys are sampled, the sampling rate is lowered until about seven eighths of the bound are left.
+     *
+     * @param maximumSampledKeys the maximum number of sampled keys, at least two
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MissRatioEstimatorBuilder maximumSampledKeys(final int maximumSampledKeys) {
+        if (maximumSampledKeys < 2) {
+            throw new IllegalArgumentException("maximumSampledKeys must be at least two: " + maximumSampledKeys);
+        }
+        this.maximumSampledKeys = maximumSampledKeys;
+        return this;
+    }
+
+    /**
+     * Sets the number of evenly spaced sizes up to the maximum size that the hit ratio is estimated at, 100 by default.
+     *
+     * @param buckets the number of sizes
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MissRatioEstimatorBuilder buckets(@Nonnegative final int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive: " + buckets);
+        }
+        this.buckets = buckets;
+        return this;
+    }
+
+    /**
+     * Returns the miss ratio estimator.
+     *
+     * @return the estimator
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K> MissRatioEstimator<K> build() {
+        return new MissRatioEstimator<>(this.samplingRate, this.maximumSampledKeys, this.maximumSize, this.buckets);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.monitor.MonitoredBasilCache;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Builds {@link MonitoredBasilCache}s, which report what they do to Java Flight Recorder and JMX.
+ * Start with {@link BasilCacheBuilder#newMonitoredCache(String, BasilCache)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class MonitoredCacheBuilder<K, V> {
+
+    private final String name;
+    private final BasilCache<K, V> delegate;
+    private boolean jmx = true;
+
+    MonitoredCacheBuilder(@Nonnull final String name, @Nonnull final BasilCache<K, V> delegate) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    /**
+     * Sets whether to register an MBean for the cache with the platform MBean server, true by default.
+     *
+     * @param jmx whether to register an MBean
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MonitoredCacheBuilder<K, V> jmx(final boolean jmx) {
+        this.jmx = jmx;
+        return this;
+    }
+
+    /**
+     * Returns the monitored cache, registering it under its name.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MonitoredBasilCache<K, V> build() {
+        return new MonitoredBasilCache<>(this.name, this.delegate, this.jmx);
+    }
+}
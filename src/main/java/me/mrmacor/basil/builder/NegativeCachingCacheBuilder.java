@@ -0,0 +1,131 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.negative.NegativeCachingCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link NegativeCachingCache}s, which remember absent keys and failed loads for a while.
+ * Start with {@link BasilCacheBuilder.CacheProvider#negativeCaching()}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class NegativeCachingCacheBuilder<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private long expireAbsentAfterNanos = TimeUnit.MINUTES.toNanos(1);
+    private long expireFailuresAfterNanos = TimeUnit.SECONDS.toNanos(5);
+    private long maximumNegatives = 10_000;
+    private Ticker ticker = Ticker.systemTicker();
+
+    NegativeCachingCacheBuilder(@Nonnull final BasilCache<K, V> delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    /**
+     * Sets how long a key the loader found no value for is remembered as absent, one minute by default.
+     * Zero disables remembering absent keys.
+     *
+     * @param duration how long absent keys are remembered
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public NegativeCachingCacheBuilder<K, V> expireAbsentAfter(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.expireAbsentAfterNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets how long the failure of a loader is remembered, five seconds by default.
+     * Zero disables remembering failures.
+     *
+     * @param duration how long failures are remembered
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public NegativeCachingCacheBuilder<K, V> expireFailuresAfter(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.expireFailuresAfterNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Bounds the number of absent keys and failures remembered, 10,000 by default.
+     *
+     * @param maximumNegatives the maximum number of remembered outcomes
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public NegativeCachingCacheBuilder<K, V> maximumNegatives(@Nonnegative final long maximumNegatives) {
+        if (maximumNegatives < 0) {
+            throw new IllegalArgumentException("maximumNegatives must not be negative: " + maximumNegatives);
+        }
+        this.maximumNegatives = maximumNegatives;
+        return this;
+    }
+
+    /**
+     * Sets the time source remembered outcomes expire by, the system ticker by default.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public NegativeCachingCacheBuilder<K, V> ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns the negative caching cache.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public NegativeCachingCache<K, V> build() {
+        return new NegativeCachingCache<>(this.delegate, this.expireAbsentAfterNanos, this.expireFailuresAfterNanos,
+                this.maximumNegatives, this.ticker);
+    }
+}
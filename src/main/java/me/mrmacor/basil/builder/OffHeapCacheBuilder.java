@@ -0,0 +1,141 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.codec.Codec;
+import me.mrmacor.basil.event.RemovalEventBus;
+import me.mrmacor.basil.offheap.OffHeapBasilCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Builds {@link OffHeapBasilCache}s, which keep their values outside of the Java heap.
+ * Start with {@link BasilCacheBuilder#newOffHeapCache(Codec)}.
+ *
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class OffHeapCacheBuilder<V> {
+
+    private final Codec<V> codec;
+    private long maximumBytes = 64L << 20;
+    private int pageSize = 1 << 20;
+    private double growthFactor = 1.25;
+    private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+
+    OffHeapCacheBuilder(@Nonnull final Codec<V> codec) {
+        this.codec = Objects.requireNonNull(codec, "codec");
+    }
+
+    /**
+     * Bounds the direct memory the cache allocates, 64 MiB by default.
+     *
+     * @param maximumBytes the maximum number of bytes to allocate
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public OffHeapCacheBuilder<V> maximumBytes(@Nonnegative final long maximumBytes) {
+        if (maximumBytes < 0) {
+            throw new IllegalArgumentException("maximumBytes must not be negative: " + maximumBytes);
+        }
+        this.maximumBytes = maximumBytes;
+        return this;
+    }
+
+    /**
+     * Sets the size of the pages memory is allocated in, 1 MiB by default. Larger values are not stored.
+     *
+     * @param pageSize the page size in bytes
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public OffHeapCacheBuilder<V> pageSize(@Nonnegative final int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the factor between the chunk sizes of consecutive size classes, 1.25 by default.
+     * A smaller factor wastes less memory per value, but spreads the pages over more classes.
+     *
+     * @param growthFactor the growth factor, larger than one
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public OffHeapCacheBuilder<V> growthFactor(final double growthFactor) {
+        if (!(growthFactor > 1.0)) {
+            throw new IllegalArgumentException("growthFactor must be larger than one: " + growthFactor);
+        }
+        this.growthFactor = growthFactor;
+        return this;
+    }
+
+    /**
+     * Sets the expected number of threads writing at the same time.
+     *
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public OffHeapCacheBuilder<V> concurrencyLevel(final int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * Returns the off-heap cache, which can be used anywhere a {@link me.mrmacor.basil.cache.BasilCache} is.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K> OffHeapBasilCache<K, V> build() {
+        return new OffHeapBasilCache<>(this.codec, this.maximumBytes, this.pageSize, this.growthFactor, this.concurrencyLevel, null);
+    }
+
+    /**
+     * Returns the off-heap cache, which publishes the entries it evicts to the provided bus.
+     *
+     * @param removals the bus to publish evicted entries to
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K> OffHeapBasilCache<K, V> build(@Nonnull final RemovalEventBus<? super K, ? super V> removals) {
+        return new OffHeapBasilCache<>(this.codec, this.maximumBytes, this.pageSize, this.growthFactor, this.concurrencyLevel,
+                Objects.requireNonNull(removals, "removals"));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.refresh.RefreshAheadCache;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds {@link RefreshAheadCache}s, which reload hot entries in the background before they expire.
+ * Start with {@link BasilCacheBuilder.CacheProvider#refreshAhead(long, java.util.concurrent.TimeUnit)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class RefreshAheadCacheBuilder<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private final long expireAfterWriteNanos;
+    private double refreshFraction = 0.2;
+    private int maximumConcurrentRefreshes = 4;
+    private Executor executor = ForkJoinPool.commonPool();
+    private Ticker ticker = Ticker.systemTicker();
+
+    RefreshAheadCacheBuilder(@Nonnull final BasilCache<K, V> delegate, final long expireAfterWriteNanos) {
+        if (expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + expireAfterWriteNanos);
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+    }
+
+    /**
+     * Sets the fraction of the time to live left at which a hit refreshes an entry, 0.2 by default.
+     *
+     * @param refreshFraction the refresh fraction, larger than zero and at most one
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RefreshAheadCacheBuilder<K, V> refreshFraction(final double refreshFraction) {
+        if (!(refreshFraction > 0.0 && refreshFraction <= 1.0)) {
+            throw new IllegalArgumentException("refreshFraction must be in (0, 1]: " + refreshFraction);
+        }
+        this.refreshFraction = refreshFraction;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of reloads running at the same time, 4 by default.
+     *
+     * @param maximumConcurrentRefreshes the maximum number of concurrent reloads
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RefreshAheadCacheBuilder<K, V> maximumConcurrentRefreshes(final int maximumConcurrentRefreshes) {
+        if (maximumConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("maximumConcurrentRefreshes must be positive: " + maximumConcurrentRefreshes);
+        }
+        this.maximumConcurrentRefreshes = maximumConcurrentRefreshes;
+        return this;
+    }
+
+    /**
+     * Sets the executor reloads run on, the common {@link ForkJoinPool} by default.
+     *
+     * @param executor to run reloads on
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RefreshAheadCacheBuilder<K, V> executor(@Nonnull final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Sets the time source write times are read from, the system ticker by default.
+     * It should be the ticker the delegate expires its entries with.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RefreshAheadCacheBuilder<K, V> ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns the refresh-ahead cache.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RefreshAheadCache<K, V> build() {
+        return new RefreshAheadCache<>(this.delegate, this.expireAfterWriteNanos, this.refreshFraction,
+                this.maximumConcurrentRefreshes, this.executor, this.ticker);
+    }
+}
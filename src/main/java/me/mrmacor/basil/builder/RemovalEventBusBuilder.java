@@ -0,0 +1,120 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.event.RemovalEventBus;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds {@link RemovalEventBus}es, which deliver the removals of caches to subscribers in batches.
+ * Start with {@link BasilCacheBuilder#newRemovalEventBus()}.
+ *
+ * @since 1.1.0
+ */
+public final class RemovalEventBusBuilder {
+
+    private int capacity = 1024;
+    private RemovalEventBus.OverflowPolicy overflowPolicy = RemovalEventBus.OverflowPolicy.DROP;
+    private int maximumBatchSize = 256;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    RemovalEventBusBuilder() {
+
+    }
+
+    /**
+     * Sets the number of removals the buffer holds before it overflows, 1024 by default.
+     * It is rounded up to a power of two.
+     *
+     * @param capacity the capacity of the buffer
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalEventBusBuilder capacity(@Nonnegative final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * Sets what happens to removals published while the buffer is full, {@link RemovalEventBus.OverflowPolicy#DROP} by default.
+     *
+     * @param overflowPolicy the overflow policy
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalEventBusBuilder overflowPolicy(@Nonnull final RemovalEventBus.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        return this;
+    }
+
+    /**
+     * Bounds the number of removals delivered in one batch, 256 by default.
+     *
+     * @param maximumBatchSize the maximum batch size
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalEventBusBuilder maximumBatchSize(@Nonnegative final int maximumBatchSize) {
+        if (maximumBatchSize <= 0) {
+            throw new IllegalArgumentException("maximumBatchSize must be positive: " + maximumBatchSize);
+        }
+        this.maximumBatchSize = maximumBatchSize;
+        return this;
+    }
+
+    /**
+     * Sets the executor removals are delivered on, the common pool by default.
+     *
+     * @param executor the executor
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalEventBusBuilder executor(@Nonnull final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Returns the removal event bus.
+     *
+     * @return the bus
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K, V> RemovalEventBus<K, V> build() {
+        return new RemovalEventBus<>(this.capacity, this.overflowPolicy, this.maximumBatchSize, this.executor);
+    }
+}
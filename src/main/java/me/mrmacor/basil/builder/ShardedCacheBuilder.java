@@ -0,0 +1,96 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.collect.ImmutableList;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.sharded.ShardedBasilCache;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Builds {@link ShardedBasilCache}s, which partition their keys across independently built caches.
+ * Start with {@link BasilCacheBuilder#newShardedCache(Supplier)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class ShardedCacheBuilder<K, V> {
+
+    private final Supplier<? extends BasilCache<K, V>> shardFactory;
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    ShardedCacheBuilder(@Nonnull final Supplier<? extends BasilCache<K, V>> shardFactory) {
+        this.shardFactory = Objects.requireNonNull(shardFactory, "shardFactory");
+    }
+
+    /**
+     * Sets the number of shards, the number of available processors by default.
+     *
+     * @param shards the number of shards
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ShardedCacheBuilder<K, V> shards(final int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.shards = shards;
+        return this;
+    }
+
+    /**
+     * Sets the number of shards to a multiple of the number of available processors.
+     *
+     * @param shardsPerProcessor the number of shards per available processor
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ShardedCacheBuilder<K, V> shardsPerProcessor(final int shardsPerProcessor) {
+        if (shardsPerProcessor <= 0) {
+            throw new IllegalArgumentException("shardsPerProcessor must be positive: " + shardsPerProcessor);
+        }
+        return this.shards(Math.multiplyExact(shardsPerProcessor, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns the sharded cache, calling the shard factory once per shard.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public ShardedBasilCache<K, V> build() {
+        final ImmutableList.Builder<BasilCache<K, V>> shards = ImmutableList.builderWithExpectedSize(this.shards);
+        for (int i = 0; i < this.shards; i++) {
+            shards.add(Objects.requireNonNull(this.shardFactory.get(), "shardFactory returned null"));
+        }
+        return new ShardedBasilCache<>(shards.build());
+    }
+}
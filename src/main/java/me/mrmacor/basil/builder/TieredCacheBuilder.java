@@ -0,0 +1,90 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.tiered.TieredBasilCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Builds {@link TieredBasilCache}s, which keep their hot entries in a small Caffeine cache in front of a larger cache.
+ * Start with {@link BasilCacheBuilder#newTieredCache(BasilCache)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class TieredCacheBuilder<K, V> {
+
+    private final BasilCache<K, V> l2;
+    private long l1MaximumSize = 1024;
+    private TieredBasilCache.WritePolicy writePolicy = TieredBasilCache.WritePolicy.WRITE_THROUGH;
+
+    TieredCacheBuilder(@Nonnull final BasilCache<K, V> l2) {
+        this.l2 = Objects.requireNonNull(l2, "l2");
+    }
+
+    /**
+     * Bounds the number of entries in the first tier, 1024 by default.
+     *
+     * @param l1MaximumSize the maximum number of entries in the first tier
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TieredCacheBuilder<K, V> l1MaximumSize(@Nonnegative final long l1MaximumSize) {
+        if (l1MaximumSize < 0) {
+            throw new IllegalArgumentException("l1MaximumSize must not be negative: " + l1MaximumSize);
+        }
+        this.l1MaximumSize = l1MaximumSize;
+        return this;
+    }
+
+    /**
+     * Sets whether writes go to the first tier as well as the second, {@link TieredBasilCache.WritePolicy#WRITE_THROUGH} by default.
+     *
+     * @param writePolicy the write policy
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TieredCacheBuilder<K, V> writePolicy(@Nonnull final TieredBasilCache.WritePolicy writePolicy) {
+        this.writePolicy = Objects.requireNonNull(writePolicy, "writePolicy");
+        return this;
+    }
+
+    /**
+     * Returns the tiered cache.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TieredBasilCache<K, V> build() {
+        return new TieredBasilCache<>(this.l1MaximumSize, this.l2, this.writePolicy);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.engine.TimerWheelCacheSet;
+import me.mrmacor.basil.event.RemovalEventBus;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link TimerWheelCacheSet}s, whose members each have their own time to live.
+ * Start with {@link BasilCacheBuilder#newTimerWheelCacheSet()}.
+ *
+ * @since 1.1.0
+ */
+public final class TimerWheelCacheSetBuilder {
+
+    private long expireAfterWriteNanos;
+    private ScheduledExecutorService scheduler;
+    private Ticker ticker = Ticker.systemTicker();
+
+    TimerWheelCacheSetBuilder() {
+
+    }
+
+    /**
+     * Expires members added without a time to live once the provided duration has passed since they were added.
+     * By default, such members never expire.
+     *
+     * @param duration how long members live after being added
+     * @param unit the unit of the duration
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TimerWheelCacheSetBuilder expireAfterWrite(@Nonnegative final long duration, @Nonnull final TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Sets a scheduler that removes expired members about once a second, so they do not linger while the set is idle.
+     * Without one, expired members are removed on writes, {@link CacheSet#size()} and {@link CacheSet#cleanUp()}.
+     *
+     * @param scheduler the scheduler
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TimerWheelCacheSetBuilder scheduler(@Nonnull final ScheduledExecutorService scheduler) {
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        return this;
+    }
+
+    /**
+     * Sets the time source used for expiry, the system ticker by default.
+     *
+     * @param ticker the time source
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TimerWheelCacheSetBuilder ticker(@Nonnull final Ticker ticker) {
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        return this;
+    }
+
+    /**
+     * Returns a {@link CacheSet} with per-member time to live, see {@link TimerWheelCacheSet}.
+     *
+     * @return the cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> TimerWheelCacheSet<V> build() {
+        return new TimerWheelCacheSet<>(this.expireAfterWriteNanos, this.scheduler, this.ticker, null);
+    }
+
+    /**
+     * Returns a {@link CacheSet} with per-member time to live, see {@link TimerWheelCacheSet},
+     * which publishes the members that expire to the provided bus.
+     *
+     * @param removals the bus to publish expired members to
+     * @return the cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> TimerWheelCacheSet<V> build(@Nonnull final RemovalEventBus<? super V, ?> removals) {
+        return new TimerWheelCacheSet<>(this.expireAfterWriteNanos, this.scheduler, this.ticker,
+                Objects.requireNonNull(removals, "removals"));
+    }
+}
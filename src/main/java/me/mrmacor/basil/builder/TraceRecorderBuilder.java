@@ -0,0 +1,77 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import me.mrmacor.basil.trace.TraceRecorder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Builds {@link TraceRecorder}s, which record the operations on caches into a trace file.
+ * Start with {@link BasilCacheBuilder#newTraceRecorder(Path)}.
+ *
+ * @since 1.1.0
+ */
+public final class TraceRecorderBuilder {
+
+    private final Path file;
+    private int bufferSize = 4096;
+
+    TraceRecorderBuilder(@Nonnull final Path file) {
+        this.file = Objects.requireNonNull(file, "file");
+    }
+
+    /**
+     * Sets the number of records every thread buffers before writing them out, 4096 by default.
+     * Larger buffers take the file lock less often, but hold more records that are only written out on close.
+     *
+     * @param bufferSize the number of records per buffer
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TraceRecorderBuilder bufferSize(@Nonnegative final int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Returns the trace recorder, creating or truncating its file.
+     *
+     * @return the recorder
+     * @throws IOException if the file cannot be opened or written
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TraceRecorder build() throws IOException {
+        return new TraceRecorder(this.file, this.bufferSize);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.builder;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.weight.ObjectSizeEstimator;
+import me.mrmacor.basil.weight.Weigher;
+import me.mrmacor.basil.wrapper.WeightedGuavaCache;
+import me.mrmacor.basil.wrapper.WrappedCaffeineCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Builds Guava or Caffeine backed {@link BasilCache}s bounded by the total weight of their entries instead of their
+ * number, which report that weight through {@link BasilCache#weightedSize()}.
+ * Start with {@link BasilCacheBuilder#newWeightedCache(long)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class WeightedCacheBuilder<K, V> {
+
+    private final long maximumWeight;
+    private Weigher<? super K, ? super V> weigher = Weigher.estimated();
+
+    WeightedCacheBuilder(@Nonnegative final long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight must not be negative: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Sets the weigher entries are weighed with, by default one estimating the bytes they retain
+     * with {@link ObjectSizeEstimator}.
+     *
+     * @param weigher the weigher
+     * @return this builder
+     * @since 1.1.0
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> WeightedCacheBuilder<K1, V1> weigher(@Nonnull final Weigher<? super K1, ? super V1> weigher) {
+        final WeightedCacheBuilder<K1, V1> self = (WeightedCacheBuilder<K1, V1>) this;
+        self.weigher = Objects.requireNonNull(weigher, "weigher");
+        return self;
+    }
+
+    /**
+     * Returns a cache backed by a Guava cache.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K1 extends K, V1 extends V> BasilCache<K1, V1> buildGuava() {
+        return this.buildGuava(CacheBuilder.newBuilder());
+    }
+
+    /**
+     * Returns a cache backed by a Guava cache built with the provided builder, which must not be bounded already.
+     *
+     * <p>A removal listener the builder already has is kept, and called after the weight of the removed entry was
+     * subtracted. Keys and values must be strongly referenced, as collected ones cannot be weighed anymore.</p>
+     *
+     * @param builder to build the Guava cache with, to set its other options
+     * @return the cache
+     * @throws IllegalArgumentException if the builder has weak keys or weak or soft values
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K1 extends K, V1 extends V> BasilCache<K1, V1> buildGuava(@Nonnull final CacheBuilder<Object, Object> builder) {
+        return new WeightedGuavaCache<>(builder, this.maximumWeight, this.weigher);
+    }
+
+    /**
+     * Returns a cache backed by a Caffeine cache.
+     *
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K1 extends K, V1 extends V> BasilCache<K1, V1> buildCaffeine() {
+        return this.buildCaffeine(Caffeine.newBuilder());
+    }
+
+    /**
+     * Returns a cache backed by a Caffeine cache built with the provided builder, which must not be bounded already.
+     *
+     * @param builder to build the Caffeine cache with, to set its other options
+     * @return the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <K1 extends K, V1 extends V> BasilCache<K1, V1> buildCaffeine(@Nonnull final Caffeine<Object, Object> builder) {
+        final Weigher<? super K, ? super V> weigher = this.weigher;
+        return new WrappedCaffeineCache<>(builder.maximumWeight(this.maximumWeight)
+                .<K1, V1>weigher(weigher::weigh)
+                .build());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import me.mrmacor.basil.stats.BasilCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+/**
+ * A cache whose loads do not block the calling thread.
+ * Used as a representation of a {@link com.github.benmanes.caffeine.cache.AsyncCache}, or of any {@link BasilCache} with
+ * its loads moved to an {@link Executor}.
+ *
+ * <p>Threads asking for a key that is being loaded share the future of the load in flight, so a key is loaded once
+ * no matter how many callers miss on it at the same time. A future that fails or completes with null is not cached.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public interface AsyncBasilCache<K, V> {
+
+    /**
+     * Returns the future of the value associated with the provided key, or null if there is none and none is being loaded.
+     *
+     * @param key to look for
+     * @return the future of the value associated with the key, or null
+     * @since 1.1.0
+     */
+    @SuppressWarnings("checkstyle:MethodName")
+    @Nullable CompletableFuture<V> getIfPresent(@Nonnull final K key);
+
+    /**
+     * Returns the future of the value associated with the provided key, running the loader on the executor of this cache
+     * if there is none. A checked exception thrown by the loader fails the future with that exception as its cause.
+     *
+     * @param key to look for
+     * @param loader to run if there is no value for the key
+     * @return the future of the value associated with the key
+     * @since 1.1.0
+     */
+    @Nonnull
+    default CompletableFuture<V> get(@Nonnull final K key, @Nonnull final Callable<V> loader) {
+        return this.get(key, (k, executor) -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.call();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Returns the future of the value associated with the provided key, calling the loader to start loading it if there is
+     * none. The loader receives the key and the executor of this cache.
+     *
+     * @param key to look for
+     * @param loader to call if there is no value for the key
+     * @return the future of the value associated with the key
+     * @since 1.1.0
+     */
+    @Nonnull CompletableFuture<V> get(@Nonnull final K key,
+                                      @Nonnull final BiFunction<? super K, ? super Executor, ? extends CompletableFuture<V>> loader);
+
+    /**
+     * Returns the future of a map of values associated with the provided keys, calling the loader once to start loading
+     * the keys that are neither present nor being loaded. Requested keys the loader does not return are absent from the map.
+     *
+     * @param keys to look for
+     * @param loader to call with the keys to load and the executor of this cache
+     * @return the future of the values associated with the keys, in the order of the keys
+     * @since 1.1.0
+     */
+    @SuppressWarnings("checkstyle:MethodName")
+    @Nonnull CompletableFuture<Map<K, V>> getAll(@Nonnull final Iterable<K> keys,
+                                                 @Nonnull final BiFunction<? super Set<K>, ? super Executor, ? extends CompletableFuture<Map<K, V>>> loader);
+
+    /**
+     * Associates the value the provided future completes with with the provided key.
+     * Until it completes, the future is shared with callers asking for the key.
+     *
+     * @param key to associate the value with
+     * @param value the future of the value
+     * @since 1.1.0
+     */
+    void put(@Nonnull final K key, @Nonnull final CompletableFuture<V> value);
+
+    /**
+     * Returns a view of this cache that blocks until loads complete, sharing loads in flight with this cache.
+     *
+     * @return the synchronous view
+     * @since 1.1.0
+     */
+    @Nonnull BasilCache<K, V> synchronous();
+
+    /**
+     * Returns a snapshot of the statistics of this cache and its synchronous view.
+     *
+     * @return a snapshot of the statistics
+     * @since 1.1.0
+     */
+    @Nonnull BasilCacheStats stats();
+}
@@ -24,13 +24,21 @@
 package me.mrmacor.basil.cache;
 
 import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.stats.BasilCacheStats;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A custom implementation of a Cache{@literal <}K, V>.
@@ -38,7 +46,6 @@ import java.util.concurrent.ExecutionException;
  *
  * @since 1.0.0
  */
-//TODO cache stats!
 public interface BasilCache<K, V> {
 
     /**
@@ -49,6 +56,43 @@ public interface BasilCache<K, V> {
      */
     @Nonnull ConcurrentMap<K, V> asMap();
 
+    /**
+     * Returns a spliterator over the live entries of this cache, without copying them.
+     * It is weakly consistent: it never throws {@link java.util.ConcurrentModificationException}, may or may not
+     * reflect writes made while it is traversed, and skips entries that expired or were evicted. It splits,
+     * so a parallel stream spreads the entries across threads, and its size is an estimate.
+     *
+     * @return a spliterator over the entries of this cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Spliterator<Map.Entry<K, V>> spliterator() {
+        return this.asMap().entrySet().spliterator();
+    }
+
+    /**
+     * Returns a sequential stream of the live entries of this cache. See {@link #spliterator()}.
+     *
+     * @return a stream of the entries of this cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Stream<Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the live entries of this cache, run on the common fork-join pool.
+     * See {@link #spliterator()}.
+     *
+     * @return a parallel stream of the entries of this cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Stream<Map.Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(this.spliterator(), true);
+    }
+
     /**
      * Performs any pending maintenance operations needed by the cache.
      *
@@ -76,6 +120,66 @@ public interface BasilCache<K, V> {
      */
     @Nonnull ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys);
 
+    /**
+     * Passes every provided key that is present in this cache to the provided action, along with its value,
+     * in the order of the keys.
+     * Unlike {@link #allPresent(Iterable)}, no map is built, so nothing is allocated on behalf of the caller.
+     *
+     * @param keys to look for
+     * @param action to call with every key that is present and its value
+     * @since 1.1.0
+     */
+    default void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        for (final K key : keys) {
+            final V value = this.getIfPresent(key);
+            if (value != null) {
+                action.accept(key, value);
+            }
+        }
+    }
+
+    /**
+     * Looks up every provided key, storing the value of {@code keys[i]} in {@code values[i]},
+     * or null if it is not present in this cache.
+     * The arrays can be reused across calls, so nothing is allocated on behalf of the caller.
+     *
+     * @param keys to look for
+     * @param values to store the values in, at least as long as the keys
+     * @return the number of keys that were present
+     * @since 1.1.0
+     */
+    default int allPresent(@Nonnull final K[] keys, @Nonnull final V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("values must be at least as long as keys: " + values.length + " < " + keys.length);
+        }
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = this.getIfPresent(keys[i]);
+            if (values[i] != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a map of values associated with the provided keys in this cache, loading all missing values with a single
+     * call to the provided bulk loader.
+     *
+     * <p>Keys that are being loaded by another call at the same time are not passed to the bulk loader, their values are
+     * waited for instead. Entries the bulk loader returns for keys that were not requested are stored as well,
+     * and requested keys it does not return are absent from the result. Loader failures are reported as an
+     * {@link com.google.common.util.concurrent.UncheckedExecutionException} or an
+     * {@link com.google.common.util.concurrent.ExecutionError}.</p>
+     *
+     * @param keys to look for
+     * @param loader to call with the keys that are missing
+     * @return a map of values associated with the provided keys, in the order of the keys
+     * @since 1.1.0
+     */
+    @SuppressWarnings("checkstyle:MethodName")
+    @Nonnull ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader);
+
     /**
      * Returns the value associated with the provided key in this cache,
      * or null if there is no cached value for the provided key.
@@ -132,4 +236,25 @@ public interface BasilCache<K, V> {
      * @since 1.0.0
      */
     long size();
+
+    /**
+     * Returns the total weight of the entries in this cache, usually the bytes they retain,
+     * if this cache is bounded by weight.
+     *
+     * @return the total weight of the entries, or empty if this cache does not weigh its entries
+     * @since 1.1.0
+     */
+    @Nonnull
+    default OptionalLong weightedSize() {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Returns a snapshot of this cache's statistics.
+     * Operations performed through {@link #asMap()} are not guaranteed to be counted.
+     *
+     * @return a snapshot of this cache's statistics
+     * @since 1.1.0
+     */
+    @Nonnull BasilCacheStats stats();
 }
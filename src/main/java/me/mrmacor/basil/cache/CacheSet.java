@@ -23,11 +23,15 @@
  */
 package me.mrmacor.basil.cache;
 
+import me.mrmacor.basil.stats.BasilCacheStats;
 import me.mrmacor.basil.wrapper.CacheSetImpl;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A cache that stores elements of a single type, not in a key-value pair. See {@link CacheSetImpl}.
@@ -109,6 +113,41 @@ public interface CacheSet<V> {
      */
     @Nonnull Set<V> asSet();
 
+    /**
+     * Returns a spliterator over the live values in the cache, without copying them.
+     * Like {@link BasilCache#spliterator()}, it is weakly consistent, skips expired values and splits.
+     *
+     * @return a spliterator over the values in the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Spliterator<V> spliterator() {
+        return this.asSet().spliterator();
+    }
+
+    /**
+     * Returns a sequential stream of the live values in the cache. See {@link #spliterator()}.
+     *
+     * @return a stream of the values in the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Stream<V> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the live values in the cache, run on the common fork-join pool.
+     * See {@link #spliterator()}.
+     *
+     * @return a parallel stream of the values in the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    default Stream<V> parallelStream() {
+        return StreamSupport.stream(this.spliterator(), true);
+    }
+
     /**
      * Returns the approximate number of values in the cache.
      *
@@ -123,4 +162,13 @@ public interface CacheSet<V> {
      * @since 1.0.0
      */
     void cleanUp();
+
+    /**
+     * Returns a snapshot of the cache's statistics, where a hit or a miss is a {@link #contains(Object)} check
+     * that found or did not find the value.
+     *
+     * @return a snapshot of the cache's statistics
+     * @since 1.1.0
+     */
+    @Nonnull BasilCacheStats stats();
 }
@@ -0,0 +1,157 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.stats.BasilCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that forwards every operation to the cache returned by {@link #delegate()},
+ * like Guava's {@link com.google.common.cache.ForwardingCache}.
+ * Subclasses override the operations they decorate, and inherit the rest.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public abstract class ForwardingBasilCache<K, V> implements BasilCache<K, V>, DelegationCache<BasilCache<K, V>> {
+
+    /**
+     * Constructor for subclasses.
+     *
+     * @since 1.1.0
+     */
+    protected ForwardingBasilCache() {
+
+    }
+
+    @Nonnull
+    @Override
+    public abstract BasilCache<K, V> delegate();
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.delegate().asMap();
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return this.delegate().spliterator();
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate().cleanUp();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        return this.delegate().get(key, loader);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        return this.delegate().allPresent(keys);
+    }
+
+    @Override
+    public void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        this.delegate().forEachPresent(keys, action);
+    }
+
+    @Override
+    public int allPresent(@Nonnull final K[] keys, @Nonnull final V[] values) {
+        return this.delegate().allPresent(keys, values);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        return this.delegate().getAll(keys, loader);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        return this.delegate().getIfPresent(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.delegate().invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.delegate().invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.delegate().invalidateAll(keys);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.delegate().put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.delegate().putAll(map);
+    }
+
+    @Override
+    public long size() {
+        return this.delegate().size();
+    }
+
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        return this.delegate().weightedSize();
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.delegate().stats();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import me.mrmacor.basil.stats.BasilCacheStats;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.Spliterator;
+
+/**
+ * A {@link CacheSet} that forwards every operation to the set returned by {@link #delegate()},
+ * like Guava's {@link com.google.common.cache.ForwardingCache}.
+ * Subclasses override the operations they decorate, and inherit the rest.
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public abstract class ForwardingCacheSet<V> implements CacheSet<V>, DelegationCache<CacheSet<V>> {
+
+    /**
+     * Constructor for subclasses.
+     *
+     * @since 1.1.0
+     */
+    protected ForwardingCacheSet() {
+
+    }
+
+    @Nonnull
+    @Override
+    public abstract CacheSet<V> delegate();
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        return this.delegate().contains(value);
+    }
+
+    @Override
+    public void add(@Nonnull final V value) {
+        this.delegate().add(value);
+    }
+
+    @Override
+    public void addAll(@Nonnull final Iterable<V> values) {
+        this.delegate().addAll(values);
+    }
+
+    @Override
+    public void addAll(@Nonnull final V... values) {
+        this.delegate().addAll(values);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final V value) {
+        this.delegate().invalidate(value);
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<V> values) {
+        this.delegate().invalidateAll(values);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.delegate().invalidateAll();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.delegate().isEmpty();
+    }
+
+    @Nonnull
+    @Override
+    public Set<V> asSet() {
+        return this.delegate().asSet();
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<V> spliterator() {
+        return this.delegate().spliterator();
+    }
+
+    @Nonnegative
+    @Override
+    public long size() {
+        return this.delegate().size();
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate().cleanUp();
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.delegate().stats();
+    }
+}
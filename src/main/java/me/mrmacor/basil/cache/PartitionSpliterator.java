@@ -0,0 +1,150 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A {@link Spliterator} over a fixed number of independent partitions, such as the shards or segments of a cache,
+ * that traverses them one after the other.
+ *
+ * <p>It splits by halving the range of partitions it has not started yet. Once a single partition is left,
+ * it splits that partition's own spliterator. The spliterator of a partition is only created when its traversal
+ * or split begins, so no partition is copied or locked before it is needed.</p>
+ *
+ * @param <T> the type of the elements
+ * @since 1.1.0
+ */
+public final class PartitionSpliterator<T> implements Spliterator<T> {
+
+    private final IntFunction<Spliterator<T>> partition;
+    private final IntToLongFunction size;
+    private final int characteristics;
+    private final int to;
+    private int from;
+    @Nullable
+    private Spliterator<T> current;
+
+    /**
+     * Constructor for the partition spliterator.
+     *
+     * @param partitions the number of partitions
+     * @param partition returns a spliterator over the partition of the provided index
+     * @param size returns an estimate of the number of elements in the partition of the provided index
+     * @param characteristics the characteristics every partition's spliterator reports
+     * @since 1.1.0
+     */
+    public PartitionSpliterator(@Nonnegative final int partitions, @Nonnull final IntFunction<Spliterator<T>> partition,
+                                @Nonnull final IntToLongFunction size, final int characteristics) {
+        this(Objects.requireNonNull(partition, "partition"), Objects.requireNonNull(size, "size"), characteristics, 0, partitions);
+    }
+
+    private PartitionSpliterator(final IntFunction<Spliterator<T>> partition, final IntToLongFunction size, final int characteristics,
+                                 final int from, final int to) {
+        this.partition = partition;
+        this.size = size;
+        this.characteristics = characteristics;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(@Nonnull final Consumer<? super T> action) {
+        while (true) {
+            if (this.current == null) {
+                if (this.from == this.to) {
+                    return false;
+                }
+                this.current = this.partition.apply(this.from++);
+            }
+            if (this.current.tryAdvance(action)) {
+                return true;
+            }
+            this.current = null;
+        }
+    }
+
+    @Override
+    public void forEachRemaining(@Nonnull final Consumer<? super T> action) {
+        if (this.current != null) {
+            this.current.forEachRemaining(action);
+            this.current = null;
+        }
+        while (this.from < this.to) {
+            this.partition.apply(this.from++).forEachRemaining(action);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Spliterator<T> trySplit() {
+        if (this.current != null) {
+            if (this.from == this.to) {
+                return this.current.trySplit();
+            }
+            // keep the partition being traversed, hand off the ones after it
+            final PartitionSpliterator<T> rest = new PartitionSpliterator<>(this.partition, this.size, this.characteristics,
+                    this.from, this.to);
+            this.from = this.to;
+            return rest;
+        }
+        final int remaining = this.to - this.from;
+        if (remaining > 1) {
+            final int middle = this.from + remaining / 2;
+            final PartitionSpliterator<T> prefix = new PartitionSpliterator<>(this.partition, this.size, this.characteristics,
+                    this.from, middle);
+            this.from = middle;
+            return prefix;
+        }
+        if (remaining == 1) {
+            this.current = this.partition.apply(this.from++);
+            return this.current.trySplit();
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = this.current == null ? 0 : this.current.estimateSize();
+        for (int i = this.from; i < this.to; i++) {
+            size += this.size.applyAsLong(i);
+            if (size < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return this.characteristics;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.codec;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values to and from bytes, for caches that keep values outside of the Java heap.
+ * See {@link Codecs} for codecs of common types.
+ *
+ * <p>A codec must be thread-safe, and must not call back into the cache it is used by.</p>
+ *
+ * @param <T> the type of the values
+ * @since 1.1.0
+ */
+public interface Codec<T> {
+
+    /**
+     * Returns the number of bytes {@link #encode(Object, ByteBuffer)} writes for the provided value.
+     *
+     * @param value to measure
+     * @return the encoded size of the value in bytes
+     * @since 1.1.0
+     */
+    @Nonnegative
+    int size(@Nonnull T value);
+
+    /**
+     * Writes the provided value to the buffer, starting at its position.
+     * Exactly {@link #size(Object)} bytes must be written.
+     *
+     * @param value to encode
+     * @param target to write to
+     * @since 1.1.0
+     */
+    void encode(@Nonnull T value, @Nonnull ByteBuffer target);
+
+    /**
+     * Reads a value from the buffer, which holds exactly the bytes written by {@link #encode(Object, ByteBuffer)}.
+     * The buffer is only valid during the call, so it must not be retained.
+     *
+     * @param source to read from
+     * @return the decoded value
+     * @since 1.1.0
+     */
+    @Nonnull
+    T decode(@Nonnull ByteBuffer source);
+}
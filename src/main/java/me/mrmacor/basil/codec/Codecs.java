@@ -0,0 +1,131 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.codec;
+
+import com.google.common.base.Utf8;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility class providing {@link Codec}s for common value types.
+ *
+ * @since 1.1.0
+ */
+public final class Codecs {
+
+    private static final Codec<String> UTF_8 = new Codec<>() {
+        @Override
+        public int size(@Nonnull final String value) {
+            return Utf8.encodedLength(value);
+        }
+
+        @Override
+        public void encode(@Nonnull final String value, @Nonnull final ByteBuffer target) {
+            target.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull final ByteBuffer source) {
+            return StandardCharsets.UTF_8.decode(source).toString();
+        }
+    };
+
+    private static final Codec<byte[]> BYTE_ARRAY = new Codec<>() {
+        @Override
+        public int size(@Nonnull final byte[] value) {
+            return value.length;
+        }
+
+        @Override
+        public void encode(@Nonnull final byte[] value, @Nonnull final ByteBuffer target) {
+            target.put(value);
+        }
+
+        @Nonnull
+        @Override
+        public byte[] decode(@Nonnull final ByteBuffer source) {
+            final byte[] value = new byte[source.remaining()];
+            source.get(value);
+            return value;
+        }
+    };
+
+    private static final Codec<Long> LONG = new Codec<>() {
+        @Override
+        public int size(@Nonnull final Long value) {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void encode(@Nonnull final Long value, @Nonnull final ByteBuffer target) {
+            target.putLong(value);
+        }
+
+        @Nonnull
+        @Override
+        public Long decode(@Nonnull final ByteBuffer source) {
+            return source.getLong();
+        }
+    };
+
+    private Codecs() {
+
+    }
+
+    /**
+     * Returns a codec storing strings as UTF-8.
+     *
+     * @return the codec
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static Codec<String> utf8() {
+        return UTF_8;
+    }
+
+    /**
+     * Returns a codec storing byte arrays as they are.
+     *
+     * @return the codec
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static Codec<byte[]> byteArray() {
+        return BYTE_ARRAY;
+    }
+
+    /**
+     * Returns a codec storing longs in eight bytes.
+     *
+     * @return the codec
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static Codec<Long> longs() {
+        return LONG;
+    }
+}
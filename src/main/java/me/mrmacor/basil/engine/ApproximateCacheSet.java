@@ -0,0 +1,360 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import com.google.common.base.Ticker;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An approximate {@link CacheSet} for membership sets too large to store, which keeps a fingerprint of a few bits
+ * per member in cuckoo filters instead of the members themselves.
+ *
+ * <p>{@link #contains(Object)} may report a member that was never added, at the configured false positive probability,
+ * but never misses a member that was added and neither expired nor invalidated. {@link #invalidate(Object)} removes a
+ * fingerprint, so invalidating a value that was never added may remove the fingerprint of a member that shares it.</p>
+ *
+ * <p>Each segment keeps a ring of filters, one per generation. Members are added to the newest generation, and every
+ * {@code expireAfterWrite / (generations - 1)} the oldest generation is cleared and becomes the newest, so members are
+ * reported present for at least {@code expireAfterWrite}, and at most {@code generations / (generations - 1)} times it.
+ * A generation that fills up before then rotates early, so when more members are added per lifetime than the memory
+ * budget holds, the oldest ones expire sooner rather than crowding out new ones.</p>
+ *
+ * <p>{@link #size()} is an estimate that counts a member once per generation it was added in,
+ * and {@link #asSet()} is not supported, as the members themselves are not stored.</p>
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class ApproximateCacheSet<V> implements CacheSet<V> {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final int MAXIMUM_BUCKETS = 1 << 28;
+
+    private final Funnel<? super V> funnel;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long sliceNanos;
+    private final Ticker ticker;
+    private final long origin;
+    private final StatsCounter counter = new StatsCounter();
+
+    /**
+     * Constructor for the approximate {@link CacheSet}. See {@link me.mrmacor.basil.builder.ApproximateCacheSetBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param funnel to hash members with
+     * @param maximumBytes the memory budget of all filters together
+     * @param falsePositiveProbability the probability of reporting a member that was never added
+     * @param expireAfterWriteNanos how long members live after being added, or zero if they do not expire
+     * @param generations the number of generations members expire in, at least two
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param ticker the time source
+     * @since 1.1.0
+     */
+    public ApproximateCacheSet(@Nonnull final Funnel<? super V> funnel, @Nonnegative final long maximumBytes,
+                               final double falsePositiveProbability, @Nonnegative final long expireAfterWriteNanos,
+                               final int generations, final int concurrencyLevel, @Nonnull final Ticker ticker) {
+        if (!(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in (0, 1): " + falsePositiveProbability);
+        }
+        if (maximumBytes < 0 || expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("maximumBytes and expireAfterWriteNanos must not be negative");
+        }
+        if (generations < 2) {
+            throw new IllegalArgumentException("generations must be at least two: " + generations);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.funnel = Objects.requireNonNull(funnel, "funnel");
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        this.origin = ticker.read();
+        this.sliceNanos = expireAfterWriteNanos == 0 ? Long.MAX_VALUE : Math.max(1, expireAfterWriteNanos / (generations - 1));
+
+        // a lookup checks every generation, so each filter gets its share of the false positive probability
+        final double log = Math.log(2.0 * CuckooFilter.SLOTS * generations / falsePositiveProbability) / Math.log(2);
+        final int bits = Math.max(4, Math.min(30, (int) Math.ceil(log)));
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16)) {
+            segmentCount <<= 1;
+        }
+        final long bucketBits = (long) generations * segmentCount * CuckooFilter.SLOTS * bits;
+        final int buckets = Integer.highestOneBit((int) Math.max(1, Math.min(MAXIMUM_BUCKETS, maximumBytes * 8 / bucketBits)));
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(generations, buckets, bits);
+        }
+    }
+
+    private long hash(@Nonnull final V value) {
+        return HASH.hashObject(value, this.funnel).asLong();
+    }
+
+    private Segment segmentFor(final long hash) {
+        return this.segments.length == 1 ? this.segments[0] : this.segments[(int) ((hash * 0x9E3779B97F4A7C15L) >>> this.segmentShift)];
+    }
+
+    private Segment current(final long hash) {
+        final Segment segment = this.segmentFor(hash);
+        final long epoch = this.epoch();
+        if (segment.epoch != epoch) {
+            final long stamp = segment.lock.writeLock();
+            try {
+                segment.advance(epoch);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+        return segment;
+    }
+
+    private long epoch() {
+        return this.sliceNanos == Long.MAX_VALUE ? 0L : (this.ticker.read() - this.origin) / this.sliceNanos;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        final long hash = this.hash(value);
+        final Segment segment = this.current(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        boolean found = segment.contains(hash);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                found = segment.contains(hash);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        if (found) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+        return found;
+    }
+
+    @Override
+    public void add(@Nonnull final V value) {
+        final long hash = this.hash(value);
+        final Segment segment = this.segmentFor(hash);
+        final long stamp = segment.lock.writeLock();
+        try {
+            segment.advance(this.epoch());
+            segment.add(hash);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void addAll(@Nonnull final V... values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void invalidate(@Nonnull final V value) {
+        final long hash = this.hash(value);
+        final Segment segment = this.segmentFor(hash);
+        final long stamp = segment.lock.writeLock();
+        try {
+            segment.advance(this.epoch());
+            segment.remove(hash);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.invalidate(value);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (final Segment segment : this.segments) {
+            final long stamp = segment.lock.writeLock();
+            try {
+                for (final CuckooFilter filter : segment.filters) {
+                    filter.clear();
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Not supported, as an approximate set does not store its members.
+     *
+     * @return nothing
+     * @throws UnsupportedOperationException always
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public Set<V> asSet() {
+        throw new UnsupportedOperationException("an approximate CacheSet does not store its members");
+    }
+
+    /**
+     * Returns an estimate of the number of members, which counts a member once per generation it was added in.
+     *
+     * @return the estimated number of members
+     * @since 1.1.0
+     */
+    @Override
+    public long size() {
+        this.cleanUp();
+        long size = 0;
+        for (final Segment segment : this.segments) {
+            final long stamp = segment.lock.readLock();
+            try {
+                for (final CuckooFilter filter : segment.filters) {
+                    size += filter.count();
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void cleanUp() {
+        final long epoch = this.epoch();
+        for (final Segment segment : this.segments) {
+            if (segment.epoch != epoch) {
+                final long stamp = segment.lock.writeLock();
+                try {
+                    segment.advance(epoch);
+                } finally {
+                    segment.lock.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.counter.snapshot();
+    }
+
+    /**
+     * The generations of filters of one segment, the newest one being {@code filters[current]}.
+     * Everything but {@link #epoch} is only accessed under {@link #lock}.
+     */
+    static final class Segment {
+
+        final StampedLock lock = new StampedLock();
+        final CuckooFilter[] filters;
+        int current;
+        volatile long epoch;
+
+        Segment(final int generations, final int buckets, final int bits) {
+            this.filters = new CuckooFilter[generations];
+            for (int i = 0; i < generations; i++) {
+                this.filters[i] = new CuckooFilter(buckets, bits);
+            }
+        }
+
+        void advance(final long epoch) {
+            if (epoch > this.epoch) {
+                final long steps = Math.min(epoch - this.epoch, this.filters.length);
+                for (long i = 0; i < steps; i++) {
+                    this.rotate();
+                }
+                this.epoch = epoch;
+            }
+        }
+
+        private void rotate() {
+            this.current = (this.current + 1) % this.filters.length;
+            this.filters[this.current].clear();
+        }
+
+        boolean contains(final long hash) {
+            for (final CuckooFilter filter : this.filters) {
+                if (filter.contains(filter.fingerprint(hash), filter.bucket(hash))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(final long hash) {
+            CuckooFilter newest = this.filters[this.current];
+            final int fingerprint = newest.fingerprint(hash);
+            final int bucket = newest.bucket(hash);
+            if (newest.contains(fingerprint, bucket)) {
+                return;
+            }
+            if (newest.full()) {
+                this.rotate();
+                newest = this.filters[this.current];
+            }
+            if (!newest.add(fingerprint, bucket)) {
+                final int victim = newest.victim();
+                final int victimBucket = newest.victimBucket();
+                this.rotate();
+                this.filters[this.current].add(victim, victimBucket);
+            }
+        }
+
+        void remove(final long hash) {
+            for (final CuckooFilter filter : this.filters) {
+                filter.remove(filter.fingerprint(hash), filter.bucket(hash));
+            }
+        }
+    }
+}
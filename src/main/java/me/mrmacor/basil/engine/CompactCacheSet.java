@@ -0,0 +1,698 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.cache.PartitionSpliterator;
+import me.mrmacor.basil.event.RemovalCause;
+import me.mrmacor.basil.event.RemovalEvent;
+import me.mrmacor.basil.event.RemovalEventBus;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link CacheSet} that stores nothing but its members.
+ *
+ * <p>Members live in open-addressing tables split into independently locked segments, one array slot per member.
+ * Write and access times are kept in parallel {@code long} arrays that only exist if the matching expiry is configured,
+ * and a size bound costs one recency bit per slot, used to evict with the CLOCK algorithm.
+ * Compared to a {@link me.mrmacor.basil.wrapper.CacheSetImpl}, there is no entry object and no value per member.</p>
+ *
+ * <p>Reads do not take a lock unless they race with a write to the same segment.
+ * Expired members are never reported as present, and are removed a few at a time by writes or all at once by
+ * {@link #cleanUp()}. Like a Guava cache, the size bound is split evenly across segments. Evicted and expired members
+ * are published to the {@link RemovalEventBus} the set was built with, if any.
+ * Iteration and {@link #spliterator()} copy the live members of one segment at a time, never the whole set.</p>
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class CompactCacheSet<V> implements CacheSet<V> {
+
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int SWEEP_STEPS = 8;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long accessGranularityNanos;
+    private final Ticker ticker;
+    private final StatsCounter counter = new StatsCounter();
+    private final RemovalEventBus<? super V, ?> removals;
+
+    /**
+     * Constructor for the compact {@link CacheSet}. See {@link me.mrmacor.basil.builder.CacheSetBuilder} for a friendlier way to build one.
+     *
+     * @param maximumSize the maximum number of members, or a negative number if unbounded
+     * @param expireAfterWriteNanos how long members live after being added, or zero if they do not expire
+     * @param expireAfterAccessNanos how long members live after being added or found, or zero if they do not expire
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param ticker the time source
+     * @param removals to publish evicted and expired members to, or null
+     * @since 1.1.0
+     */
+    public CompactCacheSet(final long maximumSize, @Nonnegative final long expireAfterWriteNanos,
+                           @Nonnegative final long expireAfterAccessNanos, final int concurrencyLevel, @Nonnull final Ticker ticker,
+                           @Nullable final RemovalEventBus<? super V, ?> removals) {
+        if (expireAfterWriteNanos < 0 || expireAfterAccessNanos < 0) {
+            throw new IllegalArgumentException("expiry durations must not be negative");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        // refreshing an access time takes the write lock, so do it at most once every 1/64th of the lifetime
+        this.accessGranularityNanos = expireAfterAccessNanos >>> 6;
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        this.removals = removals;
+
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16) && (maximumSize < 0 || segmentCount * 20L <= maximumSize)) {
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            final long maximum = maximumSize < 0 ? Long.MAX_VALUE : maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment(this, (int) Math.min(maximum, (long) (MAXIMUM_CAPACITY * 0.75)), maximumSize >= 0);
+        }
+    }
+
+    static int spread(final Object value) {
+        final int h = value.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(final int hash) {
+        return this.segments.length == 1 ? this.segments[0] : this.segments[hash >>> this.segmentShift];
+    }
+
+    private boolean expires() {
+        return this.expireAfterWriteNanos != 0 || this.expireAfterAccessNanos != 0;
+    }
+
+    private long now() {
+        return this.expires() ? this.ticker.read() : 0L;
+    }
+
+    /**
+     * Publishes members a segment evicted, which must be done once the segment released its lock.
+     */
+    @SuppressWarnings("unchecked")
+    private void publish(final List<RemovalEvent<Object, Object>> evicted) {
+        for (final RemovalEvent<Object, Object> event : evicted) {
+            this.removals.publish((V) event.key(), null, event.cause());
+        }
+    }
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        final int hash = spread(value);
+        final boolean found = this.segmentFor(hash).contains(value, hash);
+        if (found) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+        return found;
+    }
+
+    @Override
+    public void add(@Nonnull final V value) {
+        final int hash = spread(value);
+        this.segmentFor(hash).add(value, hash, this.now());
+    }
+
+    @Override
+    public void addAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void addAll(@Nonnull final V... values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void invalidate(@Nonnull final V value) {
+        final int hash = spread(value);
+        this.segmentFor(hash).remove(value, hash);
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.invalidate(value);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (final Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final boolean expires = this.expires();
+        final long now = this.now();
+        for (final Segment segment : this.segments) {
+            if (segment.count != 0 && (!expires || segment.hasLiveMember(now))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    public Set<V> asSet() {
+        return new SetView();
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<V> spliterator() {
+        return new PartitionSpliterator<>(this.segments.length,
+                index -> Spliterators.spliterator(this.segments[index].liveMembers(), Spliterator.DISTINCT | Spliterator.NONNULL),
+                index -> this.segments[index].count, Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (final Segment segment : this.segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    @Override
+    public void cleanUp() {
+        final long now = this.now();
+        if (this.expires()) {
+            for (final Segment segment : this.segments) {
+                segment.expireAll(now);
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.counter.snapshot();
+    }
+
+    /**
+     * One independently locked open-addressing table. Slots are probed linearly and removals shift later members
+     * back, so there are no tombstones and a probe stops at the first empty slot.
+     */
+    static final class Segment {
+
+        final CompactCacheSet<?> owner;
+        final StampedLock lock = new StampedLock();
+        final int maximum;
+        final boolean bounded;
+        Object[] members;
+        long[] writeTimes;
+        long[] accessTimes;
+        long[] referenced;
+        volatile int count;
+        int hand;
+        int sweeper;
+        final List<RemovalEvent<Object, Object>> evicted = new ArrayList<>();
+
+        Segment(final CompactCacheSet<?> owner, final int maximum, final boolean bounded) {
+            this.owner = owner;
+            this.maximum = maximum;
+            this.bounded = bounded;
+            this.allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(final int capacity) {
+            this.members = new Object[capacity];
+            this.writeTimes = this.owner.expireAfterWriteNanos == 0 ? null : new long[capacity];
+            this.accessTimes = this.owner.expireAfterAccessNanos == 0 ? null : new long[capacity];
+            this.referenced = this.bounded ? new long[(capacity + 63) >>> 6] : null;
+            this.hand = 0;
+            this.sweeper = 0;
+        }
+
+        private int indexOf(final Object[] table, final Object value, final int hash) {
+            final int mask = table.length - 1;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                final Object member = table[i];
+                if (member == null) {
+                    return -1;
+                }
+                if (member == value || member.equals(value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the time at the provided index, or zero if the times are not tracked.
+         * A resize replaces the arrays one at a time, so an optimistic read may see times that do not match the
+         * probed members; those are not indexed at all, and the stamp validation discards the read.
+         */
+        private static long timeAt(final Object[] table, @Nullable final long[] times, final int index) {
+            return times == null || times.length != table.length ? 0L : times[index];
+        }
+
+        boolean contains(final Object value, final int hash) {
+            long stamp = this.lock.tryOptimisticRead();
+            Object[] table = this.members;
+            long[] writes = this.writeTimes;
+            long[] accesses = this.accessTimes;
+            int index = this.indexOf(table, value, hash);
+            // the arrays may belong to different tables until the stamp is validated, so check before indexing
+            long written = index >= 0 ? timeAt(table, writes, index) : 0L;
+            long accessed = index >= 0 ? timeAt(table, accesses, index) : 0L;
+            if (!this.lock.validate(stamp)) {
+                stamp = this.lock.readLock();
+                try {
+                    table = this.members;
+                    writes = this.writeTimes;
+                    accesses = this.accessTimes;
+                    index = this.indexOf(table, value, hash);
+                    written = index >= 0 && writes != null ? writes[index] : 0L;
+                    accessed = index >= 0 && accesses != null ? accesses[index] : 0L;
+                } finally {
+                    this.lock.unlockRead(stamp);
+                }
+            }
+            if (index < 0) {
+                return false;
+            }
+
+            final long now = this.owner.now();
+            if (this.isExpired(written, accessed, now)) {
+                return false;
+            }
+            final long[] bits = this.referenced;
+            if (bits != null && table == this.members && index >>> 6 < bits.length) {
+                // a racy set is fine, losing a recency bit only makes the member a little more likely to be evicted
+                bits[index >>> 6] |= 1L << index;
+            }
+            if (accesses != null && now - accessed > this.owner.accessGranularityNanos) {
+                this.touch(value, hash, now);
+            }
+            return true;
+        }
+
+        private void touch(final Object value, final int hash, final long now) {
+            final long stamp = this.lock.tryWriteLock();
+            if (stamp != 0L) {
+                try {
+                    final int index = this.indexOf(this.members, value, hash);
+                    if (index >= 0) {
+                        this.accessTimes[index] = now;
+                    }
+                } finally {
+                    this.lock.unlockWrite(stamp);
+                }
+            }
+        }
+
+        void add(final Object value, final int hash, final long now) {
+            if (this.maximum == 0) {
+                return;
+            }
+            final long stamp = this.lock.writeLock();
+            try {
+                int index = this.indexOf(this.members, value, hash);
+                if (index < 0) {
+                    this.sweep(now);
+                    if (this.count >= this.maximum) {
+                        this.evict(now);
+                    }
+                    if ((this.count + 1) > (this.members.length >>> 2) * 3 && this.members.length < MAXIMUM_CAPACITY) {
+                        this.resize(this.members.length << 1);
+                    }
+                    final int mask = this.members.length - 1;
+                    index = hash & mask;
+                    while (this.members[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    this.members[index] = value;
+                    this.count++;
+                } else if (this.referenced != null) {
+                    this.referenced[index >>> 6] |= 1L << index;
+                }
+                if (this.writeTimes != null) {
+                    this.writeTimes[index] = now;
+                }
+                if (this.accessTimes != null) {
+                    this.accessTimes[index] = now;
+                }
+            } finally {
+                this.unlockAndPublish(stamp);
+            }
+        }
+
+        void remove(final Object value, final int hash) {
+            final long stamp = this.lock.writeLock();
+            try {
+                final int index = this.indexOf(this.members, value, hash);
+                if (index >= 0) {
+                    this.removeAt(index);
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            final long stamp = this.lock.writeLock();
+            try {
+                this.allocate(INITIAL_CAPACITY);
+                this.count = 0;
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+
+        void expireAll(final long now) {
+            final long stamp = this.lock.writeLock();
+            try {
+                final Object[] table = this.members;
+                for (int i = 0; i < table.length; i++) {
+                    // a removal may shift another member into this slot, so look at it again
+                    while (table[i] != null && this.isExpiredAt(i, now)) {
+                        final Object member = table[i];
+                        this.removeAt(i);
+                        this.evicted(member, RemovalCause.EXPIRED);
+                    }
+                }
+            } finally {
+                this.unlockAndPublish(stamp);
+            }
+        }
+
+        /**
+         * Counts an evicted member, and keeps it to be published once the write lock is released.
+         */
+        private void evicted(final Object member, final RemovalCause cause) {
+            this.owner.counter.recordEvictions(1);
+            if (this.owner.removals != null) {
+                this.evicted.add(new RemovalEvent<>(member, null, cause));
+            }
+        }
+
+        /**
+         * Releases the write lock, then publishes the members evicted while it was held, so a publisher blocked by a
+         * full removal bus never holds the lock a subscriber may be waiting for.
+         */
+        private void unlockAndPublish(final long stamp) {
+            if (this.evicted.isEmpty()) {
+                this.lock.unlockWrite(stamp);
+                return;
+            }
+            final List<RemovalEvent<Object, Object>> published = new ArrayList<>(this.evicted);
+            this.evicted.clear();
+            this.lock.unlockWrite(stamp);
+            this.owner.publish(published);
+        }
+
+        boolean hasLiveMember(final long now) {
+            final long stamp = this.lock.readLock();
+            try {
+                for (int i = 0; i < this.members.length; i++) {
+                    if (this.members[i] != null && !this.isExpiredAt(i, now)) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+
+        Object[] liveMembers() {
+            final long now = this.owner.now();
+            final long stamp = this.lock.readLock();
+            try {
+                final Object[] live = new Object[this.count];
+                int size = 0;
+                for (int i = 0; i < this.members.length && size < live.length; i++) {
+                    if (this.members[i] != null && !this.isExpiredAt(i, now)) {
+                        live[size++] = this.members[i];
+                    }
+                }
+                return size == live.length ? live : Arrays.copyOf(live, size);
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+
+        private boolean isExpired(final long written, final long accessed, final long now) {
+            final long afterWrite = this.owner.expireAfterWriteNanos;
+            final long afterAccess = this.owner.expireAfterAccessNanos;
+            return afterWrite != 0 && now - written >= afterWrite || afterAccess != 0 && now - accessed >= afterAccess;
+        }
+
+        private boolean isExpiredAt(final int index, final long now) {
+            return this.isExpired(
+                    this.writeTimes == null ? 0L : this.writeTimes[index],
+                    this.accessTimes == null ? 0L : this.accessTimes[index],
+                    now);
+        }
+
+        private void sweep(final long now) {
+            if (!this.owner.expires() || this.count == 0) {
+                return;
+            }
+            final int mask = this.members.length - 1;
+            for (int steps = 0; steps < SWEEP_STEPS; steps++) {
+                final int i = this.sweeper;
+                final Object member = this.members[i];
+                if (member != null && this.isExpiredAt(i, now)) {
+                    this.removeAt(i);
+                    this.evicted(member, RemovalCause.EXPIRED);
+                } else {
+                    this.sweeper = (i + 1) & mask;
+                }
+            }
+        }
+
+        private void evict(final long now) {
+            final int mask = this.members.length - 1;
+            while (this.count > 0) {
+                final int i = this.hand;
+                this.hand = (i + 1) & mask;
+                final Object member = this.members[i];
+                if (member == null) {
+                    continue;
+                }
+                final boolean expired = this.isExpiredAt(i, now);
+                if (!expired && (this.referenced[i >>> 6] & (1L << i)) != 0) {
+                    this.referenced[i >>> 6] &= ~(1L << i);
+                    continue;
+                }
+                this.removeAt(i);
+                this.evicted(member, expired ? RemovalCause.EXPIRED : RemovalCause.SIZE);
+                return;
+            }
+        }
+
+        private void resize(final int capacity) {
+            final Object[] oldMembers = this.members;
+            final long[] oldWrites = this.writeTimes;
+            final long[] oldAccesses = this.accessTimes;
+            final long[] oldReferenced = this.referenced;
+            this.allocate(capacity);
+            final int mask = capacity - 1;
+            for (int i = 0; i < oldMembers.length; i++) {
+                final Object member = oldMembers[i];
+                if (member == null) {
+                    continue;
+                }
+                int index = spread(member) & mask;
+                while (this.members[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                this.members[index] = member;
+                if (oldWrites != null) {
+                    this.writeTimes[index] = oldWrites[i];
+                }
+                if (oldAccesses != null) {
+                    this.accessTimes[index] = oldAccesses[i];
+                }
+                if (oldReferenced != null && (oldReferenced[i >>> 6] & (1L << i)) != 0) {
+                    this.referenced[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+
+        private void removeAt(final int index) {
+            final Object[] table = this.members;
+            final int mask = table.length - 1;
+            int hole = index;
+            for (int i = (hole + 1) & mask; table[i] != null; i = (i + 1) & mask) {
+                final int home = spread(table[i]) & mask;
+                // move the member back if the hole lies on its probe path, between its home slot and its current slot
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    this.move(i, hole);
+                    hole = i;
+                }
+            }
+            table[hole] = null;
+            if (this.referenced != null) {
+                this.referenced[hole >>> 6] &= ~(1L << hole);
+            }
+            this.count--;
+        }
+
+        private void move(final int from, final int to) {
+            this.members[to] = this.members[from];
+            if (this.writeTimes != null) {
+                this.writeTimes[to] = this.writeTimes[from];
+            }
+            if (this.accessTimes != null) {
+                this.accessTimes[to] = this.accessTimes[from];
+            }
+            if (this.referenced != null) {
+                if ((this.referenced[from >>> 6] & (1L << from)) != 0) {
+                    this.referenced[to >>> 6] |= 1L << to;
+                } else {
+                    this.referenced[to >>> 6] &= ~(1L << to);
+                }
+            }
+        }
+    }
+
+    /**
+     * A live view of the members, backed by the segments.
+     * Iteration is weakly consistent: it copies one segment's live members at a time.
+     */
+    final class SetView extends AbstractSet<V> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(final Object o) {
+            return o != null && CompactCacheSet.this.contains((V) o);
+        }
+
+        @Override
+        public boolean add(final V value) {
+            final boolean added = !CompactCacheSet.this.contains(value);
+            CompactCacheSet.this.add(value);
+            return added;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(final Object o) {
+            if (o == null || !CompactCacheSet.this.contains((V) o)) {
+                return false;
+            }
+            CompactCacheSet.this.invalidate((V) o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            CompactCacheSet.this.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, CompactCacheSet.this.size());
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<>() {
+                private int segment;
+                private Object[] batch = new Object[0];
+                private int index;
+                private V last;
+
+                @Override
+                public boolean hasNext() {
+                    while (this.index == this.batch.length) {
+                        if (this.segment == CompactCacheSet.this.segments.length) {
+                            return false;
+                        }
+                        this.batch = CompactCacheSet.this.segments[this.segment++].liveMembers();
+                        this.index = 0;
+                    }
+                    return true;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public V next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.last = (V) this.batch[this.index++];
+                    return this.last;
+                }
+
+                @Override
+                public void remove() {
+                    if (this.last == null) {
+                        throw new IllegalStateException();
+                    }
+                    CompactCacheSet.this.invalidate(this.last);
+                    this.last = null;
+                }
+            };
+        }
+
+        @Nonnull
+        @Override
+        public Spliterator<V> spliterator() {
+            return CompactCacheSet.this.spliterator();
+        }
+    }
+}
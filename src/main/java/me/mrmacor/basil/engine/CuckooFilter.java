@@ -0,0 +1,182 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import java.util.Arrays;
+
+/**
+ * A cuckoo filter: a table of buckets of four fingerprints, packed into {@code long}s.
+ * A fingerprint lives in one of two buckets, the second being the first XOR a hash of the fingerprint,
+ * so either bucket can be derived from the other and a fingerprint can be moved without knowing its member.
+ *
+ * <p>Not thread-safe, {@link ApproximateCacheSet} guards each filter with the lock of its segment.</p>
+ */
+final class CuckooFilter {
+
+    static final int SLOTS = 4;
+    static final double MAXIMUM_LOAD = 0.95;
+    private static final int MAXIMUM_KICKS = 500;
+
+    private final long[] table;
+    private final int bits;
+    private final long mask;
+    private final int bucketMask;
+    private final int capacity;
+    private int count;
+    private int kicks;
+    private int victim;
+    private int victimBucket;
+
+    CuckooFilter(final int buckets, final int bits) {
+        this.bits = bits;
+        this.mask = (1L << bits) - 1;
+        this.bucketMask = buckets - 1;
+        this.capacity = (int) (buckets * (long) SLOTS * MAXIMUM_LOAD);
+        this.table = new long[(int) ((buckets * (long) SLOTS * bits + 63) >>> 6)];
+    }
+
+    int bucket(final long hash) {
+        return (int) hash & this.bucketMask;
+    }
+
+    int fingerprint(final long hash) {
+        final int fingerprint = (int) ((hash >>> 32) & this.mask);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private int alternate(final int bucket, final int fingerprint) {
+        return (bucket ^ fingerprint * 0x5BD1E995) & this.bucketMask;
+    }
+
+    private int read(final long slot) {
+        final long bit = slot * this.bits;
+        final int word = (int) (bit >>> 6);
+        final int offset = (int) (bit & 63);
+        long value = this.table[word] >>> offset;
+        if (offset + this.bits > 64) {
+            value |= this.table[word + 1] << (64 - offset);
+        }
+        return (int) (value & this.mask);
+    }
+
+    private void write(final long slot, final int fingerprint) {
+        final long bit = slot * this.bits;
+        final int word = (int) (bit >>> 6);
+        final int offset = (int) (bit & 63);
+        final long value = fingerprint & this.mask;
+        this.table[word] = this.table[word] & ~(this.mask << offset) | value << offset;
+        if (offset + this.bits > 64) {
+            final int spill = 64 - offset;
+            this.table[word + 1] = this.table[word + 1] & ~(this.mask >>> spill) | value >>> spill;
+        }
+    }
+
+    private int slotOf(final int bucket, final int fingerprint) {
+        final long first = (long) bucket * SLOTS;
+        for (int i = 0; i < SLOTS; i++) {
+            if (this.read(first + i) == fingerprint) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean place(final int bucket, final int fingerprint) {
+        final int slot = this.slotOf(bucket, 0);
+        if (slot < 0) {
+            return false;
+        }
+        this.write((long) bucket * SLOTS + slot, fingerprint);
+        return true;
+    }
+
+    boolean contains(final int fingerprint, final int bucket) {
+        return this.slotOf(bucket, fingerprint) >= 0 || this.slotOf(this.alternate(bucket, fingerprint), fingerprint) >= 0;
+    }
+
+    /**
+     * Adds the provided fingerprint. If no room is found within the kick limit, the fingerprint is stored anyway
+     * and another one is kicked out, which {@link #victim()} and {@link #victimBucket()} then return.
+     *
+     * @return false if another fingerprint was kicked out
+     */
+    boolean add(final int fingerprint, final int bucket) {
+        if (this.place(bucket, fingerprint) || this.place(this.alternate(bucket, fingerprint), fingerprint)) {
+            this.count++;
+            return true;
+        }
+        int current = (this.kicks & 1) == 0 ? bucket : this.alternate(bucket, fingerprint);
+        int carried = fingerprint;
+        for (int i = 0; i < MAXIMUM_KICKS; i++) {
+            final long slot = (long) current * SLOTS + (this.kicks++ & (SLOTS - 1));
+            final int kicked = this.read(slot);
+            this.write(slot, carried);
+            carried = kicked;
+            current = this.alternate(current, carried);
+            if (this.place(current, carried)) {
+                this.count++;
+                return true;
+            }
+        }
+        this.victim = carried;
+        this.victimBucket = current;
+        return false;
+    }
+
+    boolean remove(final int fingerprint, final int bucket) {
+        int slot = this.slotOf(bucket, fingerprint);
+        int at = bucket;
+        if (slot < 0) {
+            at = this.alternate(bucket, fingerprint);
+            slot = this.slotOf(at, fingerprint);
+            if (slot < 0) {
+                return false;
+            }
+        }
+        this.write((long) at * SLOTS + slot, 0);
+        this.count--;
+        return true;
+    }
+
+    int victim() {
+        return this.victim;
+    }
+
+    int victimBucket() {
+        return this.victimBucket;
+    }
+
+    int count() {
+        return this.count;
+    }
+
+    boolean full() {
+        return this.count >= this.capacity;
+    }
+
+    void clear() {
+        Arrays.fill(this.table, 0L);
+        this.count = 0;
+    }
+}
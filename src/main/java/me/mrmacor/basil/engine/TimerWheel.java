@@ -0,0 +1,179 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import javax.annotation.Nonnull;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, after Varghese and Lauck, laid out like the one in Caffeine.
+ *
+ * <p>Each level is a ring of buckets, every bucket a circular doubly linked list behind a sentinel node.
+ * A node goes to the lowest level whose span covers the time until it expires, in the bucket of its expiry time,
+ * so scheduling and descheduling are constant time. When the time advances past the tick of a bucket, the bucket
+ * is emptied: expired nodes are handed to the caller, the others are scheduled again on a lower level.</p>
+ *
+ * <p>Times are nanoseconds relative to the creation of the owner, so they never wrap.
+ * Not thread-safe, {@link TimerWheelCacheSet} guards it with its lock.</p>
+ */
+final class TimerWheel<V> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    /**
+     * The tick of each level is 2^shift nanoseconds: 1.07 seconds, 1.14 minutes, 1.22 hours, 1.63 days and 6.52 days.
+     */
+    private static final int[] SHIFT = {30, 36, 42, 47, 49};
+
+    private final Node<V>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel() {
+        this.wheel = (Node<V>[][]) new Node<?>[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            this.wheel[i] = (Node<V>[]) new Node<?>[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                this.wheel[i][j] = new Node<>(null);
+            }
+        }
+    }
+
+    /**
+     * A member and the time it expires at, linked into the bucket of that time.
+     */
+    static final class Node<V> {
+
+        final V value;
+        volatile long expiresAt;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(final V value) {
+            this.value = value;
+            this.prev = this;
+            this.next = this;
+        }
+
+        boolean scheduled() {
+            return this.next != null && this.next != this;
+        }
+    }
+
+    long nanos() {
+        return this.nanos;
+    }
+
+    void schedule(@Nonnull final Node<V> node) {
+        final Node<V> sentinel = this.bucketFor(node.expiresAt);
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    void deschedule(@Nonnull final Node<V> node) {
+        if (node.scheduled()) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private Node<V> bucketFor(final long time) {
+        final long duration = time - this.nanos;
+        for (int i = 0; i < BUCKETS.length - 1; i++) {
+            if (duration < 1L << SHIFT[i + 1]) {
+                final long ticks = time >>> SHIFT[i];
+                return this.wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+            }
+        }
+        return this.wheel[BUCKETS.length - 1][0];
+    }
+
+    /**
+     * Advances the wheel to the provided time, handing every node that expired in a bucket whose tick passed to the consumer.
+     */
+    void advance(final long now, @Nonnull final Consumer<Node<V>> expired) {
+        final long previous = this.nanos;
+        if (now <= previous) {
+            return;
+        }
+        this.nanos = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            final long previousTicks = previous >>> SHIFT[i];
+            final long delta = (now >>> SHIFT[i]) - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            final int mask = BUCKETS[i] - 1;
+            final int steps = (int) Math.min(1 + delta, BUCKETS[i]);
+            final int start = (int) (previousTicks & mask);
+            for (int j = start; j < start + steps; j++) {
+                this.drain(this.wheel[i][j & mask], expired);
+            }
+        }
+    }
+
+    /**
+     * Hands the expired nodes of the bucket of the current tick to the consumer, which {@link #advance(long, Consumer)}
+     * only empties once the tick has passed.
+     */
+    void sweep(@Nonnull final Consumer<Node<V>> expired) {
+        this.drain(this.wheel[0][(int) ((this.nanos >>> SHIFT[0]) & (BUCKETS[0] - 1))], expired);
+    }
+
+    private void drain(@Nonnull final Node<V> sentinel, @Nonnull final Consumer<Node<V>> expired) {
+        Node<V> node = sentinel.next;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        while (node != sentinel) {
+            final Node<V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.expiresAt - this.nanos <= 0) {
+                expired.accept(node);
+            } else {
+                this.schedule(node);
+            }
+            node = next;
+        }
+    }
+
+    void clear() {
+        for (final Node<V>[] level : this.wheel) {
+            for (final Node<V> sentinel : level) {
+                Node<V> node = sentinel.next;
+                while (node != sentinel) {
+                    final Node<V> next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    node = next;
+                }
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+    }
+}
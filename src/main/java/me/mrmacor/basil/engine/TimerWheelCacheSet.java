@@ -0,0 +1,459 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.event.RemovalCause;
+import me.mrmacor.basil.event.RemovalEventBus;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CacheSet} whose members each have their own time to live, expired by a hierarchical {@link TimerWheel}.
+ *
+ * <p>Members are kept in a concurrent map, each with a node holding its expiry time, so {@link #contains(Object)}
+ * takes no lock and never reports an expired member. Adding a member schedules its node on the wheel in constant time,
+ * and the wheel hands back expired members a bucket at a time, for an amortized constant cost per member.
+ * Writes, {@link #size()} and {@link #cleanUp()} advance the wheel under a single lock, and if a scheduler is provided,
+ * it advances the wheel about once a second as well, so expired members do not linger while the set is idle.</p>
+ *
+ * <p>{@link #size()} only counts members that have not expired. {@link #spliterator()} splits like the underlying
+ * {@link ConcurrentHashMap} and skips expired members without advancing the wheel.
+ * Expired members are published to the {@link RemovalEventBus} the set was built with, if any.</p>
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class TimerWheelCacheSet<V> implements CacheSet<V> {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private final ConcurrentMap<V, TimerWheel.Node<V>> members = new ConcurrentHashMap<>();
+    private final TimerWheel<V> wheel = new TimerWheel<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long expireAfterWriteNanos;
+    private final Ticker ticker;
+    private final long origin;
+    private final StatsCounter counter = new StatsCounter();
+    private final RemovalEventBus<? super V, ?> removals;
+    private final Consumer<TimerWheel.Node<V>> evict = this::expired;
+    private final List<V> expiredMembers = new ArrayList<>();
+
+    /**
+     * Constructor for the timer wheel {@link CacheSet}. See {@link me.mrmacor.basil.builder.TimerWheelCacheSetBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param expireAfterWriteNanos how long members added without a time to live live, or zero if they do not expire
+     * @param scheduler to advance the wheel on about once a second, or null to only advance it on writes and reads of the size
+     * @param ticker the time source
+     * @param removals to publish expired members to, or null
+     * @since 1.1.0
+     */
+    public TimerWheelCacheSet(@Nonnegative final long expireAfterWriteNanos, @Nullable final ScheduledExecutorService scheduler,
+                              @Nonnull final Ticker ticker, @Nullable final RemovalEventBus<? super V, ?> removals) {
+        if (expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("expireAfterWriteNanos must not be negative: " + expireAfterWriteNanos);
+        }
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        this.origin = ticker.read();
+        this.removals = removals;
+        if (scheduler != null) {
+            final Sweeper sweeper = new Sweeper(this);
+            sweeper.future = scheduler.scheduleWithFixedDelay(sweeper, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private long now() {
+        return this.ticker.read() - this.origin;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        final TimerWheel.Node<V> node = this.members.get(value);
+        final boolean found = node != null && this.alive(node, this.now());
+        if (found) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+        return found;
+    }
+
+    private boolean alive(@Nonnull final TimerWheel.Node<V> node, final long now) {
+        final long expiresAt = node.expiresAt;
+        return expiresAt == NEVER || expiresAt - now > 0;
+    }
+
+    /**
+     * Adds the specified value to the cache, with the time to live the set was built with.
+     *
+     * @param value to add to the cache
+     * @since 1.1.0
+     */
+    @Override
+    public void add(@Nonnull final V value) {
+        this.schedule(value, this.expireAfterWriteNanos == 0 ? NEVER : this.expireAfterWriteNanos);
+    }
+
+    /**
+     * Adds the specified value to the cache, expiring it once the provided duration has passed.
+     * Adding a member again replaces its time to live.
+     *
+     * @param value to add to the cache
+     * @param duration how long the value lives
+     * @param unit the unit of the duration
+     * @since 1.1.0
+     */
+    public void add(@Nonnull final V value, final long duration, @Nonnull final TimeUnit unit) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("duration must be positive: " + duration);
+        }
+        this.schedule(value, Math.min(unit.toNanos(duration), NEVER - 1));
+    }
+
+    private void schedule(@Nonnull final V value, final long ttl) {
+        Objects.requireNonNull(value, "value");
+        this.lock.lock();
+        try {
+            final long now = this.now();
+            this.wheel.advance(now, this.evict);
+            final TimerWheel.Node<V> node = this.members.computeIfAbsent(value, TimerWheel.Node::new);
+            this.wheel.deschedule(node);
+            if (ttl == NEVER) {
+                node.expiresAt = NEVER;
+            } else {
+                node.expiresAt = now + Math.min(ttl, NEVER - 1 - now);
+                this.wheel.schedule(node);
+            }
+        } finally {
+            this.unlockAndPublish();
+        }
+    }
+
+    @Override
+    public void addAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void addAll(@Nonnull final V... values) {
+        for (final V value : values) {
+            this.add(value);
+        }
+    }
+
+    @Override
+    public void invalidate(@Nonnull final V value) {
+        this.lock.lock();
+        try {
+            final TimerWheel.Node<V> node = this.members.remove(value);
+            if (node != null) {
+                this.wheel.deschedule(node);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.invalidate(value);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.lock.lock();
+        try {
+            this.members.clear();
+            this.wheel.clear();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    @Nonnull
+    @Override
+    public Set<V> asSet() {
+        return new SetView();
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<V> spliterator() {
+        return new LiveSpliterator(this.members.values().spliterator(), this.now());
+    }
+
+    @Override
+    public long size() {
+        this.lock.lock();
+        try {
+            this.expire();
+            return this.members.size();
+        } finally {
+            this.unlockAndPublish();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        this.lock.lock();
+        try {
+            this.expire();
+        } finally {
+            this.unlockAndPublish();
+        }
+    }
+
+    private void expired(final TimerWheel.Node<V> node) {
+        if (this.members.remove(node.value, node)) {
+            this.counter.recordEvictions(1);
+            if (this.removals != null) {
+                this.expiredMembers.add(node.value);
+            }
+        }
+    }
+
+    /**
+     * Releases the lock, then publishes the members that expired while it was held, so a publisher blocked by a full
+     * removal bus never holds the lock a subscriber may be waiting for.
+     */
+    private void unlockAndPublish() {
+        if (this.expiredMembers.isEmpty()) {
+            this.lock.unlock();
+            return;
+        }
+        final List<V> expired = new ArrayList<>(this.expiredMembers);
+        this.expiredMembers.clear();
+        this.lock.unlock();
+        for (final V member : expired) {
+            this.removals.publish(member, null, RemovalCause.EXPIRED);
+        }
+    }
+
+    private void expire() {
+        this.wheel.advance(this.now(), this.evict);
+        this.wheel.sweep(this.evict);
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.counter.snapshot();
+    }
+
+    /**
+     * Advances the wheel of a set until the set is garbage collected, then cancels itself.
+     */
+    static final class Sweeper implements Runnable {
+
+        private final WeakReference<TimerWheelCacheSet<?>> set;
+        volatile ScheduledFuture<?> future;
+
+        Sweeper(@Nonnull final TimerWheelCacheSet<?> set) {
+            this.set = new WeakReference<>(set);
+        }
+
+        @Override
+        public void run() {
+            final TimerWheelCacheSet<?> owner = this.set.get();
+            if (owner != null) {
+                owner.cleanUp();
+            } else if (this.future != null) {
+                this.future.cancel(false);
+            }
+        }
+    }
+
+    final class SetView extends AbstractSet<V> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(final Object o) {
+            return o != null && TimerWheelCacheSet.this.contains((V) o);
+        }
+
+        @Override
+        public boolean add(final V value) {
+            final boolean added = !TimerWheelCacheSet.this.contains(value);
+            TimerWheelCacheSet.this.add(value);
+            return added;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(final Object o) {
+            if (o == null || !TimerWheelCacheSet.this.contains((V) o)) {
+                return false;
+            }
+            TimerWheelCacheSet.this.invalidate((V) o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            TimerWheelCacheSet.this.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, TimerWheelCacheSet.this.size());
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<>() {
+                private final Iterator<TimerWheel.Node<V>> nodes = TimerWheelCacheSet.this.members.values().iterator();
+                private final long now = TimerWheelCacheSet.this.now();
+                private V next;
+                private V last;
+
+                @Override
+                public boolean hasNext() {
+                    while (this.next == null && this.nodes.hasNext()) {
+                        final TimerWheel.Node<V> node = this.nodes.next();
+                        if (TimerWheelCacheSet.this.alive(node, this.now)) {
+                            this.next = node.value;
+                        }
+                    }
+                    return this.next != null;
+                }
+
+                @Override
+                public V next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.last = this.next;
+                    this.next = null;
+                    return this.last;
+                }
+
+                @Override
+                public void remove() {
+                    if (this.last == null) {
+                        throw new IllegalStateException();
+                    }
+                    TimerWheelCacheSet.this.invalidate(this.last);
+                    this.last = null;
+                }
+            };
+        }
+
+        @Nonnull
+        @Override
+        public Spliterator<V> spliterator() {
+            return TimerWheelCacheSet.this.spliterator();
+        }
+    }
+
+    /**
+     * A spliterator over the nodes of the members map, passing on the members that are alive at the time it was created.
+     */
+    final class LiveSpliterator implements Spliterator<V> {
+
+        private final Spliterator<TimerWheel.Node<V>> nodes;
+        private final long now;
+        private boolean found;
+
+        LiveSpliterator(@Nonnull final Spliterator<TimerWheel.Node<V>> nodes, final long now) {
+            this.nodes = nodes;
+            this.now = now;
+        }
+
+        @Override
+        public boolean tryAdvance(@Nonnull final Consumer<? super V> action) {
+            this.found = false;
+            final Consumer<TimerWheel.Node<V>> live = node -> {
+                if (TimerWheelCacheSet.this.alive(node, this.now)) {
+                    action.accept(node.value);
+                    this.found = true;
+                }
+            };
+            do {
+                if (!this.nodes.tryAdvance(live)) {
+                    return false;
+                }
+            } while (!this.found);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(@Nonnull final Consumer<? super V> action) {
+            this.nodes.forEachRemaining(node -> {
+                if (TimerWheelCacheSet.this.alive(node, this.now)) {
+                    action.accept(node.value);
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public Spliterator<V> trySplit() {
+            final Spliterator<TimerWheel.Node<V>> split = this.nodes.trySplit();
+            return split == null ? null : new LiveSpliterator(split, this.now);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.nodes.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
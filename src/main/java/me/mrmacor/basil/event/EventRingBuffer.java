@@ -0,0 +1,110 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.event;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for many producers and a single consumer, after Dmitry Vyukov's bounded queue.
+ *
+ * <p>Every slot carries a sequence number that tells producers and the consumer whose turn it is:
+ * a producer claims the slot at the tail with a single compare-and-set and publishes its element by advancing the
+ * slot's sequence, and the consumer frees a slot by advancing its sequence by the capacity. Producers never wait
+ * for each other, and a full buffer is reported instead of waited on.</p>
+ *
+ * <p>Only one thread may poll at a time, {@link RemovalEventBus} ensures this with its drain flag.</p>
+ */
+final class EventRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    EventRingBuffer(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Adds the provided element, unless the buffer is full.
+     *
+     * @return whether the element was added
+     */
+    boolean offer(@Nonnull final E element) {
+        long position = this.tail.get();
+        while (true) {
+            final int index = (int) (position & this.mask);
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                // the consumer has not freed the slot a lap ago yet
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest published element, or returns null if there is none.
+     */
+    @Nullable
+    E poll() {
+        final long position = this.head;
+        final int index = (int) (position & this.mask);
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        final E element = this.elements.get(index);
+        this.elements.lazySet(index, null);
+        this.sequences.set(index, position + this.mask + 1);
+        this.head = position + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return this.tail.get() == this.head;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.event;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Why an entry was removed from a cache, the causes Guava and Caffeine share.
+ *
+ * @since 1.1.0
+ */
+public enum RemovalCause {
+
+    /**
+     * The entry was removed by the user, through an invalidation or a removal from the map view.
+     *
+     * @since 1.1.0
+     */
+    EXPLICIT(false),
+
+    /**
+     * The value of the entry was replaced by the user.
+     *
+     * @since 1.1.0
+     */
+    REPLACED(false),
+
+    /**
+     * The key or value of the entry was garbage collected.
+     *
+     * @since 1.1.0
+     */
+    COLLECTED(true),
+
+    /**
+     * The entry expired.
+     *
+     * @since 1.1.0
+     */
+    EXPIRED(true),
+
+    /**
+     * The entry was evicted to keep the cache within its size or weight bound.
+     *
+     * @since 1.1.0
+     */
+    SIZE(true);
+
+    private final boolean evicted;
+
+    RemovalCause(final boolean evicted) {
+        this.evicted = evicted;
+    }
+
+    /**
+     * Returns whether the entry was removed automatically, rather than by the user.
+     *
+     * @return whether the removal was an eviction
+     * @since 1.1.0
+     */
+    public boolean wasEvicted() {
+        return this.evicted;
+    }
+
+    /**
+     * Returns the cause matching the provided Guava cause.
+     *
+     * @param cause a Guava removal cause
+     * @return the matching cause
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static RemovalCause of(@Nonnull final com.google.common.cache.RemovalCause cause) {
+        return valueOf(cause.name());
+    }
+
+    /**
+     * Returns the cause matching the provided Caffeine cause.
+     *
+     * @param cause a Caffeine removal cause
+     * @return the matching cause
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static RemovalCause of(@Nonnull final com.github.benmanes.caffeine.cache.RemovalCause cause) {
+        return valueOf(cause.name());
+    }
+}
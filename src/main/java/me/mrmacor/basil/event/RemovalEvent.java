@@ -0,0 +1,117 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.event;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * The removal of an entry from a cache.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class RemovalEvent<K, V> {
+
+    private final K key;
+    private final V value;
+    private final RemovalCause cause;
+
+    /**
+     * Constructor for a removal event.
+     *
+     * @param key of the removed entry, null if it was garbage collected
+     * @param value of the removed entry, null if it was garbage collected
+     * @param cause why the entry was removed
+     * @since 1.1.0
+     */
+    public RemovalEvent(@Nullable final K key, @Nullable final V value, @Nonnull final RemovalCause cause) {
+        this.key = key;
+        this.value = value;
+        this.cause = Objects.requireNonNull(cause, "cause");
+    }
+
+    /**
+     * Returns the key of the removed entry.
+     *
+     * @return the key, null if it was garbage collected
+     * @since 1.1.0
+     */
+    @Nullable
+    public K key() {
+        return this.key;
+    }
+
+    /**
+     * Returns the value of the removed entry.
+     *
+     * @return the value, null if it was garbage collected
+     * @since 1.1.0
+     */
+    @Nullable
+    public V value() {
+        return this.value;
+    }
+
+    /**
+     * Returns why the entry was removed.
+     *
+     * @return the cause of the removal
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalCause cause() {
+        return this.cause;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RemovalEvent)) {
+            return false;
+        }
+        final RemovalEvent<?, ?> that = (RemovalEvent<?, ?>) o;
+        return Objects.equals(this.key, that.key) && Objects.equals(this.value, that.value) && this.cause == that.cause;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.key, this.value, this.cause);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("key", this.key)
+                .add("value", this.value)
+                .add("cause", this.cause)
+                .toString();
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.event;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the removals of one or more caches to subscribers, without ever running a subscriber on a cache writer.
+ *
+ * <p>Removals are published to a bounded, lock-free ring buffer, and a drain task on the executor of the bus
+ * delivers them to every subscriber in batches. The task is only scheduled when none is scheduled already, so a
+ * burst of removals costs a single task. A slow subscriber delays the following batches, never the cache.</p>
+ *
+ * <p>Install {@link #guavaListener()} or {@link #caffeineListener()} as the removal listener of a cache before wrapping
+ * it, or call {@link #publish(Object, Object, RemovalCause)} from any other source. The {@link me.mrmacor.basil.engine.CompactCacheSet},
+ * {@link me.mrmacor.basil.engine.TimerWheelCacheSet} and {@link me.mrmacor.basil.offheap.OffHeapBasilCache} engines
+ * publish the entries they evict or expire to the bus they are built with, and a set publishes its members as keys,
+ * without a value. An {@link me.mrmacor.basil.engine.ApproximateCacheSet} does not store its members, so it has none
+ * to publish. What happens to a removal published
+ * while the buffer is full is set by the {@link OverflowPolicy}, and counted.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class RemovalEventBus<K, V> {
+
+    private final EventRingBuffer<RemovalEvent<K, V>> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int maximumBatchSize;
+    private final Executor executor;
+    private final List<RemovalSubscriber<K, V>> subscribers = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<K, RemovalEvent<K, V>> coalesced = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder subscriberFailures = new LongAdder();
+
+    /**
+     * Constructor for the removal event bus. See {@link me.mrmacor.basil.builder.RemovalEventBusBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param capacity the number of removals the buffer holds, rounded up to a power of two
+     * @param overflowPolicy what to do with removals published while the buffer is full
+     * @param maximumBatchSize the maximum number of removals delivered in one batch
+     * @param executor to deliver the removals on
+     * @since 1.1.0
+     */
+    public RemovalEventBus(@Nonnegative final int capacity, @Nonnull final OverflowPolicy overflowPolicy,
+                           @Nonnegative final int maximumBatchSize, @Nonnull final Executor executor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (maximumBatchSize <= 0) {
+            throw new IllegalArgumentException("maximumBatchSize must be positive: " + maximumBatchSize);
+        }
+        this.buffer = new EventRingBuffer<>(capacity);
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        this.maximumBatchSize = maximumBatchSize;
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * What happens to a removal published while the buffer is full.
+     *
+     * @since 1.1.0
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The removal is dropped, and counted by {@link #dropped()}.
+         *
+         * @since 1.1.0
+         */
+        DROP,
+
+        /**
+         * The removal is kept aside, replacing any removal of the same key kept aside before it,
+         * which is counted by {@link #coalesced()}. Only the latest overflowing removal of a key is delivered,
+         * after the batch of the buffer it overflowed. At most about as many keys as the buffer holds are kept aside,
+         * and once that many are, an overflowing removal of any other key is dropped and counted by {@link #dropped()}.
+         *
+         * @since 1.1.0
+         */
+        COALESCE,
+
+        /**
+         * The publishing thread waits until the buffer has room, which is counted by {@link #blocked()}.
+         * This slows cache writers down to the pace of the subscribers. The basil engines publish once they released
+         * their locks, so a subscriber may read or write the cache it is notified by.
+         *
+         * @since 1.1.0
+         */
+        BLOCK
+    }
+
+    /**
+     * Subscribes the provided subscriber to the removals published from now on.
+     *
+     * @param subscriber to deliver removals to
+     * @since 1.1.0
+     */
+    public void subscribe(@Nonnull final RemovalSubscriber<K, V> subscriber) {
+        this.subscribers.add(Objects.requireNonNull(subscriber, "subscriber"));
+    }
+
+    /**
+     * Stops delivering removals to the provided subscriber.
+     *
+     * @param subscriber to stop delivering removals to
+     * @since 1.1.0
+     */
+    public void unsubscribe(@Nonnull final RemovalSubscriber<K, V> subscriber) {
+        this.subscribers.remove(subscriber);
+    }
+
+    /**
+     * Returns a Guava removal listener that publishes every removal of the cache it is installed on.
+     *
+     * @return the removal listener
+     * @since 1.1.0
+     */
+    @Nonnull
+    public com.google.common.cache.RemovalListener<K, V> guavaListener() {
+        return removal -> this.publish(removal.getKey(), removal.getValue(), RemovalCause.of(removal.getCause()));
+    }
+
+    /**
+     * Returns a Caffeine removal listener that publishes every removal of the cache it is installed on.
+     *
+     * @return the removal listener
+     * @since 1.1.0
+     */
+    @Nonnull
+    public com.github.benmanes.caffeine.cache.RemovalListener<K, V> caffeineListener() {
+        return (key, value, cause) -> this.publish(key, value, RemovalCause.of(cause));
+    }
+
+    /**
+     * Publishes the removal of an entry.
+     *
+     * @param key of the removed entry, null if it was garbage collected
+     * @param value of the removed entry, null if it was garbage collected
+     * @param cause why the entry was removed
+     * @since 1.1.0
+     */
+    public void publish(@Nullable final K key, @Nullable final V value, @Nonnull final RemovalCause cause) {
+        final RemovalEvent<K, V> event = new RemovalEvent<>(key, value, cause);
+        this.published.increment();
+        if (!this.buffer.offer(event)) {
+            this.overflow(event);
+        }
+        this.scheduleDrain();
+    }
+
+    private void overflow(final RemovalEvent<K, V> event) {
+        if (this.overflowPolicy == OverflowPolicy.COALESCE && event.key() != null) {
+            // racing publishers may each add one key past the bound before they see the others
+            if (this.coalesced.size() >= this.buffer.capacity() && !this.coalesced.containsKey(event.key())) {
+                this.dropped.increment();
+            } else if (this.coalesced.put(event.key(), event) != null) {
+                this.coalescedCount.increment();
+            }
+        } else if (this.overflowPolicy == OverflowPolicy.BLOCK) {
+            this.blocked.increment();
+            while (!this.buffer.offer(event)) {
+                this.scheduleDrain();
+                LockSupport.parkNanos(10_000);
+            }
+        } else {
+            // removals of collected entries have no key to coalesce on
+            this.dropped.increment();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!this.draining.get() && this.draining.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this.drainTask);
+            } catch (final RuntimeException | Error e) {
+                this.draining.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        final List<RemovalEvent<K, V>> batch = new ArrayList<>(Math.min(this.maximumBatchSize, this.buffer.capacity()));
+        final List<RemovalEvent<K, V>> view = Collections.unmodifiableList(batch);
+        do {
+            try {
+                RemovalEvent<K, V> event;
+                while ((event = this.buffer.poll()) != null) {
+                    batch.add(event);
+                    if (batch.size() == this.maximumBatchSize) {
+                        this.deliver(view, batch);
+                    }
+                }
+                final Iterator<RemovalEvent<K, V>> overflowed = this.coalesced.values().iterator();
+                while (overflowed.hasNext()) {
+                    batch.add(overflowed.next());
+                    overflowed.remove();
+                    if (batch.size() == this.maximumBatchSize) {
+                        this.deliver(view, batch);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    this.deliver(view, batch);
+                }
+            } finally {
+                // even if a subscriber threw an error, so the next removal schedules another drain
+                this.draining.set(false);
+            }
+            // a removal published after the last poll but before the flag was cleared did not schedule a drain
+        } while ((!this.buffer.isEmpty() || !this.coalesced.isEmpty()) && this.draining.compareAndSet(false, true));
+    }
+
+    private void deliver(final List<RemovalEvent<K, V>> view, final List<RemovalEvent<K, V>> batch) {
+        for (final RemovalSubscriber<K, V> subscriber : this.subscribers) {
+            try {
+                subscriber.onRemovals(view);
+            } catch (final RuntimeException e) {
+                this.subscriberFailures.increment();
+            }
+        }
+        this.delivered.add(batch.size());
+        batch.clear();
+    }
+
+    /**
+     * Returns the number of removals published.
+     *
+     * @return the number of published removals
+     * @since 1.1.0
+     */
+    public long published() {
+        return this.published.sum();
+    }
+
+    /**
+     * Returns the number of removals delivered, once per removal regardless of the number of subscribers.
+     *
+     * @return the number of delivered removals
+     * @since 1.1.0
+     */
+    public long delivered() {
+        return this.delivered.sum();
+    }
+
+    /**
+     * Returns the number of removals dropped because the buffer was full, or, when coalescing,
+     * because as many keys as the buffer holds were already kept aside.
+     *
+     * @return the number of dropped removals
+     * @since 1.1.0
+     */
+    public long dropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Returns the number of overflowing removals replaced by a later removal of the same key.
+     *
+     * @return the number of coalesced removals
+     * @since 1.1.0
+     */
+    public long coalesced() {
+        return this.coalescedCount.sum();
+    }
+
+    /**
+     * Returns the number of times a publishing thread had to wait for room in the buffer.
+     *
+     * @return the number of blocked publications
+     * @since 1.1.0
+     */
+    public long blocked() {
+        return this.blocked.sum();
+    }
+
+    /**
+     * Returns the number of times a subscriber threw while handling a batch.
+     * The other subscribers still receive the batch.
+     *
+     * @return the number of subscriber failures
+     * @since 1.1.0
+     */
+    public long subscriberFailures() {
+        return this.subscriberFailures.sum();
+    }
+}
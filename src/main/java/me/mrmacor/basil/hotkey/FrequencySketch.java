@@ -0,0 +1,107 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.hotkey;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of 4 rows of int counters, estimating how often a hash was seen.
+ * Counters are only incremented where they are the row minimum (conservative update), which keeps the overestimates
+ * of rare hashes small, and {@link #halve()} ages every counter so old popularity fades.
+ * It is not thread safe.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final int[] table;
+    private final int width;
+    private final int[] indexes = new int[DEPTH];
+
+    FrequencySketch(final int width) {
+        this.width = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.table = new int[DEPTH * this.width];
+    }
+
+    /**
+     * Returns the width of a row, the requested width rounded up to a power of two.
+     */
+    int width() {
+        return this.width;
+    }
+
+    /**
+     * Counts one more occurrence of the hash and returns its new estimated frequency.
+     */
+    int increment(final int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            this.indexes[row] = this.index(hash, row);
+            min = Math.min(min, this.table[this.indexes[row]]);
+        }
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int row = 0; row < DEPTH; row++) {
+            if (this.table[this.indexes[row]] == min) {
+                this.table[this.indexes[row]]++;
+            }
+        }
+        return min + 1;
+    }
+
+    /**
+     * Returns the estimated frequency of the hash, never below its true frequency since the last {@link #halve()}.
+     */
+    int frequency(final int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, this.table[this.index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    void halve() {
+        for (int i = 0; i < this.table.length; i++) {
+            this.table[i] >>>= 1;
+        }
+    }
+
+    /**
+     * Resets every counter to zero.
+     */
+    void clear() {
+        Arrays.fill(this.table, 0);
+    }
+
+    private int index(final int hash, final int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * this.width + ((int) h & (this.width - 1));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.hotkey;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * A key a {@link HotKeyTracker} saw often, with its approximate recent frequency.
+ *
+ * @param <K> the type of the key
+ * @since 1.1.0
+ */
+public final class HotKey<K> {
+
+    private final K key;
+    private final long frequency;
+
+    /**
+     * Constructor for a hot key.
+     *
+     * @param key that was seen
+     * @param frequency the approximate number of times it was seen recently
+     * @since 1.1.0
+     */
+    public HotKey(@Nonnull final K key, final long frequency) {
+        this.key = Objects.requireNonNull(key, "key");
+        this.frequency = frequency;
+    }
+
+    /**
+     * Returns the key.
+     *
+     * @return the key
+     * @since 1.1.0
+     */
+    @Nonnull
+    public K key() {
+        return this.key;
+    }
+
+    /**
+     * Returns the approximate number of times the key was seen recently,
+     * extrapolated from the samples and decaying as the tracker ages.
+     *
+     * @return the approximate frequency of the key
+     * @since 1.1.0
+     */
+    public long frequency() {
+        return this.frequency;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HotKey)) {
+            return false;
+        }
+        final HotKey<?> that = (HotKey<?>) o;
+        return this.key.equals(that.key) && this.frequency == that.frequency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.key, this.frequency);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("key", this.key)
+                .add("frequency", this.frequency)
+                .toString();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.hotkey;
+
+import com.google.common.collect.ImmutableList;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds the keys that are read most often, with a {@link FrequencySketch count-min sketch} of the sampled keys
+ * and a heap of the top candidates.
+ *
+ * <p>The overhead on the read path is bounded: only one read in {@code sampleRate} is sampled, and a sample is dropped
+ * rather than waited for while another thread holds the tracker, so readers never block. Every {@code 10 * width}
+ * samples, all frequencies are halved, so keys that stop being read fall out of the top keys.
+ * The tracker holds strong references to at most {@code topK} keys.</p>
+ *
+ * <p>Wrap a cache with {@link #track(BasilCache)} or a cache set with {@link #track(CacheSet)} to sample its reads.
+ * One tracker can be shared by several caches, to find the hottest keys among them.</p>
+ *
+ * @param <K> the type of the keys
+ * @since 1.1.0
+ */
+public final class HotKeyTracker<K> {
+
+    private final int topK;
+    private final int sampleRate;
+    private final int agingPeriod;
+    private final FrequencySketch sketch;
+    private final Map<K, Candidate<K>> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate<K>> heap = new PriorityQueue<>(Comparator.comparingInt(candidate -> candidate.count));
+    private final ReentrantLock lock = new ReentrantLock();
+    private int samples;
+
+    /**
+     * Constructor for the hot key tracker. See {@link me.mrmacor.basil.builder.HotKeyTrackerBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param topK the number of hot keys to track
+     * @param sampleRate to sample one read in, 1 to sample every read
+     * @param width the number of counters in a row of the sketch, rounded up to a power of two
+     * @since 1.1.0
+     */
+    public HotKeyTracker(final int topK, final int sampleRate, final int width) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive: " + topK);
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be positive: " + width);
+        }
+        this.topK = topK;
+        this.sampleRate = sampleRate;
+        this.sketch = new FrequencySketch(width);
+        this.agingPeriod = 10 * this.sketch.width();
+    }
+
+    /**
+     * Records a read of the provided key, if it is sampled.
+     *
+     * @param key that was read
+     * @since 1.1.0
+     */
+    public void record(@Nonnull final K key) {
+        if (this.sampleRate > 1 && ThreadLocalRandom.current().nextInt(this.sampleRate) != 0) {
+            return;
+        }
+        if (!this.lock.tryLock()) {
+            return;
+        }
+        try {
+            this.add(key);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void add(final K key) {
+        final int count = this.sketch.increment(key.hashCode());
+        Candidate<K> candidate = this.candidates.get(key);
+        if (candidate != null) {
+            this.heap.remove(candidate);
+            candidate.count = count;
+            this.heap.add(candidate);
+        } else if (this.candidates.size() < this.topK) {
+            candidate = new Candidate<>(key, count);
+            this.candidates.put(key, candidate);
+            this.heap.add(candidate);
+        } else if (count > this.heap.element().count) {
+            this.candidates.remove(this.heap.remove().key);
+            candidate = new Candidate<>(key, count);
+            this.candidates.put(key, candidate);
+            this.heap.add(candidate);
+        }
+        if (++this.samples >= this.agingPeriod) {
+            this.age();
+        }
+    }
+
+    private void age() {
+        this.sketch.halve();
+        this.samples >>>= 1;
+        this.heap.clear();
+        for (final Candidate<K> candidate : this.candidates.values()) {
+            candidate.count = this.sketch.frequency(candidate.key.hashCode());
+            this.heap.add(candidate);
+        }
+    }
+
+    /**
+     * Returns the current hot keys, most frequent first.
+     *
+     * @return at most {@code topK} hot keys
+     * @since 1.1.0
+     */
+    @Nonnull
+    public List<HotKey<K>> top() {
+        final List<HotKey<K>> top = new ArrayList<>(this.topK);
+        this.lock.lock();
+        try {
+            for (final Candidate<K> candidate : this.candidates.values()) {
+                top.add(new HotKey<>(candidate.key, (long) candidate.count * this.sampleRate));
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        top.sort(Comparator.comparingLong(HotKey<K>::frequency).reversed());
+        return ImmutableList.copyOf(top);
+    }
+
+    /**
+     * Returns the approximate recent frequency of the provided key, whether or not it is one of the hot keys.
+     * It can overestimate, but never underestimates the sampled reads.
+     *
+     * @param key to look for
+     * @return the approximate number of times the key was read recently
+     * @since 1.1.0
+     */
+    public long frequency(@Nonnull final K key) {
+        this.lock.lock();
+        try {
+            return (long) this.sketch.frequency(key.hashCode()) * this.sampleRate;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every recorded read.
+     *
+     * @since 1.1.0
+     */
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.sketch.clear();
+            this.candidates.clear();
+            this.heap.clear();
+            this.samples = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a view of the provided cache that records the keys of its single-key reads,
+     * {@link BasilCache#get(Object, java.util.concurrent.Callable)} and {@link BasilCache#getIfPresent(Object)}.
+     *
+     * @param cache to track
+     * @param <V> the type of the values
+     * @return the tracking cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> HotKeyTrackingCache<K, V> track(@Nonnull final BasilCache<K, V> cache) {
+        return new HotKeyTrackingCache<>(cache, this);
+    }
+
+    /**
+     * Returns a view of the provided cache set that records the values of its {@link CacheSet#contains(Object)} checks.
+     *
+     * @param set to track
+     * @return the tracking cache set
+     * @since 1.1.0
+     */
+    @Nonnull
+    public HotKeyTrackingCacheSet<K> track(@Nonnull final CacheSet<K> set) {
+        return new HotKeyTrackingCacheSet<>(set, this);
+    }
+
+    /**
+     * A key that may be hot, with its estimated sampled frequency.
+     */
+    static final class Candidate<K> {
+
+        final K key;
+        int count;
+
+        Candidate(final K key, final int count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.hotkey;
+
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.cache.ForwardingCacheSet;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * A {@link CacheSet} that records the values of its {@link #contains(Object)} checks in a {@link HotKeyTracker}.
+ * Start with {@link HotKeyTracker#track(CacheSet)}.
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class HotKeyTrackingCacheSet<V> extends ForwardingCacheSet<V> {
+
+    private final CacheSet<V> delegate;
+    private final HotKeyTracker<V> tracker;
+
+    HotKeyTrackingCacheSet(@Nonnull final CacheSet<V> delegate, @Nonnull final HotKeyTracker<V> tracker) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.tracker = Objects.requireNonNull(tracker, "tracker");
+    }
+
+    /**
+     * Returns the tracker the checks are recorded in.
+     *
+     * @return the tracker
+     * @since 1.1.0
+     */
+    @Nonnull
+    public HotKeyTracker<V> tracker() {
+        return this.tracker;
+    }
+
+    @Nonnull
+    @Override
+    public CacheSet<V> delegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        this.tracker.record(value);
+        return this.delegate.contains(value);
+    }
+}
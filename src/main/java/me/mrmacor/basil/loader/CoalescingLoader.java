@@ -0,0 +1,192 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.loader;
+
+import com.google.common.cache.CacheLoader;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-key loads that arrive close together into one call to a bulk loader.
+ *
+ * <p>The first key to arrive opens a batch, which is dispatched once the window has passed or once it holds the
+ * maximum number of keys, whichever comes first. Each caller receives only the value of its own key.
+ * A failing bulk loader fails every key of the batch, while a key it returns no value for fails only that key,
+ * with an {@link CacheLoader.InvalidCacheLoadException}.</p>
+ *
+ * <p>Pass {@link #loader(Object)} to {@link me.mrmacor.basil.cache.BasilCache#get(Object, Callable)}, or
+ * {@link #load(Object)} to an {@link me.mrmacor.basil.cache.AsyncBasilCache}. The caches share in-flight loads
+ * of the same key, so a key that many callers miss on is only added to a batch once.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class CoalescingLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> bulkLoader;
+    private final int maximumBatchSize;
+    private final Executor executor;
+    private final Executor delayed;
+    private final Object lock = new Object();
+    private Batch open;
+
+    /**
+     * Constructor for the coalescing loader.
+     *
+     * @param bulkLoader to load the keys of a batch with
+     * @param windowNanos how long a batch stays open for keys, in nanoseconds
+     * @param maximumBatchSize the number of keys that dispatches a batch before its window has passed
+     * @param executor to run the bulk loader on
+     * @since 1.1.0
+     */
+    public CoalescingLoader(@Nonnull final Function<Set<K>, Map<K, V>> bulkLoader, @Nonnegative final long windowNanos,
+                            final int maximumBatchSize, @Nonnull final Executor executor) {
+        if (windowNanos < 0) {
+            throw new IllegalArgumentException("windowNanos must not be negative: " + windowNanos);
+        }
+        if (maximumBatchSize <= 0) {
+            throw new IllegalArgumentException("maximumBatchSize must be positive: " + maximumBatchSize);
+        }
+        this.bulkLoader = Objects.requireNonNull(bulkLoader, "bulkLoader");
+        this.maximumBatchSize = maximumBatchSize;
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.delayed = CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS, executor);
+    }
+
+    /**
+     * Adds the provided key to the open batch, and returns the future of its value.
+     *
+     * @param key to load
+     * @return the future of the value of the key
+     * @since 1.1.0
+     */
+    @Nonnull
+    public CompletableFuture<V> load(@Nonnull final K key) {
+        final Batch opened;
+        final Batch full;
+        final CompletableFuture<V> future;
+        synchronized (this.lock) {
+            if (this.open == null) {
+                this.open = new Batch();
+                opened = this.open;
+            } else {
+                opened = null;
+            }
+            future = this.open.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (this.open.futures.size() >= this.maximumBatchSize) {
+                full = this.open;
+                this.open = null;
+            } else {
+                full = null;
+            }
+        }
+        if (full != null) {
+            this.executor.execute(full);
+        } else if (opened != null) {
+            this.delayed.execute(() -> this.expire(opened));
+        }
+        return future;
+    }
+
+    /**
+     * Returns a loader that adds the provided key to the open batch and waits for its value.
+     * Failures of the bulk loader are thrown as they are.
+     *
+     * @param key to load
+     * @return the loader of the key
+     * @since 1.1.0
+     */
+    @Nonnull
+    public Callable<V> loader(@Nonnull final K key) {
+        return () -> {
+            try {
+                return this.load(key).get();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        };
+    }
+
+    private void expire(@Nonnull final Batch batch) {
+        synchronized (this.lock) {
+            if (this.open != batch) {
+                return;
+            }
+            this.open = null;
+        }
+        batch.run();
+    }
+
+    /**
+     * The keys a single bulk load is made for, and the futures of their values.
+     */
+    private final class Batch implements Runnable {
+
+        private final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+
+        @Override
+        public void run() {
+            final Map<K, V> loaded;
+            try {
+                loaded = CoalescingLoader.this.bulkLoader.apply(Collections.unmodifiableSet(this.futures.keySet()));
+            } catch (final Throwable t) {
+                this.futures.values().forEach(future -> future.completeExceptionally(t));
+                return;
+            }
+            if (loaded == null) {
+                final Exception failure = new CacheLoader.InvalidCacheLoadException("bulk loader returned a null map");
+                this.futures.values().forEach(future -> future.completeExceptionally(failure));
+                return;
+            }
+            this.futures.forEach((key, future) -> {
+                final V value = loaded.get(key);
+                if (value == null) {
+                    future.completeExceptionally(new CacheLoader.InvalidCacheLoadException("bulk loader returned no value for " + key));
+                } else {
+                    future.complete(value);
+                }
+            });
+        }
+    }
+}
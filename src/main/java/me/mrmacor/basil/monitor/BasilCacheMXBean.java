@@ -0,0 +1,128 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.monitor;
+
+/**
+ * The management interface of a {@link MonitoredBasilCache}, registered with the platform MBean server
+ * as {@code me.mrmacor.basil:type=BasilCache,name="<name>"}.
+ *
+ * @since 1.1.0
+ */
+@SuppressWarnings("checkstyle:MethodName")
+public interface BasilCacheMXBean {
+
+    /**
+     * Returns the name the cache was registered with.
+     *
+     * @return the name of the cache
+     * @since 1.1.0
+     */
+    String getName();
+
+    /**
+     * Returns the estimated number of entries.
+     *
+     * @return the estimated size
+     * @since 1.1.0
+     */
+    long getSize();
+
+    /**
+     * Returns the total weight of the entries, or -1 if the cache does not weigh its entries.
+     *
+     * @return the weighted size
+     * @since 1.1.0
+     */
+    long getWeightedSize();
+
+    /**
+     * Returns the ratio of lookups that were hits.
+     *
+     * @return the hit ratio
+     * @since 1.1.0
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the number of lookups that were hits.
+     *
+     * @return the hit count
+     * @since 1.1.0
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that were misses.
+     *
+     * @return the miss count
+     * @since 1.1.0
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of loads that returned a value.
+     *
+     * @return the load success count
+     * @since 1.1.0
+     */
+    long getLoadSuccessCount();
+
+    /**
+     * Returns the number of loads that failed or returned null.
+     *
+     * @return the load failure count
+     * @since 1.1.0
+     */
+    long getLoadFailureCount();
+
+    /**
+     * Returns the average time spent loading, in milliseconds.
+     *
+     * @return the average load latency
+     * @since 1.1.0
+     */
+    double getAverageLoadPenaltyMillis();
+
+    /**
+     * Returns the number of entries the cache evicted.
+     *
+     * @return the eviction count
+     * @since 1.1.0
+     */
+    long getEvictionCount();
+
+    /**
+     * Discards all entries in the cache.
+     *
+     * @since 1.1.0
+     */
+    void invalidateAll();
+
+    /**
+     * Performs any pending maintenance operations needed by the cache.
+     *
+     * @since 1.1.0
+     */
+    void cleanUp();
+}
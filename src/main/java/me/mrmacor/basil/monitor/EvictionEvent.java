@@ -0,0 +1,43 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.monitor;
+
+/**
+ * An entry a cache removed on its own, delivered by a {@link me.mrmacor.basil.event.RemovalEventBus}.
+ */
+@jdk.jfr.Name("me.mrmacor.basil.Eviction")
+@jdk.jfr.Label("Basil Cache Eviction")
+@jdk.jfr.Category({"Basil", "Cache"})
+@jdk.jfr.StackTrace(false)
+final class EvictionEvent extends jdk.jfr.Event {
+
+    @jdk.jfr.Label("Cache")
+    String cache;
+
+    @jdk.jfr.Label("Key")
+    String key;
+
+    @jdk.jfr.Label("Cause")
+    String cause;
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.monitor;
+
+/**
+ * A single-key load that took at least the threshold, 10 ms by default.
+ */
+@jdk.jfr.Name("me.mrmacor.basil.Load")
+@jdk.jfr.Label("Basil Cache Load")
+@jdk.jfr.Category({"Basil", "Cache"})
+@jdk.jfr.Description("A load of a single key that took longer than the threshold")
+@jdk.jfr.Threshold("10 ms")
+final class LoadEvent extends jdk.jfr.Event {
+
+    @jdk.jfr.Label("Cache")
+    String cache;
+
+    @jdk.jfr.Label("Key")
+    String key;
+
+    @jdk.jfr.Label("Success")
+    @jdk.jfr.Description("Whether the loader returned a value")
+    boolean success;
+}
@@ -0,0 +1,391 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.monitor;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.ForwardingBasilCache;
+import me.mrmacor.basil.event.RemovalEvent;
+import me.mrmacor.basil.event.RemovalSubscriber;
+import me.mrmacor.basil.stats.BasilCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} with a name, that reports what it does to Java Flight Recorder and, optionally, to JMX.
+ *
+ * <p>While a recording enables them, it emits a {@code me.mrmacor.basil.Load} event for every single-key load slower
+ * than 10 ms, a {@code me.mrmacor.basil.BulkOperation} event for every bulk operation slower than 1 ms, and a
+ * {@code me.mrmacor.basil.CacheStatistics} event with its statistics every second. The thresholds and period can be
+ * changed in the recording settings. Without a recording, every operation goes straight to the delegate:
+ * the event objects are never committed and the JIT removes them.
+ * {@link #evictionRecorder()} turns the evictions delivered by a {@link me.mrmacor.basil.event.RemovalEventBus}
+ * into {@code me.mrmacor.basil.Eviction} events.</p>
+ *
+ * <p>With JMX enabled, a {@link BasilCacheMXBean} is registered with the platform MBean server of this JVM,
+ * which is only reachable remotely if the JVM was started with a JMX connector. No connector is started.</p>
+ *
+ * <p>Names are unique among open monitored caches, and a cache stays registered until it is {@link #close() closed}.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class MonitoredBasilCache<K, V> extends ForwardingBasilCache<K, V> implements AutoCloseable {
+
+    private static final ConcurrentMap<String, MonitoredBasilCache<?, ?>> OPEN = new ConcurrentHashMap<>();
+
+    static {
+        jdk.jfr.FlightRecorder.addPeriodicEvent(CacheStatisticsEvent.class, MonitoredBasilCache::emitStatistics);
+    }
+
+    private final String name;
+    private final BasilCache<K, V> delegate;
+    private final @Nullable ObjectName objectName;
+
+    /**
+     * Constructor for the monitored cache. See {@link me.mrmacor.basil.builder.MonitoredCacheBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param name to report the cache as, unique among open monitored caches
+     * @param delegate to delegate to
+     * @param jmx whether to register a {@link BasilCacheMXBean}
+     * @since 1.1.0
+     */
+    public MonitoredBasilCache(@Nonnull final String name, @Nonnull final BasilCache<K, V> delegate, final boolean jmx) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        if (OPEN.putIfAbsent(name, this) != null) {
+            throw new IllegalArgumentException("a monitored cache is already named " + name);
+        }
+        try {
+            this.objectName = jmx ? this.register() : null;
+        } catch (final RuntimeException e) {
+            OPEN.remove(name, this);
+            throw e;
+        }
+    }
+
+    private ObjectName register() {
+        try {
+            final ObjectName objectName = new ObjectName("me.mrmacor.basil:type=BasilCache,name=" + ObjectName.quote(this.name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(), objectName);
+            return objectName;
+        } catch (final JMException e) {
+            throw new IllegalStateException("could not register the MBean of " + this.name, e);
+        }
+    }
+
+    private static void emitStatistics() {
+        for (final MonitoredBasilCache<?, ?> cache : OPEN.values()) {
+            final BasilCacheStats stats = cache.delegate.stats();
+            final CacheStatisticsEvent event = new CacheStatisticsEvent();
+            event.cache = cache.name;
+            event.size = cache.delegate.size();
+            event.hitCount = stats.hitCount();
+            event.missCount = stats.missCount();
+            event.hitRatio = stats.hitRatio();
+            event.loadSuccessCount = stats.loadSuccessCount();
+            event.loadFailureCount = stats.loadFailureCount();
+            event.averageLoadPenalty = (long) stats.averageLoadPenalty();
+            event.evictionCount = stats.evictionCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the name the cache is reported as.
+     *
+     * @return the name of the cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public String name() {
+        return this.name;
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Returns a subscriber that emits an eviction event for every eviction it receives, while a recording enables them.
+     * Subscribe it to the {@link me.mrmacor.basil.event.RemovalEventBus} installed on the delegate.
+     *
+     * @return the eviction recording subscriber
+     * @since 1.1.0
+     */
+    @Nonnull
+    public RemovalSubscriber<K, V> evictionRecorder() {
+        return events -> {
+            for (final RemovalEvent<K, V> removal : events) {
+                final EvictionEvent event = new EvictionEvent();
+                if (!event.isEnabled()) {
+                    return;
+                }
+                if (removal.cause().wasEvicted()) {
+                    event.cache = this.name;
+                    event.key = String.valueOf(removal.key());
+                    event.cause = removal.cause().name();
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    /**
+     * Stops reporting the cache, unregistering its MBean, and frees its name.
+     *
+     * @since 1.1.0
+     */
+    @Override
+    public void close() {
+        if (OPEN.remove(this.name, this) && this.objectName != null) {
+            try {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (server.isRegistered(this.objectName)) {
+                    server.unregisterMBean(this.objectName);
+                }
+            } catch (final JMException e) {
+                throw new IllegalStateException("could not unregister the MBean of " + this.name, e);
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final LoadEvent event = new LoadEvent();
+        if (!event.isEnabled()) {
+            return this.delegate.get(key, loader);
+        }
+        final boolean[] loaded = new boolean[1];
+        boolean success = false;
+        event.begin();
+        try {
+            final V value = this.delegate.get(key, () -> {
+                loaded[0] = true;
+                return loader.call();
+            });
+            success = value != null;
+            return value;
+        } finally {
+            event.end();
+            if (loaded[0] && event.shouldCommit()) {
+                event.cache = this.name;
+                event.key = String.valueOf(key);
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            return this.delegate.allPresent(keys);
+        }
+        event.begin();
+        final ImmutableMap<K, V> present = this.delegate.allPresent(keys);
+        this.commit(event, "allPresent", Iterables.size(keys), present.size());
+        return present;
+    }
+
+    @Override
+    public void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            this.delegate.forEachPresent(keys, action);
+            return;
+        }
+        final int[] present = new int[1];
+        event.begin();
+        this.delegate.forEachPresent(keys, (key, value) -> {
+            present[0]++;
+            action.accept(key, value);
+        });
+        this.commit(event, "forEachPresent", Iterables.size(keys), present[0]);
+    }
+
+    @Override
+    public int allPresent(@Nonnull final K[] keys, @Nonnull final V[] values) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            return this.delegate.allPresent(keys, values);
+        }
+        event.begin();
+        final int present = this.delegate.allPresent(keys, values);
+        this.commit(event, "allPresent", keys.length, present);
+        return present;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            return this.delegate.getAll(keys, loader);
+        }
+        event.begin();
+        ImmutableMap<K, V> all = null;
+        try {
+            all = this.delegate.getAll(keys, loader);
+            return all;
+        } finally {
+            this.commit(event, "getAll", Iterables.size(keys), all == null ? 0 : all.size());
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            this.delegate.invalidateAll();
+            return;
+        }
+        event.begin();
+        this.delegate.invalidateAll();
+        this.commit(event, "invalidateAll", 0, 0);
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            this.delegate.invalidateAll(keys);
+            return;
+        }
+        event.begin();
+        this.delegate.invalidateAll(keys);
+        this.commit(event, "invalidateAll", Iterables.size(keys), 0);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        final BulkOperationEvent event = new BulkOperationEvent();
+        if (!event.isEnabled()) {
+            this.delegate.putAll(map);
+            return;
+        }
+        event.begin();
+        this.delegate.putAll(map);
+        this.commit(event, "putAll", map.size(), 0);
+    }
+
+    private void commit(final BulkOperationEvent event, final String operation, final int keys, final int present) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = this.name;
+            event.operation = operation;
+            event.keys = keys;
+            event.present = present;
+            event.commit();
+        }
+    }
+
+    /**
+     * The MBean of the cache, reading its statistics whenever an attribute is read.
+     */
+    final class MXBean implements BasilCacheMXBean {
+
+        @Override
+        public String getName() {
+            return MonitoredBasilCache.this.name;
+        }
+
+        @Override
+        public long getSize() {
+            return MonitoredBasilCache.this.delegate.size();
+        }
+
+        @Override
+        public long getWeightedSize() {
+            return MonitoredBasilCache.this.delegate.weightedSize().orElse(-1);
+        }
+
+        @Override
+        public double getHitRatio() {
+            return MonitoredBasilCache.this.delegate.stats().hitRatio();
+        }
+
+        @Override
+        public long getHitCount() {
+            return MonitoredBasilCache.this.delegate.stats().hitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return MonitoredBasilCache.this.delegate.stats().missCount();
+        }
+
+        @Override
+        public long getLoadSuccessCount() {
+            return MonitoredBasilCache.this.delegate.stats().loadSuccessCount();
+        }
+
+        @Override
+        public long getLoadFailureCount() {
+            return MonitoredBasilCache.this.delegate.stats().loadFailureCount();
+        }
+
+        @Override
+        public double getAverageLoadPenaltyMillis() {
+            return MonitoredBasilCache.this.delegate.stats().averageLoadPenalty() / 1_000_000.0;
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return MonitoredBasilCache.this.delegate.stats().evictionCount();
+        }
+
+        @Override
+        public void invalidateAll() {
+            MonitoredBasilCache.this.delegate.invalidateAll();
+        }
+
+        @Override
+        public void cleanUp() {
+            MonitoredBasilCache.this.delegate.cleanUp();
+        }
+    }
+}
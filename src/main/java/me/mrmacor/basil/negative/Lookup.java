@@ -0,0 +1,188 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.negative;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * The outcome of a load through a {@link NegativeCachingCache}: a value, a key known to be absent, or a failure.
+ *
+ * @param <V> the type of the value
+ * @since 1.1.0
+ */
+public final class Lookup<V> {
+
+    private static final Lookup<?> ABSENT = new Lookup<>(State.ABSENT, null, null);
+
+    private final State state;
+    private final @Nullable V value;
+    private final @Nullable Throwable failure;
+
+    private Lookup(@Nonnull final State state, @Nullable final V value, @Nullable final Throwable failure) {
+        this.state = state;
+        this.value = value;
+        this.failure = failure;
+    }
+
+    /**
+     * The kinds of outcome a lookup can have.
+     *
+     * @since 1.1.0
+     */
+    public enum State {
+
+        /**
+         * The key has a value.
+         *
+         * @since 1.1.0
+         */
+        PRESENT,
+
+        /**
+         * The loader found no value for the key.
+         *
+         * @since 1.1.0
+         */
+        ABSENT,
+
+        /**
+         * The loader failed.
+         *
+         * @since 1.1.0
+         */
+        FAILED
+    }
+
+    /**
+     * Returns the lookup of a key that has the provided value.
+     *
+     * @param value of the key
+     * @return the lookup
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <V> Lookup<V> present(@Nonnull final V value) {
+        return new Lookup<>(State.PRESENT, Objects.requireNonNull(value, "value"), null);
+    }
+
+    /**
+     * Returns the lookup of a key the loader found no value for.
+     *
+     * @return the lookup
+     * @since 1.1.0
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static <V> Lookup<V> absent() {
+        return (Lookup<V>) ABSENT;
+    }
+
+    /**
+     * Returns the lookup of a key whose loader failed with the provided exception.
+     *
+     * @param failure the loader failed with
+     * @return the lookup
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <V> Lookup<V> failed(@Nonnull final Throwable failure) {
+        return new Lookup<>(State.FAILED, null, Objects.requireNonNull(failure, "failure"));
+    }
+
+    /**
+     * Returns the kind of outcome of this lookup.
+     *
+     * @return the state of this lookup
+     * @since 1.1.0
+     */
+    @Nonnull
+    public State state() {
+        return this.state;
+    }
+
+    /**
+     * Returns if this lookup found a value.
+     *
+     * @return if the state is {@link State#PRESENT}
+     * @since 1.1.0
+     */
+    public boolean isPresent() {
+        return this.state == State.PRESENT;
+    }
+
+    /**
+     * Returns the value this lookup found, or null if it found none.
+     *
+     * @return the value, or null
+     * @since 1.1.0
+     */
+    @Nullable
+    public V value() {
+        return this.value;
+    }
+
+    /**
+     * Returns the exception the loader failed with, or null if it did not fail.
+     *
+     * @return the failure, or null
+     * @since 1.1.0
+     */
+    @Nullable
+    public Throwable failure() {
+        return this.failure;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Lookup)) {
+            return false;
+        }
+        final Lookup<?> that = (Lookup<?>) o;
+        return this.state == that.state
+                && Objects.equals(this.value, that.value)
+                && Objects.equals(this.failure, that.failure);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.state, this.value, this.failure);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .omitNullValues()
+                .add("state", this.state)
+                .add("value", this.value)
+                .add("failure", this.failure)
+                .toString();
+    }
+}
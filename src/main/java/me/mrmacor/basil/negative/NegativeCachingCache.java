@@ -0,0 +1,465 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.negative;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ForwardingConcurrentMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.ForwardingBasilCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that also remembers keys its loaders found no value for, and loaders that failed,
+ * so repeated lookups of missing keys or against a failing backend do not reach the loader every time.
+ *
+ * <p>Absent keys and failures are kept next to the delegate, in a size-bounded Caffeine cache with their own
+ * time to live each, and only ever reported by this cache: {@link #get(Object, Callable)} returns null for a key
+ * remembered as absent, and throws a remembered failure the way the delegate threw it the first time.
+ * {@link #lookup(Object, Callable)} tells the three outcomes apart without exceptions.
+ * A time to live of zero disables remembering that kind of outcome.</p>
+ *
+ * <p>A value in the delegate always wins over what is remembered about its key: an outcome is only remembered while
+ * the delegate has no value for the key, and a remembered outcome is forgotten once the delegate has one.
+ * Writing or invalidating a key through this cache or its {@link #asMap()} view forgets what was remembered about it.
+ * Hits on remembered outcomes are counted by {@link #absentHitCount()} and
+ * {@link #failureHitCount()} rather than in {@link #stats()}, which are the statistics of the delegate, where a
+ * load that found no value counts as a failed load.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class NegativeCachingCache<K, V> extends ForwardingBasilCache<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private final com.github.benmanes.caffeine.cache.Cache<K, Lookup<V>> negatives;
+    private final long expireAbsentAfterNanos;
+    private final long expireFailuresAfterNanos;
+    private final LongAdder absentHits = new LongAdder();
+    private final LongAdder failureHits = new LongAdder();
+    private final MapView mapView = new MapView();
+
+    /**
+     * Constructor for the negative caching cache.
+     *
+     * @param delegate to delegate to
+     * @param expireAbsentAfterNanos how long an absent key is remembered, or zero to not remember absent keys
+     * @param expireFailuresAfterNanos how long a failure is remembered, or zero to not remember failures
+     * @param maximumNegatives the maximum number of absent keys and failures remembered
+     * @param ticker the time source
+     * @since 1.1.0
+     */
+    public NegativeCachingCache(@Nonnull final BasilCache<K, V> delegate, @Nonnegative final long expireAbsentAfterNanos,
+                                @Nonnegative final long expireFailuresAfterNanos, @Nonnegative final long maximumNegatives,
+                                @Nonnull final Ticker ticker) {
+        if (expireAbsentAfterNanos < 0 || expireFailuresAfterNanos < 0 || maximumNegatives < 0) {
+            throw new IllegalArgumentException("durations and maximumNegatives must not be negative");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.expireAbsentAfterNanos = expireAbsentAfterNanos;
+        this.expireFailuresAfterNanos = expireFailuresAfterNanos;
+        this.negatives = Caffeine.newBuilder()
+                .maximumSize(maximumNegatives)
+                .ticker(Objects.requireNonNull(ticker, "ticker")::read)
+                .expireAfter(new Expiry<K, Lookup<V>>() {
+                    @Override
+                    public long expireAfterCreate(@Nonnull final K key, @Nonnull final Lookup<V> value, final long currentTime) {
+                        return NegativeCachingCache.this.lifetime(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@Nonnull final K key, @Nonnull final Lookup<V> value, final long currentTime,
+                                                  final long currentDuration) {
+                        return NegativeCachingCache.this.lifetime(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(@Nonnull final K key, @Nonnull final Lookup<V> value, final long currentTime,
+                                                final long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private long lifetime(@Nonnull final Lookup<V> lookup) {
+        return lookup.state() == Lookup.State.ABSENT ? this.expireAbsentAfterNanos : this.expireFailuresAfterNanos;
+    }
+
+    private void remember(@Nonnull final K key, @Nonnull final Lookup<V> lookup) {
+        if (this.lifetime(lookup) > 0) {
+            // writes store in the delegate before they forget, so checking under the key's lock cannot miss a write
+            this.negatives.asMap().compute(key, (k, previous) -> this.delegate.asMap().containsKey(k) ? null : lookup);
+        }
+    }
+
+    /**
+     * Returns what is remembered about the provided key, or null if nothing is or if the delegate has a value for it.
+     */
+    @Nullable
+    private Lookup<V> negative(@Nonnull final K key) {
+        final Lookup<V> remembered = this.negatives.getIfPresent(key);
+        if (remembered != null && this.delegate.asMap().containsKey(key)) {
+            this.negatives.asMap().remove(key, remembered);
+            return null;
+        }
+        return remembered;
+    }
+
+    private void forget(@Nonnull final Object key) {
+        this.negatives.asMap().remove(key);
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.mapView;
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate.cleanUp();
+        this.negatives.cleanUp();
+    }
+
+    /**
+     * Returns the value associated with the provided key, loading it if there is none and nothing is remembered about the key.
+     * Returns null if the key is remembered as absent, and throws the remembered failure if its loader failed.
+     *
+     * @param key to look for
+     * @param loader to load the value with
+     * @return the value, or null if there is none
+     * @throws ExecutionException if the loader threw a checked exception, now or before
+     * @since 1.1.0
+     */
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final Lookup<V> negative = this.negative(key);
+        if (negative != null) {
+            return this.replay(negative);
+        }
+        return this.load(key, loader);
+    }
+
+    /**
+     * Returns the outcome of looking up the provided key, loading it if there is no value and nothing is remembered about the key.
+     * Never throws the failure of the loader, but returns it.
+     *
+     * @param key to look for
+     * @param loader to load the value with
+     * @return the outcome of the lookup
+     * @since 1.1.0
+     */
+    @Nonnull
+    public Lookup<V> lookup(@Nonnull final K key, @Nonnull final Callable<V> loader) {
+        final Lookup<V> negative = this.negative(key);
+        if (negative != null) {
+            this.recordNegativeHit(negative);
+            return negative;
+        }
+        try {
+            final V value = this.load(key, loader);
+            return value == null ? Lookup.absent() : Lookup.present(value);
+        } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            return Lookup.failed(e.getCause());
+        }
+    }
+
+    /**
+     * Returns what is known about the provided key without loading it, or null if nothing is.
+     *
+     * @param key to look for
+     * @return the outcome of the last lookup of the key, or null
+     * @since 1.1.0
+     */
+    @Nullable
+    public Lookup<V> lookupIfPresent(@Nonnull final K key) {
+        final V present = this.delegate.getIfPresent(key);
+        if (present != null) {
+            return Lookup.present(present);
+        }
+        final Lookup<V> negative = this.negatives.getIfPresent(key);
+        if (negative != null) {
+            this.recordNegativeHit(negative);
+        }
+        return negative;
+    }
+
+    @Nullable
+    private V load(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        try {
+            return this.delegate.get(key, () -> {
+                final V value;
+                try {
+                    value = loader.call();
+                } catch (final Throwable t) {
+                    this.remember(key, Lookup.failed(t));
+                    throw t;
+                }
+                if (value == null) {
+                    this.remember(key, Lookup.absent());
+                    throw AbsentSignal.INSTANCE;
+                }
+                return value;
+            });
+        } catch (final UncheckedExecutionException e) {
+            if (e.getCause() == AbsentSignal.INSTANCE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Nullable
+    private V replay(@Nonnull final Lookup<V> negative) throws ExecutionException {
+        this.recordNegativeHit(negative);
+        final Throwable failure = negative.failure();
+        if (failure == null) {
+            return null;
+        }
+        if (failure instanceof Error) {
+            throw new ExecutionError((Error) failure);
+        }
+        if (failure instanceof RuntimeException) {
+            throw new UncheckedExecutionException(failure);
+        }
+        throw new ExecutionException(failure);
+    }
+
+    private void recordNegativeHit(@Nonnull final Lookup<V> negative) {
+        if (negative.state() == Lookup.State.ABSENT) {
+            this.absentHits.increment();
+        } else {
+            this.failureHits.increment();
+        }
+    }
+
+    /**
+     * Returns the values associated with the provided keys, loading the keys that have none and nothing remembered about them.
+     * Keys remembered as absent, or that the loader returns no value for, are left out, and a key whose loader failed
+     * before throws that failure again.
+     *
+     * @param keys to look for
+     * @param loader to load the missing keys with
+     * @return the values associated with the keys
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final List<K> candidates = new ArrayList<>();
+        for (final K key : keys) {
+            final Lookup<V> negative = this.negative(key);
+            if (negative == null) {
+                candidates.add(key);
+                continue;
+            }
+            this.recordNegativeHit(negative);
+            final Throwable failure = negative.failure();
+            if (failure instanceof Error) {
+                throw new ExecutionError((Error) failure);
+            }
+            if (failure != null) {
+                throw new UncheckedExecutionException(failure);
+            }
+        }
+        return this.delegate.getAll(candidates, missing -> {
+            final Map<K, V> loaded;
+            try {
+                loaded = loader.apply(missing);
+            } catch (final RuntimeException | Error e) {
+                missing.forEach(key -> this.remember(key, Lookup.failed(e)));
+                throw e;
+            }
+            for (final K key : missing) {
+                if (loaded == null || loaded.get(key) == null) {
+                    this.remember(key, Lookup.absent());
+                }
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.delegate.invalidate(key);
+        this.forget(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.negatives.invalidateAll();
+        this.delegate.invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.negatives.invalidateAll(keys);
+        this.delegate.invalidateAll(keys);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.delegate.put(key, value);
+        this.forget(key);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.delegate.putAll(map);
+        this.negatives.invalidateAll(map.keySet());
+    }
+
+    /**
+     * Returns the number of lookups that found a key remembered as absent.
+     *
+     * @return the number of absent hits
+     * @since 1.1.0
+     */
+    public long absentHitCount() {
+        return this.absentHits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found a remembered failure.
+     *
+     * @return the number of failure hits
+     * @since 1.1.0
+     */
+    public long failureHitCount() {
+        return this.failureHits.sum();
+    }
+
+    /**
+     * Thrown through the delegate when the loader returns null, as Guava does not allow a loader to return null.
+     */
+    private static final class AbsentSignal extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private static final AbsentSignal INSTANCE = new AbsentSignal();
+
+        private AbsentSignal() {
+            super("absent", null, false, false);
+        }
+    }
+
+    /**
+     * The map view of the delegate, which forgets what was remembered about every key written through it.
+     */
+    final class MapView extends ForwardingConcurrentMap<K, V> {
+
+        @Override
+        protected ConcurrentMap<K, V> delegate() {
+            return NegativeCachingCache.this.delegate.asMap();
+        }
+
+        @Override
+        public V put(@Nonnull final K key, @Nonnull final V value) {
+            final V previous = super.put(key, value);
+            NegativeCachingCache.this.forget(key);
+            return previous;
+        }
+
+        @Override
+        public V putIfAbsent(@Nonnull final K key, @Nonnull final V value) {
+            final V previous = super.putIfAbsent(key, value);
+            NegativeCachingCache.this.forget(key);
+            return previous;
+        }
+
+        @Override
+        public void putAll(@Nonnull final Map<? extends K, ? extends V> map) {
+            super.putAll(map);
+            map.keySet().forEach(NegativeCachingCache.this::forget);
+        }
+
+        @Override
+        public V replace(@Nonnull final K key, @Nonnull final V value) {
+            final V previous = super.replace(key, value);
+            NegativeCachingCache.this.forget(key);
+            return previous;
+        }
+
+        @Override
+        public boolean replace(@Nonnull final K key, @Nonnull final V oldValue, @Nonnull final V newValue) {
+            final boolean replaced = super.replace(key, oldValue, newValue);
+            NegativeCachingCache.this.forget(key);
+            return replaced;
+        }
+
+        @Override
+        public V computeIfAbsent(final K key, @Nonnull final Function<? super K, ? extends V> mappingFunction) {
+            final V value = this.delegate().computeIfAbsent(key, mappingFunction);
+            NegativeCachingCache.this.forget(key);
+            return value;
+        }
+
+        @Override
+        public V computeIfPresent(final K key, @Nonnull final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            final V value = this.delegate().computeIfPresent(key, remappingFunction);
+            NegativeCachingCache.this.forget(key);
+            return value;
+        }
+
+        @Override
+        public V compute(final K key, @Nonnull final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            final V value = this.delegate().compute(key, remappingFunction);
+            NegativeCachingCache.this.forget(key);
+            return value;
+        }
+
+        @Override
+        public V merge(final K key, @Nonnull final V value, @Nonnull final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            final V merged = this.delegate().merge(key, value, remappingFunction);
+            NegativeCachingCache.this.forget(key);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.offheap;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.PartitionSpliterator;
+import me.mrmacor.basil.codec.Codec;
+import me.mrmacor.basil.event.RemovalEventBus;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that keeps its values outside of the Java heap, so they add nothing to the work of the garbage collector.
+ * See {@link me.mrmacor.basil.builder.OffHeapCacheBuilder} for a friendlier way to build one.
+ *
+ * <p>Values are encoded with a {@link Codec} into direct memory, and decoded again on every lookup.
+ * Only the keys and a small entry per key stay on the heap. The cache is bounded by the bytes it allocates rather than by
+ * its number of entries, see {@link SlabSegment} for how that memory is managed. A value too large for a single page is
+ * not stored at all. Evicted entries are decoded and published to the {@link RemovalEventBus} the cache was built with,
+ * if any.</p>
+ *
+ * <p>A loader runs outside of any lock, so threads missing on the same key at the same time may each run it;
+ * the first value stored wins and is returned to all of them. The same goes for bulk loads. Loader failures are
+ * reported the same way a {@link com.google.common.cache.Cache} reports them. The memory of the cache is released once
+ * the cache itself is garbage collected.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class OffHeapBasilCache<K, V> implements BasilCache<K, V> {
+
+    static final int MINIMUM_CHUNK_SIZE = 64;
+    private static final int MINIMUM_SEGMENT_PAGES = 8;
+
+    private final Codec<V> codec;
+    private final SlabSegment<K, V>[] segments;
+    private final int segmentShift;
+    private final int[] chunkSizes;
+    private final int pageSize;
+    private final StatsCounter counter = new StatsCounter();
+    private final MapView mapView = new MapView();
+
+    /**
+     * Constructor for the off-heap cache.
+     *
+     * @param codec to convert values to and from bytes
+     * @param maximumBytes the maximum number of bytes to allocate, at least one page
+     * @param pageSize the size of the pages memory is allocated in, which is also the largest value that can be stored
+     * @param growthFactor the factor between the chunk sizes of consecutive size classes, larger than one
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param removals to publish evicted entries to, or null
+     * @since 1.1.0
+     */
+    @SuppressWarnings("unchecked")
+    public OffHeapBasilCache(@Nonnull final Codec<V> codec, @Nonnegative final long maximumBytes, @Nonnegative final int pageSize,
+                             final double growthFactor, final int concurrencyLevel,
+                             @Nullable final RemovalEventBus<? super K, ? super V> removals) {
+        if (pageSize < MINIMUM_CHUNK_SIZE) {
+            throw new IllegalArgumentException("pageSize must be at least " + MINIMUM_CHUNK_SIZE + ": " + pageSize);
+        }
+        if (maximumBytes < pageSize) {
+            throw new IllegalArgumentException("maximumBytes must be at least one page: " + maximumBytes);
+        }
+        if (!(growthFactor > 1.0)) {
+            throw new IllegalArgumentException("growthFactor must be larger than one: " + growthFactor);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.codec = Objects.requireNonNull(codec, "codec");
+        this.pageSize = pageSize;
+
+        final List<Integer> sizes = new ArrayList<>();
+        for (int size = MINIMUM_CHUNK_SIZE; size < pageSize; size = Math.max(size + 8, ((int) (size * growthFactor) + 7) & ~7)) {
+            sizes.add(size);
+        }
+        sizes.add(pageSize);
+        this.chunkSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+
+        final long totalPages = maximumBytes / pageSize;
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16) && segmentCount * 2L * MINIMUM_SEGMENT_PAGES <= totalPages) {
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = (SlabSegment<K, V>[]) new SlabSegment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            final long pages = totalPages / segmentCount + (i < totalPages % segmentCount ? 1 : 0);
+            this.segments[i] = new SlabSegment<>(codec, this.counter, removals, pageSize, this.chunkSizes, (int) Math.min(pages, Integer.MAX_VALUE));
+        }
+    }
+
+    private static int spread(final Object key) {
+        final int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private SlabSegment<K, V> segmentFor(final Object key) {
+        return this.segments.length == 1 ? this.segments[0] : this.segments[spread(key) >>> this.segmentShift];
+    }
+
+    private int slabClass(final int size) {
+        if (size > this.pageSize) {
+            return -1;
+        }
+        final int found = Arrays.binarySearch(this.chunkSizes, size);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    @Nullable
+    private V store(final K key, final V value, final SlabSegment.Mode mode, final boolean decodePrevious) {
+        final int size = this.codec.size(value);
+        return this.segmentFor(key).store(key, value, size, this.slabClass(size), mode, decodePrevious);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory allocated by this cache.
+     *
+     * @return the allocated bytes
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long allocatedBytes() {
+        long pages = 0;
+        for (final SlabSegment<K, V> segment : this.segments) {
+            pages += segment.pageCount;
+        }
+        return pages * this.pageSize;
+    }
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.mapView;
+    }
+
+    @Override
+    public void cleanUp() {
+        // entries do not expire and evictions happen as part of writes, so there is never anything to clean up
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final V present = this.getIfPresent(key);
+        if (present != null) {
+            return present;
+        }
+
+        final long start = System.nanoTime();
+        final V loaded;
+        try {
+            loaded = loader.call();
+        } catch (final RuntimeException e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw new UncheckedExecutionException(e);
+        } catch (final Error e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw new ExecutionError(e);
+        } catch (final Exception e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw new ExecutionException(e);
+        }
+        if (loaded == null) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            return null;
+        }
+        this.counter.recordLoadSuccess(System.nanoTime() - start);
+        final V stored = this.store(key, loaded, SlabSegment.Mode.IF_ABSENT, false);
+        return stored != null ? stored : loaded;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        final Map<K, V> present = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = this.getIfPresent(key);
+            if (value != null) {
+                present.put(key, value);
+            }
+        }
+        return ImmutableMap.copyOf(present);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final ImmutableMap<K, V> present = this.allPresent(keys);
+        final Set<K> missing = new LinkedHashSet<>();
+        for (final K key : keys) {
+            if (!present.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return present;
+        }
+
+        final long start = System.nanoTime();
+        final Map<K, V> loaded;
+        try {
+            loaded = loader.apply(Collections.unmodifiableSet(missing));
+            if (loaded == null) {
+                throw new CacheLoader.InvalidCacheLoadException("bulk loader returned null for " + missing);
+            }
+        } catch (final RuntimeException e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw new UncheckedExecutionException(e);
+        } catch (final Error e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw new ExecutionError(e);
+        }
+        this.counter.recordLoadSuccess(System.nanoTime() - start);
+
+        final Map<K, V> stored = new HashMap<>();
+        for (final Map.Entry<K, V> entry : loaded.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                final V existing = this.store(entry.getKey(), entry.getValue(), SlabSegment.Mode.IF_ABSENT, false);
+                stored.put(entry.getKey(), existing != null ? existing : entry.getValue());
+            }
+        }
+        final Map<K, V> all = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = present.containsKey(key) ? present.get(key) : stored.get(key);
+            if (value != null) {
+                all.put(key, value);
+            }
+        }
+        return ImmutableMap.copyOf(all);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        final V present = this.segmentFor(key).get(key);
+        if (present != null) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+        return present;
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.segmentFor(key).remove(key, false);
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (final SlabSegment<K, V> segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        for (final K key : keys) {
+            this.invalidate(key);
+        }
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.store(key, value, SlabSegment.Mode.ALWAYS, false);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        for (final Map.Entry<K, V> entry : map.entrySet()) {
+            this.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns a spliterator that walks the cache one segment at a time, like the iterator of {@link #asMap()}.
+     * It splits across segments, decodes each value as it reports its entry, and skips keys removed in the meantime.
+     *
+     * @return a spliterator over the entries of this cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new PartitionSpliterator<>(this.segments.length,
+                index -> Spliterators.spliterator(new EntryIterator(index, index + 1), this.segments[index].count,
+                        Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL),
+                index -> this.segments[index].count, Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (final SlabSegment<K, V> segment : this.segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the bytes of direct memory taken by the values of this cache, counting the whole chunk each value is stored in.
+     *
+     * @return the bytes taken by the values
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        long bytes = 0;
+        for (final SlabSegment<K, V> segment : this.segments) {
+            bytes += segment.bytes;
+        }
+        return OptionalLong.of(bytes);
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.counter.snapshot();
+    }
+
+    /**
+     * A {@link ConcurrentMap} view of the cache. Its operations do not count towards the statistics.
+     */
+    @SuppressWarnings("unchecked")
+    final class MapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+        @Override
+        public V get(final Object key) {
+            return key == null ? null : OffHeapBasilCache.this.segmentFor(key).get((K) key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key != null && OffHeapBasilCache.this.segmentFor(key).containsKey((K) key);
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+            return OffHeapBasilCache.this.store(key, value, SlabSegment.Mode.ALWAYS, true);
+        }
+
+        @Override
+        public V putIfAbsent(@Nonnull final K key, @Nonnull final V value) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+            return OffHeapBasilCache.this.store(key, value, SlabSegment.Mode.IF_ABSENT, true);
+        }
+
+        @Override
+        public V replace(@Nonnull final K key, @Nonnull final V value) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+            return OffHeapBasilCache.this.store(key, value, SlabSegment.Mode.IF_PRESENT, true);
+        }
+
+        @Override
+        public boolean replace(@Nonnull final K key, @Nonnull final V oldValue, @Nonnull final V newValue) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(oldValue, "oldValue");
+            final int size = OffHeapBasilCache.this.codec.size(newValue);
+            return OffHeapBasilCache.this.segmentFor(key).replace(key, oldValue, newValue, size, OffHeapBasilCache.this.slabClass(size));
+        }
+
+        @Override
+        public V remove(final Object key) {
+            return key == null ? null : OffHeapBasilCache.this.segmentFor(key).remove((K) key, true);
+        }
+
+        @Override
+        public boolean remove(@Nonnull final Object key, final Object value) {
+            return key != null && value != null && OffHeapBasilCache.this.segmentFor(key).remove((K) key, value);
+        }
+
+        @Override
+        public void clear() {
+            OffHeapBasilCache.this.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, OffHeapBasilCache.this.size());
+        }
+
+        @Nonnull
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    OffHeapBasilCache.this.invalidateAll();
+                }
+
+                @Nonnull
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator(0, OffHeapBasilCache.this.segments.length);
+                }
+
+                @Nonnull
+                @Override
+                public Spliterator<Map.Entry<K, V>> spliterator() {
+                    return OffHeapBasilCache.this.spliterator();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the keys of one segment at a time, skipping keys that were removed in the meantime.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final int end;
+        private int segment;
+        private Object[] keys = new Object[0];
+        private int index;
+        private Map.Entry<K, V> next;
+        private K last;
+
+        /**
+         * Iterates over the segments from {@code from}, inclusive, to {@code end}, exclusive.
+         */
+        EntryIterator(final int from, final int end) {
+            this.segment = from;
+            this.end = end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (this.next == null) {
+                if (this.index == this.keys.length) {
+                    if (this.segment == this.end) {
+                        return false;
+                    }
+                    this.keys = OffHeapBasilCache.this.segments[this.segment++].keys();
+                    this.index = 0;
+                    continue;
+                }
+                final K key = (K) this.keys[this.index++];
+                final V value = OffHeapBasilCache.this.segmentFor(key).get(key);
+                if (value != null) {
+                    this.next = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> entry = this.next;
+            this.next = null;
+            this.last = entry.getKey();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            OffHeapBasilCache.this.invalidate(this.last);
+            this.last = null;
+        }
+    }
+}
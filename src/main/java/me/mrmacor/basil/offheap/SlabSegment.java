@@ -0,0 +1,518 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.offheap;
+
+import me.mrmacor.basil.codec.Codec;
+import me.mrmacor.basil.event.RemovalCause;
+import me.mrmacor.basil.event.RemovalEventBus;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * One independently locked part of an {@link OffHeapBasilCache}, with its own index and its own share of the memory.
+ *
+ * <p>Memory is allocated in direct pages of a fixed size, like the slab allocator of memcached. A page is assigned to one
+ * size class and cut into chunks of that size, so a freed chunk is reused by a value of a similar size and the memory does
+ * not fragment. Once the segment cannot allocate another page, every size class evicts its own entries with the CLOCK
+ * algorithm, and a class that keeps evicting takes a page over from another class, preferably one that stopped evicting.</p>
+ *
+ * <p>Lookups and decoding take the read lock, everything else takes the write lock. Evicted entries are decoded under
+ * the write lock but only published once it is released, so a publisher blocked by a full removal bus never holds it,
+ * and a subscriber may read the cache that published the removal.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class SlabSegment<K, V> {
+
+    private final StampedLock lock = new StampedLock();
+    private final Codec<V> codec;
+    private final StatsCounter counter;
+    private final RemovalEventBus<? super K, ? super V> removals;
+    private final int pageSize;
+    private final int maximumPages;
+    private final SlabClass[] classes;
+    private final List<Page> pages = new ArrayList<>();
+    private final ArrayDeque<Page> unassigned = new ArrayDeque<>();
+    private final Map<K, Entry> index = new HashMap<>();
+    private final List<Map.Entry<K, V>> evicted = new ArrayList<>();
+    private int stealCursor;
+    volatile int count;
+    volatile int pageCount;
+    volatile long bytes;
+
+    SlabSegment(final Codec<V> codec, final StatsCounter counter, @Nullable final RemovalEventBus<? super K, ? super V> removals,
+                final int pageSize, final int[] chunkSizes, final int maximumPages) {
+        this.codec = codec;
+        this.counter = counter;
+        this.removals = removals;
+        this.pageSize = pageSize;
+        this.maximumPages = maximumPages;
+        this.classes = new SlabClass[chunkSizes.length];
+        for (int i = 0; i < chunkSizes.length; i++) {
+            this.classes[i] = new SlabClass(i, chunkSizes[i], pageSize / chunkSizes[i]);
+        }
+    }
+
+    /**
+     * How {@link #store} treats an entry that is already present.
+     */
+    enum Mode {
+        ALWAYS,
+        IF_ABSENT,
+        IF_PRESENT
+    }
+
+    @Nullable
+    V get(final K key) {
+        final long stamp = this.lock.readLock();
+        try {
+            final Entry entry = this.index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.referenced = true;
+            return this.decode(entry);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    boolean containsKey(final K key) {
+        final long stamp = this.lock.readLock();
+        try {
+            return this.index.containsKey(key);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores a value according to the mode, and returns the value that was present if asked to or if it was kept.
+     * A value of a negative size class is too large to store, and only removes the entry it would have replaced.
+     */
+    @Nullable
+    V store(final K key, final V value, final int size, final int slabClass, final Mode mode, final boolean decodePrevious) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Entry existing = this.index.get(key);
+            if (existing == null ? mode == Mode.IF_PRESENT : mode == Mode.IF_ABSENT) {
+                if (existing != null) {
+                    existing.referenced = true;
+                    return this.decode(existing);
+                }
+                return null;
+            }
+            final V previous = existing != null && decodePrevious ? this.decode(existing) : null;
+            this.write(key, existing, value, size, slabClass);
+            return previous;
+        } finally {
+            this.unlockAndPublish(stamp);
+        }
+    }
+
+    boolean replace(final K key, final V expected, final V value, final int size, final int slabClass) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Entry existing = this.index.get(key);
+            if (existing == null || !expected.equals(this.decode(existing))) {
+                return false;
+            }
+            this.write(key, existing, value, size, slabClass);
+            return true;
+        } finally {
+            this.unlockAndPublish(stamp);
+        }
+    }
+
+    @Nullable
+    V remove(final K key, final boolean decodePrevious) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Entry existing = this.index.get(key);
+            if (existing == null) {
+                return null;
+            }
+            final V previous = decodePrevious ? this.decode(existing) : null;
+            this.release(existing, false);
+            return previous;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean remove(final K key, final Object expected) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Entry existing = this.index.get(key);
+            if (existing == null || !expected.equals(this.decode(existing))) {
+                return false;
+            }
+            this.release(existing, false);
+            return true;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drops every entry, but keeps the pages for reuse.
+     */
+    void clear() {
+        final long stamp = this.lock.writeLock();
+        try {
+            this.index.clear();
+            this.unassigned.clear();
+            for (final Page page : this.pages) {
+                page.unassign();
+                this.unassigned.add(page);
+            }
+            for (final SlabClass slabClass : this.classes) {
+                slabClass.partial.clear();
+                slabClass.pages = 0;
+                slabClass.evictions = 0;
+                slabClass.hand = null;
+            }
+            this.count = 0;
+            this.bytes = 0;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    Object[] keys() {
+        final long stamp = this.lock.readLock();
+        try {
+            return this.index.keySet().toArray();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    private V decode(final Entry entry) {
+        return this.codec.decode(entry.page.view.slice(entry.chunk * entry.page.chunkSize, entry.length));
+    }
+
+    private void encode(final Page page, final int chunk, final V value, final int size) {
+        final ByteBuffer target = page.buffer.slice(chunk * page.chunkSize, size);
+        this.codec.encode(value, target);
+        if (target.position() != size) {
+            throw new IllegalStateException("codec wrote " + target.position() + " bytes instead of " + size);
+        }
+    }
+
+    private void write(final K key, @Nullable final Entry existing, final V value, final int size, final int slabClass) {
+        if (existing != null) {
+            if (existing.page.slabClass == slabClass) {
+                // same size class, so overwrite the chunk in place
+                try {
+                    this.encode(existing.page, existing.chunk, value, size);
+                } catch (final RuntimeException | Error e) {
+                    this.release(existing, false);
+                    throw e;
+                }
+                existing.length = size;
+                existing.referenced = true;
+                return;
+            }
+            this.release(existing, false);
+        }
+        if (slabClass < 0) {
+            return;
+        }
+
+        final SlabClass target = this.classes[slabClass];
+        if (target.partial.isEmpty()) {
+            this.makeRoom(target);
+        }
+        final Page page = Objects.requireNonNull(target.partial.peekFirst());
+        final int chunk = page.free[--page.freeTop];
+        if (page.freeTop == 0) {
+            target.partial.pollFirst();
+        }
+        try {
+            this.encode(page, chunk, value, size);
+        } catch (final RuntimeException | Error e) {
+            this.free(page, chunk);
+            throw e;
+        }
+        final Entry entry = new Entry(key, page, chunk, size);
+        page.owners[chunk] = entry;
+        target.link(entry);
+        this.index.put(key, entry);
+        this.count++;
+        this.bytes += target.chunkSize;
+    }
+
+    /**
+     * Makes a chunk of the provided class available, by allocating a page, taking one over from another class or evicting.
+     */
+    private void makeRoom(final SlabClass target) {
+        final Page page = this.newPage();
+        if (page != null) {
+            this.assign(page, target);
+            return;
+        }
+        if (target.pages == 0 || target.evictions >= target.chunksPerPage) {
+            final SlabClass donor = this.donorFor(target);
+            for (final SlabClass slabClass : this.classes) {
+                slabClass.evictions = 0;
+            }
+            if (donor != null) {
+                this.steal(donor, target);
+                return;
+            }
+        }
+        Entry victim = target.hand;
+        while (victim.referenced) {
+            victim.referenced = false;
+            victim = victim.next;
+        }
+        this.release(victim, true);
+        target.evictions++;
+    }
+
+    /**
+     * Picks the class to take a page from: the largest one that did not evict since the last time pages were moved,
+     * or else the largest one if it clearly holds more pages than the provided class.
+     */
+    @Nullable
+    private SlabClass donorFor(final SlabClass target) {
+        SlabClass idle = null;
+        SlabClass largest = null;
+        for (final SlabClass candidate : this.classes) {
+            if (candidate == target || candidate.pages == 0) {
+                continue;
+            }
+            if (candidate.evictions == 0 && (idle == null || candidate.pages > idle.pages)) {
+                idle = candidate;
+            }
+            if (largest == null || candidate.pages > largest.pages) {
+                largest = candidate;
+            }
+        }
+        if (idle != null) {
+            return idle;
+        }
+        return largest != null && (target.pages == 0 || largest.pages > target.pages + 1) ? largest : null;
+    }
+
+    @Nullable
+    private Page newPage() {
+        if (!this.unassigned.isEmpty()) {
+            return this.unassigned.pollFirst();
+        }
+        if (this.pages.size() < this.maximumPages) {
+            final Page page = new Page(ByteBuffer.allocateDirect(this.pageSize));
+            this.pages.add(page);
+            this.pageCount = this.pages.size();
+            return page;
+        }
+        return null;
+    }
+
+    private void assign(final Page page, final SlabClass target) {
+        page.slabClass = target.id;
+        page.chunkSize = target.chunkSize;
+        page.owners = new Entry[target.chunksPerPage];
+        page.free = new int[target.chunksPerPage];
+        // hand out the chunks from the start of the page
+        for (int i = 0; i < target.chunksPerPage; i++) {
+            page.free[i] = target.chunksPerPage - 1 - i;
+        }
+        page.freeTop = target.chunksPerPage;
+        target.pages++;
+        target.partial.addLast(page);
+    }
+
+    private void steal(final SlabClass donor, final SlabClass target) {
+        Page page = null;
+        for (int i = 0; i < this.pages.size() && page == null; i++) {
+            final int candidate = (this.stealCursor + i) % this.pages.size();
+            if (this.pages.get(candidate).slabClass == donor.id) {
+                page = this.pages.get(candidate);
+                this.stealCursor = candidate + 1;
+            }
+        }
+        Objects.requireNonNull(page, "donor page");
+        for (final Entry owner : page.owners) {
+            if (owner != null) {
+                this.release(owner, true);
+            }
+        }
+        donor.partial.remove(page);
+        donor.pages--;
+        page.unassign();
+        this.assign(page, target);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void release(final Entry entry, final boolean evicted) {
+        if (evicted && this.removals != null) {
+            // decode before the chunk is freed and reused
+            this.evicted.add(new AbstractMap.SimpleImmutableEntry<>((K) entry.key, this.decode(entry)));
+        }
+        this.index.remove(entry.key);
+        this.classes[entry.page.slabClass].unlink(entry);
+        this.bytes -= entry.page.chunkSize;
+        this.free(entry.page, entry.chunk);
+        this.count--;
+        if (evicted) {
+            this.counter.recordEvictions(1);
+        }
+    }
+
+    /**
+     * Releases the write lock, then publishes the entries evicted while it was held, so a publisher blocked by a
+     * full removal bus never holds the lock a subscriber may be waiting for.
+     */
+    private void unlockAndPublish(final long stamp) {
+        if (this.evicted.isEmpty()) {
+            this.lock.unlockWrite(stamp);
+            return;
+        }
+        final List<Map.Entry<K, V>> published = new ArrayList<>(this.evicted);
+        this.evicted.clear();
+        this.lock.unlockWrite(stamp);
+        for (final Map.Entry<K, V> entry : published) {
+            this.removals.publish(entry.getKey(), entry.getValue(), RemovalCause.SIZE);
+        }
+    }
+
+    private void free(final Page page, final int chunk) {
+        page.owners[chunk] = null;
+        page.free[page.freeTop++] = chunk;
+        if (page.freeTop == 1) {
+            this.classes[page.slabClass].partial.addLast(page);
+        }
+    }
+
+    /**
+     * A page of direct memory, cut into the chunks of one size class while assigned to it.
+     */
+    static final class Page {
+
+        final ByteBuffer buffer;
+        final ByteBuffer view;
+        int slabClass = -1;
+        int chunkSize;
+        Entry[] owners;
+        int[] free;
+        int freeTop;
+
+        Page(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.view = buffer.asReadOnlyBuffer();
+        }
+
+        void unassign() {
+            this.slabClass = -1;
+            this.owners = null;
+            this.free = null;
+            this.freeTop = 0;
+        }
+    }
+
+    /**
+     * The pages of one chunk size, the ones with free chunks, and a CLOCK ring over its entries.
+     */
+    static final class SlabClass {
+
+        final int id;
+        final int chunkSize;
+        final int chunksPerPage;
+        final ArrayDeque<Page> partial = new ArrayDeque<>();
+        int pages;
+        int evictions;
+        Entry hand;
+
+        SlabClass(final int id, final int chunkSize, final int chunksPerPage) {
+            this.id = id;
+            this.chunkSize = chunkSize;
+            this.chunksPerPage = chunksPerPage;
+        }
+
+        /**
+         * Inserts the entry right behind the hand, so it is the last one the hand reaches.
+         */
+        void link(final Entry entry) {
+            if (this.hand == null) {
+                entry.prev = entry;
+                entry.next = entry;
+                this.hand = entry;
+            } else {
+                final Entry tail = this.hand.prev;
+                entry.prev = tail;
+                entry.next = this.hand;
+                tail.next = entry;
+                this.hand.prev = entry;
+            }
+        }
+
+        void unlink(final Entry entry) {
+            if (entry.next == entry) {
+                this.hand = null;
+            } else {
+                entry.prev.next = entry.next;
+                entry.next.prev = entry.prev;
+                if (this.hand == entry) {
+                    this.hand = entry.next;
+                }
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+    }
+
+    /**
+     * The on-heap part of an entry: its key and where its value lives.
+     */
+    static final class Entry {
+
+        final Object key;
+        final Page page;
+        final int chunk;
+        int length;
+        boolean referenced;
+        Entry prev;
+        Entry next;
+
+        Entry(final Object key, final Page page, final int chunk, final int length) {
+            this.key = key;
+            this.page = page;
+            this.chunk = chunk;
+            this.length = length;
+        }
+    }
+}
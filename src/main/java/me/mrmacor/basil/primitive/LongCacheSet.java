@@ -0,0 +1,180 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import com.google.common.base.Ticker;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A set of {@code long} members that never boxes them.
+ * The long counterpart of a {@link me.mrmacor.basil.cache.CacheSet}; build one with
+ * {@link me.mrmacor.basil.builder.BasilCacheBuilder#newLongCache()}.
+ *
+ * @since 1.1.0
+ */
+public final class LongCacheSet extends LongTable<LongCacheSet.Segment> {
+
+    /**
+     * Constructor for the long set.
+     *
+     * @param maximumSize the maximum number of members, or a negative number if unbounded
+     * @param expireAfterWriteNanos how long members live after being added, or zero if they do not expire
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param ticker the time source
+     * @since 1.1.0
+     */
+    public LongCacheSet(final long maximumSize, final long expireAfterWriteNanos, final int concurrencyLevel, @Nonnull final Ticker ticker) {
+        super(maximumSize, expireAfterWriteNanos, concurrencyLevel, ticker);
+    }
+
+    @Override
+    Segment[] newSegments(final int count) {
+        return new Segment[count];
+    }
+
+    @Override
+    Segment newSegment(final int maximum) {
+        return new Segment(this, maximum);
+    }
+
+    /**
+     * Returns if the set contains the provided value.
+     *
+     * @param value to check for
+     * @return if the set contains the value
+     * @since 1.1.0
+     */
+    public boolean contains(final long value) {
+        final int hash = hash(value);
+        final boolean found = this.segmentFor(hash).contains(value, hash, this.now());
+        this.recordLookup(found);
+        return found;
+    }
+
+    /**
+     * Adds the provided value to the set.
+     *
+     * @param value to add
+     * @since 1.1.0
+     */
+    public void add(final long value) {
+        final int hash = hash(value);
+        this.segmentFor(hash).add(value, hash, this.now());
+    }
+
+    /**
+     * Adds the provided values to the set.
+     *
+     * @param values to add
+     * @since 1.1.0
+     */
+    public void addAll(@Nonnull final long... values) {
+        for (final long value : values) {
+            this.add(value);
+        }
+    }
+
+    /**
+     * Returns if the set is empty, which may not be the case if it only holds expired members that were not cleaned up yet.
+     *
+     * @return if the set is empty
+     * @since 1.1.0
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * A segment without values.
+     */
+    static final class Segment extends LongSegment {
+
+        Segment(final LongTable<?> table, final int maximum) {
+            super(table, maximum);
+        }
+
+        @Override
+        void allocateValues(final int length) {
+
+        }
+
+        @Override
+        Object values() {
+            return null;
+        }
+
+        @Override
+        void transfer(final Object values, final int from, final int to) {
+
+        }
+
+        @Override
+        void release(final int index) {
+
+        }
+
+        boolean contains(final long key, final int hash, final long now) {
+            long stamp = this.lock.tryOptimisticRead();
+            long[] keys = this.keys;
+            final long[] writes = this.writeTimes;
+            int index = indexOf(keys, this.zeroPresent, key, hash);
+            // the arrays may belong to different tables until the stamp is validated, so check before indexing
+            long written = index < 0 ? 0L : writtenAt(keys, writes, index);
+            if (!this.lock.validate(stamp)) {
+                stamp = this.lock.readLock();
+                try {
+                    keys = this.keys;
+                    index = indexOf(keys, this.zeroPresent, key, hash);
+                    written = index < 0 || this.writeTimes == null ? 0L : this.writeTimes[index];
+                } finally {
+                    this.lock.unlockRead(stamp);
+                }
+            }
+            if (index < 0 || !this.isLive(written, now)) {
+                return false;
+            }
+            this.markReferenced(keys, index);
+            return true;
+        }
+
+        void add(final long key, final int hash, final long now) {
+            final long stamp = this.lock.writeLock();
+            try {
+                int index = this.find(key, hash);
+                if (index < 0) {
+                    index = this.insert(key, hash, now);
+                    if (index < 0) {
+                        return;
+                    }
+                } else {
+                    this.markReferenced(this.keys, index);
+                }
+                this.written(index, now);
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
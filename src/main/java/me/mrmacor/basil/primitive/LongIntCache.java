@@ -0,0 +1,219 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import com.google.common.base.Ticker;
+
+import javax.annotation.Nonnull;
+import java.util.function.LongToIntFunction;
+
+/**
+ * A cache mapping {@code long} keys to {@code int} values, without boxing either.
+ * Build one with {@link me.mrmacor.basil.builder.BasilCacheBuilder#newLongCache()}.
+ *
+ * <p>Loaders receive the key, so a non-capturing lambda or method reference can be passed
+ * and a lookup that finds its value allocates nothing. A loader runs outside of any lock, so threads missing on
+ * the same key at the same time may each run it; the first value stored wins and is returned to all of them.</p>
+ *
+ * @since 1.1.0
+ */
+public final class LongIntCache extends LongTable<LongIntCache.Segment> {
+
+    /**
+     * Set in the upper half of a lookup result if the key was found, the lower half holds the value.
+     */
+    private static final long PRESENT = 1L << 32;
+
+    /**
+     * Constructor for the long-to-int cache.
+     *
+     * @param maximumSize the maximum number of entries, or a negative number if unbounded
+     * @param expireAfterWriteNanos how long entries live after being written, or zero if they do not expire
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param ticker the time source
+     * @since 1.1.0
+     */
+    public LongIntCache(final long maximumSize, final long expireAfterWriteNanos, final int concurrencyLevel, @Nonnull final Ticker ticker) {
+        super(maximumSize, expireAfterWriteNanos, concurrencyLevel, ticker);
+    }
+
+    @Override
+    Segment[] newSegments(final int count) {
+        return new Segment[count];
+    }
+
+    @Override
+    Segment newSegment(final int maximum) {
+        return new Segment(this, maximum);
+    }
+
+    /**
+     * Returns the value associated with the provided key, calling the loader to generate it if necessary.
+     *
+     * @param key to look for
+     * @param loader to call if there is no value for the key
+     * @return the value associated with the key
+     * @since 1.1.0
+     */
+    public int get(final long key, @Nonnull final LongToIntFunction loader) {
+        final int hash = hash(key);
+        final Segment segment = this.segmentFor(hash);
+        final long present = segment.lookup(key, hash, this.now());
+        this.recordLookup(present != 0L);
+        if (present != 0L) {
+            return (int) present;
+        }
+
+        final long start = System.nanoTime();
+        final int loaded;
+        try {
+            loaded = loader.applyAsInt(key);
+        } catch (final RuntimeException | Error e) {
+            this.counter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        this.counter.recordLoadSuccess(System.nanoTime() - start);
+        return segment.store(key, hash, loaded, this.now(), true);
+    }
+
+    /**
+     * Returns the value associated with the provided key, or the provided default if there is none.
+     *
+     * @param key to look for
+     * @param absent to return if there is no value for the key
+     * @return the value associated with the key, or {@code absent} if there is none
+     * @since 1.1.0
+     */
+    @SuppressWarnings("checkstyle:MethodName")
+    public int getIfPresent(final long key, final int absent) {
+        final int hash = hash(key);
+        final long present = this.segmentFor(hash).lookup(key, hash, this.now());
+        this.recordLookup(present != 0L);
+        return present != 0L ? (int) present : absent;
+    }
+
+    /**
+     * Returns if there is a value associated with the provided key.
+     *
+     * @param key to look for
+     * @return if there is a value associated with the key
+     * @since 1.1.0
+     */
+    public boolean containsKey(final long key) {
+        final int hash = hash(key);
+        return this.segmentFor(hash).lookup(key, hash, this.now()) != 0L;
+    }
+
+    /**
+     * Associates the provided value with the provided key.
+     *
+     * @param key to associate the value with
+     * @param value to associate with the key
+     * @since 1.1.0
+     */
+    public void put(final long key, final int value) {
+        final int hash = hash(key);
+        this.segmentFor(hash).store(key, hash, value, this.now(), false);
+    }
+
+    /**
+     * A segment holding {@code int} values.
+     */
+    static final class Segment extends LongSegment {
+
+        int[] values;
+
+        Segment(final LongTable<?> table, final int maximum) {
+            super(table, maximum);
+        }
+
+        @Override
+        void allocateValues(final int length) {
+            this.values = new int[length];
+        }
+
+        @Override
+        Object values() {
+            return this.values;
+        }
+
+        @Override
+        void transfer(final Object values, final int from, final int to) {
+            this.values[to] = ((int[]) values)[from];
+        }
+
+        @Override
+        void release(final int index) {
+            this.values[index] = 0;
+        }
+
+        long lookup(final long key, final int hash, final long now) {
+            long stamp = this.lock.tryOptimisticRead();
+            long[] keys = this.keys;
+            final int[] values = this.values;
+            final long[] writes = this.writeTimes;
+            int index = indexOf(keys, this.zeroPresent, key, hash);
+            // the arrays may belong to different tables until the stamp is validated, so check before indexing
+            int value = index < 0 || values.length != keys.length ? 0 : values[index];
+            long written = index < 0 ? 0L : writtenAt(keys, writes, index);
+            if (!this.lock.validate(stamp)) {
+                stamp = this.lock.readLock();
+                try {
+                    keys = this.keys;
+                    index = indexOf(keys, this.zeroPresent, key, hash);
+                    value = index < 0 ? 0 : this.values[index];
+                    written = index < 0 || this.writeTimes == null ? 0L : this.writeTimes[index];
+                } finally {
+                    this.lock.unlockRead(stamp);
+                }
+            }
+            if (index < 0 || !this.isLive(written, now)) {
+                return 0L;
+            }
+            this.markReferenced(keys, index);
+            return PRESENT | (value & 0xFFFF_FFFFL);
+        }
+
+        int store(final long key, final int hash, final int value, final long now, final boolean onlyIfAbsent) {
+            final long stamp = this.lock.writeLock();
+            try {
+                int index = this.find(key, hash);
+                if (index >= 0 && onlyIfAbsent && (this.writeTimes == null || this.isLive(this.writeTimes[index], now))) {
+                    return this.values[index];
+                }
+                if (index < 0) {
+                    index = this.insert(key, hash, now);
+                    if (index < 0) {
+                        return value;
+                    }
+                }
+                this.values[index] = value;
+                this.written(index, now);
+                return value;
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import com.google.common.base.Ticker;
+
+import javax.annotation.Nonnull;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A cache mapping {@code long} keys to {@code long} values, without boxing either.
+ * Build one with {@link me.mrmacor.basil.builder.BasilCacheBuilder#newLongCache()}.
+ *
+ * <p>Loaders receive the key, so a non-capturing lambda or method reference can be passed
+ * and a lookup that finds its value allocates nothing. A loader runs outside of any lock, so threads missing on
+ * the same key at the same time may each run it; the first value stored wins and is returned to all of them.</p>
+ *
+ * @since 1.1.0
+ */
+public final class LongLongCache extends LongTable<LongLongCache.Segment> {
+
+    /**
+     * Returned by optimistic lookups that found nothing. A value equal to it is looked up again under the read lock.
+     */
+    private static final long ABSENT = 0x8000_0000_0000_0001L;
+
+    /**
+     * Constructor for the long-to-long cache.
+     *
+     * @param maximumSize the maximum number of entries, or a negative number if unbounded
+     * @param expireAfterWriteNanos how long entries live after being written, or zero if they do not expire
+     * @param concurrencyLevel the expected number of concurrent writers
+     * @param ticker the time source
+     * @since 1.1.0
+     */
+    public LongLongCache(final long maximumSize, final long expireAfterWriteNanos, final int concurrencyLevel, @Nonnull final Ticker ticker) {
+        super(maximumSize, expireAfterWriteNanos, concurrencyLevel, ticker);
+    }
+
+    @Override
+    Segment[] newSegments(final int count) {
+        return new Segment[count];
+    }
+
+    @Override
+    Segment newSegment(final int maximum) {
+        return new Segment(this, maximum);
+    }
+
+    /**
+     * Returns the value associated with the provided key, calling the loader to generate it if necessary.
+     *
+     * @param key to look for
+     * @param loader to call if there is no value for the key
+     * @return the value associated with the key
+     * @since 1.1.0
+     */
+    public long get(final long key, @Nonnull final LongUnaryOperator loader) {
+        final int hash = hash(key);
+        final Segment segment = this.segmentFor(hash);
+        final long present = segment.lookup(key, hash, ABSENT, this.now());
+        if (present != ABSENT) {
+            this.counter.recordHits(1);
+            return present;
+        }
+        return segment.load(key, hash, loader);
+    }
+
+    /**
+     * Returns the value associated with the provided key, or the provided default if there is none.
+     *
+     * @param key to look for
+     * @param absent to return if there is no value for the key
+     * @return the value associated with the key, or {@code absent} if there is none
+     * @since 1.1.0
+     */
+    @SuppressWarnings("checkstyle:MethodName")
+    public long getIfPresent(final long key, final long absent) {
+        final int hash = hash(key);
+        final Segment segment = this.segmentFor(hash);
+        final long now = this.now();
+        final long present = segment.lookup(key, hash, ABSENT, now);
+        if (present != ABSENT) {
+            this.counter.recordHits(1);
+            return present;
+        }
+        return segment.lookupLocked(key, hash, absent, now);
+    }
+
+    /**
+     * Returns if there is a value associated with the provided key.
+     *
+     * @param key to look for
+     * @return if there is a value associated with the key
+     * @since 1.1.0
+     */
+    public boolean containsKey(final long key) {
+        final int hash = hash(key);
+        return this.segmentFor(hash).containsKey(key, hash, this.now());
+    }
+
+    /**
+     * Associates the provided value with the provided key.
+     *
+     * @param key to associate the value with
+     * @param value to associate with the key
+     * @since 1.1.0
+     */
+    public void put(final long key, final long value) {
+        final int hash = hash(key);
+        this.segmentFor(hash).store(key, hash, value, this.now(), false);
+    }
+
+    /**
+     * A segment holding {@code long} values.
+     */
+    static final class Segment extends LongSegment {
+
+        long[] values;
+
+        Segment(final LongTable<?> table, final int maximum) {
+            super(table, maximum);
+        }
+
+        @Override
+        void allocateValues(final int length) {
+            this.values = new long[length];
+        }
+
+        @Override
+        Object values() {
+            return this.values;
+        }
+
+        @Override
+        void transfer(final Object values, final int from, final int to) {
+            this.values[to] = ((long[]) values)[from];
+        }
+
+        @Override
+        void release(final int index) {
+            this.values[index] = 0L;
+        }
+
+        long lookup(final long key, final int hash, final long absent, final long now) {
+            long stamp = this.lock.tryOptimisticRead();
+            long[] keys = this.keys;
+            final long[] values = this.values;
+            final long[] writes = this.writeTimes;
+            int index = indexOf(keys, this.zeroPresent, key, hash);
+            // the arrays may belong to different tables until the stamp is validated, so check before indexing
+            long value = index < 0 || values.length != keys.length ? absent : values[index];
+            long written = index < 0 ? 0L : writtenAt(keys, writes, index);
+            if (!this.lock.validate(stamp)) {
+                stamp = this.lock.readLock();
+                try {
+                    keys = this.keys;
+                    index = indexOf(keys, this.zeroPresent, key, hash);
+                    value = index < 0 ? absent : this.values[index];
+                    written = index < 0 || this.writeTimes == null ? 0L : this.writeTimes[index];
+                } finally {
+                    this.lock.unlockRead(stamp);
+                }
+            }
+            if (index < 0 || !this.isLive(written, now)) {
+                return absent;
+            }
+            this.markReferenced(keys, index);
+            return value;
+        }
+
+        /**
+         * Looks up a key under the read lock, which tells a value equal to the sentinel apart from a missing one.
+         */
+        long lookupLocked(final long key, final int hash, final long absent, final long now) {
+            final long stamp = this.lock.readLock();
+            try {
+                final int index = this.find(key, hash);
+                if (index >= 0 && (this.writeTimes == null || this.isLive(this.writeTimes[index], now))) {
+                    this.table.counter.recordHits(1);
+                    return this.values[index];
+                }
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+            this.table.counter.recordMisses(1);
+            return absent;
+        }
+
+        /**
+         * Loads the value of a key the optimistic lookup did not find, unless it turns out to be present after all.
+         */
+        long load(final long key, final int hash, final LongUnaryOperator loader) {
+            final long stamp = this.lock.readLock();
+            try {
+                final int index = this.find(key, hash);
+                if (index >= 0 && (this.writeTimes == null || this.isLive(this.writeTimes[index], this.table.now()))) {
+                    this.table.counter.recordHits(1);
+                    return this.values[index];
+                }
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+            this.table.counter.recordMisses(1);
+
+            final long start = System.nanoTime();
+            final long loaded;
+            try {
+                loaded = loader.applyAsLong(key);
+            } catch (final RuntimeException | Error e) {
+                this.table.counter.recordLoadFailure(System.nanoTime() - start);
+                throw e;
+            }
+            this.table.counter.recordLoadSuccess(System.nanoTime() - start);
+            return this.store(key, hash, loaded, this.table.now(), true);
+        }
+
+        boolean containsKey(final long key, final int hash, final long now) {
+            final long stamp = this.lock.readLock();
+            try {
+                final int index = this.find(key, hash);
+                return index >= 0 && (this.writeTimes == null || this.isLive(this.writeTimes[index], now));
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+
+        long store(final long key, final int hash, final long value, final long now, final boolean onlyIfAbsent) {
+            final long stamp = this.lock.writeLock();
+            try {
+                int index = this.find(key, hash);
+                if (index >= 0 && onlyIfAbsent && (this.writeTimes == null || this.isLive(this.writeTimes[index], now))) {
+                    return this.values[index];
+                }
+                if (index < 0) {
+                    index = this.insert(key, hash, now);
+                    if (index < 0) {
+                        return value;
+                    }
+                }
+                this.values[index] = value;
+                this.written(index, now);
+                return value;
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
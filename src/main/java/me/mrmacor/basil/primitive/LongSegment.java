@@ -0,0 +1,329 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * One independently locked open-addressing table of {@code long} keys.
+ *
+ * <p>A key of zero marks an empty slot, so the key zero itself lives in one extra slot past the end of the table.
+ * Slots are probed linearly and removals shift later keys back, so a probe stops at the first empty slot.
+ * Subclasses keep their values in a parallel array and move them along with the keys.</p>
+ *
+ * <p>Every method that changes the table must be called with the write lock held.</p>
+ */
+abstract class LongSegment {
+
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    static final int INITIAL_CAPACITY = 16;
+    private static final int SWEEP_STEPS = 8;
+
+    final LongTable<?> table;
+    final StampedLock lock = new StampedLock();
+    final int maximum;
+    long[] keys;
+    boolean zeroPresent;
+    long[] writeTimes;
+    long[] referenced;
+    volatile int count;
+    int hand;
+    int sweeper;
+
+    LongSegment(final LongTable<?> table, final int maximum) {
+        this.table = table;
+        this.maximum = maximum;
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Replaces the value array with an empty one of the provided length.
+     */
+    abstract void allocateValues(int length);
+
+    /**
+     * Returns the current value array.
+     */
+    abstract Object values();
+
+    /**
+     * Copies the value at {@code from} in the provided value array to {@code to} in the current one.
+     */
+    abstract void transfer(Object values, int from, int to);
+
+    /**
+     * Drops the value at the provided index.
+     */
+    abstract void release(int index);
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity + 1];
+        this.zeroPresent = false;
+        this.writeTimes = this.table.expireAfterWriteNanos == 0 ? null : new long[capacity + 1];
+        this.referenced = this.table.bounded ? new long[(capacity + 64) >>> 6] : null;
+        this.allocateValues(capacity + 1);
+        this.hand = 0;
+        this.sweeper = 0;
+    }
+
+    static int indexOf(final long[] keys, final boolean zeroPresent, final long key, final int hash) {
+        if (key == 0L) {
+            return zeroPresent ? keys.length - 1 : -1;
+        }
+        final int mask = keys.length - 2;
+        for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            final long k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == 0L) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    final int find(final long key, final int hash) {
+        return indexOf(this.keys, this.zeroPresent, key, hash);
+    }
+
+    /**
+     * Returns the write time at the provided index, or zero if writes are not tracked.
+     * An optimistic read may see the arrays of two tables while a resize replaces them one at a time, so an array
+     * that does not match the probed keys is not indexed at all; the stamp validation then discards the read.
+     */
+    static long writtenAt(final long[] keys, @Nullable final long[] writes, final int index) {
+        return writes == null || writes.length != keys.length ? 0L : writes[index];
+    }
+
+    final boolean isLive(final long written, final long now) {
+        final long ttl = this.table.expireAfterWriteNanos;
+        return ttl == 0L || now - written < ttl;
+    }
+
+    private boolean isLiveAt(final int index, final long now) {
+        return this.writeTimes == null || this.isLive(this.writeTimes[index], now);
+    }
+
+    private boolean isOccupied(final int index) {
+        return index == this.keys.length - 1 ? this.zeroPresent : this.keys[index] != 0L;
+    }
+
+    /**
+     * Marks the entry at the provided index as recently used, if the table was not replaced since it was found.
+     * The update is racy, but losing a recency bit only makes the entry a little more likely to be evicted.
+     */
+    final void markReferenced(final long[] foundIn, final int index) {
+        final long[] bits = this.referenced;
+        if (bits != null && foundIn == this.keys && index >>> 6 < bits.length) {
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Stamps the entry at the provided index as written now.
+     */
+    final void written(final int index, final long now) {
+        if (this.writeTimes != null) {
+            this.writeTimes[index] = now;
+        }
+    }
+
+    /**
+     * Inserts an absent key and returns its slot, evicting and growing the table as needed.
+     * Returns -1 if the segment cannot hold any entries.
+     */
+    final int insert(final long key, final int hash, final long now) {
+        if (this.maximum == 0) {
+            return -1;
+        }
+        this.sweep(now);
+        if (this.count >= this.maximum) {
+            this.evict(now);
+        }
+        final int capacity = this.keys.length - 1;
+        if (this.count + 1 > (capacity >>> 2) * 3 && capacity < MAXIMUM_CAPACITY) {
+            this.resize(capacity << 1);
+        }
+        final int index;
+        if (key == 0L) {
+            this.zeroPresent = true;
+            index = this.keys.length - 1;
+        } else {
+            final int mask = this.keys.length - 2;
+            int i = hash & mask;
+            while (this.keys[i] != 0L) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = key;
+            index = i;
+        }
+        this.count++;
+        return index;
+    }
+
+    final void remove(final long key, final int hash) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final int index = this.find(key, hash);
+            if (index >= 0) {
+                this.removeAt(index);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    final void clear() {
+        final long stamp = this.lock.writeLock();
+        try {
+            this.allocate(INITIAL_CAPACITY);
+            this.count = 0;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    final void expireAll(final long now) {
+        final long stamp = this.lock.writeLock();
+        try {
+            for (int i = 0; i < this.keys.length; i++) {
+                // a removal may shift another entry into this slot, so look at it again
+                while (this.isOccupied(i) && !this.isLiveAt(i, now)) {
+                    this.removeAt(i);
+                    this.table.counter.recordEvictions(1);
+                }
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void sweep(final long now) {
+        if (this.writeTimes == null || this.count == 0) {
+            return;
+        }
+        for (int steps = 0; steps < SWEEP_STEPS; steps++) {
+            final int i = this.sweeper;
+            if (this.isOccupied(i) && !this.isLiveAt(i, now)) {
+                this.removeAt(i);
+                this.table.counter.recordEvictions(1);
+            } else {
+                this.sweeper = i + 1 == this.keys.length ? 0 : i + 1;
+            }
+        }
+    }
+
+    private void evict(final long now) {
+        while (this.count > 0) {
+            final int i = this.hand;
+            this.hand = i + 1 == this.keys.length ? 0 : i + 1;
+            if (!this.isOccupied(i)) {
+                continue;
+            }
+            if (this.isLiveAt(i, now) && (this.referenced[i >>> 6] & (1L << i)) != 0) {
+                this.referenced[i >>> 6] &= ~(1L << i);
+                continue;
+            }
+            this.removeAt(i);
+            this.table.counter.recordEvictions(1);
+            return;
+        }
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldKeys = this.keys;
+        final boolean oldZeroPresent = this.zeroPresent;
+        final long[] oldWrites = this.writeTimes;
+        final long[] oldReferenced = this.referenced;
+        final Object oldValues = this.values();
+        this.allocate(capacity);
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            final int index;
+            if (i == oldKeys.length - 1) {
+                if (!oldZeroPresent) {
+                    continue;
+                }
+                this.zeroPresent = true;
+                index = capacity;
+            } else {
+                final long key = oldKeys[i];
+                if (key == 0L) {
+                    continue;
+                }
+                int slot = LongTable.hash(key) & mask;
+                while (this.keys[slot] != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = key;
+                index = slot;
+            }
+            this.transfer(oldValues, i, index);
+            if (oldWrites != null) {
+                this.writeTimes[index] = oldWrites[i];
+            }
+            if (oldReferenced != null && (oldReferenced[i >>> 6] & (1L << i)) != 0) {
+                this.referenced[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+
+    final void removeAt(final int index) {
+        int hole = index;
+        if (index == this.keys.length - 1) {
+            this.zeroPresent = false;
+        } else {
+            final long[] table = this.keys;
+            final int mask = table.length - 2;
+            final Object values = this.values();
+            for (int i = (hole + 1) & mask; table[i] != 0L; i = (i + 1) & mask) {
+                final int home = LongTable.hash(table[i]) & mask;
+                // move the entry back if the hole lies on its probe path, between its home slot and its current slot
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    table[hole] = table[i];
+                    this.transfer(values, i, hole);
+                    if (this.writeTimes != null) {
+                        this.writeTimes[hole] = this.writeTimes[i];
+                    }
+                    if (this.referenced != null) {
+                        if ((this.referenced[i >>> 6] & (1L << i)) != 0) {
+                            this.referenced[hole >>> 6] |= 1L << hole;
+                        } else {
+                            this.referenced[hole >>> 6] &= ~(1L << hole);
+                        }
+                    }
+                    hole = i;
+                }
+            }
+            table[hole] = 0L;
+        }
+        this.release(hole);
+        if (this.referenced != null) {
+            this.referenced[hole >>> 6] &= ~(1L << hole);
+        }
+        this.count--;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import com.google.common.base.Ticker;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * The parts every long-keyed cache shares: the segments, the expiry configuration and the statistics.
+ *
+ * @param <S> the type of the segments
+ */
+abstract class LongTable<S extends LongSegment> {
+
+    final S[] segments;
+    final int segmentShift;
+    final boolean bounded;
+    final long expireAfterWriteNanos;
+    final Ticker ticker;
+    final StatsCounter counter = new StatsCounter();
+
+    LongTable(final long maximumSize, final long expireAfterWriteNanos, final int concurrencyLevel, @Nonnull final Ticker ticker) {
+        if (expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("expireAfterWrite must not be negative");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        this.bounded = maximumSize >= 0;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16) && (!this.bounded || segmentCount * 20L <= maximumSize)) {
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = this.newSegments(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            final long maximum = this.bounded ? maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0) : Long.MAX_VALUE;
+            this.segments[i] = this.newSegment((int) Math.min(maximum, (long) (LongSegment.MAXIMUM_CAPACITY * 0.75)));
+        }
+    }
+
+    abstract S[] newSegments(int count);
+
+    abstract S newSegment(int maximum);
+
+    static int hash(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    final S segmentFor(final int hash) {
+        return this.segments.length == 1 ? this.segments[0] : this.segments[hash >>> this.segmentShift];
+    }
+
+    final long now() {
+        return this.expireAfterWriteNanos == 0 ? 0L : this.ticker.read();
+    }
+
+    final void recordLookup(final boolean found) {
+        if (found) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+    }
+
+    /**
+     * Discards the entry associated with the provided key.
+     *
+     * @param key to discard
+     * @since 1.1.0
+     */
+    public void invalidate(final long key) {
+        final int hash = hash(key);
+        this.segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * Discards all entries.
+     *
+     * @since 1.1.0
+     */
+    public void invalidateAll() {
+        for (final S segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of entries, which may include expired entries that were not cleaned up yet.
+     *
+     * @return the number of entries
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long size() {
+        long size = 0;
+        for (final S segment : this.segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Removes all expired entries.
+     *
+     * @since 1.1.0
+     */
+    public void cleanUp() {
+        if (this.expireAfterWriteNanos != 0) {
+            final long now = this.now();
+            for (final S segment : this.segments) {
+                segment.expireAll(now);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics.
+     *
+     * @return a snapshot of the statistics
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCacheStats stats() {
+        return this.counter.snapshot();
+    }
+}
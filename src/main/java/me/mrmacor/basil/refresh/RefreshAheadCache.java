@@ -0,0 +1,240 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.refresh;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.ForwardingBasilCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that reloads entries in the background shortly before they expire, for delegates
+ * that expire their entries a fixed time after they are written.
+ *
+ * <p>A hit through {@link #get(Object, Callable)} on an entry that has less than the refresh fraction of its time to live
+ * left runs the provided loader on the executor, while the stale value keeps being returned. The fresh value only
+ * replaces the stale one if the entry has not been changed in the meantime. A key is refreshed by at most one reload
+ * at a time, and reloads beyond the concurrency limit are skipped until a later hit.</p>
+ *
+ * <p>Neither Guava nor Caffeine exposes write times uniformly, so this cache records them itself for the entries
+ * written through it. Entries written around it, through {@link #asMap()} or the delegate, count as written when
+ * they are first hit. Times of entries the delegate evicted are dropped by {@link #cleanUp()}, and whenever
+ * they outnumber the entries of the delegate.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class RefreshAheadCache<K, V> extends ForwardingBasilCache<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private final long refreshAfterNanos;
+    private final Semaphore permits;
+    private final Executor executor;
+    private final Ticker ticker;
+    private final ConcurrentMap<K, Long> written = new ConcurrentHashMap<>();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final StatsCounter refreshes = new StatsCounter();
+
+    /**
+     * Constructor for the refresh-ahead cache.
+     *
+     * @param delegate to delegate to
+     * @param expireAfterWriteNanos the time to live of the entries of the delegate, in nanoseconds
+     * @param refreshFraction the fraction of the time to live left at which a hit refreshes an entry
+     * @param maximumConcurrentRefreshes the maximum number of reloads running at the same time
+     * @param executor to run reloads on
+     * @param ticker the time source, which should be the one the delegate expires its entries with
+     * @since 1.1.0
+     */
+    public RefreshAheadCache(@Nonnull final BasilCache<K, V> delegate, @Nonnegative final long expireAfterWriteNanos,
+                             final double refreshFraction, final int maximumConcurrentRefreshes,
+                             @Nonnull final Executor executor, @Nonnull final Ticker ticker) {
+        if (expireAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("expireAfterWriteNanos must not be negative: " + expireAfterWriteNanos);
+        }
+        if (!(refreshFraction > 0.0 && refreshFraction <= 1.0)) {
+            throw new IllegalArgumentException("refreshFraction must be in (0, 1]: " + refreshFraction);
+        }
+        if (maximumConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("maximumConcurrentRefreshes must be positive: " + maximumConcurrentRefreshes);
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.refreshAfterNanos = (long) (expireAfterWriteNanos * (1.0 - refreshFraction));
+        this.permits = new Semaphore(maximumConcurrentRefreshes);
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate.cleanUp();
+        this.prune();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final boolean[] loaded = new boolean[1];
+        final V value = this.delegate.get(key, () -> {
+            loaded[0] = true;
+            return loader.call();
+        });
+        if (loaded[0]) {
+            this.written(key);
+        } else if (value != null) {
+            this.hit(key, value, loader);
+        }
+        return value;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        return this.delegate.getAll(keys, missing -> {
+            final Map<K, V> loaded = loader.apply(missing);
+            if (loaded != null) {
+                loaded.keySet().forEach(this::written);
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.delegate.invalidate(key);
+        this.written.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.delegate.invalidateAll();
+        this.written.clear();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.delegate.invalidateAll(keys);
+        keys.forEach(this.written::remove);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.delegate.put(key, value);
+        this.written(key);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.delegate.putAll(map);
+        map.keySet().forEach(this::written);
+    }
+
+    /**
+     * Returns the statistics of the delegate, plus the loads made to refresh entries.
+     *
+     * @return a snapshot of the statistics
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.delegate.stats().plus(this.refreshes.snapshot());
+    }
+
+    private void written(@Nonnull final K key) {
+        this.written.put(key, this.ticker.read());
+        if (this.written.size() > 2 * this.delegate.size() + 64) {
+            this.prune();
+        }
+    }
+
+    private void prune() {
+        final ConcurrentMap<K, V> entries = this.delegate.asMap();
+        this.written.keySet().removeIf(key -> !entries.containsKey(key));
+    }
+
+    private void hit(@Nonnull final K key, @Nonnull final V stale, @Nonnull final Callable<V> loader) {
+        final Long at = this.written.putIfAbsent(key, this.ticker.read());
+        if (at == null || this.ticker.read() - at < this.refreshAfterNanos) {
+            return;
+        }
+        if (!this.refreshing.add(key)) {
+            return;
+        }
+        if (!this.permits.tryAcquire()) {
+            this.refreshing.remove(key);
+            return;
+        }
+        try {
+            this.executor.execute(() -> this.refresh(key, stale, loader));
+        } catch (final RejectedExecutionException e) {
+            this.permits.release();
+            this.refreshing.remove(key);
+        }
+    }
+
+    private void refresh(@Nonnull final K key, @Nonnull final V stale, @Nonnull final Callable<V> loader) {
+        final long start = System.nanoTime();
+        try {
+            final V fresh = loader.call();
+            if (fresh == null) {
+                this.refreshes.recordLoadFailure(System.nanoTime() - start);
+                return;
+            }
+            this.refreshes.recordLoadSuccess(System.nanoTime() - start);
+            if (this.delegate.asMap().replace(key, stale, fresh)) {
+                this.written.put(key, this.ticker.read());
+            }
+        } catch (final Exception e) {
+            this.refreshes.recordLoadFailure(System.nanoTime() - start);
+        } finally {
+            this.permits.release();
+            this.refreshing.remove(key);
+        }
+    }
+}
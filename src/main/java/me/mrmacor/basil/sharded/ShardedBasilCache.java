@@ -0,0 +1,541 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sharded;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.PartitionSpliterator;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that partitions its keys across independent caches, its shards,
+ * so writes to different shards never contend on the same locks or maintenance work.
+ *
+ * <p>A key always goes to the same shard, picked from the upper bits of a multiplicative hash of its hash code,
+ * so the keys of a shard still spread over the shard's own hash table. Single-key operations go to that shard only, bulk operations are split
+ * by shard, and {@link #size()}, {@link #stats()}, {@link #cleanUp()} and {@link #invalidateAll()} go to every shard.
+ * {@link #spliterator()} splits by shard first, so a parallel stream gives each thread its own shards.</p>
+ *
+ * <p>Each shard only sees its part of the keys, so a size bound set on the shards bounds each shard on its own.
+ * {@link #getAll(Iterable, Function)} looks the keys up in their shards, calls the bulk loader once with the keys missing
+ * from all of them, and writes the loaded values back to their shards. Loads in flight are announced in a map
+ * shared by {@link #get(Object, Callable)} and {@link #getAll(Iterable, Function)}, so neither loads a key the other
+ * is already loading, and the bulk loads are counted in {@link #stats()} next to the statistics of the shards.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class ShardedBasilCache<K, V> implements BasilCache<K, V> {
+
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private final BasilCache<K, V>[] shards;
+    private final MapView view = new MapView();
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final StatsCounter loads = new StatsCounter();
+
+    /**
+     * Constructor for the sharded cache.
+     *
+     * @param shards to partition the keys across, which must be distinct and empty
+     * @since 1.1.0
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedBasilCache(@Nonnull final List<? extends BasilCache<K, V>> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("shards must not be empty");
+        }
+        this.shards = (BasilCache<K, V>[]) shards.toArray(new BasilCache<?, ?>[0]);
+        for (final BasilCache<K, V> shard : this.shards) {
+            Objects.requireNonNull(shard, "shard");
+        }
+    }
+
+    /**
+     * Returns the shards, in the order they were provided.
+     *
+     * @return the shards
+     * @since 1.1.0
+     */
+    @Nonnull
+    public List<BasilCache<K, V>> shards() {
+        return ImmutableList.copyOf(this.shards);
+    }
+
+    /**
+     * Returns the shard the provided key belongs to.
+     *
+     * @param key to look for
+     * @return the shard of the key
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCache<K, V> shardFor(@Nonnull final Object key) {
+        return this.shards[this.indexOf(key)];
+    }
+
+    private int indexOf(@Nonnull final Object key) {
+        // the upper half of the product mixes every bit of the hash code, and scaling it down maps it to [0, n)
+        final long spread = (key.hashCode() * SPREAD) >>> 32;
+        return (int) ((spread * this.shards.length) >>> 32);
+    }
+
+    private List<List<K>> partition(@Nonnull final Iterable<K> keys) {
+        final List<List<K>> partitions = new ArrayList<>(this.shards.length);
+        for (int i = 0; i < this.shards.length; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (final K key : keys) {
+            partitions.get(this.indexOf(key)).add(key);
+        }
+        return partitions;
+    }
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.view;
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new PartitionSpliterator<>(this.shards.length, index -> this.shards[index].spliterator(),
+                index -> this.shards[index].size(), Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public void cleanUp() {
+        for (final BasilCache<K, V> shard : this.shards) {
+            shard.cleanUp();
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        // hits are served by the shard alone, only a miss registers with the bulk loads
+        return this.shardFor(key).get(key, () -> {
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = this.loading.putIfAbsent(key, future);
+            if (existing != null) {
+                return await(existing);
+            }
+            try {
+                final V value = loader.call();
+                future.complete(value);
+                return value;
+            } catch (final Throwable t) {
+                future.completeExceptionally(t);
+                throw t;
+            } finally {
+                // the shard stores the value right after this, a bulk load that misses the key in between loads it again
+                this.loading.remove(key, future);
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        final List<List<K>> partitions = this.partition(keys);
+        final Map<K, V> present = new HashMap<>();
+        for (int i = 0; i < this.shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                present.putAll(this.shards[i].allPresent(partitions.get(i)));
+            }
+        }
+        return ordered(keys, present);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final Map<K, V> all = new HashMap<>();
+        final Map<K, CompletableFuture<V>> waiting = new HashMap<>();
+        final Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        try {
+            for (final K key : keys) {
+                if (all.containsKey(key) || waiting.containsKey(key) || owned.containsKey(key)) {
+                    continue;
+                }
+                final BasilCache<K, V> shard = this.shardFor(key);
+                final V present = shard.getIfPresent(key);
+                if (present != null) {
+                    all.put(key, present);
+                    continue;
+                }
+                final CompletableFuture<V> future = new CompletableFuture<>();
+                final CompletableFuture<V> existing = this.loading.putIfAbsent(key, future);
+                if (existing != null) {
+                    waiting.put(key, existing);
+                    continue;
+                }
+                owned.put(key, future);
+                // another load may have stored the key and finished since it was found missing
+                final V stored = shard.asMap().get(key);
+                if (stored != null) {
+                    future.complete(stored);
+                    all.put(key, stored);
+                }
+            }
+            final Set<K> missing = new LinkedHashSet<>();
+            owned.forEach((key, future) -> {
+                if (!future.isDone()) {
+                    missing.add(key);
+                }
+            });
+            if (!missing.isEmpty()) {
+                this.loadAll(missing, owned, loader, all);
+            }
+            for (final Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+                final V value;
+                try {
+                    value = await(entry.getValue());
+                } catch (final Error e) {
+                    throw new ExecutionError(e);
+                } catch (final Exception e) {
+                    throw new UncheckedExecutionException(e);
+                }
+                if (value != null) {
+                    all.put(entry.getKey(), value);
+                }
+            }
+        } finally {
+            owned.forEach((key, future) -> {
+                // a future left incomplete by a failure would otherwise block its waiters forever
+                future.cancel(false);
+                this.loading.remove(key, future);
+            });
+        }
+        return ordered(keys, all);
+    }
+
+    private void loadAll(@Nonnull final Set<K> missing, @Nonnull final Map<K, CompletableFuture<V>> owned,
+                         @Nonnull final Function<Set<K>, Map<K, V>> loader, @Nonnull final Map<K, V> all) {
+        final long start = System.nanoTime();
+        final Map<K, V> loaded;
+        try {
+            loaded = loader.apply(Collections.unmodifiableSet(missing));
+            if (loaded == null) {
+                throw new CacheLoader.InvalidCacheLoadException("bulk loader returned null for " + missing);
+            }
+        } catch (final RuntimeException | Error e) {
+            this.loads.recordLoadFailure(System.nanoTime() - start);
+            for (final K key : missing) {
+                owned.get(key).completeExceptionally(e);
+            }
+            if (e instanceof Error) {
+                throw new ExecutionError((Error) e);
+            }
+            throw new UncheckedExecutionException(e);
+        }
+        this.loads.recordLoadSuccess(System.nanoTime() - start);
+        final Map<K, V> values = new HashMap<>();
+        for (final Map.Entry<K, V> entry : loaded.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        // waiters may hold the lock of their key in a shard, so they are released before the values are stored
+        for (final K key : missing) {
+            final V value = values.get(key);
+            if (value != null) {
+                all.put(key, value);
+            }
+            owned.get(key).complete(value);
+        }
+        this.putAll(values);
+    }
+
+    private static <V> V await(@Nonnull final CompletableFuture<V> future) throws Exception {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static <K, V> ImmutableMap<K, V> ordered(@Nonnull final Iterable<K> keys, @Nonnull final Map<K, V> values) {
+        final Map<K, V> ordered = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = values.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ImmutableMap.copyOf(ordered);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        return this.shardFor(key).getIfPresent(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.shardFor(key).invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (final BasilCache<K, V> shard : this.shards) {
+            shard.invalidateAll();
+        }
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        final List<List<K>> partitions = this.partition(keys);
+        for (int i = 0; i < this.shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                this.shards[i].invalidateAll(partitions.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.shardFor(key).put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        final List<Map<K, V>> partitions = new ArrayList<>(this.shards.length);
+        for (int i = 0; i < this.shards.length; i++) {
+            partitions.add(new HashMap<>());
+        }
+        for (final Map.Entry<K, V> entry : map.entrySet()) {
+            partitions.get(this.indexOf(entry.getKey())).put(entry.getKey(), entry.getValue());
+        }
+        for (int i = 0; i < this.shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                this.shards[i].putAll(partitions.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the estimated sizes of the shards.
+     *
+     * @return the estimated size
+     * @since 1.1.0
+     */
+    @Override
+    public long size() {
+        long size = 0;
+        for (final BasilCache<K, V> shard : this.shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the sum of the weighted sizes of the shards, if every shard weighs its entries.
+     *
+     * @return the total weight of the entries, or empty if any shard does not weigh its entries
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        long weightedSize = 0;
+        for (final BasilCache<K, V> shard : this.shards) {
+            final OptionalLong shardSize = shard.weightedSize();
+            if (shardSize.isEmpty()) {
+                return OptionalLong.empty();
+            }
+            weightedSize += shardSize.getAsLong();
+        }
+        return OptionalLong.of(weightedSize);
+    }
+
+    /**
+     * Returns the sum of the statistics of the shards.
+     *
+     * @return a snapshot of the statistics
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        BasilCacheStats stats = this.loads.snapshot();
+        for (final BasilCache<K, V> shard : this.shards) {
+            stats = stats.plus(shard.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * A map view of every shard, sending each operation to the map of the shard of its key.
+     */
+    final class MapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+        private ConcurrentMap<K, V> mapFor(final Object key) {
+            return ShardedBasilCache.this.shardFor(key).asMap();
+        }
+
+        @Override
+        public V get(final Object key) {
+            return this.mapFor(key).get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return this.mapFor(key).containsKey(key);
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            return this.mapFor(key).put(key, value);
+        }
+
+        @Override
+        public V putIfAbsent(@Nonnull final K key, @Nonnull final V value) {
+            return this.mapFor(key).putIfAbsent(key, value);
+        }
+
+        @Override
+        public V replace(@Nonnull final K key, @Nonnull final V value) {
+            return this.mapFor(key).replace(key, value);
+        }
+
+        @Override
+        public boolean replace(@Nonnull final K key, @Nonnull final V oldValue, @Nonnull final V newValue) {
+            return this.mapFor(key).replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public V remove(final Object key) {
+            return this.mapFor(key).remove(key);
+        }
+
+        @Override
+        public boolean remove(@Nonnull final Object key, final Object value) {
+            return this.mapFor(key).remove(key, value);
+        }
+
+        @Override
+        public V computeIfAbsent(final K key, @Nonnull final Function<? super K, ? extends V> mappingFunction) {
+            return this.mapFor(key).computeIfAbsent(key, mappingFunction);
+        }
+
+        @Override
+        public V computeIfPresent(final K key, @Nonnull final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return this.mapFor(key).computeIfPresent(key, remappingFunction);
+        }
+
+        @Override
+        public V compute(final K key, @Nonnull final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return this.mapFor(key).compute(key, remappingFunction);
+        }
+
+        @Override
+        public V merge(final K key, @Nonnull final V value, @Nonnull final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            return this.mapFor(key).merge(key, value, remappingFunction);
+        }
+
+        @Override
+        public void clear() {
+            ShardedBasilCache.this.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, ShardedBasilCache.this.size());
+        }
+
+        @Nonnull
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    ShardedBasilCache.this.invalidateAll();
+                }
+
+                @Nonnull
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    final List<Iterator<Map.Entry<K, V>>> iterators = new ArrayList<>(ShardedBasilCache.this.shards.length);
+                    for (final BasilCache<K, V> shard : ShardedBasilCache.this.shards) {
+                        iterators.add(shard.asMap().entrySet().iterator());
+                    }
+                    return Iterators.concat(iterators.iterator());
+                }
+
+                @Nonnull
+                @Override
+                public Spliterator<Map.Entry<K, V>> spliterator() {
+                    return ShardedBasilCache.this.spliterator();
+                }
+            };
+        }
+    }
+}
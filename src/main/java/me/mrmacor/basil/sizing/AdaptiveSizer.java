@@ -0,0 +1,148 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sizing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizes a bounded Caffeine cache to the smallest size its {@link MissRatioCurve} predicts reaches a target hit ratio,
+ * within configured bounds.
+ *
+ * <p>The bounds are numbers of entries. For a cache bounded by weight, the size is converted to a maximum weight with
+ * the current average weight of its entries, and capped by the memory budget if one is set. If the target cannot be
+ * reached by any size the curve covers, the cache is grown to the upper bound. Nothing is resized before the estimator
+ * has sampled a reference, or while a weighted cache is empty.</p>
+ *
+ * <p>{@link #resize()} resizes the cache once. If a scheduler is provided, it is called periodically until the sizer
+ * is {@link #close() closed}.</p>
+ *
+ * @since 1.1.0
+ */
+public final class AdaptiveSizer implements AutoCloseable {
+
+    private final MissRatioEstimator<?> estimator;
+    private final Cache<?, ?> cache;
+    private final Policy.Eviction<?, ?> eviction;
+    private final double targetHitRatio;
+    private final long minimumSize;
+    private final long maximumSize;
+    private final long memoryBudget;
+    private final @Nullable ScheduledFuture<?> future;
+
+    /**
+     * Constructor for the adaptive sizer. See {@link me.mrmacor.basil.builder.AdaptiveSizerBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param estimator to read the miss ratio curve from
+     * @param cache to resize, bounded by size or by weight
+     * @param targetHitRatio the hit ratio to reach, in (0, 1]
+     * @param minimumSize the smallest number of entries to resize to
+     * @param maximumSize the largest number of entries to resize to
+     * @param memoryBudget the largest maximum weight to resize a weighted cache to, 0 for no budget
+     * @param scheduler to resize the cache periodically on, or null to only resize on {@link #resize()}
+     * @param periodNanos the period to resize the cache at, in nanoseconds
+     * @since 1.1.0
+     */
+    public AdaptiveSizer(@Nonnull final MissRatioEstimator<?> estimator, @Nonnull final Cache<?, ?> cache,
+                         final double targetHitRatio, @Nonnegative final long minimumSize, @Nonnegative final long maximumSize,
+                         @Nonnegative final long memoryBudget, @Nullable final ScheduledExecutorService scheduler,
+                         @Nonnegative final long periodNanos) {
+        this.estimator = Objects.requireNonNull(estimator, "estimator");
+        this.cache = Objects.requireNonNull(cache, "cache");
+        this.eviction = cache.policy().eviction()
+                .orElseThrow(() -> new IllegalArgumentException("cache must be bounded by size or weight"));
+        if (!(targetHitRatio > 0 && targetHitRatio <= 1)) {
+            throw new IllegalArgumentException("targetHitRatio must be in (0, 1]: " + targetHitRatio);
+        }
+        if (minimumSize <= 0 || minimumSize > maximumSize) {
+            throw new IllegalArgumentException("size bounds must be positive and ordered: " + minimumSize + ", " + maximumSize);
+        }
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("memoryBudget must not be negative: " + memoryBudget);
+        }
+        if (memoryBudget > 0 && !this.eviction.isWeighted()) {
+            throw new IllegalArgumentException("a memory budget needs a cache bounded by weight");
+        }
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + periodNanos);
+        }
+        this.targetHitRatio = targetHitRatio;
+        this.minimumSize = minimumSize;
+        this.maximumSize = maximumSize;
+        this.memoryBudget = memoryBudget;
+        this.future = scheduler == null ? null
+                : scheduler.scheduleWithFixedDelay(this::resize, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Resizes the cache to the size the current miss ratio curve predicts reaches the target hit ratio.
+     *
+     * @return the maximum of the cache, a number of entries or a weight
+     * @since 1.1.0
+     */
+    public long resize() {
+        final MissRatioCurve curve = this.estimator.curve();
+        if (curve.references() == 0) {
+            return this.eviction.getMaximum();
+        }
+        final long size = Math.min(Math.max(curve.sizeFor(this.targetHitRatio).orElse(this.maximumSize), this.minimumSize), this.maximumSize);
+        long maximum = size;
+        if (this.eviction.isWeighted()) {
+            final long entries = this.cache.estimatedSize();
+            if (entries == 0) {
+                return this.eviction.getMaximum();
+            }
+            final long weight = this.eviction.weightedSize().orElse(0);
+            maximum = Math.max(1, (long) Math.ceil((double) size * weight / entries));
+            if (this.memoryBudget > 0) {
+                maximum = Math.min(maximum, this.memoryBudget);
+            }
+        }
+        if (maximum != this.eviction.getMaximum()) {
+            this.eviction.setMaximum(maximum);
+        }
+        return maximum;
+    }
+
+    /**
+     * Stops resizing the cache periodically.
+     *
+     * @since 1.1.0
+     */
+    @Override
+    public void close() {
+        if (this.future != null) {
+            this.future.cancel(false);
+        }
+    }
+}
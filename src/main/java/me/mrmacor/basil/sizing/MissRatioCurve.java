@@ -0,0 +1,132 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sizing;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.OptionalLong;
+
+/**
+ * The hit ratio an LRU cache would have at every size up to a maximum, estimated by a {@link MissRatioEstimator}.
+ * It is an immutable snapshot.
+ *
+ * <p>Caffeine's W-TinyLFU policy usually does at least as well as LRU, so the hit ratios are conservative
+ * for Caffeine caches.</p>
+ *
+ * @since 1.1.0
+ */
+public final class MissRatioCurve {
+
+    private final long bucketWidth;
+    private final double[] hitRatios;
+    private final long references;
+
+    MissRatioCurve(final long bucketWidth, final double[] hitRatios, final long references) {
+        this.bucketWidth = bucketWidth;
+        this.hitRatios = hitRatios;
+        this.references = references;
+    }
+
+    /**
+     * Returns the number of references the curve was estimated from, extrapolated from the sampled references.
+     *
+     * @return the estimated number of references
+     * @since 1.1.0
+     */
+    public long references() {
+        return this.references;
+    }
+
+    /**
+     * Returns the largest size the curve covers.
+     *
+     * @return the maximum size
+     * @since 1.1.0
+     */
+    public long maximumSize() {
+        return this.bucketWidth * this.hitRatios.length;
+    }
+
+    /**
+     * Returns the predicted hit ratio of a cache of the provided size, interpolated between the sizes the curve
+     * was bucketed at. Sizes above {@link #maximumSize()} return the hit ratio at the maximum size.
+     *
+     * @param size the number of entries of the cache
+     * @return the predicted hit ratio, 0 if no reference was sampled yet
+     * @since 1.1.0
+     */
+    public double hitRatio(@Nonnegative final long size) {
+        if (size <= 0) {
+            return 0;
+        }
+        if (size >= this.maximumSize()) {
+            return this.hitRatios[this.hitRatios.length - 1];
+        }
+        final int bucket = (int) (size / this.bucketWidth);
+        final double lower = bucket == 0 ? 0 : this.hitRatios[bucket - 1];
+        final double fraction = (double) (size - bucket * this.bucketWidth) / this.bucketWidth;
+        return lower + (this.hitRatios[bucket] - lower) * fraction;
+    }
+
+    /**
+     * Returns the predicted miss ratio of a cache of the provided size, {@code 1 - hitRatio(size)}.
+     *
+     * @param size the number of entries of the cache
+     * @return the predicted miss ratio
+     * @since 1.1.0
+     */
+    public double missRatio(@Nonnegative final long size) {
+        return 1 - this.hitRatio(size);
+    }
+
+    /**
+     * Returns the smallest size predicted to reach the provided hit ratio, to the precision of the buckets.
+     *
+     * @param hitRatio the hit ratio to reach
+     * @return the smallest size, or empty if no size up to {@link #maximumSize()} reaches it
+     * @since 1.1.0
+     */
+    @Nonnull
+    public OptionalLong sizeFor(final double hitRatio) {
+        for (int i = 0; i < this.hitRatios.length; i++) {
+            if (this.hitRatios[i] >= hitRatio) {
+                return OptionalLong.of((i + 1) * this.bucketWidth);
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public String toString() {
+        final int last = this.hitRatios.length - 1;
+        return MoreObjects.toStringHelper(this)
+                .add("references", this.references)
+                .add("maximumSize", this.maximumSize())
+                .add("hitRatioAtHalf", this.hitRatios[last / 2])
+                .add("hitRatioAtMaximum", this.hitRatios[last])
+                .toString();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sizing;
+
+import me.mrmacor.basil.cache.BasilCache;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Estimates the {@link MissRatioCurve} of a cache online from the keys it is read with, by spatially sampled
+ * reuse distances (SHARDS).
+ *
+ * <p>A key is sampled if its spread hash falls below a threshold, so either every reference to a key is sampled
+ * or none is, and about {@code samplingRate} of the distinct keys are tracked. The reuse distance of a sampled
+ * reference, the number of distinct sampled keys referenced since the previous reference to the same key,
+ * is counted in a Fenwick tree over the times of the last reference of every sampled key, then scaled by
+ * {@code 1 / samplingRate} into the histogram the curve is built from.</p>
+ *
+ * <p>Only the hash codes of sampled keys are kept, in a table of primitive ints, never the keys, so distinct keys with
+ * the same hash code count as one. Unsampled references cost a hash and a comparison, sampled ones take a lock.</p>
+ *
+ * <p>Memory is bounded by the number of sampled keys tracked at most, as in fixed-size SHARDS: once more keys are
+ * sampled, the threshold is lowered to drop about an eighth of them, with their last references. The sampling rate
+ * falls with it, and the histogram so far is scaled down by the same factor.</p>
+ *
+ * @param <K> the type of the keys
+ * @since 1.1.0
+ */
+public final class MissRatioEstimator<K> {
+
+    private static final int PRECISION = 24;
+    private static final int MINIMUM_CAPACITY = 1024;
+    private static final int MINIMUM_TABLE_SIZE = 64;
+
+    private final double initialSamplingRate;
+    private final long initialThreshold;
+    private final int maximumKeys;
+    private final long bucketWidth;
+    private final double[] histogram;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long threshold;
+    private double samplingRate;
+    // an open-addressing table from the hash code of every sampled key to the time of its last reference, 0 if empty
+    private int[] keys = new int[MINIMUM_TABLE_SIZE];
+    private int[] times = new int[MINIMUM_TABLE_SIZE];
+    private int size;
+    private int[] tree = new int[MINIMUM_CAPACITY + 1];
+    private int clock;
+    private double sampled;
+
+    /**
+     * Constructor for the miss ratio estimator. See {@link me.mrmacor.basil.builder.MissRatioEstimatorBuilder}
+     * for a friendlier way to build one.
+     *
+     * @param samplingRate the fraction of keys to sample, in (0, 1]
+     * @param maximumKeys the number of sampled keys to track at most, lowering the sampling rate to stay within it
+     * @param maximumSize the largest cache size to estimate the hit ratio of
+     * @param buckets the number of sizes up to the maximum size to estimate the hit ratio at
+     * @since 1.1.0
+     */
+    public MissRatioEstimator(final double samplingRate, final int maximumKeys, final long maximumSize, final int buckets) {
+        if (!(samplingRate > 0 && samplingRate <= 1)) {
+            throw new IllegalArgumentException("samplingRate must be in (0, 1]: " + samplingRate);
+        }
+        if (maximumKeys < 2) {
+            throw new IllegalArgumentException("maximumKeys must be at least two: " + maximumKeys);
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive: " + buckets);
+        }
+        this.initialSamplingRate = samplingRate;
+        this.initialThreshold = (long) Math.ceil(samplingRate * (1L << PRECISION));
+        this.samplingRate = samplingRate;
+        this.threshold = this.initialThreshold;
+        this.maximumKeys = maximumKeys;
+        this.bucketWidth = Math.max(1, (maximumSize + buckets - 1) / buckets);
+        this.histogram = new double[(int) Math.min(buckets, (maximumSize + this.bucketWidth - 1) / this.bucketWidth)];
+    }
+
+    /**
+     * Records a reference to the provided key, if it is sampled.
+     *
+     * @param key that was referenced
+     * @since 1.1.0
+     */
+    public void record(@Nonnull final K key) {
+        final int hash = key.hashCode();
+        if (spread(hash) >= this.threshold) {
+            return;
+        }
+        this.lock.lock();
+        try {
+            // the threshold may have been lowered while waiting for the lock
+            if (spread(hash) < this.threshold) {
+                this.add(hash);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static long spread(final int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (h * 0xBF58476D1CE4E5B9L) >>> (64 - PRECISION);
+    }
+
+    /**
+     * Returns the slot of the provided hash code in the table, or the empty slot it would be added to.
+     */
+    private int slotOf(final int[] keys, final int[] times, final int hash) {
+        final int mask = keys.length - 1;
+        final int h = hash * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (times[slot] != 0 && keys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void add(final int hash) {
+        if (this.clock == this.tree.length - 1) {
+            this.compact();
+        }
+        this.sampled++;
+        int slot = this.slotOf(this.keys, this.times, hash);
+        final int previous = this.times[slot];
+        if (previous != 0) {
+            final int distance = this.prefix(this.clock) - this.prefix(previous);
+            final long bucket = (long) (distance / this.samplingRate) / this.bucketWidth;
+            if (bucket < this.histogram.length) {
+                this.histogram[(int) bucket]++;
+            }
+            this.update(previous, -1);
+        } else if (this.size + 1 > (this.keys.length >>> 2) * 3) {
+            this.rehash(this.keys.length << 1, Long.MAX_VALUE);
+            slot = this.slotOf(this.keys, this.times, hash);
+        }
+        this.update(++this.clock, 1);
+        if (previous == 0) {
+            this.keys[slot] = hash;
+            this.size++;
+        }
+        this.times[slot] = this.clock;
+        if (this.size > this.maximumKeys) {
+            this.lowerThreshold();
+        }
+    }
+
+    /**
+     * Lowers the threshold so that about an eighth of the tracked keys are no longer sampled, and forgets them,
+     * as in fixed-size SHARDS. The histogram is rescaled to the new sampling rate, so older and newer references
+     * keep the same weight.
+     */
+    private void lowerThreshold() {
+        final long[] spreads = new long[this.size];
+        int count = 0;
+        for (int slot = 0; slot < this.keys.length; slot++) {
+            if (this.times[slot] != 0) {
+                spreads[count++] = spread(this.keys[slot]);
+            }
+        }
+        Arrays.sort(spreads);
+        final long lowered = spreads[this.maximumKeys - (this.maximumKeys >>> 3) - 1];
+        final double scale = (double) lowered / this.threshold;
+        this.rehash(this.keys.length, lowered);
+        this.threshold = lowered;
+        this.samplingRate = (double) lowered / (1L << PRECISION);
+        for (int i = 0; i < this.histogram.length; i++) {
+            this.histogram[i] *= scale;
+        }
+        this.sampled *= scale;
+    }
+
+    /**
+     * Moves the tracked keys to a table of the provided capacity, forgetting the ones no longer below the threshold.
+     */
+    private void rehash(final int capacity, final long threshold) {
+        final int[] oldKeys = this.keys;
+        final int[] oldTimes = this.times;
+        this.keys = new int[capacity];
+        this.times = new int[capacity];
+        this.size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldTimes[slot] == 0) {
+                continue;
+            }
+            if (spread(oldKeys[slot]) >= threshold) {
+                this.update(oldTimes[slot], -1);
+                continue;
+            }
+            final int target = this.slotOf(this.keys, this.times, oldKeys[slot]);
+            this.keys[target] = oldKeys[slot];
+            this.times[target] = oldTimes[slot];
+            this.size++;
+        }
+    }
+
+    /**
+     * Renumbers the last references in order from 1, and grows the tree if the keys fill more than half of it.
+     */
+    private void compact() {
+        final int capacity = Math.max(MINIMUM_CAPACITY, Integer.highestOneBit(Math.max(this.size, 1)) << 2);
+        // the slot of the key last referenced at every time, plus one so that 0 means no key
+        final int[] slotsByTime = new int[this.tree.length];
+        for (int slot = 0; slot < this.times.length; slot++) {
+            if (this.times[slot] != 0) {
+                slotsByTime[this.times[slot]] = slot + 1;
+            }
+        }
+        this.tree = new int[capacity + 1];
+        this.clock = 0;
+        for (int time = 1; time < slotsByTime.length; time++) {
+            if (slotsByTime[time] != 0) {
+                this.clock++;
+                this.times[slotsByTime[time] - 1] = this.clock;
+                this.tree[this.clock] = 1;
+            }
+        }
+        for (int i = 1; i <= capacity; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= capacity) {
+                this.tree[parent] += this.tree[i];
+            }
+        }
+    }
+
+    private int prefix(final int time) {
+        int sum = 0;
+        for (int i = time; i > 0; i -= i & -i) {
+            sum += this.tree[i];
+        }
+        return sum;
+    }
+
+    private void update(final int time, final int delta) {
+        for (int i = time; i < this.tree.length; i += i & -i) {
+            this.tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the curve estimated from the references recorded so far.
+     *
+     * @return the miss ratio curve
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MissRatioCurve curve() {
+        final double[] hitRatios = new double[this.histogram.length];
+        final long references;
+        this.lock.lock();
+        try {
+            double hits = 0;
+            for (int i = 0; i < hitRatios.length; i++) {
+                hits += this.histogram[i];
+                hitRatios[i] = this.sampled == 0 ? 0 : hits / this.sampled;
+            }
+            references = (long) (this.sampled / this.samplingRate);
+        } finally {
+            this.lock.unlock();
+        }
+        return new MissRatioCurve(this.bucketWidth, hitRatios, references);
+    }
+
+    /**
+     * Forgets every recorded reference.
+     *
+     * @since 1.1.0
+     */
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.keys = new int[MINIMUM_TABLE_SIZE];
+            this.times = new int[MINIMUM_TABLE_SIZE];
+            this.size = 0;
+            this.threshold = this.initialThreshold;
+            this.samplingRate = this.initialSamplingRate;
+            this.tree = new int[MINIMUM_CAPACITY + 1];
+            this.clock = 0;
+            this.sampled = 0;
+            Arrays.fill(this.histogram, 0);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a view of the provided cache that records the keys of its single-key reads,
+     * {@link BasilCache#get(Object, java.util.concurrent.Callable)} and {@link BasilCache#getIfPresent(Object)}.
+     *
+     * @param cache to track
+     * @param <V> the type of the values
+     * @return the tracking cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    public <V> MissRatioTrackingCache<K, V> track(@Nonnull final BasilCache<K, V> cache) {
+        return new MissRatioTrackingCache<>(cache, this);
+    }
+}
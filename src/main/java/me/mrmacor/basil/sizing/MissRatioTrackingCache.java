@@ -0,0 +1,104 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sizing;
+
+import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.ForwardingBasilCache;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that records the keys of its single-key reads in a {@link MissRatioEstimator}.
+ * Bulk reads and writes go straight to the delegate. Start with {@link MissRatioEstimator#track(BasilCache)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class MissRatioTrackingCache<K, V> extends ForwardingBasilCache<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private final MissRatioEstimator<K> estimator;
+
+    MissRatioTrackingCache(@Nonnull final BasilCache<K, V> delegate, @Nonnull final MissRatioEstimator<K> estimator) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.estimator = Objects.requireNonNull(estimator, "estimator");
+    }
+
+    /**
+     * Returns the estimator the reads are recorded in.
+     *
+     * @return the estimator
+     * @since 1.1.0
+     */
+    @Nonnull
+    public MissRatioEstimator<K> estimator() {
+        return this.estimator;
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        this.estimator.record(key);
+        return this.delegate.get(key, loader);
+    }
+
+    @Override
+    public void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        this.delegate.forEachPresent(keys, action);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        return this.delegate.getAll(keys, loader);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        this.estimator.record(key);
+        return this.delegate.getIfPresent(key);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.delegate.putAll(map);
+    }
+}
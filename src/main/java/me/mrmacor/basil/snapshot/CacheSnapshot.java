@@ -0,0 +1,344 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.snapshot;
+
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.codec.Codec;
+import me.mrmacor.basil.wrapper.CacheSetImpl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Utility class to write the contents of a {@link BasilCache} or {@link CacheSet} to a file, and to restore them on startup.
+ *
+ * <p>A snapshot holds the encoded keys and values and the remaining lifetime of every entry, which is only known for
+ * Caffeine caches. It is cut into blocks of {@value #BLOCK_ENTRIES} entries, and every block is memory-mapped and
+ * restored by its own task, so a restore runs in parallel and only touches the pages of the file it is reading.
+ * A restore never replaces an entry that was stored in the meantime, and drops entries whose lifetime ran out
+ * since the snapshot was written.</p>
+ *
+ * <p>A snapshot is written to a temporary file first, and then moved over the previous one, so a crash while writing
+ * never leaves a partial snapshot behind.</p>
+ *
+ * @since 1.1.0
+ */
+public final class CacheSnapshot {
+
+    /**
+     * The number of entries in every block of a snapshot but the last.
+     *
+     * @since 1.1.0
+     */
+    public static final int BLOCK_ENTRIES = 4096;
+
+    private static final int MAGIC = 0x4253_4E50;
+    private static final int VERSION = 1;
+    private static final int FLAG_VALUES = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = 16;
+
+    private CacheSnapshot() {
+
+    }
+
+    /**
+     * Writes a snapshot of the provided cache to the provided file, replacing it if it exists.
+     *
+     * @param cache to write
+     * @param file to write to
+     * @param keyCodec to encode keys with
+     * @param valueCodec to encode values with
+     * @return the number of entries written
+     * @throws IOException if the file cannot be written
+     * @since 1.1.0
+     */
+    public static <K, V> long write(@Nonnull final BasilCache<K, V> cache, @Nonnull final Path file,
+                                    @Nonnull final Codec<K> keyCodec, @Nonnull final Codec<V> valueCodec) throws IOException {
+        final ToLongFunction<K> remaining = Expiries.remainingNanos(cache);
+        final List<Record<K, V>> records = new ArrayList<>();
+        for (final Map.Entry<K, V> entry : cache.asMap().entrySet()) {
+            final long remainingNanos = remaining.applyAsLong(entry.getKey());
+            if (remainingNanos > 0) {
+                records.add(new Record<>(entry.getKey(), entry.getValue(), remainingNanos));
+            }
+        }
+        return writeRecords(file, records, keyCodec, valueCodec);
+    }
+
+    /**
+     * Writes a snapshot of the provided set to the provided file, replacing it if it exists.
+     *
+     * @param set to write
+     * @param file to write to
+     * @param codec to encode members with
+     * @return the number of members written
+     * @throws IOException if the file cannot be written
+     * @since 1.1.0
+     */
+    public static <V> long write(@Nonnull final CacheSet<V> set, @Nonnull final Path file, @Nonnull final Codec<V> codec) throws IOException {
+        final ToLongFunction<V> remaining = set instanceof CacheSetImpl
+                ? Expiries.remainingNanos(((CacheSetImpl<V>) set).delegate())
+                : member -> Expiries.NEVER;
+        final List<Record<V, Void>> records = new ArrayList<>();
+        for (final V member : set.asSet()) {
+            final long remainingNanos = remaining.applyAsLong(member);
+            if (remainingNanos > 0) {
+                records.add(new Record<>(member, null, remainingNanos));
+            }
+        }
+        return writeRecords(file, records, codec, null);
+    }
+
+    /**
+     * Restores a snapshot written by {@link #write(BasilCache, Path, Codec, Codec)} into the provided cache.
+     * Nothing is read on the calling thread, the future fails if the file is missing or not a snapshot of a cache.
+     *
+     * @param cache to restore into
+     * @param file to read
+     * @param keyCodec to decode keys with
+     * @param valueCodec to decode values with
+     * @param executor to read the snapshot and restore its blocks on
+     * @return a future of the number of restored entries
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <K, V> CompletableFuture<Long> restore(@Nonnull final BasilCache<K, V> cache, @Nonnull final Path file,
+                                                         @Nonnull final Codec<K> keyCodec, @Nonnull final Codec<V> valueCodec,
+                                                         @Nonnull final Executor executor) {
+        return restore(file, keyCodec, valueCodec, Expiries.restorer(cache), executor);
+    }
+
+    /**
+     * Restores a snapshot written by {@link #write(CacheSet, Path, Codec)} into the provided set.
+     * Nothing is read on the calling thread, the future fails if the file is missing or not a snapshot of a set.
+     *
+     * @param set to restore into
+     * @param file to read
+     * @param codec to decode members with
+     * @param executor to read the snapshot and restore its blocks on
+     * @return a future of the number of restored members
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static <V> CompletableFuture<Long> restore(@Nonnull final CacheSet<V> set, @Nonnull final Path file,
+                                                      @Nonnull final Codec<V> codec, @Nonnull final Executor executor) {
+        final Expiries.Sink<V, Void> sink;
+        if (set instanceof CacheSetImpl) {
+            // a CacheSetImpl maps every member to 0
+            final Expiries.Sink<V, Integer> restorer = Expiries.restorer(((CacheSetImpl<V>) set).delegate());
+            sink = (member, ignored, remainingNanos) -> restorer.accept(member, 0, remainingNanos);
+        } else {
+            sink = (member, ignored, remainingNanos) -> set.add(member);
+        }
+        return restore(file, codec, null, sink, executor);
+    }
+
+    private static <K, V> long writeRecords(final Path file, final List<Record<K, V>> records,
+                                            final Codec<K> keyCodec, @Nullable final Codec<V> valueCodec) throws IOException {
+        final int count = records.size();
+        final int blocks = (count + BLOCK_ENTRIES - 1) / BLOCK_ENTRIES;
+        final long[] offsets = new long[blocks + 1];
+        long position = HEADER_BYTES + (long) Long.BYTES * blocks;
+        for (int i = 0; i < count; i++) {
+            if (i % BLOCK_ENTRIES == 0) {
+                offsets[i / BLOCK_ENTRIES] = position;
+            }
+            final Record<K, V> record = records.get(i);
+            record.keySize = keyCodec.size(record.key);
+            record.valueSize = valueCodec == null ? 0 : valueCodec.size(record.value);
+            position += RECORD_HEADER_BYTES + (long) record.keySize + record.valueSize;
+        }
+        offsets[blocks] = position;
+
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int block = 0; block < blocks; block++) {
+                final long length = offsets[block + 1] - offsets[block];
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("snapshot block " + block + " is larger than 2 GiB");
+                }
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offsets[block], length);
+                for (int i = block * BLOCK_ENTRIES; i < Math.min(count, (block + 1) * BLOCK_ENTRIES); i++) {
+                    final Record<K, V> record = records.get(i);
+                    buffer.putInt(record.keySize).putInt(record.valueSize).putLong(record.remainingNanos);
+                    encode(keyCodec, record.key, buffer, record.keySize);
+                    if (valueCodec != null) {
+                        encode(valueCodec, record.value, buffer, record.valueSize);
+                    }
+                }
+                buffer.force();
+            }
+
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) Long.BYTES * blocks);
+            header.putInt(MAGIC).putInt(VERSION).putInt(valueCodec == null ? 0 : FLAG_VALUES).putInt(blocks)
+                    .putLong(System.currentTimeMillis()).putLong(count);
+            for (int block = 0; block < blocks; block++) {
+                header.putLong(offsets[block]);
+            }
+            header.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static <T> void encode(final Codec<T> codec, final T value, final ByteBuffer buffer, final int size) {
+        final ByteBuffer target = buffer.slice(buffer.position(), size);
+        codec.encode(value, target);
+        if (target.position() != size) {
+            throw new IllegalStateException("codec wrote " + target.position() + " bytes instead of " + size);
+        }
+        buffer.position(buffer.position() + size);
+    }
+
+    private static <K, V> CompletableFuture<Long> restore(final Path file, final Codec<K> keyCodec, @Nullable final Codec<V> valueCodec,
+                                                          final Expiries.Sink<K, V> sink, final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> map(file, valueCodec != null), executor).thenCompose(snapshot -> {
+            @SuppressWarnings("unchecked")
+            final CompletableFuture<Long>[] blocks = (CompletableFuture<Long>[]) new CompletableFuture<?>[snapshot.blocks.length];
+            for (int i = 0; i < blocks.length; i++) {
+                final ByteBuffer block = snapshot.blocks[i];
+                blocks[i] = CompletableFuture.supplyAsync(() -> restoreBlock(block, snapshot.createdMillis, keyCodec, valueCodec, sink), executor);
+            }
+            return CompletableFuture.allOf(blocks).thenApply(ignored -> {
+                long restored = 0;
+                for (final CompletableFuture<Long> block : blocks) {
+                    restored += block.join();
+                }
+                return restored;
+            });
+        });
+    }
+
+    private static MappedSnapshot map(final Path file, final boolean values) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a basil snapshot");
+            }
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a basil snapshot");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported snapshot version " + version);
+            }
+            final boolean hasValues = (header.getInt() & FLAG_VALUES) != 0;
+            if (hasValues != values) {
+                throw new IOException(file + (values ? " is a snapshot of a set, not of a cache" : " is a snapshot of a cache, not of a set"));
+            }
+            final int blockCount = header.getInt();
+            final long createdMillis = header.getLong();
+
+            final MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) Long.BYTES * blockCount);
+            final long[] offsets = new long[blockCount + 1];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = table.getLong();
+            }
+            offsets[blockCount] = channel.size();
+            // mapping is lazy, the pages of a block are only read once its task decodes it
+            final ByteBuffer[] blocks = new ByteBuffer[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blocks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], offsets[i + 1] - offsets[i]);
+            }
+            return new MappedSnapshot(createdMillis, blocks);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <K, V> long restoreBlock(final ByteBuffer block, final long createdMillis, final Codec<K> keyCodec,
+                                            @Nullable final Codec<V> valueCodec, final Expiries.Sink<K, V> sink) {
+        final long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - createdMillis));
+        long restored = 0;
+        while (block.hasRemaining()) {
+            final int keySize = block.getInt();
+            final int valueSize = block.getInt();
+            final long remainingNanos = block.getLong();
+            final K key = keyCodec.decode(block.slice(block.position(), keySize));
+            block.position(block.position() + keySize);
+            final V value = valueCodec == null ? null : valueCodec.decode(block.slice(block.position(), valueSize));
+            block.position(block.position() + valueSize);
+
+            if (remainingNanos == Expiries.NEVER) {
+                sink.accept(key, value, Expiries.NEVER);
+                restored++;
+            } else if (remainingNanos > elapsedNanos) {
+                sink.accept(key, value, remainingNanos - elapsedNanos);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * An entry to write, with the encoded sizes of its key and value.
+     */
+    private static final class Record<K, V> {
+
+        final K key;
+        final V value;
+        final long remainingNanos;
+        int keySize;
+        int valueSize;
+
+        Record(final K key, final V value, final long remainingNanos) {
+            this.key = key;
+            this.value = value;
+            this.remainingNanos = remainingNanos;
+        }
+    }
+
+    /**
+     * The mapped blocks of a snapshot, and when it was written.
+     */
+    private static final class MappedSnapshot {
+
+        final long createdMillis;
+        final ByteBuffer[] blocks;
+
+        MappedSnapshot(final long createdMillis, final ByteBuffer[] blocks) {
+            this.createdMillis = createdMillis;
+            this.blocks = blocks;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.snapshot;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.wrapper.WrappedCaffeineCache;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads the remaining lifetime of entries when writing a snapshot, and applies it again when restoring one.
+ *
+ * <p>Only a Caffeine cache exposes the age of its entries. Entries of any other cache are written as never expiring,
+ * and a restored entry starts a fresh lifetime unless the Caffeine cache it is restored into expires entries variably.</p>
+ */
+final class Expiries {
+
+    /**
+     * The remaining lifetime of an entry that does not expire, or whose expiry is not known.
+     */
+    static final long NEVER = Long.MAX_VALUE;
+
+    private Expiries() {
+
+    }
+
+    /**
+     * Returns a function computing the remaining lifetime of the entry of a key, in nanoseconds.
+     */
+    @Nonnull
+    static <K> ToLongFunction<K> remainingNanos(@Nonnull final BasilCache<K, ?> cache) {
+        if (!(cache instanceof WrappedCaffeineCache)) {
+            return key -> NEVER;
+        }
+        final Policy<K, ?> policy = ((WrappedCaffeineCache<K, ?>) cache).delegate().policy();
+        final Optional<? extends Policy.VarExpiration<K, ?>> variable = policy.expireVariably();
+        final Optional<? extends Policy.FixedExpiration<K, ?>> afterWrite = policy.expireAfterWrite();
+        final Optional<? extends Policy.FixedExpiration<K, ?>> afterAccess = policy.expireAfterAccess();
+        return key -> {
+            long remaining = NEVER;
+            if (variable.isPresent()) {
+                final OptionalLong expiresAfter = variable.get().getExpiresAfter(key, TimeUnit.NANOSECONDS);
+                if (expiresAfter.isPresent()) {
+                    remaining = expiresAfter.getAsLong();
+                }
+            }
+            if (afterWrite.isPresent()) {
+                remaining = Math.min(remaining, remainingOf(afterWrite.get(), key));
+            }
+            if (afterAccess.isPresent()) {
+                remaining = Math.min(remaining, remainingOf(afterAccess.get(), key));
+            }
+            return remaining;
+        };
+    }
+
+    private static <K> long remainingOf(final Policy.FixedExpiration<K, ?> expiration, final K key) {
+        final OptionalLong age = expiration.ageOf(key, TimeUnit.NANOSECONDS);
+        return age.isPresent() ? expiration.getExpiresAfter(TimeUnit.NANOSECONDS) - age.getAsLong() : NEVER;
+    }
+
+    /**
+     * Returns a sink that restores entries into the provided cache, without replacing entries that are already present.
+     */
+    @Nonnull
+    static <K, V> Sink<K, V> restorer(@Nonnull final BasilCache<K, V> cache) {
+        if (cache instanceof WrappedCaffeineCache) {
+            final Optional<Policy.VarExpiration<K, V>> variable = ((WrappedCaffeineCache<K, V>) cache).delegate().policy().expireVariably();
+            if (variable.isPresent()) {
+                final Policy.VarExpiration<K, V> expiration = variable.get();
+                return (key, value, remainingNanos) -> {
+                    if (remainingNanos == NEVER) {
+                        cache.asMap().putIfAbsent(key, value);
+                    } else {
+                        expiration.putIfAbsent(key, value, remainingNanos, TimeUnit.NANOSECONDS);
+                    }
+                };
+            }
+        }
+        return (key, value, remainingNanos) -> cache.asMap().putIfAbsent(key, value);
+    }
+
+    /**
+     * Receives the restored entries.
+     */
+    @FunctionalInterface
+    interface Sink<K, V> {
+
+        void accept(K key, V value, long remainingNanos);
+    }
+}
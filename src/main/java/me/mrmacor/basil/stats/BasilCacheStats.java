@@ -0,0 +1,283 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.stats;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a cache's statistics.
+ * Used as a common representation of a {@link com.google.common.cache.CacheStats},
+ * a {@link com.github.benmanes.caffeine.cache.stats.CacheStats} or basil's own {@link StatsCounter}.
+ *
+ * @since 1.1.0
+ */
+public final class BasilCacheStats {
+
+    private static final BasilCacheStats EMPTY = new BasilCacheStats(0, 0, 0, 0, 0, 0);
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long evictionCount;
+
+    private BasilCacheStats(final long hitCount, final long missCount, final long loadSuccessCount,
+                            final long loadFailureCount, final long totalLoadTime, final long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Returns a snapshot with the provided counts.
+     *
+     * @param hitCount the number of lookups that found a value
+     * @param missCount the number of lookups that did not find a value
+     * @param loadSuccessCount the number of loads that produced a value
+     * @param loadFailureCount the number of loads that failed
+     * @param totalLoadTime the total time spent loading, in nanoseconds
+     * @param evictionCount the number of entries evicted
+     * @return the snapshot
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static BasilCacheStats of(@Nonnegative final long hitCount, @Nonnegative final long missCount,
+                                     @Nonnegative final long loadSuccessCount, @Nonnegative final long loadFailureCount,
+                                     @Nonnegative final long totalLoadTime, @Nonnegative final long evictionCount) {
+        return new BasilCacheStats(hitCount, missCount, loadSuccessCount, loadFailureCount, totalLoadTime, evictionCount);
+    }
+
+    /**
+     * Returns a snapshot where every count is zero.
+     *
+     * @return the empty snapshot
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static BasilCacheStats empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a snapshot of the provided Guava statistics.
+     *
+     * @param stats to convert
+     * @return the snapshot
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static BasilCacheStats of(@Nonnull final com.google.common.cache.CacheStats stats) {
+        return new BasilCacheStats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadExceptionCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+    /**
+     * Returns a snapshot of the provided Caffeine statistics.
+     *
+     * @param stats to convert
+     * @return the snapshot
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static BasilCacheStats of(@Nonnull final com.github.benmanes.caffeine.cache.stats.CacheStats stats) {
+        return new BasilCacheStats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadFailureCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the number of lookups that found a value
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long hitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value.
+     *
+     * @return the number of lookups that did not find a value
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long missCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of lookups, that is hits plus misses.
+     *
+     * @return the number of lookups
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long requestCount() {
+        return saturatedAdd(this.hitCount, this.missCount);
+    }
+
+    /**
+     * Returns the ratio of lookups that found a value, or {@code 1.0} if there were no lookups.
+     *
+     * @return the ratio of lookups that found a value
+     * @since 1.1.0
+     */
+    public double hitRatio() {
+        final long requestCount = this.requestCount();
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that did not find a value, or {@code 0.0} if there were no lookups.
+     *
+     * @return the ratio of lookups that did not find a value
+     * @since 1.1.0
+     */
+    public double missRatio() {
+        final long requestCount = this.requestCount();
+        return requestCount == 0 ? 0.0 : (double) this.missCount / requestCount;
+    }
+
+    /**
+     * Returns the number of loads that produced a value.
+     *
+     * @return the number of loads that produced a value
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long loadSuccessCount() {
+        return this.loadSuccessCount;
+    }
+
+    /**
+     * Returns the number of loads that failed.
+     *
+     * @return the number of loads that failed
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long loadFailureCount() {
+        return this.loadFailureCount;
+    }
+
+    /**
+     * Returns the total time spent loading, in nanoseconds.
+     *
+     * @return the total time spent loading, in nanoseconds
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long totalLoadTime() {
+        return this.totalLoadTime;
+    }
+
+    /**
+     * Returns the average time spent per load, in nanoseconds.
+     *
+     * @return the average time spent per load, in nanoseconds
+     * @since 1.1.0
+     */
+    public double averageLoadPenalty() {
+        final long loadCount = saturatedAdd(this.loadSuccessCount, this.loadFailureCount);
+        return loadCount == 0 ? 0.0 : (double) this.totalLoadTime / loadCount;
+    }
+
+    /**
+     * Returns the number of entries evicted.
+     *
+     * @return the number of entries evicted
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public long evictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Returns a snapshot whose counts are the sum of this snapshot's and the provided snapshot's.
+     *
+     * @param other to add
+     * @return the sum of both snapshots
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCacheStats plus(@Nonnull final BasilCacheStats other) {
+        return new BasilCacheStats(
+                saturatedAdd(this.hitCount, other.hitCount),
+                saturatedAdd(this.missCount, other.missCount),
+                saturatedAdd(this.loadSuccessCount, other.loadSuccessCount),
+                saturatedAdd(this.loadFailureCount, other.loadFailureCount),
+                saturatedAdd(this.totalLoadTime, other.totalLoadTime),
+                saturatedAdd(this.evictionCount, other.evictionCount));
+    }
+
+    private static long saturatedAdd(final long a, final long b) {
+        final long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BasilCacheStats)) {
+            return false;
+        }
+        final BasilCacheStats that = (BasilCacheStats) o;
+        return this.hitCount == that.hitCount
+                && this.missCount == that.missCount
+                && this.loadSuccessCount == that.loadSuccessCount
+                && this.loadFailureCount == that.loadFailureCount
+                && this.totalLoadTime == that.totalLoadTime
+                && this.evictionCount == that.evictionCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.hitCount, this.missCount, this.loadSuccessCount, this.loadFailureCount,
+                this.totalLoadTime, this.evictionCount);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("hitCount", this.hitCount)
+                .add("missCount", this.missCount)
+                .add("loadSuccessCount", this.loadSuccessCount)
+                .add("loadFailureCount", this.loadFailureCount)
+                .add("totalLoadTime", this.totalLoadTime)
+                .add("evictionCount", this.evictionCount)
+                .toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.stats;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates statistics for caches that do not record their own.
+ *
+ * <p>Every count is a striped {@link LongAdder}, so concurrent readers recording hits do not contend
+ * on a single memory location. This keeps the counters cheap enough to leave on under heavy read load.</p>
+ *
+ * @since 1.1.0
+ */
+public final class StatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Records lookups that found a value.
+     *
+     * @param count the number of hits
+     * @since 1.1.0
+     */
+    public void recordHits(@Nonnegative final int count) {
+        this.hitCount.add(count);
+    }
+
+    /**
+     * Records lookups that did not find a value.
+     *
+     * @param count the number of misses
+     * @since 1.1.0
+     */
+    public void recordMisses(@Nonnegative final int count) {
+        this.missCount.add(count);
+    }
+
+    /**
+     * Records a load that produced a value.
+     *
+     * @param loadTime the time spent loading, in nanoseconds
+     * @since 1.1.0
+     */
+    public void recordLoadSuccess(@Nonnegative final long loadTime) {
+        this.loadSuccessCount.increment();
+        this.totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * Records a load that failed.
+     *
+     * @param loadTime the time spent loading, in nanoseconds
+     * @since 1.1.0
+     */
+    public void recordLoadFailure(@Nonnegative final long loadTime) {
+        this.loadFailureCount.increment();
+        this.totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * Records evicted entries.
+     *
+     * @param count the number of entries evicted
+     * @since 1.1.0
+     */
+    public void recordEvictions(@Nonnegative final int count) {
+        this.evictionCount.add(count);
+    }
+
+    /**
+     * Returns a snapshot of the current counts.
+     * Counts recorded while the snapshot is taken may or may not be included.
+     *
+     * @return a snapshot of the current counts
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCacheStats snapshot() {
+        return BasilCacheStats.of(
+                this.hitCount.sum(),
+                this.missCount.sum(),
+                this.loadSuccessCount.sum(),
+                this.loadFailureCount.sum(),
+                this.totalLoadTime.sum(),
+                this.evictionCount.sum());
+    }
+}
@@ -0,0 +1,575 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.tiered;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.DelegationCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that keeps its hot entries in a small, size-bounded Caffeine cache (L1)
+ * in front of a larger {@link BasilCache} (L2), such as an off-heap cache or a larger Guava cache.
+ *
+ * <p>Every write goes to L2. With {@link WritePolicy#WRITE_THROUGH} it is written to L1 too, with
+ * {@link WritePolicy#WRITE_AROUND} the L1 copy is dropped instead, and the entry only enters L1 once it is read.
+ * A read that misses L1 but hits L2 promotes the entry to L1. Invalidations remove the key from both tiers.</p>
+ *
+ * <p>L2 holds every entry and decides how long it lives, so an entry L1 evicts is simply dropped. An L1 hit is only
+ * served while L2 still holds the key, which costs an L2 {@code containsKey} but no copy of the value.
+ * An entry L2 evicted or expired on its own, or that was invalidated on L2 directly, is dropped from L1
+ * the next time it is read there.</p>
+ *
+ * <p>A promotion races with writes, so it is undone when L2 no longer holds the promoted value once it is in L1,
+ * which keeps L1 from serving a value that was overwritten or invalidated during the promotion.</p>
+ *
+ * <p>{@link #stats()} counts hits on either tier as hits. {@link #l1Stats()} and {@link #l2Stats()} count the lookups
+ * of each tier, with L1 evictions counted as the evictions of L1.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class TieredBasilCache<K, V> implements BasilCache<K, V>, DelegationCache<BasilCache<K, V>> {
+
+    private final BasilCache<K, V> l2;
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> l1;
+    private final WritePolicy writePolicy;
+    private final StatsCounter counter = new StatsCounter();
+    private final StatsCounter l1Counter = new StatsCounter();
+    private final StatsCounter l2Counter = new StatsCounter();
+    private final MapView view = new MapView();
+
+    /**
+     * Constructor for the tiered cache.
+     *
+     * @param l1MaximumSize the maximum number of entries in L1
+     * @param l2 to keep every entry in
+     * @param writePolicy whether writes go to L1 as well as L2
+     * @since 1.1.0
+     */
+    public TieredBasilCache(@Nonnegative final long l1MaximumSize, @Nonnull final BasilCache<K, V> l2, @Nonnull final WritePolicy writePolicy) {
+        this.l2 = Objects.requireNonNull(l2, "l2");
+        this.writePolicy = Objects.requireNonNull(writePolicy, "writePolicy");
+        this.l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaximumSize)
+                .executor(Runnable::run)
+                .<K, V>evictionListener((key, value, cause) -> {
+                    if (cause.wasEvicted()) {
+                        this.l1Counter.recordEvictions(1);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Whether writes go to L1 as well as to L2.
+     *
+     * @since 1.1.0
+     */
+    public enum WritePolicy {
+
+        /**
+         * Writes go to both tiers.
+         *
+         * @since 1.1.0
+         */
+        WRITE_THROUGH,
+
+        /**
+         * Writes go to L2 and drop the L1 copy, so entries only enter L1 when they are read.
+         *
+         * @since 1.1.0
+         */
+        WRITE_AROUND
+    }
+
+    /**
+     * Returns L2, which every write goes to.
+     *
+     * @return L2
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.l2;
+    }
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.view;
+    }
+
+    /**
+     * Returns a spliterator over the entries of L2, which holds every entry, and splits like the spliterator of L2.
+     * Like the iterator of {@link #asMap()}, it reports copies of the entries.
+     *
+     * @return a spliterator over the entries of this cache
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        return new CopyingSpliterator<>(this.l2.spliterator());
+    }
+
+    @Override
+    public void cleanUp() {
+        this.l1.cleanUp();
+        this.l2.cleanUp();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final V present = this.probe(key);
+        if (present != null) {
+            this.counter.recordHits(1);
+            return present;
+        }
+        this.counter.recordMisses(1);
+        final V loaded = this.l2.get(key, () -> {
+            final long start = System.nanoTime();
+            try {
+                final V value = loader.call();
+                if (value == null) {
+                    this.counter.recordLoadFailure(System.nanoTime() - start);
+                } else {
+                    this.counter.recordLoadSuccess(System.nanoTime() - start);
+                }
+                return value;
+            } catch (final Throwable t) {
+                this.counter.recordLoadFailure(System.nanoTime() - start);
+                throw t;
+            }
+        });
+        if (loaded != null) {
+            this.promote(key, loaded);
+        }
+        return loaded;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        final Map<K, V> present = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = this.probe(key);
+            if (value != null) {
+                this.counter.recordHits(1);
+                present.put(key, value);
+            } else {
+                this.counter.recordMisses(1);
+            }
+        }
+        return ImmutableMap.copyOf(present);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final Map<K, V> present = this.allPresent(keys);
+        final Set<K> missing = new LinkedHashSet<>();
+        for (final K key : keys) {
+            if (!present.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ImmutableMap.copyOf(present);
+        }
+        final ImmutableMap<K, V> loaded = this.l2.getAll(missing, keysToLoad -> {
+            final long start = System.nanoTime();
+            try {
+                final Map<K, V> values = loader.apply(keysToLoad);
+                this.counter.recordLoadSuccess(System.nanoTime() - start);
+                return values;
+            } catch (final Throwable t) {
+                this.counter.recordLoadFailure(System.nanoTime() - start);
+                throw t;
+            }
+        });
+        final Map<K, V> all = new LinkedHashMap<>();
+        for (final K key : keys) {
+            V value = present.get(key);
+            if (value == null) {
+                value = loaded.get(key);
+                if (value != null && missing.remove(key)) {
+                    this.promote(key, value);
+                }
+            }
+            if (value != null) {
+                all.put(key, value);
+            }
+        }
+        return ImmutableMap.copyOf(all);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        final V present = this.probe(key);
+        if (present != null) {
+            this.counter.recordHits(1);
+        } else {
+            this.counter.recordMisses(1);
+        }
+        return present;
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.l2.invalidate(key);
+        this.l1.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.l2.invalidateAll();
+        this.l1.invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.l2.invalidateAll(keys);
+        this.l1.invalidateAll(keys);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.l2.put(key, value);
+        this.written(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.l2.putAll(map);
+        if (this.writePolicy == WritePolicy.WRITE_THROUGH) {
+            this.l1.putAll(map);
+        } else {
+            this.l1.invalidateAll(map.keySet());
+        }
+    }
+
+    /**
+     * Returns the number of entries in L2, which holds every entry.
+     *
+     * @return the number of entries
+     * @since 1.1.0
+     */
+    @Override
+    public long size() {
+        return this.l2.size();
+    }
+
+    /**
+     * Returns the sum of the weighted sizes of the tiers that weigh their entries.
+     * An entry held by both tiers is stored twice, so it counts in both.
+     *
+     * @return the total weight of the entries, or empty if neither tier weighs its entries
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        final OptionalLong l1Size = this.l1.policy().eviction()
+                .map(eviction -> eviction.weightedSize()).orElse(OptionalLong.empty());
+        final OptionalLong l2Size = this.l2.weightedSize();
+        if (l1Size.isEmpty()) {
+            return l2Size;
+        }
+        return OptionalLong.of(l1Size.getAsLong() + l2Size.orElse(0));
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.counter.snapshot().plus(BasilCacheStats.of(0, 0, 0, 0, 0, this.l2.stats().evictionCount()));
+    }
+
+    /**
+     * Returns the statistics of L1: its hits and misses, and the entries it evicted.
+     *
+     * @return a snapshot of the statistics of L1
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCacheStats l1Stats() {
+        return this.l1Counter.snapshot();
+    }
+
+    /**
+     * Returns the statistics of L2: the hits and misses of the lookups that missed L1, and the entries it evicted.
+     *
+     * @return a snapshot of the statistics of L2
+     * @since 1.1.0
+     */
+    @Nonnull
+    public BasilCacheStats l2Stats() {
+        return this.l2Counter.snapshot().plus(BasilCacheStats.of(0, 0, 0, 0, 0, this.l2.stats().evictionCount()));
+    }
+
+    /**
+     * Returns the L1 copy of the value associated with the provided key, dropping it if L2 no longer holds the key.
+     */
+    @Nullable
+    private V cached(@Nonnull final Object key) {
+        final V present = this.l1.asMap().get(key);
+        if (present != null && !this.l2.asMap().containsKey(key)) {
+            this.l1.asMap().remove(key, present);
+            return null;
+        }
+        return present;
+    }
+
+    @Nullable
+    private V probe(@Nonnull final K key) {
+        final V present = this.cached(key);
+        if (present != null) {
+            this.l1Counter.recordHits(1);
+            return present;
+        }
+        this.l1Counter.recordMisses(1);
+        final V lower = this.l2.asMap().get(key);
+        if (lower == null) {
+            this.l2Counter.recordMisses(1);
+            return null;
+        }
+        this.l2Counter.recordHits(1);
+        this.promote(key, lower);
+        return lower;
+    }
+
+    private void promote(@Nonnull final K key, @Nonnull final V value) {
+        this.l1.put(key, value);
+        if (!value.equals(this.l2.asMap().get(key))) {
+            this.l1.asMap().remove(key, value);
+        }
+    }
+
+    private void written(@Nonnull final K key, @Nonnull final V value) {
+        if (this.writePolicy == WritePolicy.WRITE_THROUGH) {
+            this.l1.put(key, value);
+        } else {
+            this.l1.invalidate(key);
+        }
+    }
+
+    /**
+     * A map view of both tiers, writing to them the way the cache does.
+     */
+    final class MapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+        @Override
+        public V get(final Object key) {
+            final V present = TieredBasilCache.this.cached(key);
+            return present != null ? present : TieredBasilCache.this.l2.asMap().get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return TieredBasilCache.this.l2.asMap().containsKey(key);
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            final V previous = TieredBasilCache.this.l2.asMap().put(key, value);
+            TieredBasilCache.this.written(key, value);
+            return previous;
+        }
+
+        @Override
+        public V putIfAbsent(@Nonnull final K key, @Nonnull final V value) {
+            final V previous = TieredBasilCache.this.l2.asMap().putIfAbsent(key, value);
+            if (previous == null) {
+                TieredBasilCache.this.written(key, value);
+            }
+            return previous;
+        }
+
+        @Override
+        public V replace(@Nonnull final K key, @Nonnull final V value) {
+            final V previous = TieredBasilCache.this.l2.asMap().replace(key, value);
+            if (previous != null) {
+                TieredBasilCache.this.written(key, value);
+            }
+            return previous;
+        }
+
+        @Override
+        public boolean replace(@Nonnull final K key, @Nonnull final V oldValue, @Nonnull final V newValue) {
+            if (!TieredBasilCache.this.l2.asMap().replace(key, oldValue, newValue)) {
+                return false;
+            }
+            TieredBasilCache.this.written(key, newValue);
+            return true;
+        }
+
+        @Override
+        public V remove(final Object key) {
+            final V previous = TieredBasilCache.this.l2.asMap().remove(key);
+            final V cached = TieredBasilCache.this.l1.asMap().remove(key);
+            return previous != null ? previous : cached;
+        }
+
+        @Override
+        public boolean remove(@Nonnull final Object key, final Object value) {
+            if (!TieredBasilCache.this.l2.asMap().remove(key, value)) {
+                return false;
+            }
+            TieredBasilCache.this.l1.asMap().remove(key);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            TieredBasilCache.this.invalidateAll();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, TieredBasilCache.this.size());
+        }
+
+        @Nonnull
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    TieredBasilCache.this.invalidateAll();
+                }
+
+                @Nonnull
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Nonnull
+                @Override
+                public Spliterator<Map.Entry<K, V>> spliterator() {
+                    return TieredBasilCache.this.spliterator();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over the entries of L2, which holds every entry.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Iterator<Map.Entry<K, V>> entries = TieredBasilCache.this.l2.asMap().entrySet().iterator();
+        private K last;
+
+        @Override
+        public boolean hasNext() {
+            return this.entries.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            final Map.Entry<K, V> next = this.entries.next();
+            this.last = next.getKey();
+            return new AbstractMap.SimpleImmutableEntry<>(next);
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            TieredBasilCache.this.invalidate(this.last);
+            this.last = null;
+        }
+    }
+
+    /**
+     * Reports copies of the entries of another spliterator, so they cannot write through to L2.
+     */
+    static final class CopyingSpliterator<K, V> implements Spliterator<Map.Entry<K, V>> {
+
+        private final Spliterator<Map.Entry<K, V>> entries;
+
+        CopyingSpliterator(@Nonnull final Spliterator<Map.Entry<K, V>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Map.Entry<K, V>> action) {
+            return this.entries.tryAdvance(entry -> action.accept(new AbstractMap.SimpleImmutableEntry<>(entry)));
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super Map.Entry<K, V>> action) {
+            this.entries.forEachRemaining(entry -> action.accept(new AbstractMap.SimpleImmutableEntry<>(entry)));
+        }
+
+        @Nullable
+        @Override
+        public Spliterator<Map.Entry<K, V>> trySplit() {
+            final Spliterator<Map.Entry<K, V>> prefix = this.entries.trySplit();
+            return prefix == null ? null : new CopyingSpliterator<>(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.entries.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return (this.entries.characteristics() | Spliterator.NONNULL) & ~Spliterator.SORTED;
+        }
+    }
+}
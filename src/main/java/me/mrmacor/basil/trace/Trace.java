@@ -0,0 +1,214 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.trace;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A trace written by a {@link TraceRecorder}, read into memory with its records in the order they were recorded in.
+ * Every thread's records were written in separate blocks, so reading merges the blocks by time.
+ *
+ * @since 1.1.0
+ */
+public final class Trace {
+
+    private final byte[] operations;
+    private final int[] hashes;
+    private final long[] times;
+
+    private Trace(final byte[] operations, final int[] hashes, final long[] times) {
+        this.operations = operations;
+        this.hashes = hashes;
+        this.times = times;
+    }
+
+    /**
+     * Reads the trace in the provided file.
+     *
+     * @param file to read
+     * @return the trace
+     * @throws IOException if the file cannot be read or is not a trace
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static Trace read(@Nonnull final Path file) throws IOException {
+        final List<Block> blocks = new ArrayList<>();
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != TraceRecorder.MAGIC) {
+                throw new IOException(file + " is not a basil trace");
+            }
+            final int version = in.readInt();
+            if (version != TraceRecorder.VERSION) {
+                throw new IOException(file + " has unsupported trace version " + version);
+            }
+            while (true) {
+                final int count;
+                try {
+                    count = in.readInt();
+                } catch (final EOFException e) {
+                    break;
+                }
+                in.readInt();
+                final Block block = new Block(count);
+                long time = 0;
+                for (int i = 0; i < count; i++) {
+                    block.operations[i] = (byte) TraceOperation.of(in.readByte()).ordinal();
+                    block.hashes[i] = in.readInt();
+                    time += readVarLong(in);
+                    block.times[i] = time;
+                }
+                blocks.add(block);
+                records = Math.addExact(records, count);
+            }
+        }
+        return merge(blocks, records);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed trace record time");
+    }
+
+    private static Trace merge(final List<Block> blocks, final int records) {
+        final byte[] operations = new byte[records];
+        final int[] hashes = new int[records];
+        final long[] times = new long[records];
+        final PriorityQueue<Block> queue = new PriorityQueue<>((a, b) -> Long.compare(a.times[a.next], b.times[b.next]));
+        for (final Block block : blocks) {
+            if (block.times.length > 0) {
+                queue.add(block);
+            }
+        }
+        int i = 0;
+        while (!queue.isEmpty()) {
+            final Block block = queue.remove();
+            final long limit = queue.isEmpty() ? Long.MAX_VALUE : queue.element().times[queue.element().next];
+            do {
+                operations[i] = block.operations[block.next];
+                hashes[i] = block.hashes[block.next];
+                times[i] = block.times[block.next];
+                i++;
+                block.next++;
+            } while (block.next < block.times.length && block.times[block.next] <= limit);
+            if (block.next < block.times.length) {
+                queue.add(block);
+            }
+        }
+        return new Trace(operations, hashes, times);
+    }
+
+    /**
+     * Returns the number of records in the trace.
+     *
+     * @return the number of records
+     * @since 1.1.0
+     */
+    public int size() {
+        return this.operations.length;
+    }
+
+    /**
+     * Returns the operation of a record.
+     *
+     * @param index of the record
+     * @return the operation
+     * @since 1.1.0
+     */
+    @Nonnull
+    public TraceOperation operation(@Nonnegative final int index) {
+        return TraceOperation.of(this.operations[index]);
+    }
+
+    /**
+     * Returns the hash code of the key of a record.
+     *
+     * @param index of the record
+     * @return the hash code of the key
+     * @since 1.1.0
+     */
+    public int key(@Nonnegative final int index) {
+        return this.hashes[index];
+    }
+
+    /**
+     * Returns the time of a record, in nanoseconds since the recorder was created.
+     *
+     * @param index of the record
+     * @return the time of the record
+     * @since 1.1.0
+     */
+    public long time(@Nonnegative final int index) {
+        return this.times[index];
+    }
+
+    /**
+     * Returns the number of records of each operation.
+     *
+     * @return the counts, indexed by {@link TraceOperation#ordinal()}
+     * @since 1.1.0
+     */
+    @Nonnull
+    public long[] operationCounts() {
+        final long[] counts = new long[TraceOperation.values().length];
+        for (final byte operation : this.operations) {
+            counts[operation]++;
+        }
+        return counts;
+    }
+
+    /**
+     * The records of one block, and the next one to merge.
+     */
+    static final class Block {
+
+        final byte[] operations;
+        final int[] hashes;
+        final long[] times;
+        int next;
+
+        Block(final int count) {
+            this.operations = new byte[count];
+            this.hashes = new int[count];
+            this.times = new long[count];
+        }
+    }
+}
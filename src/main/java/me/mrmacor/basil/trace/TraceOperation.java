@@ -0,0 +1,94 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.trace;
+
+/**
+ * An operation recorded in a trace.
+ *
+ * @since 1.1.0
+ */
+public enum TraceOperation {
+
+    /**
+     * A {@link me.mrmacor.basil.cache.BasilCache#get(Object, java.util.concurrent.Callable)}, which loads the value on a miss.
+     * Bulk loads are recorded as one get per key.
+     *
+     * @since 1.1.0
+     */
+    GET,
+
+    /**
+     * A {@link me.mrmacor.basil.cache.BasilCache#getIfPresent(Object)}. Bulk reads are recorded as one per key.
+     *
+     * @since 1.1.0
+     */
+    GET_IF_PRESENT,
+
+    /**
+     * A {@link me.mrmacor.basil.cache.BasilCache#put(Object, Object)}. Bulk writes are recorded as one per key.
+     *
+     * @since 1.1.0
+     */
+    PUT,
+
+    /**
+     * An invalidation of a single key, from a cache or a cache set.
+     *
+     * @since 1.1.0
+     */
+    INVALIDATE,
+
+    /**
+     * A {@link me.mrmacor.basil.cache.CacheSet#contains(Object)}.
+     *
+     * @since 1.1.0
+     */
+    CONTAINS,
+
+    /**
+     * A {@link me.mrmacor.basil.cache.CacheSet#add(Object)}. Bulk adds are recorded as one per value.
+     *
+     * @since 1.1.0
+     */
+    ADD;
+
+    private static final TraceOperation[] VALUES = values();
+
+    /**
+     * Returns if the operation reads the cache, so counts as a hit or a miss.
+     *
+     * @return if the operation is a read
+     * @since 1.1.0
+     */
+    public boolean isRead() {
+        return this == GET || this == GET_IF_PRESENT || this == CONTAINS;
+    }
+
+    static TraceOperation of(final int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("unknown trace operation " + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+}
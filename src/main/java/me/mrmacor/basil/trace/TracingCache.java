@@ -0,0 +1,135 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.trace;
+
+import com.google.common.collect.ImmutableMap;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.ForwardingBasilCache;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link BasilCache} that records its operations in a {@link TraceRecorder}, bulk operations as one record per key.
+ * Operations through {@link #asMap()} are not recorded. Start with {@link TraceRecorder#track(BasilCache)}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+public final class TracingCache<K, V> extends ForwardingBasilCache<K, V> {
+
+    private final BasilCache<K, V> delegate;
+    private final TraceRecorder recorder;
+
+    TracingCache(@Nonnull final BasilCache<K, V> delegate, @Nonnull final TraceRecorder recorder) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.recorder = Objects.requireNonNull(recorder, "recorder");
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        this.recorder.record(TraceOperation.GET, key);
+        return this.delegate.get(key, loader);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        this.recordAll(TraceOperation.GET_IF_PRESENT, keys);
+        return this.delegate.allPresent(keys);
+    }
+
+    @Override
+    public void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        this.recordAll(TraceOperation.GET_IF_PRESENT, keys);
+        this.delegate.forEachPresent(keys, action);
+    }
+
+    @Override
+    public int allPresent(@Nonnull final K[] keys, @Nonnull final V[] values) {
+        for (final K key : keys) {
+            this.recorder.record(TraceOperation.GET_IF_PRESENT, key);
+        }
+        return this.delegate.allPresent(keys, values);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        this.recordAll(TraceOperation.GET, keys);
+        return this.delegate.getAll(keys, loader);
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        this.recorder.record(TraceOperation.GET_IF_PRESENT, key);
+        return this.delegate.getIfPresent(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.recorder.record(TraceOperation.INVALIDATE, key);
+        this.delegate.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.recordAll(TraceOperation.INVALIDATE, keys);
+        this.delegate.invalidateAll(keys);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.recorder.record(TraceOperation.PUT, key);
+        this.delegate.put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.recordAll(TraceOperation.PUT, map.keySet());
+        this.delegate.putAll(map);
+    }
+
+    private void recordAll(final TraceOperation operation, final Iterable<K> keys) {
+        for (final K key : keys) {
+            this.recorder.record(operation, key);
+        }
+    }
+}
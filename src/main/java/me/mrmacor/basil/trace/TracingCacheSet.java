@@ -0,0 +1,96 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.trace;
+
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.cache.ForwardingCacheSet;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * A {@link CacheSet} that records its operations in a {@link TraceRecorder}, bulk operations as one record per value.
+ * Operations through {@link #asSet()} are not recorded. Start with {@link TraceRecorder#track(CacheSet)}.
+ *
+ * @param <V> the type the cache stores
+ * @since 1.1.0
+ */
+public final class TracingCacheSet<V> extends ForwardingCacheSet<V> {
+
+    private final CacheSet<V> delegate;
+    private final TraceRecorder recorder;
+
+    TracingCacheSet(@Nonnull final CacheSet<V> delegate, @Nonnull final TraceRecorder recorder) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.recorder = Objects.requireNonNull(recorder, "recorder");
+    }
+
+    @Nonnull
+    @Override
+    public CacheSet<V> delegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final V value) {
+        this.recorder.record(TraceOperation.CONTAINS, value);
+        return this.delegate.contains(value);
+    }
+
+    @Override
+    public void add(@Nonnull final V value) {
+        this.recorder.record(TraceOperation.ADD, value);
+        this.delegate.add(value);
+    }
+
+    @Override
+    public void addAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.recorder.record(TraceOperation.ADD, value);
+        }
+        this.delegate.addAll(values);
+    }
+
+    @Override
+    public void addAll(@Nonnull final V... values) {
+        for (final V value : values) {
+            this.recorder.record(TraceOperation.ADD, value);
+        }
+        this.delegate.addAll(values);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final V value) {
+        this.recorder.record(TraceOperation.INVALIDATE, value);
+        this.delegate.invalidate(value);
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<V> values) {
+        for (final V value : values) {
+            this.recorder.record(TraceOperation.INVALIDATE, value);
+        }
+        this.delegate.invalidateAll(values);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.weight;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximates the number of bytes an object graph retains on a 64-bit JVM with compressed references:
+ * 12 byte object headers, 16 byte array headers, 4 byte references, and every object padded to 8 bytes.
+ *
+ * <p>Strings, boxed primitives, arrays, collections and maps are sized from their contents. Other objects are sized
+ * from their fields, read reflectively and followed to the objects they reference. Fields of classes that do not
+ * open themselves to reflection, such as most JDK internals, are counted at their shallow size only.
+ * Objects reachable twice are counted once, classes and enum constants are not counted,
+ * and the walk stops after {@value #MAXIMUM_OBJECTS} objects.</p>
+ *
+ * <p>The estimate ignores sharing between separate calls, so an object referenced by many entries is counted
+ * for each of them. It is meant for bounding caches, not for exact accounting.</p>
+ *
+ * @since 1.1.0
+ */
+public final class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAXIMUM_OBJECTS = 100_000;
+    // per element overheads of the node based JDK collections, a HashMap.Node and a LinkedList.Node
+    private static final int MAP_ENTRY = 32;
+    private static final int COLLECTION_ELEMENT = 24;
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected Layout computeValue(final Class<?> type) {
+            return Layout.of(type);
+        }
+    };
+
+    private ObjectSizeEstimator() {
+
+    }
+
+    /**
+     * Returns the approximate number of bytes the provided object and the objects it references retain.
+     *
+     * @param object to size, or null
+     * @return the approximate retained size in bytes, zero for null
+     * @since 1.1.0
+     */
+    @Nonnegative
+    public static long estimate(@Nullable final Object object) {
+        if (object == null) {
+            return 0;
+        }
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> pending = new ArrayDeque<>();
+        pending.push(object);
+        long size = 0;
+        while (!pending.isEmpty() && visited.size() < MAXIMUM_OBJECTS) {
+            final Object next = pending.pop();
+            if (visited.add(next)) {
+                size += shallow(next, pending);
+            }
+        }
+        return size;
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Returns the shallow size of the provided object, pushing the objects it references that should be sized too.
+     */
+    private static long shallow(final Object object, final Deque<Object> pending) {
+        final Class<?> type = object.getClass();
+        if (object instanceof Class || object instanceof Enum) {
+            // shared by every instance, so they are not retained by any of them
+            return 0;
+        }
+        if (object instanceof String) {
+            final String string = (String) object;
+            // compact strings store latin-1 text as one byte per character
+            final int bytes = isLatin1(string) ? string.length() : string.length() * 2;
+            return align(OBJECT_HEADER + REFERENCE + 8) + align(ARRAY_HEADER + bytes);
+        }
+        if (type.isArray()) {
+            final Class<?> component = type.getComponentType();
+            final int length = Array.getLength(object);
+            if (component.isPrimitive()) {
+                return align(ARRAY_HEADER + (long) length * primitiveSize(component));
+            }
+            for (final Object element : (Object[]) object) {
+                if (element != null) {
+                    pending.push(element);
+                }
+            }
+            return align(ARRAY_HEADER + (long) length * REFERENCE);
+        }
+        if (object instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) object;
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getKey() != null) {
+                    pending.push(entry.getKey());
+                }
+                if (entry.getValue() != null) {
+                    pending.push(entry.getValue());
+                }
+            }
+            return align(OBJECT_HEADER + 6L * REFERENCE) + align(ARRAY_HEADER + (long) tableSize(map.size()) * REFERENCE)
+                    + (long) map.size() * MAP_ENTRY;
+        }
+        if (object instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) object;
+            for (final Object element : collection) {
+                if (element != null) {
+                    pending.push(element);
+                }
+            }
+            return align(OBJECT_HEADER + 4L * REFERENCE) + (long) collection.size() * COLLECTION_ELEMENT;
+        }
+        final Layout layout = LAYOUTS.get(type);
+        for (final Field field : layout.references) {
+            try {
+                final Object referenced = field.get(object);
+                if (referenced != null) {
+                    pending.push(referenced);
+                }
+            } catch (final IllegalAccessException ignored) {
+                // the field was opened when the layout was computed, so this only happens if a security manager denies it
+            }
+        }
+        return layout.shallowSize;
+    }
+
+    private static boolean isLatin1(final String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int tableSize(final int size) {
+        return size == 0 ? 0 : Integer.highestOneBit(Math.max(1, size * 4 / 3 - 1)) << 1;
+    }
+
+    private static int primitiveSize(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * The shallow size of a class, and the reference fields the walk can follow.
+     */
+    static final class Layout {
+
+        final long shallowSize;
+        final List<Field> references;
+
+        Layout(final long shallowSize, final List<Field> references) {
+            this.shallowSize = shallowSize;
+            this.references = references;
+        }
+
+        static Layout of(final Class<?> type) {
+            long fields = 0;
+            final List<Field> references = new ArrayList<>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        fields += primitiveSize(field.getType());
+                        continue;
+                    }
+                    fields += REFERENCE;
+                    if (field.trySetAccessible()) {
+                        references.add(field);
+                    }
+                }
+            }
+            return new Layout(align(OBJECT_HEADER + fields), List.copyOf(references));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.weight;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Computes the weight of a cache entry, usually the number of bytes it retains,
+ * for caches bounded by weight instead of by number of entries.
+ *
+ * <p>The weight of an entry is computed when it is written and again when it is removed, so a weigher must return
+ * the same weight for the same entry every time.</p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of the provided entry.
+     *
+     * @param key of the entry
+     * @param value of the entry
+     * @return the weight of the entry, never negative
+     * @since 1.1.0
+     */
+    @Nonnegative int weigh(@Nonnull K key, @Nonnull V value);
+
+    /**
+     * Returns a weigher that weighs an entry as the bytes its key and value retain,
+     * as approximated by {@link ObjectSizeEstimator}.
+     *
+     * @return the estimating weigher
+     * @since 1.1.0
+     */
+    @Nonnull
+    static <K, V> Weigher<K, V> estimated() {
+        return (key, value) -> (int) Math.min(Integer.MAX_VALUE, ObjectSizeEstimator.estimate(key) + ObjectSizeEstimator.estimate(value));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Records the outcome of asynchronous loads for the {@link me.mrmacor.basil.cache.AsyncBasilCache} implementations.
+ */
+final class AsyncLoads {
+
+    private AsyncLoads() {
+
+    }
+
+    /**
+     * Starts the provided load and records its outcome and duration once it completes, before anyone waiting for
+     * the load sees it, so that stats read after a load are up to date.
+     * A null value counts as a failure, as it is not cached, and so does a loader that throws instead of returning a future.
+     *
+     * @param load to start
+     * @param counter to record in
+     * @return the future of the load, which only completes once its outcome was recorded
+     */
+    @Nonnull
+    static <T> CompletableFuture<T> recorded(@Nonnull final Supplier<? extends CompletableFuture<T>> load, @Nonnull final StatsCounter counter) {
+        final long start = System.nanoTime();
+        final CompletableFuture<T> future;
+        try {
+            future = load.get();
+        } catch (final Throwable t) {
+            counter.recordLoadFailure(System.nanoTime() - start);
+            throw t;
+        }
+        return future.whenComplete((value, failure) -> {
+            if (failure == null && value != null) {
+                counter.recordLoadSuccess(System.nanoTime() - start);
+            } else {
+                counter.recordLoadFailure(System.nanoTime() - start);
+            }
+        });
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Splits large bulk writes of the wrappers into batches run in parallel on the common fork-join pool.
+ *
+ * <p>Writes smaller than {@link #PARALLEL_THRESHOLD} entries, or made while the pool has a single thread, run on the
+ * calling thread as before. In both cases every write is visible once the call returns, since the pool is joined.
+ * If a batch fails, the other batches may still have been applied, as entries before the failing one are when
+ * writing sequentially.</p>
+ */
+final class BulkWrites {
+
+    /**
+     * The number of entries from which bulk writes run in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    /**
+     * The number of entries a parallel batch writes.
+     */
+    static final int BATCH_SIZE = 1 << 12;
+
+    private BulkWrites() {
+
+    }
+
+    /**
+     * Copies the map with the provided bulk write, or in parallel batches of single writes if it is large.
+     *
+     * @param map to copy
+     * @param putAll the delegate's bulk write
+     * @param put the delegate's single write
+     */
+    static <K, V> void putAll(@Nonnull final Map<K, V> map, @Nonnull final Consumer<Map<K, V>> putAll, @Nonnull final BiConsumer<K, V> put) {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (map.size() < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            putAll.accept(map);
+            return;
+        }
+        final Object[] entries = map.entrySet().toArray();
+        run(pool, entries.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                @SuppressWarnings("unchecked")
+                final Map.Entry<K, V> entry = (Map.Entry<K, V>) entries[i];
+                put.accept(entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Invalidates the keys with the provided bulk invalidation, in parallel batches if there are many of them.
+     *
+     * @param keys to invalidate
+     * @param invalidateAll the delegate's bulk invalidation
+     */
+    static <K> void invalidateAll(@Nonnull final Iterable<K> keys, @Nonnull final Consumer<Iterable<K>> invalidateAll) {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (!(keys instanceof Collection) || ((Collection<K>) keys).size() < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            invalidateAll.accept(keys);
+            return;
+        }
+        final List<K> list = keys instanceof List && keys instanceof RandomAccess ? (List<K>) keys : new ArrayList<>((Collection<K>) keys);
+        run(pool, list.size(), (from, to) -> invalidateAll.accept(list.subList(from, to)));
+    }
+
+    /**
+     * Passes every value to the provided single write, in parallel batches if there are many of them.
+     *
+     * @param values to write
+     * @param action the delegate's single write
+     */
+    static <V> void forEach(@Nonnull final Iterable<V> values, @Nonnull final Consumer<V> action) {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (!(values instanceof Collection) || ((Collection<V>) values).size() < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            values.forEach(action);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        final V[] array = (V[]) ((Collection<V>) values).toArray();
+        forEach(array, action);
+    }
+
+    /**
+     * Passes every value to the provided single write, in parallel batches if there are many of them.
+     *
+     * @param values to write
+     * @param action the delegate's single write
+     */
+    static <V> void forEach(@Nonnull final V[] values, @Nonnull final Consumer<V> action) {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (values.length < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            for (final V value : values) {
+                action.accept(value);
+            }
+            return;
+        }
+        run(pool, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                action.accept(values[i]);
+            }
+        });
+    }
+
+    /**
+     * Runs the batches covering {@code [0, size)} on the provided pool, and waits for all of them.
+     *
+     * @param pool to run the batches on
+     * @param size the number of entries
+     * @param batch to run on every range of at most {@link #BATCH_SIZE} entries
+     */
+    static void run(@Nonnull final ForkJoinPool pool, final int size, @Nonnull final Batch batch) {
+        pool.invoke(new BatchTask(batch, 0, size));
+    }
+
+    /**
+     * Writes the entries of a range.
+     */
+    @FunctionalInterface
+    interface Batch {
+
+        void write(int from, int to);
+    }
+
+    /**
+     * Halves its range until it is at most a batch long, then writes it.
+     */
+    static final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Batch batch;
+        private final int from;
+        private final int to;
+
+        BatchTask(final Batch batch, final int from, final int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= BATCH_SIZE) {
+                this.batch.write(this.from, this.to);
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new BatchTask(this.batch, this.from, middle), new BatchTask(this.batch, middle, this.to));
+        }
+    }
+}
@@ -26,12 +26,17 @@ package me.mrmacor.basil.wrapper;
 import me.mrmacor.basil.cache.BasilCache;
 import me.mrmacor.basil.cache.CacheSet;
 import me.mrmacor.basil.cache.DelegationCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 /**
  * A {@link CacheSet} wrapper around a {@link BasilCache}.
+ * Adding 16384 values or more at once adds them in parallel batches on the common fork-join pool.
  *
  * @param <V> the type the cache stores
  * @since 1.0.0
@@ -68,16 +73,12 @@ public class CacheSetImpl<V> implements CacheSet<V>, DelegationCache<BasilCache<
 
     @Override
     public void addAll(@Nonnull final Iterable<V> values) {
-        for (final V value : values) {
-            this.delegate().put(value, 0);
-        }
+        BulkWrites.forEach(values, this::add);
     }
 
     @Override
     public void addAll(@Nonnull final V... values) {
-        for (final V value : values) {
-            this.delegate().put(value, 0);
-        }
+        BulkWrites.forEach(values, this::add);
     }
 
     @Override
@@ -106,6 +107,24 @@ public class CacheSetImpl<V> implements CacheSet<V>, DelegationCache<BasilCache<
         return this.delegate().asMap().keySet();
     }
 
+    @Nonnull
+    @Override
+    public Spliterator<V> spliterator() {
+        return this.stream().spliterator();
+    }
+
+    @Nonnull
+    @Override
+    public Stream<V> stream() {
+        return this.delegate().stream().map(Map.Entry::getKey);
+    }
+
+    @Nonnull
+    @Override
+    public Stream<V> parallelStream() {
+        return this.delegate().parallelStream().map(Map.Entry::getKey);
+    }
+
     @Override
     public long size() {
         return this.delegate().size();
@@ -115,4 +134,10 @@ public class CacheSetImpl<V> implements CacheSet<V>, DelegationCache<BasilCache<
     public void cleanUp() {
         this.delegate().cleanUp();
     }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.delegate().stats();
+    }
 }
@@ -23,89 +23,431 @@
  */
 package me.mrmacor.basil.wrapper;
 
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import me.mrmacor.basil.cache.BasilCache;
 import me.mrmacor.basil.cache.DelegationCache;
+import me.mrmacor.basil.stats.StatsCounter;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-
-import static java.util.List.of;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
- * A class that both {@link WrappedCaffeineCache} and {@link WrappedGuavaCache} inherit from that contains
- * common methods both classes require that can be called via reflection.
+ * A class that both {@link WrappedCaffeineCache} and {@link WrappedGuavaCache} inherit from that holds
+ * the wrapped cache and any state both classes require.
+ *
+ * <p>Subclasses dispatch every operation through a statically typed call on their delegate,
+ * so a call through a {@link BasilCache} costs about the same as a call to the delegate itself.</p>
+ *
+ * <p>Loads that miss are announced in a map of in-flight futures, through {@link SharedLoad} and {@link BulkLoad},
+ * so a bulk load never loads a key a single-key load is already loading, and the other way around.</p>
  *
  * @since 1.0.0
  */
 public abstract class CommonWrappedCache<T, K, V> implements BasilCache<K, V>, DelegationCache<T> {
 
-    @Nonnull
-    @Override
-    @SuppressWarnings("unchecked")
-    public ConcurrentMap<K, V> asMap() {
-        return (ConcurrentMap<K, V>) Objects.requireNonNullElse(this.invoke("asMap", of()), new ConcurrentHashMap<>());
+    private final T delegate;
+    private final @Nullable StatsCounter counter;
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the common parts of a Basil-wrapped cache.
+     *
+     * @param delegate to delegate to
+     * @param countStats if basil should count statistics itself, because the delegate does not record them
+     * @since 1.1.0
+     */
+    protected CommonWrappedCache(@Nonnull final T delegate, final boolean countStats) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.counter = countStats ? new StatsCounter() : null;
     }
 
-    @Override
-    public void cleanUp() {
-        this.invoke("cleanUp", of());
+    /**
+     * Constructor for the common parts of a Basil-wrapped cache that shares its counter with another view of the delegate.
+     *
+     * @param delegate to delegate to
+     * @param counter to record statistics in, or null if the delegate records its own
+     * @since 1.1.0
+     */
+    protected CommonWrappedCache(@Nonnull final T delegate, @Nullable final StatsCounter counter) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.counter = counter;
     }
 
-    @Nullable
+    @Nonnull
     @Override
-    @SuppressWarnings("unchecked")
-    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) {
-        return (V) this.invoke("get", of(key, loader), Object.class, Callable.class);
+    public final T delegate() {
+        return this.delegate;
     }
 
+    /**
+     * Returns the counter basil records statistics in, or null if the delegate records its own.
+     *
+     * @return the counter basil records statistics in
+     * @since 1.1.0
+     */
     @Nullable
-    @Override
-    @SuppressWarnings("unchecked")
-    public V getIfPresent(@Nonnull final K key) {
-        return (V) this.invoke("getIfPresent", of(key), Object.class);
+    protected final StatsCounter counter() {
+        return this.counter;
     }
 
-    @Override
-    public void invalidate(@Nonnull final K key) {
-        this.invoke("invalidate", of(key), Object.class);
+    /**
+     * Returns a loader that records the outcome and duration of every call to the provided loader.
+     * A null value counts as a failure, as neither Guava nor Caffeine caches it.
+     *
+     * @param loader to count
+     * @param counter to record in
+     * @return the counted loader
+     * @since 1.1.0
+     */
+    @Nonnull
+    protected static <V> Callable<V> counted(@Nonnull final Callable<V> loader, @Nonnull final StatsCounter counter) {
+        return () -> {
+            final long start = System.nanoTime();
+            try {
+                final V value = loader.call();
+                if (value == null) {
+                    counter.recordLoadFailure(System.nanoTime() - start);
+                } else {
+                    counter.recordLoadSuccess(System.nanoTime() - start);
+                }
+                return value;
+            } catch (final Throwable t) {
+                counter.recordLoadFailure(System.nanoTime() - start);
+                throw t;
+            }
+        };
     }
 
-    @Override
-    public void invalidateAll() {
-        this.invoke("invalidateAll", of());
+    /**
+     * Records the outcome of a bulk lookup.
+     *
+     * @param keys that were looked up
+     * @param found the number of keys that were present
+     * @since 1.1.0
+     */
+    protected final void recordBulkLookup(@Nonnull final Iterable<K> keys, final int found) {
+        if (this.counter != null) {
+            int requested = 0;
+            for (final K ignored : keys) {
+                requested++;
+            }
+            this.counter.recordHits(found);
+            this.counter.recordMisses(requested - found);
+        }
     }
 
     @Override
-    public void invalidateAll(@Nonnull final Iterable<K> keys) {
-        this.invoke("invalidateAll", of(keys), Iterable.class);
+    public void forEachPresent(@Nonnull final Iterable<K> keys, @Nonnull final BiConsumer<? super K, ? super V> action) {
+        int requested = 0;
+        int found = 0;
+        for (final K key : keys) {
+            requested++;
+            final V value = this.lookup(key);
+            if (value != null) {
+                found++;
+                action.accept(key, value);
+            }
+        }
+        this.recordLookups(found, requested - found);
     }
 
     @Override
-    public void put(@Nonnull final K key, @Nonnull final V value) {
-        this.invoke("put", of(key, value), Object.class, Object.class);
+    public int allPresent(@Nonnull final K[] keys, @Nonnull final V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("values must be at least as long as keys: " + values.length + " < " + keys.length);
+        }
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = this.lookup(keys[i]);
+            if (values[i] != null) {
+                found++;
+            }
+        }
+        this.recordLookups(found, keys.length - found);
+        return found;
     }
 
-    @Override
-    public void putAll(@Nonnull final Map<K, V> map) {
-        this.invoke("putAll", of(map), Map.class);
+    private void recordLookups(final int hits, final int misses) {
+        if (this.counter != null) {
+            this.counter.recordHits(hits);
+            this.counter.recordMisses(misses);
+        }
+    }
+
+    /**
+     * Returns the value associated with the provided key through the delegate, which records the lookup if it records
+     * statistics, but without basil recording it, or null if there is none.
+     * Bulk reads record their lookups once, instead of once per key.
+     *
+     * @param key to look for
+     * @return the value associated with the key, or null
+     * @since 1.1.0
+     */
+    @Nullable
+    protected abstract V lookup(@Nonnull K key);
+
+    /**
+     * Returns the value associated with the provided key without recording a hit or a miss, or null if there is none.
+     *
+     * @param key to look for
+     * @return the value associated with the key, or null
+     * @since 1.1.0
+     */
+    @Nullable
+    protected abstract V peek(@Nonnull K key);
+
+    /**
+     * Returns a single-key load of the provided key, to pass to the delegate as its loader.
+     * {@link SharedLoad#release()} must be called once the delegate stored the loaded value.
+     *
+     * @param key to load
+     * @param loader to call unless a bulk load of the key is in flight
+     * @return the shared load
+     * @since 1.1.0
+     */
+    @Nonnull
+    protected final SharedLoad share(@Nonnull final K key, @Nonnull final Callable<V> loader) {
+        return new SharedLoad(key, loader);
+    }
+
+    /**
+     * Returns a bulk load calling the provided loader, to apply to the keys that are missing.
+     * {@link BulkLoad#release()} must be called once the delegate stored the loaded values.
+     *
+     * @param loader to call with the keys no other load is loading
+     * @return the bulk load
+     * @since 1.1.0
+     */
+    @Nonnull
+    protected final BulkLoad bulkLoad(@Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        return new BulkLoad(loader);
     }
 
-    private Object invoke(@Nonnull final String methodName, @Nonnull final List<Object> args, @Nonnull final Class<?>... types) {
+    /**
+     * Returns the values of the requested keys found in either of the provided maps, in the order of the keys.
+     *
+     * @param keys that were requested
+     * @param present the values that were present
+     * @param loaded the values that were loaded
+     * @return the combined values
+     * @since 1.1.0
+     */
+    @Nonnull
+    protected static <K, V> Map<K, V> combine(@Nonnull final Iterable<K> keys, @Nonnull final Map<K, V> present,
+                                             @Nonnull final Map<K, V> loaded) {
+        final Map<K, V> combined = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = present.containsKey(key) ? present.get(key) : loaded.get(key);
+            if (value != null) {
+                combined.put(key, value);
+            }
+        }
+        return combined;
+    }
+
+    private static <V> V await(final CompletableFuture<V> future) throws Exception {
         try {
-            final Method method = this.delegate().getClass().getMethod(methodName, types);
-            method.setAccessible(true);
-            return method.invoke(this.delegate(), args.toArray());
-        } catch (InvocationTargetException | IllegalAccessException | NoSuchMethodException e) {
-            e.printStackTrace();
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A single-key load that waits for a bulk load of the same key instead of loading it again,
+     * and announces itself to bulk loads while it runs.
+     *
+     * @since 1.1.0
+     */
+    protected final class SharedLoad implements Callable<V> {
+
+        private final K key;
+        private final Callable<V> loader;
+        private @Nullable CompletableFuture<V> registered;
+        private boolean called;
+
+        SharedLoad(final K key, final Callable<V> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        @Override
+        public V call() throws Exception {
+            this.called = true;
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = CommonWrappedCache.this.loading.putIfAbsent(this.key, future);
+            if (existing != null) {
+                return await(existing);
+            }
+            this.registered = future;
+            try {
+                final V value = this.loader.call();
+                future.complete(value);
+                return value;
+            } catch (final Throwable t) {
+                future.completeExceptionally(t);
+                throw t;
+            }
+        }
+
+        /**
+         * Returns whether the delegate called this load, which means it missed on the key.
+         *
+         * @return true if this load was called
+         * @since 1.1.0
+         */
+        public boolean called() {
+            return this.called;
+        }
+
+        /**
+         * Stops announcing the load, to be called once its value was stored.
+         *
+         * @since 1.1.0
+         */
+        public void release() {
+            if (this.registered != null) {
+                CommonWrappedCache.this.loading.remove(this.key, this.registered);
+            }
+        }
+    }
+
+    /**
+     * A bulk load that loads the keys no other load is loading with a single call,
+     * and waits for the values of the other keys.
+     *
+     * @since 1.1.0
+     */
+    protected final class BulkLoad implements Function<Set<? extends K>, Map<K, V>> {
+
+        private final Function<Set<K>, Map<K, V>> loader;
+        private final Map<K, CompletableFuture<V>> owned = new HashMap<>();
+        private int missing;
+
+        BulkLoad(final Function<Set<K>, Map<K, V>> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Returns the number of keys the load was applied to.
+         *
+         * @return the number of missing keys
+         * @since 1.1.0
+         */
+        public int missing() {
+            return this.missing;
+        }
+
+        @Override
+        public Map<K, V> apply(final Set<? extends K> keys) {
+            this.missing += keys.size();
+            final Map<K, V> result = new HashMap<>();
+            final Map<K, CompletableFuture<V>> waiting = new HashMap<>();
+            final Set<K> load = new LinkedHashSet<>();
+            for (final K key : keys) {
+                final CompletableFuture<V> future = new CompletableFuture<>();
+                final CompletableFuture<V> existing = CommonWrappedCache.this.loading.putIfAbsent(key, future);
+                if (existing != null) {
+                    waiting.put(key, existing);
+                    continue;
+                }
+                this.owned.put(key, future);
+                // another load may have stored the key and finished since it was found missing
+                final V present = CommonWrappedCache.this.peek(key);
+                if (present != null) {
+                    future.complete(present);
+                    result.put(key, present);
+                } else {
+                    load.add(key);
+                }
+            }
+            if (!load.isEmpty()) {
+                this.load(load, result);
+            }
+            for (final Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+                final V value;
+                try {
+                    value = await(entry.getValue());
+                } catch (final Error e) {
+                    throw new ExecutionError(e);
+                } catch (final Exception e) {
+                    throw new UncheckedExecutionException(e);
+                }
+                if (value != null) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        }
+
+        private void load(final Set<K> keys, final Map<K, V> result) {
+            final StatsCounter counter = CommonWrappedCache.this.counter;
+            final long start = System.nanoTime();
+            final Map<K, V> loaded;
+            try {
+                loaded = this.loader.apply(Collections.unmodifiableSet(keys));
+                if (loaded == null) {
+                    throw new CacheLoader.InvalidCacheLoadException("bulk loader returned null for " + keys);
+                }
+            } catch (final RuntimeException | Error e) {
+                if (counter != null) {
+                    counter.recordLoadFailure(System.nanoTime() - start);
+                }
+                for (final K key : keys) {
+                    this.owned.get(key).completeExceptionally(e);
+                }
+                if (e instanceof Error) {
+                    throw new ExecutionError((Error) e);
+                }
+                throw new UncheckedExecutionException(e);
+            }
+            if (counter != null) {
+                counter.recordLoadSuccess(System.nanoTime() - start);
+            }
+            for (final Map.Entry<K, V> entry : loaded.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (final K key : keys) {
+                this.owned.get(key).complete(result.get(key));
+            }
+        }
+
+        /**
+         * Stops announcing the loaded keys, to be called once their values were stored.
+         *
+         * @since 1.1.0
+         */
+        public void release() {
+            for (final Map.Entry<K, CompletableFuture<V>> entry : this.owned.entrySet()) {
+                // a future left incomplete by a failure would otherwise block its waiters forever
+                entry.getValue().cancel(false);
+                CommonWrappedCache.this.loading.remove(entry.getKey(), entry.getValue());
+            }
         }
-        return null;
     }
 }
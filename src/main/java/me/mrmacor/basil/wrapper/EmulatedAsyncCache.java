@@ -0,0 +1,223 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import me.mrmacor.basil.cache.AsyncBasilCache;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.DelegationCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+/**
+ * An {@link AsyncBasilCache} over a synchronous {@link BasilCache}, for delegates that have no asynchronous
+ * counterpart, such as a {@link com.google.common.cache.Cache}.
+ *
+ * <p>Loads run on the provided executor. Until a load completes its future is kept in a map of in-flight loads,
+ * which every caller missing on the key shares, and once it completes its value is put in the delegate.</p>
+ *
+ * <p>Hits and misses are recorded by the delegate, and loads by this cache. Loads that bypass this cache and go
+ * through the delegate directly do not share in-flight futures with it.</p>
+ *
+ * @since 1.1.0
+ */
+public class EmulatedAsyncCache<K, V> implements AsyncBasilCache<K, V>, DelegationCache<BasilCache<K, V>> {
+
+    private final BasilCache<K, V> delegate;
+    private final Executor executor;
+    private final StatsCounter loads = new StatsCounter();
+    private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final BasilCache<K, V> synchronous;
+
+    /**
+     * Constructor for the emulated {@link AsyncBasilCache}.
+     *
+     * @param delegate to store completed values in
+     * @param executor to pass to loaders
+     * @since 1.1.0
+     */
+    public EmulatedAsyncCache(@Nonnull final BasilCache<K, V> delegate, @Nonnull final Executor executor) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.synchronous = new SynchronousView<>(this, delegate);
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<V> getIfPresent(@Nonnull final K key) {
+        final V present = this.delegate.getIfPresent(key);
+        return present != null ? CompletableFuture.completedFuture(present) : this.loading.get(key);
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<V> get(@Nonnull final K key,
+                                    @Nonnull final BiFunction<? super K, ? super Executor, ? extends CompletableFuture<V>> loader) {
+        final V present = this.delegate.getIfPresent(key);
+        if (present != null) {
+            return CompletableFuture.completedFuture(present);
+        }
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = this.loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        final CompletableFuture<V> load;
+        try {
+            load = AsyncLoads.recorded(() -> loader.apply(key, this.executor), this.loads);
+        } catch (final Throwable t) {
+            this.loading.remove(key, future);
+            future.completeExceptionally(t);
+            return future;
+        }
+        load.whenComplete((value, failure) -> {
+            if (failure == null && value != null) {
+                this.delegate.put(key, value);
+            }
+            this.loading.remove(key, future);
+            complete(future, value, failure);
+        });
+        return future;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<Map<K, V>> getAll(@Nonnull final Iterable<K> keys,
+                                               @Nonnull final BiFunction<? super Set<K>, ? super Executor, ? extends CompletableFuture<Map<K, V>>> loader) {
+        final Map<K, V> present = this.delegate.allPresent(keys);
+        final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        for (final K key : keys) {
+            if (futures.containsKey(key)) {
+                continue;
+            }
+            final V value = present.get(key);
+            if (value != null) {
+                futures.put(key, CompletableFuture.completedFuture(value));
+                continue;
+            }
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = this.loading.putIfAbsent(key, future);
+            if (existing != null) {
+                futures.put(key, existing);
+            } else {
+                futures.put(key, future);
+                owned.put(key, future);
+            }
+        }
+        if (!owned.isEmpty()) {
+            this.loadAll(owned, loader);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final Map<K, V> all = new LinkedHashMap<>();
+            futures.forEach((key, future) -> {
+                final V value = future.join();
+                if (value != null) {
+                    all.put(key, value);
+                }
+            });
+            return Collections.unmodifiableMap(all);
+        });
+    }
+
+    private void loadAll(@Nonnull final Map<K, CompletableFuture<V>> owned,
+                         @Nonnull final BiFunction<? super Set<K>, ? super Executor, ? extends CompletableFuture<Map<K, V>>> loader) {
+        final CompletableFuture<Map<K, V>> load;
+        try {
+            load = AsyncLoads.recorded(() -> loader.apply(Collections.unmodifiableSet(owned.keySet()), this.executor), this.loads);
+        } catch (final Throwable t) {
+            owned.forEach((key, future) -> {
+                this.loading.remove(key, future);
+                future.completeExceptionally(t);
+            });
+            return;
+        }
+        load.whenComplete((loaded, failure) -> {
+            if (failure == null && loaded != null) {
+                loaded.forEach((key, value) -> {
+                    if (value != null) {
+                        this.delegate.put(key, value);
+                    }
+                });
+            }
+            owned.forEach((key, future) -> {
+                this.loading.remove(key, future);
+                if (failure == null && loaded == null) {
+                    future.completeExceptionally(new NullPointerException("loader returned a null map"));
+                } else {
+                    complete(future, failure == null ? loaded.get(key) : null, failure);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final CompletableFuture<V> value) {
+        this.loading.put(key, value);
+        value.whenComplete((loaded, failure) -> {
+            if (failure == null && loaded != null) {
+                this.delegate.put(key, loaded);
+            }
+            this.loading.remove(key, value);
+        });
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> synchronous() {
+        return this.synchronous;
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.delegate.stats().plus(this.loads.snapshot());
+    }
+
+    private static <V> void complete(@Nonnull final CompletableFuture<V> future, @Nullable final V value, @Nullable final Throwable failure) {
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(value);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import me.mrmacor.basil.cache.AsyncBasilCache;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * The synchronous view of an {@link EmulatedAsyncCache}.
+ * Loads run on the calling thread and go through the asynchronous cache, so they share in-flight futures with it,
+ * while every other operation goes straight to the cache it stores its values in.
+ */
+final class SynchronousView<K, V> implements BasilCache<K, V> {
+
+    private final AsyncBasilCache<K, V> async;
+    private final BasilCache<K, V> store;
+
+    SynchronousView(@Nonnull final AsyncBasilCache<K, V> async, @Nonnull final BasilCache<K, V> store) {
+        this.async = async;
+        this.store = store;
+    }
+
+    @Nonnull
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return this.store.asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        this.store.cleanUp();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final CompletableFuture<V> future = this.async.get(key, (k, executor) -> {
+            try {
+                return CompletableFuture.completedFuture(loader.call());
+            } catch (final Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        });
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw new UncheckedExecutionException(e.getCause());
+            }
+            if (e.getCause() instanceof Error) {
+                throw new ExecutionError((Error) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
+        return this.store.allPresent(keys);
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final CompletableFuture<Map<K, V>> future = this.async.getAll(keys, (missing, executor) -> {
+            try {
+                return CompletableFuture.completedFuture(loader.apply(missing));
+            } catch (final Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        });
+        try {
+            return ImmutableMap.copyOf(Uninterruptibles.getUninterruptibly(future));
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw new ExecutionError((Error) e.getCause());
+            }
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        return this.store.getIfPresent(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.store.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.store.invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        this.store.invalidateAll(keys);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.store.put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        this.store.putAll(map);
+    }
+
+    @Override
+    public long size() {
+        return this.store.size();
+    }
+
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        return this.store.weightedSize();
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.async.stats();
+    }
+}
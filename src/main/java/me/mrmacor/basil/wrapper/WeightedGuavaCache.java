@@ -0,0 +1,122 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import me.mrmacor.basil.weight.Weigher;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.lang.reflect.Field;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link WrappedGuavaCache} bounded by the total weight of its entries, which also reports that weight.
+ *
+ * <p>Guava evicts by weight, but does not expose the total weight of its entries, so this cache tracks it:
+ * every weight the delegate computes is added to a running total, and the weight of every removed entry,
+ * replaced ones included, is computed again and subtracted.</p>
+ *
+ * <p>That takes the single removal listener of the builder. A listener the builder already has is kept, and called
+ * after the weight was subtracted. Keys and values must be strongly referenced: Guava reports a collected weak or soft
+ * reference as null, so the weight of its entry could not be subtracted.</p>
+ *
+ * @since 1.1.0
+ */
+public class WeightedGuavaCache<K, V> extends WrappedGuavaCache<K, V> {
+
+    private final LongAdder weightedSize;
+
+    /**
+     * Constructor for a weight-bounded Guava cache.
+     *
+     * @param builder to build the delegate with, which must not be bounded or weighed already, nor have weak keys or weak or soft values
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher to weigh entries with
+     * @throws IllegalArgumentException if the builder has weak keys or weak or soft values
+     * @since 1.1.0
+     */
+    public WeightedGuavaCache(@Nonnull final CacheBuilder<Object, Object> builder, @Nonnegative final long maximumWeight,
+                              @Nonnull final Weigher<? super K, ? super V> weigher) {
+        this(builder, maximumWeight, weigher, new LongAdder());
+    }
+
+    private WeightedGuavaCache(final CacheBuilder<Object, Object> builder, final long maximumWeight,
+                               final Weigher<? super K, ? super V> weigher, final LongAdder weightedSize) {
+        super(chainRemovalListener(builder.maximumWeight(maximumWeight)
+                .<K, V>weigher((key, value) -> {
+                    final int weight = weigher.weigh(key, value);
+                    weightedSize.add(weight);
+                    return weight;
+                }), removed -> {
+                    if (removed.getKey() != null && removed.getValue() != null) {
+                        weightedSize.add(-weigher.weigh(removed.getKey(), removed.getValue()));
+                    }
+                })
+                .build());
+        this.weightedSize = weightedSize;
+    }
+
+    /**
+     * Installs the provided listener on the builder, followed by the listener the builder already has, if any.
+     * Guava gives a builder a single listener and no public way to read it, so an existing one is swapped out
+     * reflectively; if that is not possible, installing the listener fails like it always did.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> CacheBuilder<K, V> chainRemovalListener(final CacheBuilder<K, V> builder, final RemovalListener<K, V> listener) {
+        // strengths are package-private too, but toString names any strength other than the default strong one
+        final String options = builder.toString();
+        if (options.contains("keyStrength=") || options.contains("valueStrength=")) {
+            throw new IllegalArgumentException("weighted Guava caches need strong keys and values: " + options);
+        }
+        RemovalListener<K, V> existing = null;
+        try {
+            final Field field = CacheBuilder.class.getDeclaredField("removalListener");
+            field.setAccessible(true);
+            existing = (RemovalListener<K, V>) field.get(builder);
+            field.set(builder, null);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            existing = null;
+        }
+        final RemovalListener<K, V> next = existing;
+        if (next == null) {
+            return builder.removalListener(listener);
+        }
+        return builder.removalListener(removed -> {
+            try {
+                listener.onRemoval(removed);
+            } finally {
+                next.onRemoval(removed);
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        return OptionalLong.of(this.weightedSize.sum());
+    }
+}
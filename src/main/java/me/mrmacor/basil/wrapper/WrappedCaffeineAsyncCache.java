@@ -0,0 +1,151 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import com.google.common.collect.Iterables;
+import me.mrmacor.basil.cache.AsyncBasilCache;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.DelegationCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Wrapper around a {@link com.github.benmanes.caffeine.cache.AsyncCache} that implements {@link AsyncBasilCache}.
+ *
+ * <p>Loads run on the executor the delegate was built with, and Caffeine shares in-flight futures between callers itself.
+ * The {@link #synchronous()} view is a {@link WrappedCaffeineCache} over the delegate's own synchronous view.</p>
+ *
+ * <p>Caffeine itself removes a future that fails or completes with null, so a later load calls its loader again.</p>
+ *
+ * <p>If the delegate records statistics they are reported as they are, otherwise basil counts hits, misses and loads
+ * itself, in a counter this cache shares with its synchronous view.</p>
+ *
+ * @since 1.1.0
+ */
+public class WrappedCaffeineAsyncCache<K, V> implements AsyncBasilCache<K, V>, DelegationCache<com.github.benmanes.caffeine.cache.AsyncCache<K, V>> {
+
+    private final com.github.benmanes.caffeine.cache.AsyncCache<K, V> delegate;
+    private final @Nullable StatsCounter counter;
+    private final WrappedCaffeineCache<K, V> synchronous;
+
+    /**
+     * Constructor for the Basil-wrapped {@link com.github.benmanes.caffeine.cache.AsyncCache}.
+     *
+     * @param delegate to delegate to
+     * @since 1.1.0
+     */
+    public WrappedCaffeineAsyncCache(@Nonnull final com.github.benmanes.caffeine.cache.AsyncCache<K, V> delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.counter = delegate.synchronous().policy().isRecordingStats() ? null : new StatsCounter();
+        this.synchronous = new WrappedCaffeineCache<>(delegate.synchronous(), this.counter);
+    }
+
+    @Nonnull
+    @Override
+    public com.github.benmanes.caffeine.cache.AsyncCache<K, V> delegate() {
+        return this.delegate;
+    }
+
+    @Nullable
+    @Override
+    public CompletableFuture<V> getIfPresent(@Nonnull final K key) {
+        final CompletableFuture<V> present = this.delegate.getIfPresent(key);
+        if (this.counter != null) {
+            if (present != null) {
+                this.counter.recordHits(1);
+            } else {
+                this.counter.recordMisses(1);
+            }
+        }
+        return present;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<V> get(@Nonnull final K key,
+                                    @Nonnull final BiFunction<? super K, ? super Executor, ? extends CompletableFuture<V>> loader) {
+        final StatsCounter counter = this.counter;
+        if (counter == null) {
+            return this.delegate.get(key, loader);
+        }
+        final AtomicBoolean called = new AtomicBoolean();
+        final CompletableFuture<V> future = this.delegate.get(key, (k, executor) -> {
+            called.set(true);
+            return AsyncLoads.recorded(() -> loader.apply(k, executor), counter);
+        });
+        if (called.get()) {
+            counter.recordMisses(1);
+        } else {
+            counter.recordHits(1);
+        }
+        return future;
+    }
+
+    @Nonnull
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<K, V>> getAll(@Nonnull final Iterable<K> keys,
+                                               @Nonnull final BiFunction<? super Set<K>, ? super Executor, ? extends CompletableFuture<Map<K, V>>> loader) {
+        final StatsCounter counter = this.counter;
+        if (counter == null) {
+            return this.delegate.getAll(keys, (missing, executor) -> loader.apply((Set<K>) missing, executor));
+        }
+        final AtomicInteger missed = new AtomicInteger();
+        final CompletableFuture<Map<K, V>> all = this.delegate.getAll(keys, (missing, executor) -> {
+            missed.set(missing.size());
+            return AsyncLoads.recorded(() -> loader.apply((Set<K>) missing, executor), counter);
+        });
+        counter.recordHits(Iterables.size(keys) - missed.get());
+        counter.recordMisses(missed.get());
+        return all;
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final CompletableFuture<V> value) {
+        this.delegate.put(key, value);
+    }
+
+    @Nonnull
+    @Override
+    public BasilCache<K, V> synchronous() {
+        return this.synchronous;
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        return this.synchronous.stats();
+    }
+}
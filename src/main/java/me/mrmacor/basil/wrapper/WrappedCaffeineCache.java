@@ -24,19 +24,44 @@
 package me.mrmacor.basil.wrapper;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 /**
  * Wrapper around a {@link com.github.benmanes.caffeine.cache.Cache} that implements {@link BasilCache}.
  *
+ * <p>Loader failures are reported the same way a {@link com.google.common.cache.Cache} reports them:
+ * checked exceptions as an {@link ExecutionException}, unchecked exceptions as an
+ * {@link UncheckedExecutionException} and errors as an {@link ExecutionError}.</p>
+ *
+ * <p>If the delegate records statistics they are reported as they are, otherwise basil counts hits,
+ * misses and loads itself. Caffeine only counts evictions when it records statistics.</p>
+ *
+ * <p>{@link #getAll(Iterable, Function)} is Caffeine's own bulk load, with the in-flight loads of this wrapper
+ * taken out of the keys that reach the loader.</p>
+ *
+ * <p>{@link #putAll(Map)} and {@link #invalidateAll(Iterable)} split inputs of 16384 entries or more
+ * into batches written in parallel on the common fork-join pool, and return once every batch is written.</p>
+ *
  * @since 1.0.0
  */
 public class WrappedCaffeineCache<K, V> extends CommonWrappedCache<com.github.benmanes.caffeine.cache.Cache<K, V>, K, V> {
 
-    private final com.github.benmanes.caffeine.cache.Cache<K, V> delegate;
-
     /**
      * Constructor for the Basil-wrapped {@link com.github.benmanes.caffeine.cache.Cache}.
      *
@@ -44,23 +69,191 @@ public class WrappedCaffeineCache<K, V> extends CommonWrappedCache<com.github.be
      * @since 1.0.0
      */
     public WrappedCaffeineCache(@Nonnull final com.github.benmanes.caffeine.cache.Cache<K, V> delegate) {
-        this.delegate = delegate;
+        super(delegate, !delegate.policy().isRecordingStats());
+    }
+
+    WrappedCaffeineCache(@Nonnull final com.github.benmanes.caffeine.cache.Cache<K, V> delegate, @Nullable final StatsCounter counter) {
+        super(delegate, counter);
     }
 
     @Nonnull
     @Override
-    public com.github.benmanes.caffeine.cache.Cache<K, V> delegate() {
-        return this.delegate;
+    public ConcurrentMap<K, V> asMap() {
+        return this.delegate().asMap();
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate().cleanUp();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final StatsCounter counter = this.counter();
+        final SharedLoad shared = this.share(key, counter == null ? loader : counted(loader, counter));
+        try {
+            return this.delegate().get(key, k -> load(shared));
+        } catch (final CheckedLoadException e) {
+            throw new ExecutionException(e.getCause());
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof CheckedLoadException) {
+                throw new ExecutionException(e.getCause().getCause());
+            }
+            throw unwrap(e);
+        } finally {
+            shared.release();
+            if (counter != null) {
+                if (shared.called()) {
+                    counter.recordMisses(1);
+                } else {
+                    counter.recordHits(1);
+                }
+            }
+        }
     }
 
     @Nonnull
     @Override
     public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
-        return ImmutableMap.copyOf(this.delegate().getAllPresent(keys));
+        final ImmutableMap<K, V> present = ImmutableMap.copyOf(this.delegate().getAllPresent(keys));
+        this.recordBulkLookup(keys, present.size());
+        return present;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final BulkLoad load = this.bulkLoad(loader);
+        try {
+            final ImmutableMap<K, V> all = ImmutableMap.copyOf(this.delegate().getAll(keys, load));
+            final StatsCounter counter = this.counter();
+            if (counter != null) {
+                final int requested = Iterables.size(keys);
+                counter.recordHits(requested - load.missing());
+                counter.recordMisses(load.missing());
+            }
+            return all;
+        } catch (final CompletionException e) {
+            throw unwrap(e);
+        } finally {
+            load.release();
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        final V present = this.delegate().getIfPresent(key);
+        final StatsCounter counter = this.counter();
+        if (counter != null) {
+            if (present != null) {
+                counter.recordHits(1);
+            } else {
+                counter.recordMisses(1);
+            }
+        }
+        return present;
+    }
+
+    @Nullable
+    @Override
+    protected V lookup(@Nonnull final K key) {
+        return this.delegate().getIfPresent(key);
+    }
+
+    @Nullable
+    @Override
+    protected V peek(@Nonnull final K key) {
+        return this.delegate().policy().getIfPresentQuietly(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.delegate().invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.delegate().invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        BulkWrites.invalidateAll(keys, this.delegate()::invalidateAll);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.delegate().put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        BulkWrites.putAll(map, this.delegate()::putAll, this.delegate()::put);
     }
 
     @Override
     public long size() {
         return this.delegate().estimatedSize();
     }
+
+    /**
+     * Returns the weighted size Caffeine reports, if the delegate was built with a weigher.
+     *
+     * @return the total weight of the entries, or empty if the delegate does not weigh its entries
+     * @since 1.1.0
+     */
+    @Nonnull
+    @Override
+    public OptionalLong weightedSize() {
+        return this.delegate().policy().eviction().map(eviction -> eviction.weightedSize()).orElse(OptionalLong.empty());
+    }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        final StatsCounter counter = this.counter();
+        return counter == null ? BasilCacheStats.of(this.delegate().stats()) : counter.snapshot();
+    }
+
+    private static <V> V load(@Nonnull final Callable<V> loader) {
+        try {
+            return loader.call();
+        } catch (final RuntimeException e) {
+            throw new UncheckedExecutionException(e);
+        } catch (final Error e) {
+            throw new ExecutionError(e);
+        } catch (final Exception e) {
+            throw new CheckedLoadException(e);
+        }
+    }
+
+    /**
+     * Returns the failure a {@link com.github.benmanes.caffeine.cache.AsyncCache#synchronous()} view wrapped,
+     * as a load through it fails with a {@link CompletionException}.
+     */
+    @Nonnull
+    private static RuntimeException unwrap(@Nonnull final CompletionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof ExecutionError) {
+            throw (ExecutionError) cause;
+        }
+        if (cause instanceof Error) {
+            throw new ExecutionError((Error) cause);
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new UncheckedExecutionException(cause);
+    }
+
+    /**
+     * Carries a checked loader exception through Caffeine, which only propagates unchecked ones.
+     */
+    private static final class CheckedLoadException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        CheckedLoadException(@Nonnull final Exception cause) {
+            super(cause);
+        }
+    }
 }
@@ -25,18 +25,38 @@ package me.mrmacor.basil.wrapper;
 
 import com.google.common.collect.ImmutableMap;
 import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import me.mrmacor.basil.stats.StatsCounter;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 /**
  * Wrapper around a {@link com.google.common.cache.Cache} that implements {@link BasilCache}.
  *
+ * <p>Guava does not expose whether a cache was built with {@code recordStats()}, so basil always counts
+ * hits, misses and loads itself. Evictions are taken from the delegate, and are zero unless it records statistics.
+ * {@link #get(Object, Callable)} goes straight to the delegate's load and counts a miss only if its loader was called,
+ * so a caller that waits for a load already running for its key counts a hit.</p>
+ *
+ * <p>Guava has no bulk load for a {@link com.google.common.cache.Cache}, so {@link #getAll(Iterable, Function)}
+ * looks up the present values, bulk loads the missing ones and stores them with {@code putAll}.
+ * Large {@link #putAll(Map)} and {@link #invalidateAll(Iterable)} calls are written in parallel batches,
+ * like those of {@link WrappedCaffeineCache}.</p>
+ *
  * @since 1.0.0
  */
 public class WrappedGuavaCache<K, V> extends CommonWrappedCache<com.google.common.cache.Cache<K, V>, K, V> {
 
-    private final com.google.common.cache.Cache<K, V> delegate;
-
     /**
      * Constructor for the Basil-wrapped {@link com.google.common.cache.Cache}.
      *
@@ -44,23 +64,135 @@ public class WrappedGuavaCache<K, V> extends CommonWrappedCache<com.google.commo
      * @since 1.0.0
      */
     public WrappedGuavaCache(@Nonnull final com.google.common.cache.Cache<K, V> delegate) {
-        this.delegate = delegate;
+        super(delegate, true);
     }
 
     @Nonnull
     @Override
-    public com.google.common.cache.Cache<K, V> delegate() {
-        return this.delegate;
+    public ConcurrentMap<K, V> asMap() {
+        return this.delegate().asMap();
+    }
+
+    @Nonnull
+    @Override
+    public Spliterator<Map.Entry<K, V>> spliterator() {
+        // Guava's own spliterator claims an exact size, which a concurrent cache does not have
+        return Spliterators.spliterator(this.delegate().asMap().entrySet().iterator(), this.delegate().size(),
+                Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public void cleanUp() {
+        this.delegate().cleanUp();
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nonnull final K key, @Nonnull final Callable<V> loader) throws ExecutionException {
+        final StatsCounter counter = this.counter();
+        final SharedLoad shared = this.share(key, counted(loader, counter));
+        try {
+            return this.delegate().get(key, shared);
+        } finally {
+            shared.release();
+            if (shared.called()) {
+                counter.recordMisses(1);
+            } else {
+                counter.recordHits(1);
+            }
+        }
     }
 
     @Nonnull
     @Override
     public ImmutableMap<K, V> allPresent(@Nonnull final Iterable<K> keys) {
-        return this.delegate().getAllPresent(keys);
+        final ImmutableMap<K, V> present = this.delegate().getAllPresent(keys);
+        this.recordBulkLookup(keys, present.size());
+        return present;
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableMap<K, V> getAll(@Nonnull final Iterable<K> keys, @Nonnull final Function<Set<K>, Map<K, V>> loader) {
+        final ImmutableMap<K, V> present = this.allPresent(keys);
+        final Set<K> missing = new LinkedHashSet<>();
+        for (final K key : keys) {
+            if (!present.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return present;
+        }
+        final BulkLoad load = this.bulkLoad(loader);
+        try {
+            final Map<K, V> loaded = load.apply(missing);
+            this.delegate().putAll(loaded);
+            return ImmutableMap.copyOf(combine(keys, present, loaded));
+        } finally {
+            load.release();
+        }
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresent(@Nonnull final K key) {
+        final V present = this.delegate().getIfPresent(key);
+        if (present != null) {
+            this.counter().recordHits(1);
+        } else {
+            this.counter().recordMisses(1);
+        }
+        return present;
+    }
+
+    @Nullable
+    @Override
+    protected V lookup(@Nonnull final K key) {
+        return this.delegate().getIfPresent(key);
+    }
+
+    @Nullable
+    @Override
+    protected V peek(@Nonnull final K key) {
+        return this.delegate().asMap().get(key);
+    }
+
+    @Override
+    public void invalidate(@Nonnull final K key) {
+        this.delegate().invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        this.delegate().invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll(@Nonnull final Iterable<K> keys) {
+        BulkWrites.invalidateAll(keys, this.delegate()::invalidateAll);
+    }
+
+    @Override
+    public void put(@Nonnull final K key, @Nonnull final V value) {
+        this.delegate().put(key, value);
+    }
+
+    @Override
+    public void putAll(@Nonnull final Map<K, V> map) {
+        BulkWrites.putAll(map, this.delegate()::putAll, this.delegate()::put);
     }
 
     @Override
     public long size() {
         return this.delegate().size();
     }
+
+    @Nonnull
+    @Override
+    public BasilCacheStats stats() {
+        final BasilCacheStats counted = this.counter().snapshot();
+        return BasilCacheStats.of(counted.hitCount(), counted.missCount(), counted.loadSuccessCount(),
+                counted.loadFailureCount(), counted.totalLoadTime(), this.delegate().stats().evictionCount());
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests an {@link AsyncBasilCache} backed by a Caffeine {@code AsyncCache}, and one emulated over a Guava cache.
+ */
+public class AsyncBasilCacheTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+    private static AsyncBasilCache<String, Integer> guava() {
+        return BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, Integer>build()).asyncCache(EXECUTOR);
+    }
+
+    private static AsyncBasilCache<String, Integer> caffeine() {
+        return BasilCacheBuilder.wrap(Caffeine.newBuilder().executor(EXECUTOR).<String, Integer>buildAsync()).asyncCache();
+    }
+
+    /**
+     * Waits for the cache to drop a failed future, which Caffeine does in a completion callback
+     * that may run after the callers waiting on the future woke up.
+     */
+    private static void awaitRemoval(AsyncBasilCache<String, Integer> cache, String key) throws InterruptedException {
+        while (cache.getIfPresent(key) != null) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void get() throws Exception {
+        for (AsyncBasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            assertNull(cache.getIfPresent("foo"));
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 1).get());
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 2).get());
+            assertEquals(Integer.valueOf(1), cache.getIfPresent("foo").get());
+            assertEquals(Integer.valueOf(1), cache.synchronous().getIfPresent("foo"));
+        }
+    }
+
+    @Test
+    public void sharesInFlightLoads() throws Exception {
+        for (AsyncBasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            CompletableFuture<Integer> pending = new CompletableFuture<>();
+            AtomicInteger calls = new AtomicInteger();
+            CompletableFuture<Integer> first = cache.get("foo", (key, executor) -> {
+                calls.incrementAndGet();
+                return pending;
+            });
+            CompletableFuture<Integer> second = cache.get("foo", (key, executor) -> {
+                calls.incrementAndGet();
+                return CompletableFuture.completedFuture(2);
+            });
+            assertFalse(second.isDone());
+            assertNotNull(cache.getIfPresent("foo"));
+
+            pending.complete(1);
+            assertEquals(Integer.valueOf(1), first.get());
+            assertEquals(Integer.valueOf(1), second.get());
+            assertEquals(1, calls.get());
+            assertEquals(Integer.valueOf(1), cache.synchronous().get("foo", () -> 3));
+        }
+    }
+
+    @Test
+    public void loaderFailure() throws Exception {
+        for (AsyncBasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            try {
+                cache.get("foo", () -> {
+                    throw new IOException("nope");
+                }).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertNull(cache.synchronous().getIfPresent("foo"));
+            awaitRemoval(cache, "foo");
+
+            try {
+                cache.synchronous().get("foo", () -> {
+                    throw new IllegalStateException("nope");
+                });
+                fail();
+            } catch (UncheckedExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            awaitRemoval(cache, "foo");
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 1).get());
+            assertEquals(2, cache.stats().loadFailureCount());
+        }
+    }
+
+    @Test
+    public void bulkLoad() throws Exception {
+        for (AsyncBasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            cache.put("foo", CompletableFuture.completedFuture(1));
+            CompletableFuture<Integer> pending = new CompletableFuture<>();
+            cache.get("bar", (key, executor) -> pending);
+
+            List<Set<String>> calls = new ArrayList<>();
+            CompletableFuture<Map<String, Integer>> all = cache.getAll(Arrays.asList("foo", "bar", "baz", "qux"), (keys, executor) -> {
+                calls.add(keys);
+                return CompletableFuture.supplyAsync(() -> Map.of("baz", 3), executor);
+            });
+            pending.complete(2);
+            assertEquals(List.of("foo", "bar", "baz"), new ArrayList<>(all.get().keySet()));
+            assertEquals(List.of(Set.of("baz", "qux")), calls);
+
+            Map<String, Integer> loaded = cache.synchronous().getAll(Arrays.asList("baz", "quux"), keys -> Map.of("quux", 5));
+            assertEquals(Map.of("baz", 3, "quux", 5), loaded);
+        }
+    }
+
+    @Test
+    public void stats() throws Exception {
+        for (AsyncBasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            cache.get("foo", () -> 1).get();
+            cache.get("foo", () -> 1).get();
+            cache.synchronous().get("bar", () -> 2);
+
+            BasilCacheStats stats = cache.stats();
+            assertEquals(1, stats.hitCount());
+            assertEquals(2, stats.missCount());
+            assertEquals(2, stats.loadSuccessCount());
+            assertEquals(stats, cache.synchronous().stats());
+        }
+    }
+}
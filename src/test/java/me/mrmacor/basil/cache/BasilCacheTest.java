@@ -0,0 +1,265 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests basic features of a {@link BasilCache}, for both Guava and Caffeine delegates.
+ */
+public class BasilCacheTest {
+
+    private static BasilCache<String, Integer> guava() {
+        return BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, Integer>build()).basilCache();
+    }
+
+    private static BasilCache<String, Integer> caffeine() {
+        return BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).basilCache();
+    }
+
+    @Test
+    public void get() throws ExecutionException {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 1));
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 2));
+            assertEquals(Integer.valueOf(1), cache.getIfPresent("foo"));
+        }
+    }
+
+    @Test
+    public void checkedLoaderFailure() {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            try {
+                cache.get("foo", () -> {
+                    throw new IOException("nope");
+                });
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertNull(cache.getIfPresent("foo"));
+        }
+    }
+
+    @Test
+    public void uncheckedLoaderFailure() throws ExecutionException {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            try {
+                cache.get("foo", () -> {
+                    throw new IllegalStateException("nope");
+                });
+                fail();
+            } catch (UncheckedExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void putAndInvalidate() {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            cache.put("foo", 1);
+            cache.putAll(Map.of("bar", 2, "baz", 3));
+            assertEquals(3, cache.size());
+            assertEquals(Map.of("foo", 1, "bar", 2), cache.allPresent(Arrays.asList("foo", "bar", "qux")));
+
+            cache.invalidate("foo");
+            assertNull(cache.getIfPresent("foo"));
+            cache.invalidateAll(Arrays.asList("bar"));
+            assertEquals(Map.of("baz", 3), cache.asMap());
+            cache.invalidateAll();
+            cache.cleanUp();
+            assertTrue(cache.asMap().isEmpty());
+        }
+    }
+
+    @Test
+    public void bulkReads() {
+        BasilCache<String, Integer> recording = BasilCacheBuilder.wrap(Caffeine.newBuilder().recordStats().<String, Integer>build()).basilCache();
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine(), recording)) {
+            cache.putAll(Map.of("foo", 1, "bar", 2));
+            List<String> visited = new ArrayList<>();
+            cache.forEachPresent(Arrays.asList("bar", "baz", "foo"), (key, value) -> visited.add(key + "=" + value));
+            assertEquals(List.of("bar=2", "foo=1"), visited);
+
+            String[] keys = {"foo", "qux", "bar"};
+            Integer[] values = {7, 7, 7, 7};
+            assertEquals(2, cache.allPresent(keys, values));
+            assertArrayEquals(new Integer[]{1, null, 2, 7}, values);
+
+            BasilCacheStats stats = cache.stats();
+            assertEquals(4, stats.hitCount());
+            assertEquals(2, stats.missCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkReadIntoShortArray() {
+        caffeine().allPresent(new String[]{"foo", "bar"}, new Integer[1]);
+    }
+
+    @Test
+    public void bulkLoad() {
+        BasilCache<String, Integer> recording = BasilCacheBuilder.wrap(Caffeine.newBuilder().recordStats().<String, Integer>build()).basilCache();
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine(), recording)) {
+            cache.put("foo", 1);
+            List<Set<String>> calls = new ArrayList<>();
+            Map<String, Integer> all = cache.getAll(Arrays.asList("foo", "bar", "baz", "qux"), keys -> {
+                calls.add(keys);
+                return Map.of("bar", 2, "baz", 3, "extra", 4);
+            });
+            assertEquals(List.of(Set.of("bar", "baz", "qux")), calls);
+            assertEquals(List.of("foo", "bar", "baz"), new ArrayList<>(all.keySet()));
+            assertEquals(Integer.valueOf(4), cache.getIfPresent("extra"));
+            assertNull(cache.getIfPresent("qux"));
+
+            BasilCacheStats stats = cache.stats();
+            assertEquals(2, stats.hitCount());
+            assertEquals(4, stats.missCount());
+            assertEquals(1, stats.loadSuccessCount());
+        }
+    }
+
+    @Test
+    public void bulkLoadFailure() {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            try {
+                cache.getAll(Arrays.asList("foo", "bar"), keys -> {
+                    throw new IllegalStateException("nope");
+                });
+                fail();
+            } catch (UncheckedExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertTrue(cache.asMap().isEmpty());
+            assertEquals(1, cache.stats().loadFailureCount());
+        }
+    }
+
+    @Test
+    public void bulkLoadSharesInFlightLoads() throws Exception {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Integer> single = executor.submit(() -> cache.get("foo", () -> {
+                loading.countDown();
+                release.await();
+                return 1;
+            }));
+            loading.await();
+
+            List<Set<String>> calls = new ArrayList<>();
+            Thread releaser = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                release.countDown();
+            });
+            releaser.start();
+            Map<String, Integer> all = cache.getAll(Arrays.asList("foo", "bar"), keys -> {
+                calls.add(keys);
+                return Map.of("bar", 2);
+            });
+            assertEquals(List.of(Set.of("bar")), calls);
+            assertEquals(Map.of("foo", 1, "bar", 2), all);
+            assertEquals(Integer.valueOf(1), single.get());
+            releaser.join();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void stats() throws ExecutionException {
+        BasilCache<String, Integer> recording = BasilCacheBuilder.wrap(Caffeine.newBuilder().recordStats().<String, Integer>build()).basilCache();
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine(), recording)) {
+            cache.get("foo", () -> 1);
+            cache.get("foo", () -> 1);
+            cache.getIfPresent("bar");
+            try {
+                cache.get("bar", () -> {
+                    throw new IOException("nope");
+                });
+            } catch (ExecutionException ignored) {
+            }
+            cache.allPresent(Arrays.asList("foo", "baz"));
+
+            BasilCacheStats stats = cache.stats();
+            assertEquals(2, stats.hitCount());
+            assertEquals(4, stats.missCount());
+            assertEquals(1, stats.loadSuccessCount());
+            assertEquals(1, stats.loadFailureCount());
+            assertEquals(2.0 / 6, stats.hitRatio(), 0.0001);
+        }
+    }
+
+    @Test
+    public void loadLooksUpOnce() throws ExecutionException {
+        com.google.common.cache.Cache<String, Integer> delegate = CacheBuilder.newBuilder().recordStats().build();
+        BasilCache<String, Integer> cache = BasilCacheBuilder.wrap(delegate).basilCache();
+        cache.get("foo", () -> 1);
+        cache.get("foo", () -> 2);
+        assertEquals(1, delegate.stats().missCount());
+        assertEquals(1, delegate.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    public void stream() {
+        for (BasilCache<String, Integer> cache : Arrays.asList(guava(), caffeine())) {
+            for (int i = 0; i < 10_000; i++) {
+                cache.put("k" + i, i);
+            }
+            assertEquals(10_000, cache.stream().count());
+            assertEquals(49_995_000L, cache.parallelStream().mapToLong(Map.Entry::getValue).sum());
+
+            Spliterator<Map.Entry<String, Integer>> spliterator = cache.spliterator();
+            assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT));
+            assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+            assertNotNull(spliterator.trySplit());
+        }
+    }
+}
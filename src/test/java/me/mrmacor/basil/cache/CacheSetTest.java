@@ -134,4 +134,25 @@ public class CacheSetTest {
 
         assertEquals(((WrappedCaffeineCache<String, Integer>) wrappedCache.delegate()).delegate(), caffeineCache);
     }
+
+    @Test
+    public void stats() {
+        CacheSet<String> stringCache = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().build()).cacheSet();
+        stringCache.add("dog");
+        stringCache.contains("dog");
+        stringCache.contains("cat");
+
+        assertEquals(stringCache.stats().hitCount(), 1);
+        assertEquals(stringCache.stats().missCount(), 1);
+    }
+
+    @Test
+    public void stream() {
+        CacheSet<Integer> cache = BasilCacheBuilder.wrap(Caffeine.newBuilder().build()).cacheSet();
+        for (int i = 0; i < 1000; i++) {
+            cache.add(i);
+        }
+        assertEquals(1000, cache.stream().count());
+        assertEquals(499_500, cache.parallelStream().mapToInt(Integer::intValue).sum());
+    }
 }
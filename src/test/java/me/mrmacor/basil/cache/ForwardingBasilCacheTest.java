@@ -0,0 +1,108 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the {@link ForwardingBasilCache}, {@link ForwardingCacheSet} and {@link PartitionSpliterator} base classes.
+ */
+public class ForwardingBasilCacheTest {
+
+    @Test
+    public void forwardsWhatIsNotOverridden() throws Exception {
+        BasilCache<String, Integer> delegate = BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).basilCache();
+        AtomicInteger puts = new AtomicInteger();
+        BasilCache<String, Integer> cache = new ForwardingBasilCache<>() {
+            @Nonnull
+            @Override
+            public BasilCache<String, Integer> delegate() {
+                return delegate;
+            }
+
+            @Override
+            public void put(@Nonnull String key, @Nonnull Integer value) {
+                puts.incrementAndGet();
+                super.put(key, value);
+            }
+        };
+        cache.put("foo", 1);
+        assertEquals(1, puts.get());
+        assertEquals(Integer.valueOf(1), delegate.getIfPresent("foo"));
+        assertEquals(Integer.valueOf(2), cache.get("bar", () -> 2));
+        assertEquals(Map.of("foo", 1, "bar", 2), cache.asMap());
+        assertEquals(2, cache.stream().count());
+        assertEquals(delegate.stats(), cache.stats());
+        cache.invalidateAll();
+        assertEquals(0, delegate.size());
+    }
+
+    @Test
+    public void forwardsSets() {
+        CacheSet<String> delegate = BasilCacheBuilder.newCacheSet().build();
+        CacheSet<String> set = new ForwardingCacheSet<>() {
+            @Nonnull
+            @Override
+            public CacheSet<String> delegate() {
+                return delegate;
+            }
+        };
+        set.addAll("foo", "bar");
+        assertTrue(delegate.contains("foo"));
+        assertEquals(2, set.size());
+        set.invalidate("foo");
+        assertFalse(set.contains("foo"));
+        assertEquals(List.of("bar"), set.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void splitsPartitions() {
+        List<List<Integer>> partitions = List.of(List.of(1, 2), List.of(), List.of(3), List.of(4, 5, 6));
+        Spliterator<Integer> spliterator = new PartitionSpliterator<>(partitions.size(),
+                index -> partitions.get(index).spliterator(), index -> partitions.get(index).size(), Spliterator.NONNULL);
+        assertEquals(6, spliterator.estimateSize());
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(2, prefix.estimateSize());
+        assertEquals(List.of(1, 2), StreamSupport.stream(prefix, false).collect(Collectors.toList()));
+        assertEquals(List.of(3, 4, 5, 6), StreamSupport.stream(spliterator, false).collect(Collectors.toList()));
+
+        Spliterator<Integer> parallel = new PartitionSpliterator<>(partitions.size(),
+                index -> partitions.get(index).spliterator(), index -> partitions.get(index).size(), Spliterator.NONNULL);
+        assertEquals(IntStream.rangeClosed(1, 6).sum(), StreamSupport.stream(parallel, true).mapToInt(Integer::intValue).sum());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import com.google.common.hash.Funnels;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the membership and expiry behaviour of an {@link ApproximateCacheSet}.
+ */
+public class ApproximateCacheSetTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void falsePositivesOnly() {
+        ApproximateCacheSet<Long> set = BasilCacheBuilder.newApproximateCacheSet(Funnels.longFunnel())
+                .maximumBytes(4 << 20).falsePositiveProbability(0.01).concurrencyLevel(4).build();
+        for (long i = 0; i < 200_000; i++) {
+            set.add(i);
+        }
+        int falsePositives = 0;
+        for (long i = 0; i < 200_000; i++) {
+            assertTrue(set.contains(i));
+            if (set.contains(-i - 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 200_000 * 0.01);
+        assertEquals(200_000, set.size(), 2000);
+    }
+
+    @Test
+    public void expires() {
+        ApproximateCacheSet<Long> set = BasilCacheBuilder.newApproximateCacheSet(Funnels.longFunnel())
+                .expireAfterWrite(9, TimeUnit.SECONDS).generations(4).ticker(this.ticker).build();
+        set.add(1L);
+        this.ticker.advance(5, TimeUnit.SECONDS);
+        set.add(2L);
+        this.ticker.advance(4, TimeUnit.SECONDS);
+        assertTrue(set.contains(1L));
+        this.ticker.advance(4, TimeUnit.SECONDS);
+        assertFalse(set.contains(1L));
+        assertTrue(set.contains(2L));
+        assertEquals(1, set.size());
+
+        set.add(2L);
+        this.ticker.advance(9, TimeUnit.SECONDS);
+        assertTrue(set.contains(2L));
+        this.ticker.advance(3, TimeUnit.SECONDS);
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void invalidate() {
+        ApproximateCacheSet<String> set = BasilCacheBuilder.<String>newApproximateCacheSet(Funnels.unencodedCharsFunnel()).build();
+        set.addAll("foo", "bar");
+        set.invalidate("foo");
+        assertFalse(set.contains("foo"));
+        assertTrue(set.contains("bar"));
+        set.invalidateAll();
+        assertTrue(set.isEmpty());
+        assertEquals(1, set.stats().hitCount());
+        try {
+            set.asSet();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void rotatesWhenFull() {
+        ApproximateCacheSet<Long> set = BasilCacheBuilder.newApproximateCacheSet(Funnels.longFunnel())
+                .maximumBytes(64 << 10).concurrencyLevel(1).build();
+        for (long i = 0; i < 1_000_000; i++) {
+            set.add(i);
+        }
+        for (long i = 1_000_000 - 5000; i < 1_000_000; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertTrue(set.size() < 64 << 10);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the storage behaviour of a {@link CompactCacheSet}.
+ */
+public class CompactCacheSetTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void matchesHashSet() {
+        CacheSet<Integer> set = BasilCacheBuilder.newCacheSet().concurrencyLevel(2).build();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // a small key space with colliding hash codes exercises probing and backward shifting
+            Integer value = random.nextInt(5000) * 1024;
+            if (random.nextInt(3) == 0) {
+                set.invalidate(value);
+                expected.remove(value);
+            } else {
+                set.add(value);
+                expected.add(value);
+            }
+        }
+        for (int value = 0; value < 5000; value++) {
+            assertEquals(expected.contains(value * 1024), set.contains(value * 1024));
+        }
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, set.asSet());
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().expireAfterWrite(10, TimeUnit.SECONDS).ticker(this.ticker).build();
+        set.add("owo");
+        this.ticker.advance(9, TimeUnit.SECONDS);
+        assertTrue(set.contains("owo"));
+        assertFalse(set.isEmpty());
+
+        this.ticker.advance(1, TimeUnit.SECONDS);
+        assertFalse(set.contains("owo"));
+        assertTrue(set.isEmpty());
+
+        set.cleanUp();
+        assertEquals(0, set.size());
+        assertEquals(1, set.stats().evictionCount());
+    }
+
+    @Test
+    public void expireAfterAccess() {
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().expireAfterAccess(10, TimeUnit.SECONDS).ticker(this.ticker).build();
+        set.add("owo");
+        for (int i = 0; i < 5; i++) {
+            this.ticker.advance(6, TimeUnit.SECONDS);
+            assertTrue(set.contains("owo"));
+        }
+        this.ticker.advance(10, TimeUnit.SECONDS);
+        assertFalse(set.contains("owo"));
+    }
+
+    @Test
+    public void maximumSize() {
+        CacheSet<Integer> set = BasilCacheBuilder.newCacheSet().maximumSize(100).concurrencyLevel(1).build();
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        // keep the first half hot, the second clock sweep should evict the cold half
+        for (int i = 0; i < 50; i++) {
+            assertTrue(set.contains(i));
+        }
+        for (int i = 100; i < 150; i++) {
+            set.add(i);
+        }
+        assertEquals(100, set.size());
+        assertEquals(50, set.stats().evictionCount());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(set.contains(i));
+        }
+    }
+
+    @Test
+    public void asSet() {
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().build();
+        set.addAll("dog", "cat", "bird");
+        set.asSet().remove("cat");
+
+        assertEquals(new HashSet<>(Arrays.asList("dog", "bird")), set.asSet());
+        set.asSet().clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        CacheSet<Integer> set = BasilCacheBuilder.newCacheSet().concurrencyLevel(4).build();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 100_000; i += threads.length) {
+                    set.add(i);
+                    assertTrue(set.contains(i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(100_000, set.size());
+    }
+
+    @Test
+    public void stream() {
+        CacheSet<Integer> set = BasilCacheBuilder.newCacheSet().expireAfterWrite(10, TimeUnit.SECONDS).ticker(this.ticker).build();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        this.ticker.advance(10, TimeUnit.SECONDS);
+        for (int i = 1000; i < 3000; i++) {
+            set.add(i);
+        }
+        // the first thousand expired, whether or not a write already swept them
+        assertEquals(2000, set.stream().count());
+        assertEquals(3_999_000L, set.parallelStream().mapToLong(Integer::longValue).sum());
+
+        Spliterator<Integer> spliterator = set.spliterator();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        Set<Integer> seen = new HashSet<>();
+        prefix.forEachRemaining(value -> assertTrue(seen.add(value)));
+        spliterator.forEachRemaining(value -> assertTrue(seen.add(value)));
+        assertEquals(2000, seen.size());
+    }
+
+    @Test
+    public void readsDuringResize() throws Exception {
+        CacheSet<Integer> set = BasilCacheBuilder.newCacheSet().concurrencyLevel(1)
+                .expireAfterWrite(1, TimeUnit.HOURS).expireAfterAccess(1, TimeUnit.HOURS).ticker(this.ticker).build();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                Random random = new Random();
+                try {
+                    while (!done.get()) {
+                        set.contains(random.nextInt(4096));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[t].start();
+        }
+        try {
+            // clearing shrinks the table back so every round resizes it again
+            for (int round = 0; round < 200 && failure.get() == null; round++) {
+                for (int member = 0; member < 4096; member++) {
+                    set.add(member);
+                }
+                set.invalidateAll();
+            }
+        } finally {
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        assertNull(failure.get());
+    }
+}
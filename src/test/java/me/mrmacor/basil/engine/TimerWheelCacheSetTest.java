@@ -0,0 +1,149 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.engine;
+
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the per-member expiry of a {@link TimerWheelCacheSet}.
+ */
+public class TimerWheelCacheSetTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void perMemberTimeToLive() {
+        TimerWheelCacheSet<String> set = BasilCacheBuilder.newTimerWheelCacheSet()
+                .expireAfterWrite(1, TimeUnit.MINUTES).ticker(this.ticker).build();
+        set.add("default");
+        set.add("short", 5, TimeUnit.SECONDS);
+        set.add("long", 2, TimeUnit.HOURS);
+        assertEquals(3, set.size());
+
+        this.ticker.advance(6, TimeUnit.SECONDS);
+        assertFalse(set.contains("short"));
+        assertTrue(set.contains("default"));
+        assertEquals(2, set.size());
+
+        this.ticker.advance(1, TimeUnit.MINUTES);
+        assertFalse(set.contains("default"));
+        assertEquals(Set.of("long"), new HashSet<>(set.asSet()));
+        assertEquals(1, set.size());
+
+        this.ticker.advance(2, TimeUnit.HOURS);
+        assertFalse(set.contains("long"));
+        assertTrue(set.isEmpty());
+        assertEquals(3, set.stats().evictionCount());
+    }
+
+    @Test
+    public void neverExpiresByDefault() {
+        TimerWheelCacheSet<String> set = BasilCacheBuilder.newTimerWheelCacheSet().ticker(this.ticker).build();
+        set.add("foo");
+        this.ticker.advance(30, TimeUnit.DAYS);
+        assertTrue(set.contains("foo"));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void addingAgainReplacesTimeToLive() {
+        TimerWheelCacheSet<String> set = BasilCacheBuilder.newTimerWheelCacheSet().ticker(this.ticker).build();
+        set.add("foo", 1, TimeUnit.HOURS);
+        set.add("foo", 10, TimeUnit.SECONDS);
+        this.ticker.advance(11, TimeUnit.SECONDS);
+        assertFalse(set.contains("foo"));
+        set.add("foo", 10, TimeUnit.SECONDS);
+        set.add("foo", 1, TimeUnit.HOURS);
+        this.ticker.advance(59, TimeUnit.MINUTES);
+        assertTrue(set.contains("foo"));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void expiresAcrossLevels() {
+        TimerWheelCacheSet<Integer> set = BasilCacheBuilder.newTimerWheelCacheSet().ticker(this.ticker).build();
+        for (int i = 1; i <= 1000; i++) {
+            set.add(i, i * 37L, TimeUnit.MINUTES);
+        }
+        for (int step = 1; step <= 1000; step++) {
+            this.ticker.set(TimeUnit.MINUTES.toNanos(step * 37L) + 1);
+            assertEquals(1000 - step, set.size());
+            assertFalse(set.contains(step));
+            if (step < 1000) {
+                assertTrue(set.contains(step + 1));
+            }
+        }
+    }
+
+    @Test
+    public void invalidate() {
+        TimerWheelCacheSet<String> set = BasilCacheBuilder.newTimerWheelCacheSet().ticker(this.ticker).build();
+        set.add("foo", 1, TimeUnit.SECONDS);
+        set.add("bar", 1, TimeUnit.SECONDS);
+        set.invalidate("foo");
+        assertFalse(set.contains("foo"));
+        set.asSet().remove("bar");
+        assertTrue(set.isEmpty());
+        this.ticker.advance(2, TimeUnit.SECONDS);
+        set.cleanUp();
+        assertEquals(0, set.stats().evictionCount());
+    }
+
+    @Test
+    public void schedulerRemovesExpiredMembers() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        TimerWheelCacheSet<String> set = BasilCacheBuilder.newTimerWheelCacheSet()
+                .scheduler(scheduler).ticker(this.ticker).build();
+        set.add("foo", 1, TimeUnit.SECONDS);
+        this.ticker.advance(2, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (set.stats().evictionCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, set.stats().evictionCount());
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void stream() {
+        TimerWheelCacheSet<Integer> set = BasilCacheBuilder.newTimerWheelCacheSet().ticker(this.ticker).build();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i, i < 400 ? 1 : 60, TimeUnit.SECONDS);
+        }
+        this.ticker.advance(2, TimeUnit.SECONDS);
+        assertEquals(600, set.stream().count());
+        assertEquals(419_700L, set.parallelStream().mapToLong(Integer::longValue).sum());
+        assertFalse(set.stream().anyMatch(value -> value < 400));
+    }
+}
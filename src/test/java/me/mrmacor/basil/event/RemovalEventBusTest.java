@@ -0,0 +1,290 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.event;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.codec.Codecs;
+import me.mrmacor.basil.engine.TimerWheelCacheSet;
+import me.mrmacor.basil.offheap.OffHeapBasilCache;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the delivery and overflow behaviour of a {@link RemovalEventBus}.
+ */
+public class RemovalEventBusTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = this.tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static void awaitDelivery(RemovalEventBus<?, ?> bus, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bus.delivered() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, bus.delivered());
+    }
+
+    @Test
+    public void deliversCacheRemovals() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus().executor(executor).build();
+        List<RemovalEvent<String, Integer>> received = new CopyOnWriteArrayList<>();
+        bus.subscribe(received::addAll);
+
+        BasilCache<String, Integer> guava = BasilCacheBuilder.wrap(CacheBuilder.newBuilder()
+                .maximumSize(1).removalListener(bus.guavaListener()).build()).basilCache();
+        BasilCache<String, Integer> caffeine = BasilCacheBuilder.wrap(Caffeine.newBuilder()
+                .executor(Runnable::run).removalListener(bus.caffeineListener()).build()).basilCache();
+        guava.put("foo", 1);
+        guava.put("foo", 2);
+        guava.put("bar", 3);
+        caffeine.put("baz", 4);
+        caffeine.invalidate("baz");
+
+        awaitDelivery(bus, 3);
+        assertEquals(List.of(new RemovalEvent<>("foo", 1, RemovalCause.REPLACED),
+                new RemovalEvent<>("foo", 2, RemovalCause.SIZE),
+                new RemovalEvent<>("baz", 4, RemovalCause.EXPLICIT)), received);
+        assertTrue(received.get(1).cause().wasEvicted());
+        executor.shutdown();
+    }
+
+    @Test
+    public void deliversSetRemovals() {
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus().executor(this.tasks::add).build();
+        List<String> removed = new ArrayList<>();
+        bus.subscribe(events -> events.forEach(event -> removed.add(event.key())));
+        CacheSet<String> set = BasilCacheBuilder.wrap(Caffeine.newBuilder()
+                .executor(Runnable::run).removalListener(bus.caffeineListener()).build()).cacheSet();
+        set.add("foo");
+        set.invalidate("foo");
+        this.runTasks();
+        assertEquals(List.of("foo"), removed);
+    }
+
+    @Test
+    public void deliversInBatches() {
+        RemovalEventBus<Integer, Integer> bus = BasilCacheBuilder.newRemovalEventBus()
+                .maximumBatchSize(3).executor(this.tasks::add).build();
+        List<Integer> sizes = new ArrayList<>();
+        bus.subscribe(events -> sizes.add(events.size()));
+        for (int i = 0; i < 7; i++) {
+            bus.publish(i, i, RemovalCause.EXPLICIT);
+        }
+        assertEquals(1, this.tasks.size());
+        assertEquals(0, bus.delivered());
+        this.runTasks();
+        assertEquals(List.of(3, 3, 1), sizes);
+        assertEquals(7, bus.delivered());
+    }
+
+    @Test
+    public void dropsOverflow() {
+        RemovalEventBus<Integer, Integer> bus = BasilCacheBuilder.newRemovalEventBus()
+                .capacity(3).executor(this.tasks::add).build();
+        List<Integer> keys = new ArrayList<>();
+        bus.subscribe(events -> events.forEach(event -> keys.add(event.key())));
+        for (int i = 0; i < 10; i++) {
+            bus.publish(i, i, RemovalCause.SIZE);
+        }
+        this.runTasks();
+        assertEquals(List.of(0, 1, 2, 3), keys);
+        assertEquals(10, bus.published());
+        assertEquals(6, bus.dropped());
+    }
+
+    @Test
+    public void coalescesOverflow() {
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus()
+                .capacity(2).overflowPolicy(RemovalEventBus.OverflowPolicy.COALESCE).executor(this.tasks::add).build();
+        List<RemovalEvent<String, Integer>> received = new ArrayList<>();
+        bus.subscribe(received::addAll);
+        bus.publish("a", 1, RemovalCause.EXPIRED);
+        bus.publish("b", 2, RemovalCause.EXPIRED);
+        bus.publish("c", 3, RemovalCause.EXPIRED);
+        bus.publish("c", 4, RemovalCause.EXPLICIT);
+        this.runTasks();
+        assertEquals(List.of(new RemovalEvent<>("a", 1, RemovalCause.EXPIRED), new RemovalEvent<>("b", 2, RemovalCause.EXPIRED),
+                new RemovalEvent<>("c", 4, RemovalCause.EXPLICIT)), received);
+        assertEquals(1, bus.coalesced());
+        assertEquals(0, bus.dropped());
+    }
+
+    @Test
+    public void boundsCoalescedKeys() {
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus()
+                .capacity(2).overflowPolicy(RemovalEventBus.OverflowPolicy.COALESCE).executor(this.tasks::add).build();
+        List<String> keys = new ArrayList<>();
+        bus.subscribe(events -> events.forEach(event -> keys.add(event.key() + event.value())));
+        bus.publish("a", 1, RemovalCause.EXPIRED);
+        bus.publish("b", 1, RemovalCause.EXPIRED);
+        bus.publish("c", 1, RemovalCause.EXPIRED);
+        bus.publish("d", 1, RemovalCause.EXPIRED);
+        bus.publish("e", 1, RemovalCause.EXPIRED);
+        bus.publish("d", 2, RemovalCause.EXPIRED);
+        this.runTasks();
+        assertEquals(Set.of("a1", "b1", "c1", "d2"), Set.copyOf(keys));
+        assertEquals(4, keys.size());
+        assertEquals(1, bus.dropped());
+        assertEquals(1, bus.coalesced());
+    }
+
+    @Test
+    public void blocksOnOverflow() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RemovalEventBus<Integer, Integer> bus = BasilCacheBuilder.newRemovalEventBus()
+                .capacity(2).maximumBatchSize(1).overflowPolicy(RemovalEventBus.OverflowPolicy.BLOCK).executor(executor).build();
+        List<Integer> keys = new CopyOnWriteArrayList<>();
+        bus.subscribe(events -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            keys.add(events.get(0).key());
+        });
+        for (int i = 0; i < 50; i++) {
+            bus.publish(i, i, RemovalCause.EXPLICIT);
+        }
+        awaitDelivery(bus, 50);
+        assertEquals(50, keys.size());
+        assertTrue(bus.blocked() > 0);
+        assertEquals(0, bus.dropped());
+        executor.shutdown();
+    }
+
+    @Test(timeout = 30_000)
+    public void blockingSubscriberReadsOffHeapCache() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RemovalEventBus<Object, Object> bus = BasilCacheBuilder.newRemovalEventBus()
+                .capacity(1).maximumBatchSize(1).overflowPolicy(RemovalEventBus.OverflowPolicy.BLOCK).executor(executor).build();
+        OffHeapBasilCache<Integer, byte[]> offHeap = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(64 << 10).pageSize(64 << 10).concurrencyLevel(1).build(bus);
+        // the subscriber reads the cache that is publishing, which must not hold its lock while it waits for room
+        bus.subscribe(events -> events.forEach(event -> offHeap.getIfPresent((Integer) event.key())));
+        for (int i = 0; i < 1_000; i++) {
+            offHeap.put(i, new byte[500]);
+        }
+        awaitDelivery(bus, 1_000 - offHeap.size());
+        assertTrue(bus.blocked() > 0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void failingSubscriber() {
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus().executor(this.tasks::add).build();
+        List<String> keys = new ArrayList<>();
+        bus.subscribe(events -> {
+            throw new IllegalStateException("nope");
+        });
+        bus.subscribe(events -> events.forEach(event -> keys.add(event.key())));
+        bus.publish("foo", 1, RemovalCause.EXPLICIT);
+        this.runTasks();
+        assertEquals(List.of("foo"), keys);
+        assertEquals(1, bus.subscriberFailures());
+    }
+
+    @Test
+    public void subscriberErrorDoesNotStopDelivery() {
+        RemovalEventBus<String, Integer> bus = BasilCacheBuilder.newRemovalEventBus().executor(this.tasks::add).build();
+        List<String> keys = new ArrayList<>();
+        RemovalSubscriber<String, Integer> failing = events -> {
+            throw new AssertionError("nope");
+        };
+        bus.subscribe(failing);
+        bus.publish("foo", 1, RemovalCause.EXPLICIT);
+        try {
+            this.runTasks();
+            fail();
+        } catch (AssertionError e) {
+            assertEquals("nope", e.getMessage());
+        }
+        bus.unsubscribe(failing);
+        bus.subscribe(events -> events.forEach(event -> keys.add(event.key())));
+        bus.publish("bar", 2, RemovalCause.EXPLICIT);
+        this.runTasks();
+        assertEquals(List.of("bar"), keys);
+    }
+
+    @Test
+    public void deliversEngineEvictions() {
+        RemovalEventBus<Object, Object> bus = BasilCacheBuilder.newRemovalEventBus().executor(this.tasks::add).build();
+        List<RemovalEvent<Object, Object>> received = new ArrayList<>();
+        bus.subscribe(received::addAll);
+        FakeTicker ticker = new FakeTicker();
+
+        CacheSet<String> compact = BasilCacheBuilder.newCacheSet().maximumSize(1).concurrencyLevel(1).build(bus);
+        compact.add("foo");
+        compact.add("bar");
+        this.runTasks();
+        assertEquals(List.of(new RemovalEvent<>("foo", null, RemovalCause.SIZE)), received);
+
+        received.clear();
+        TimerWheelCacheSet<String> wheel = BasilCacheBuilder.newTimerWheelCacheSet()
+                .expireAfterWrite(1, TimeUnit.SECONDS).ticker(ticker).build(bus);
+        wheel.add("baz");
+        ticker.advance(2, TimeUnit.SECONDS);
+        wheel.cleanUp();
+        this.runTasks();
+        assertEquals(List.of(new RemovalEvent<>("baz", null, RemovalCause.EXPIRED)), received);
+
+        received.clear();
+        OffHeapBasilCache<Integer, byte[]> offHeap = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(64 << 10).pageSize(64 << 10).concurrencyLevel(1).build(bus);
+        for (int i = 0; i < 1_000; i++) {
+            offHeap.put(i, new byte[500]);
+        }
+        this.runTasks();
+        assertEquals(1_000 - offHeap.size(), received.size());
+        assertEquals(1_000 - offHeap.size(), offHeap.stats().evictionCount());
+        for (RemovalEvent<Object, Object> event : received) {
+            assertEquals(RemovalCause.SIZE, event.cause());
+            assertNull(offHeap.getIfPresent((Integer) event.key()));
+            assertEquals(500, ((byte[]) event.value()).length);
+        }
+    }
+}
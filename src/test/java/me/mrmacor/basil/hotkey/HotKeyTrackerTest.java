@@ -0,0 +1,108 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.hotkey;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the hot keys a {@link HotKeyTracker} finds in the reads of a cache and a cache set.
+ */
+public class HotKeyTrackerTest {
+
+    @Test
+    public void findsHotKeys() throws ExecutionException {
+        HotKeyTracker<String> tracker = BasilCacheBuilder.newHotKeyTracker().topK(2).sampleRate(1).sketchWidth(4096).build();
+        BasilCache<String, Integer> cache = tracker.track(BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).basilCache());
+        for (int i = 0; i < 2000; i++) {
+            cache.getIfPresent("cold" + i);
+            if (i % 2 == 0) {
+                cache.get("warm", () -> 1);
+            }
+            cache.getIfPresent("hot");
+        }
+        List<HotKey<String>> top = tracker.top();
+        assertEquals(2, top.size());
+        assertEquals("hot", top.get(0).key());
+        assertEquals("warm", top.get(1).key());
+        assertTrue(top.get(0).frequency() >= 2000);
+        assertTrue(top.get(1).frequency() >= 1000);
+        assertTrue(tracker.frequency("cold7") < 100);
+        assertEquals(Integer.valueOf(1), cache.getIfPresent("warm"));
+    }
+
+    @Test
+    public void extrapolatesSamples() {
+        HotKeyTracker<String> tracker = BasilCacheBuilder.newHotKeyTracker().sampleRate(4).sketchWidth(4096).build();
+        for (int i = 0; i < 20000; i++) {
+            tracker.record("hot");
+        }
+        long frequency = tracker.top().get(0).frequency();
+        assertTrue(String.valueOf(frequency), frequency > 16000 && frequency < 24000);
+        assertEquals(0, tracker.frequency("never"));
+    }
+
+    @Test
+    public void agesOldKeys() {
+        HotKeyTracker<String> tracker = BasilCacheBuilder.newHotKeyTracker().topK(1).sampleRate(1).sketchWidth(16).build();
+        for (int i = 0; i < 100; i++) {
+            tracker.record("old");
+        }
+        assertEquals("old", tracker.top().get(0).key());
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("new");
+        }
+        assertEquals("new", tracker.top().get(0).key());
+        assertTrue(tracker.frequency("old") < 100);
+
+        tracker.clear();
+        assertTrue(tracker.top().isEmpty());
+        assertEquals(0, tracker.frequency("new"));
+    }
+
+    @Test
+    public void tracksCacheSets() {
+        HotKeyTracker<String> tracker = BasilCacheBuilder.newHotKeyTracker().sampleRate(1).build();
+        CacheSet<String> set = tracker.track(BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).<String>cacheSet());
+        set.add("foo");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(set.contains("foo"));
+            assertFalse(set.contains("bar" + i));
+        }
+        assertEquals(new HotKey<>("foo", 10), tracker.top().get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveSampleRate() {
+        BasilCacheBuilder.newHotKeyTracker().sampleRate(0);
+    }
+}
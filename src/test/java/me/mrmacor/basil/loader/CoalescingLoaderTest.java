@@ -0,0 +1,120 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.loader;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests a {@link CoalescingLoader}, alone and behind a {@link BasilCache}.
+ */
+public class CoalescingLoaderTest {
+
+    @Test
+    public void coalescesConcurrentMisses() throws Exception {
+        List<Set<Integer>> calls = new CopyOnWriteArrayList<>();
+        CoalescingLoader<Integer, String> loader = BasilCacheBuilder.<Integer, String>newCoalescingLoader(keys -> {
+            calls.add(Set.copyOf(keys));
+            Map<Integer, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, "v" + key));
+            return values;
+        }).window(200, TimeUnit.MILLISECONDS).build();
+        BasilCache<Integer, String> cache = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<Integer, String>build()).basilCache();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            int key = i % 16;
+            results.add(executor.submit(() -> cache.get(key, loader.loader(key))));
+        }
+        for (int i = 0; i < 32; i++) {
+            assertEquals("v" + i % 16, results.get(i).get());
+        }
+        executor.shutdown();
+        assertEquals(1, calls.size());
+        assertEquals(16, calls.get(0).size());
+    }
+
+    @Test
+    public void dispatchesFullBatches() throws Exception {
+        List<Set<Integer>> calls = new CopyOnWriteArrayList<>();
+        CoalescingLoader<Integer, Integer> loader = BasilCacheBuilder.<Integer, Integer>newCoalescingLoader(keys -> {
+            calls.add(Set.copyOf(keys));
+            Map<Integer, Integer> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, key));
+            return values;
+        }).window(1, TimeUnit.HOURS).maximumBatchSize(2).build();
+
+        CompletableFuture<Integer> first = loader.load(1);
+        CompletableFuture<Integer> second = loader.load(2);
+        assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), second.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(Set.of(1, 2)), calls);
+    }
+
+    @Test
+    public void failuresPerKey() throws Exception {
+        CoalescingLoader<Integer, Integer> loader = BasilCacheBuilder.<Integer, Integer>newCoalescingLoader(keys -> Map.of(1, 1))
+                .maximumBatchSize(2).build();
+        CompletableFuture<Integer> present = loader.load(1);
+        CompletableFuture<Integer> absent = loader.load(2);
+        assertEquals(Integer.valueOf(1), present.get());
+        try {
+            absent.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CacheLoader.InvalidCacheLoadException);
+        }
+
+        CoalescingLoader<Integer, Integer> failing = BasilCacheBuilder.<Integer, Integer>newCoalescingLoader(keys -> {
+            throw new IllegalStateException("nope");
+        }).build();
+        BasilCache<Integer, Integer> cache = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<Integer, Integer>build()).basilCache();
+        try {
+            cache.get(1, failing.loader(1));
+            fail();
+        } catch (UncheckedExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
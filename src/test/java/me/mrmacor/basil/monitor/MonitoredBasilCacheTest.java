@@ -0,0 +1,144 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.monitor;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.event.RemovalCause;
+import me.mrmacor.basil.event.RemovalEvent;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the JFR events and the MBean of a {@link MonitoredBasilCache}.
+ */
+public class MonitoredBasilCacheTest {
+
+    private static MonitoredBasilCache<String, Integer> monitored(String name) {
+        return BasilCacheBuilder.wrap(Caffeine.newBuilder().recordStats().<String, Integer>build()).monitored(name).build();
+    }
+
+    @Test
+    public void mbean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("me.mrmacor.basil:type=BasilCache,name=\"users\"");
+        try (MonitoredBasilCache<String, Integer> cache = monitored("users")) {
+            cache.get("foo", () -> 1);
+            cache.getIfPresent("foo");
+            assertTrue(server.isRegistered(objectName));
+            assertEquals("users", server.getAttribute(objectName, "Name"));
+            assertEquals(1L, server.getAttribute(objectName, "Size"));
+            assertEquals(-1L, server.getAttribute(objectName, "WeightedSize"));
+            assertEquals(0.5, (double) server.getAttribute(objectName, "HitRatio"), 0.0001);
+            assertEquals(1L, server.getAttribute(objectName, "LoadSuccessCount"));
+
+            server.invoke(objectName, "invalidateAll", null, null);
+            server.invoke(objectName, "cleanUp", null, null);
+            assertEquals(0, cache.size());
+        }
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void uniqueNames() {
+        try (MonitoredBasilCache<String, Integer> cache = monitored("unique")) {
+            assertEquals("unique", cache.name());
+            try {
+                monitored("unique");
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        monitored("unique").close();
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("basil", ".jfr");
+        try (MonitoredBasilCache<String, Integer> cache = BasilCacheBuilder.newMonitoredCache("recorded",
+                BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).basilCache()).jmx(false).build();
+             jdk.jfr.Recording recording = new jdk.jfr.Recording()) {
+            recording.enable("me.mrmacor.basil.Load").withThreshold(Duration.ofMillis(100));
+            recording.enable("me.mrmacor.basil.BulkOperation").withThreshold(Duration.ZERO);
+            recording.enable("me.mrmacor.basil.Eviction");
+            recording.enable("me.mrmacor.basil.CacheStatistics").withPeriod(Duration.ofMillis(10));
+            recording.start();
+
+            cache.get("fast", () -> 1);
+            cache.get("slow", () -> {
+                Thread.sleep(200);
+                return 2;
+            });
+            cache.allPresent(List.of("fast", "slow", "missing"));
+            cache.evictionRecorder().onRemovals(List.of(new RemovalEvent<>("fast", 1, RemovalCause.SIZE),
+                    new RemovalEvent<>("slow", 2, RemovalCause.EXPLICIT)));
+            Thread.sleep(50);
+
+            recording.stop();
+            recording.dump(file);
+        }
+        Map<String, List<jdk.jfr.consumer.RecordedEvent>> events = jdk.jfr.consumer.RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("me.mrmacor.basil."))
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        Files.delete(file);
+
+        List<jdk.jfr.consumer.RecordedEvent> loads = events.get("me.mrmacor.basil.Load");
+        assertEquals(1, loads.size());
+        assertEquals("slow", loads.get(0).getString("key"));
+        assertEquals("recorded", loads.get(0).getString("cache"));
+
+        jdk.jfr.consumer.RecordedEvent bulk = events.get("me.mrmacor.basil.BulkOperation").get(0);
+        assertEquals("allPresent", bulk.getString("operation"));
+        assertEquals(3, bulk.getInt("keys"));
+        assertEquals(2, bulk.getInt("present"));
+
+        List<jdk.jfr.consumer.RecordedEvent> evictions = events.get("me.mrmacor.basil.Eviction");
+        assertEquals(1, evictions.size());
+        assertEquals("SIZE", evictions.get(0).getString("cause"));
+
+        assertTrue(events.get("me.mrmacor.basil.CacheStatistics").stream()
+                .anyMatch(event -> "recorded".equals(event.getString("cache")) && event.getLong("size") == 2));
+    }
+
+    @Test
+    public void passesThroughWithoutRecording() throws ExecutionException {
+        try (MonitoredBasilCache<String, Integer> cache = monitored("quiet")) {
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 1));
+            assertEquals(Map.of("foo", 1), cache.allPresent(List.of("foo", "bar")));
+            assertEquals(1, cache.stats().loadSuccessCount());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.negative;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests a {@link NegativeCachingCache}, for both Guava and Caffeine delegates.
+ */
+public class NegativeCachingCacheTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    private List<NegativeCachingCache<String, Integer>> caches() {
+        List<NegativeCachingCache<String, Integer>> caches = new ArrayList<>();
+        for (BasilCacheBuilder.CacheProvider<String, Integer> provider : Arrays.asList(
+                BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, Integer>build()),
+                BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()))) {
+            caches.add(provider.negativeCaching()
+                    .expireAbsentAfter(60, TimeUnit.SECONDS)
+                    .expireFailuresAfter(5, TimeUnit.SECONDS)
+                    .ticker(this.ticker)
+                    .build());
+        }
+        return caches;
+    }
+
+    @Test
+    public void remembersAbsentKeys() throws ExecutionException {
+        for (NegativeCachingCache<String, Integer> cache : this.caches()) {
+            AtomicInteger calls = new AtomicInteger();
+            assertNull(cache.get("foo", () -> {
+                calls.incrementAndGet();
+                return null;
+            }));
+            assertNull(cache.get("foo", () -> 1));
+            assertEquals(Lookup.absent(), cache.lookup("foo", () -> 1));
+            assertEquals(1, calls.get());
+            assertEquals(2, cache.absentHitCount());
+
+            this.ticker.advance(61, TimeUnit.SECONDS);
+            assertEquals(Lookup.present(1), cache.lookup("foo", () -> 1));
+            assertEquals(Lookup.present(1), cache.lookupIfPresent("foo"));
+        }
+    }
+
+    @Test
+    public void remembersFailures() throws ExecutionException {
+        for (NegativeCachingCache<String, Integer> cache : this.caches()) {
+            IOException failure = new IOException("down");
+            try {
+                cache.get("foo", () -> {
+                    throw failure;
+                });
+                fail();
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+            try {
+                cache.get("foo", () -> 1);
+                fail();
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+            assertEquals(Lookup.failed(failure), cache.lookup("foo", () -> 1));
+            assertEquals(2, cache.failureHitCount());
+
+            cache.put("foo", 2);
+            assertEquals(Integer.valueOf(2), cache.get("foo", () -> 1));
+            cache.invalidate("foo");
+
+            try {
+                cache.get("bar", () -> {
+                    throw new IllegalStateException("down");
+                });
+                fail();
+            } catch (UncheckedExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            this.ticker.advance(6, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(3), cache.get("bar", () -> 3));
+        }
+    }
+
+    @Test
+    public void delegateValueWins() throws ExecutionException {
+        for (NegativeCachingCache<String, Integer> cache : this.caches()) {
+            assertNull(cache.get("foo", () -> null));
+            cache.asMap().put("foo", 1);
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 2));
+
+            assertNull(cache.get("bar", () -> null));
+            cache.delegate().put("bar", 3);
+            assertEquals(Integer.valueOf(3), cache.get("bar", () -> 4));
+            assertEquals(Lookup.present(3), cache.lookup("bar", () -> 4));
+            assertEquals(0, cache.absentHitCount());
+        }
+
+        // a loader that finds nothing while a write lands does not hide the written value,
+        // which Guava lets happen while the key is loading
+        NegativeCachingCache<String, Integer> cache = this.caches().get(0);
+        assertNull(cache.get("baz", () -> {
+            cache.delegate().asMap().put("baz", 5);
+            return null;
+        }));
+        assertEquals(Integer.valueOf(5), cache.get("baz", () -> 6));
+        assertEquals(0, cache.absentHitCount());
+    }
+
+    @Test
+    public void bulkLoad() {
+        for (NegativeCachingCache<String, Integer> cache : this.caches()) {
+            List<Set<String>> calls = new ArrayList<>();
+            Map<String, Integer> all = cache.getAll(Arrays.asList("foo", "bar"), keys -> {
+                calls.add(keys);
+                return Map.of("foo", 1);
+            });
+            assertEquals(Map.of("foo", 1), all);
+            all = cache.getAll(Arrays.asList("foo", "bar"), keys -> {
+                calls.add(keys);
+                return Map.of("bar", 2);
+            });
+            assertEquals(Map.of("foo", 1), all);
+            assertEquals(List.of(Set.of("foo", "bar")), calls);
+            assertEquals(Lookup.absent(), cache.lookupIfPresent("bar"));
+        }
+    }
+}
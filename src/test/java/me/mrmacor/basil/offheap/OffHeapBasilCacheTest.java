@@ -0,0 +1,223 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.offheap;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.codec.Codecs;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the storage behaviour of an {@link OffHeapBasilCache}.
+ */
+public class OffHeapBasilCacheTest {
+
+    @Test
+    public void matchesHashMap() {
+        BasilCache<Integer, String> cache = BasilCacheBuilder.newOffHeapCache(Codecs.utf8()).maximumBytes(64 << 20).concurrencyLevel(2).build();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // values of very different lengths move keys between size classes
+            Integer key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                cache.invalidate(key);
+                expected.remove(key);
+            } else {
+                String value = Strings.repeat("x", random.nextInt(1000)) + i;
+                cache.put(key, value);
+                expected.put(key, value);
+            }
+        }
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), cache.getIfPresent(key));
+        }
+        assertEquals(expected.size(), cache.size());
+        assertEquals(expected, cache.asMap());
+        assertEquals(0, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void boundedByBytes() {
+        OffHeapBasilCache<Integer, byte[]> cache = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(1 << 20).pageSize(64 << 10).concurrencyLevel(1).build();
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, new byte[500]);
+        }
+        assertEquals(1 << 20, cache.allocatedBytes());
+        assertTrue(cache.size() < 10_000);
+        assertEquals(10_000 - cache.size(), cache.stats().evictionCount());
+        assertNotNull(cache.getIfPresent(9_999));
+
+        long weightedSize = cache.weightedSize().getAsLong();
+        assertTrue(weightedSize >= cache.size() * 500);
+        assertTrue(weightedSize <= cache.allocatedBytes());
+        cache.invalidateAll();
+        assertEquals(0, cache.weightedSize().getAsLong());
+    }
+
+    @Test
+    public void pagesMoveBetweenSizeClasses() {
+        OffHeapBasilCache<Integer, byte[]> cache = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(1 << 20).pageSize(64 << 10).concurrencyLevel(1).build();
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, new byte[100]);
+        }
+        // every page belongs to the small class now, so large values have to take pages over
+        for (int i = 0; i < 1000; i++) {
+            cache.put(-i - 1, new byte[10_000]);
+        }
+        assertEquals(1 << 20, cache.allocatedBytes());
+        int large = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.getIfPresent(-i - 1) != null) {
+                large++;
+            }
+        }
+        assertTrue("only " + large + " large values", large > 50);
+    }
+
+    @Test
+    public void tooLargeValue() {
+        BasilCache<String, byte[]> cache = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(1 << 20).pageSize(64 << 10).build();
+        cache.put("owo", new byte[1]);
+        cache.put("owo", new byte[(64 << 10) + 1]);
+        assertNull(cache.getIfPresent("owo"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void loadingAndLoaderFailures() throws ExecutionException {
+        BasilCache<String, Long> cache = BasilCacheBuilder.newOffHeapCache(Codecs.longs()).maximumBytes(1 << 20).build();
+        assertEquals(Long.valueOf(3), cache.get("owo", () -> 3L));
+        assertEquals(Long.valueOf(3), cache.get("owo", () -> 4L));
+        try {
+            cache.get("uwu", () -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (UncheckedExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        try {
+            cache.get("uwu", () -> {
+                throw new Exception();
+            });
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(Exception.class, e.getCause().getClass());
+        }
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(3, cache.stats().missCount());
+        assertEquals(1, cache.stats().loadSuccessCount());
+        assertEquals(2, cache.stats().loadFailureCount());
+    }
+
+    @Test
+    public void bulkLoad() {
+        BasilCache<String, String> cache = BasilCacheBuilder.newOffHeapCache(Codecs.utf8()).maximumBytes(1 << 20).build();
+        cache.put("owo", "a");
+        Map<String, String> all = cache.getAll(List.of("owo", "uwu", "qwq"), keys -> {
+            assertEquals(Set.of("uwu", "qwq"), keys);
+            return Map.of("uwu", "b");
+        });
+        assertEquals(Map.of("owo", "a", "uwu", "b"), all);
+        assertEquals("b", cache.getIfPresent("uwu"));
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    public void mapView() {
+        BasilCache<String, String> cache = BasilCacheBuilder.newOffHeapCache(Codecs.utf8()).maximumBytes(1 << 20).build();
+        ConcurrentMap<String, String> map = cache.asMap();
+        assertNull(map.put("owo", "a"));
+        assertEquals("a", map.put("owo", "b"));
+        assertEquals("b", map.putIfAbsent("owo", "c"));
+        assertFalse(map.replace("owo", "a", "c"));
+        assertTrue(map.replace("owo", "b", "c"));
+        assertNull(map.replace("uwu", "d"));
+        assertFalse(map.containsKey("uwu"));
+        assertFalse(map.remove("owo", "b"));
+        assertTrue(map.remove("owo", "c"));
+        assertTrue(map.isEmpty());
+        assertEquals(0, cache.stats().requestCount());
+    }
+
+    @Test
+    public void invalidateAllReusesPages() {
+        OffHeapBasilCache<Integer, byte[]> cache = BasilCacheBuilder.newOffHeapCache(Codecs.byteArray())
+                .maximumBytes(1 << 20).pageSize(64 << 10).concurrencyLevel(1).build();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, new byte[1000]);
+        }
+        long allocated = cache.allocatedBytes();
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, new byte[1000]);
+        }
+        assertEquals(allocated, cache.allocatedBytes());
+    }
+
+    @Test
+    public void streamsDuringInvalidation() throws InterruptedException {
+        BasilCache<Integer, String> cache = BasilCacheBuilder.newOffHeapCache(Codecs.utf8()).maximumBytes(1 << 20).concurrencyLevel(4).build();
+        Spliterator<Map.Entry<Integer, String>> spliterator = cache.asMap().entrySet().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, Integer.toString(i));
+            }
+            assertEquals(1000, cache.stream().count());
+            assertEquals(1000, cache.asMap().entrySet().parallelStream().map(Map.Entry::getKey).distinct().count());
+
+            Thread invalidator = new Thread(() -> {
+                for (int i = 0; i < 1000; i += 2) {
+                    cache.invalidate(i);
+                }
+            });
+            invalidator.start();
+            Object[] entries = cache.asMap().entrySet().stream().toArray();
+            invalidator.join();
+            assertTrue(entries.length >= 500 && entries.length <= 1000);
+            assertEquals(500, cache.asMap().entrySet().parallelStream().toArray().length);
+        }
+    }
+}
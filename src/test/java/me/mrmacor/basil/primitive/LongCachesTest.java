@@ -0,0 +1,204 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.primitive;
+
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the caches keyed by primitive longs.
+ */
+public class LongCachesTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void matchesHashMap() {
+        LongLongCache cache = BasilCacheBuilder.newLongCache().concurrencyLevel(2).buildLongValued();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // a small key space that includes zero exercises probing, backward shifting and the zero slot
+            long key = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                cache.invalidate(key);
+                expected.remove(key);
+            } else {
+                cache.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+        for (long key = -100; key < 4900; key++) {
+            assertEquals(expected.containsKey(key), cache.containsKey(key));
+            assertEquals((long) expected.getOrDefault(key, -1L), cache.getIfPresent(key, -1L));
+        }
+        assertEquals(expected.size(), cache.size());
+    }
+
+    @Test
+    public void zeroKey() {
+        LongBasilCache<String> cache = BasilCacheBuilder.newLongCache().build();
+        assertNull(cache.getIfPresent(0));
+        assertEquals("zero", cache.get(0, key -> "zero"));
+        assertEquals("zero", cache.get(0, key -> "other"));
+        assertEquals(1, cache.size());
+
+        cache.invalidate(0);
+        assertNull(cache.getIfPresent(0));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void sentinelValues() {
+        LongLongCache longs = BasilCacheBuilder.newLongCache().buildLongValued();
+        longs.put(1, 0x8000_0000_0000_0001L);
+        assertEquals(0x8000_0000_0000_0001L, longs.getIfPresent(1, 0));
+        assertEquals(0x8000_0000_0000_0001L, longs.get(1, key -> 2));
+        assertEquals(0L, longs.getIfPresent(2, 0));
+
+        LongIntCache ints = BasilCacheBuilder.newLongCache().buildIntValued();
+        ints.put(1, -1);
+        ints.put(2, 0);
+        assertEquals(-1, ints.getIfPresent(1, 7));
+        assertEquals(0, ints.getIfPresent(2, 7));
+        assertEquals(7, ints.getIfPresent(3, 7));
+        assertEquals(3, ints.get(3, key -> (int) key));
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        LongCacheSet set = BasilCacheBuilder.newLongCache().expireAfterWrite(10, TimeUnit.SECONDS).ticker(this.ticker).buildSet();
+        set.add(42);
+        this.ticker.advance(9, TimeUnit.SECONDS);
+        assertTrue(set.contains(42));
+
+        this.ticker.advance(1, TimeUnit.SECONDS);
+        assertFalse(set.contains(42));
+
+        set.cleanUp();
+        assertTrue(set.isEmpty());
+        assertEquals(1, set.stats().evictionCount());
+    }
+
+    @Test
+    public void maximumSize() {
+        LongIntCache cache = BasilCacheBuilder.newLongCache().maximumSize(100).concurrencyLevel(1).buildIntValued();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            // keep the first ten keys referenced so the clock hand passes over them
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, cache.getIfPresent(i, -1));
+            }
+            for (int i = 0; i < 10; i++) {
+                cache.put(1000 + round * 10 + i, i);
+            }
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.stats().evictionCount());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.containsKey(i));
+        }
+    }
+
+    @Test
+    public void stats() {
+        LongBasilCache<String> cache = BasilCacheBuilder.newLongCache().build();
+        cache.get(1, String::valueOf);
+        cache.get(1, String::valueOf);
+        cache.getIfPresent(2);
+        try {
+            cache.get(3, key -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(3, cache.stats().missCount());
+        assertEquals(1, cache.stats().loadSuccessCount());
+        assertEquals(1, cache.stats().loadFailureCount());
+    }
+
+    @Test
+    public void readsDuringResize() throws Exception {
+        LongBasilCache<String> objects = BasilCacheBuilder.newLongCache().concurrencyLevel(1).build();
+        LongLongCache longs = BasilCacheBuilder.newLongCache().concurrencyLevel(1).buildLongValued();
+        LongIntCache ints = BasilCacheBuilder.newLongCache().concurrencyLevel(1).buildIntValued();
+        LongCacheSet set = BasilCacheBuilder.newLongCache().concurrencyLevel(1).buildSet();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                Random random = new Random();
+                try {
+                    while (!done.get()) {
+                        long key = random.nextInt(4096);
+                        objects.getIfPresent(key);
+                        longs.getIfPresent(key, -1L);
+                        ints.getIfPresent(key, -1);
+                        set.contains(key);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[t].start();
+        }
+        try {
+            // clearing shrinks the tables back so every round resizes them again
+            for (int round = 0; round < 200 && failure.get() == null; round++) {
+                for (long key = 0; key < 4096; key++) {
+                    objects.put(key, "value");
+                    longs.put(key, key);
+                    ints.put(key, (int) key);
+                    set.add(key);
+                }
+                objects.invalidateAll();
+                longs.invalidateAll();
+                ints.invalidateAll();
+                set.invalidateAll();
+            }
+        } finally {
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.refresh;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests a {@link RefreshAheadCache}, for both Guava and Caffeine delegates.
+ */
+public class RefreshAheadCacheTest {
+
+    private static List<RefreshAheadCache<String, Integer>> caches(FakeTicker ticker, List<Runnable> tasks, int maximumConcurrentRefreshes) {
+        BasilCacheBuilder.CacheProvider<String, Integer> guava = BasilCacheBuilder.wrap(CacheBuilder.newBuilder()
+                .expireAfterWrite(10, TimeUnit.SECONDS).ticker(ticker).<String, Integer>build());
+        BasilCacheBuilder.CacheProvider<String, Integer> caffeine = BasilCacheBuilder.wrap(Caffeine.newBuilder()
+                .expireAfterWrite(10, TimeUnit.SECONDS).ticker(ticker::read).<String, Integer>build());
+        List<RefreshAheadCache<String, Integer>> caches = new ArrayList<>();
+        for (BasilCacheBuilder.CacheProvider<String, Integer> provider : Arrays.asList(guava, caffeine)) {
+            caches.add(provider.refreshAhead(10, TimeUnit.SECONDS)
+                    .refreshFraction(0.5)
+                    .maximumConcurrentRefreshes(maximumConcurrentRefreshes)
+                    .executor(tasks::add)
+                    .ticker(ticker)
+                    .build());
+        }
+        return caches;
+    }
+
+    @Test
+    public void servesStaleWhileRefreshing() throws ExecutionException {
+        FakeTicker ticker = new FakeTicker();
+        List<Runnable> tasks = new ArrayList<>();
+        for (RefreshAheadCache<String, Integer> cache : caches(ticker, tasks, 4)) {
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 1));
+            ticker.advance(4, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 2));
+            assertTrue(tasks.isEmpty());
+
+            ticker.advance(2, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 2));
+            assertEquals(Integer.valueOf(1), cache.get("foo", () -> 3));
+            assertEquals(1, tasks.size());
+            tasks.remove(0).run();
+            assertEquals(Integer.valueOf(2), cache.getIfPresent("foo"));
+
+            ticker.advance(9, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(2), cache.getIfPresent("foo"));
+            assertEquals(2, cache.stats().loadSuccessCount());
+            ticker.advance(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void boundsConcurrentRefreshes() throws ExecutionException {
+        FakeTicker ticker = new FakeTicker();
+        List<Runnable> tasks = new ArrayList<>();
+        for (RefreshAheadCache<String, Integer> cache : caches(ticker, tasks, 1)) {
+            cache.put("foo", 1);
+            cache.put("bar", 1);
+            ticker.advance(6, TimeUnit.SECONDS);
+            cache.get("foo", () -> 2);
+            cache.get("bar", () -> 2);
+            assertEquals(1, tasks.size());
+            tasks.remove(0).run();
+            cache.get("bar", () -> 2);
+            assertEquals(1, tasks.size());
+            tasks.remove(0).run();
+            assertEquals(Integer.valueOf(2), cache.getIfPresent("bar"));
+            ticker.advance(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void skipsChangedEntries() throws ExecutionException {
+        FakeTicker ticker = new FakeTicker();
+        List<Runnable> tasks = new ArrayList<>();
+        for (RefreshAheadCache<String, Integer> cache : caches(ticker, tasks, 4)) {
+            cache.put("foo", 1);
+            ticker.advance(6, TimeUnit.SECONDS);
+            cache.get("foo", () -> 2);
+            cache.invalidate("foo");
+            tasks.remove(0).run();
+            assertNull(cache.getIfPresent("foo"));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sharded;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.stats.BasilCacheStats;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests that a {@link ShardedBasilCache} partitions its keys and aggregates its shards.
+ */
+public class ShardedBasilCacheTest {
+
+    private static ShardedBasilCache<Integer, String> sharded(int shards) {
+        return BasilCacheBuilder.<Integer, String>newShardedCache(
+                () -> BasilCacheBuilder.wrap(Caffeine.newBuilder().<Integer, String>build()).basilCache()).shards(shards).build();
+    }
+
+    @Test
+    public void partitionsKeys() {
+        ShardedBasilCache<Integer, String> cache = sharded(4);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(10_000, cache.size());
+        Set<Integer> seen = new HashSet<>();
+        for (BasilCache<Integer, String> shard : cache.shards()) {
+            assertTrue("uneven shard: " + shard.size(), shard.size() > 2_000 && shard.size() < 3_000);
+            for (Integer key : shard.asMap().keySet()) {
+                assertSame(shard, cache.shardFor(key));
+                assertTrue(seen.add(key));
+            }
+        }
+        assertEquals(10_000, seen.size());
+    }
+
+    @Test
+    public void singleKeyOperations() throws ExecutionException {
+        ShardedBasilCache<Integer, String> cache = sharded(3);
+        assertEquals("foo", cache.get(1, () -> "foo"));
+        assertEquals("foo", cache.get(1, () -> "bar"));
+        assertEquals("foo", cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        cache.invalidate(1);
+        assertNull(cache.getIfPresent(1));
+
+        BasilCacheStats stats = cache.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(1, stats.loadSuccessCount());
+    }
+
+    @Test
+    public void bulkOperations() {
+        ShardedBasilCache<Integer, String> cache = sharded(4);
+        Map<Integer, String> values = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            values.put(i, "v" + i);
+        }
+        cache.putAll(values);
+        List<Integer> keys = List.of(42, 7, 300, 99, 301);
+        assertEquals(List.of(42, 7, 99), new ArrayList<>(cache.allPresent(keys).keySet()));
+
+        List<Set<Integer>> calls = new ArrayList<>();
+        Map<Integer, String> all = cache.getAll(keys, missing -> {
+            calls.add(missing);
+            return missing.stream().collect(Collectors.toMap(key -> key, key -> "loaded" + key));
+        });
+        assertEquals(keys, new ArrayList<>(all.keySet()));
+        assertEquals("loaded300", all.get(300));
+        assertEquals(List.of(Set.of(300, 301)), calls);
+        assertEquals("loaded301", cache.shardFor(301).getIfPresent(301));
+        assertEquals(1, cache.stats().loadSuccessCount());
+
+        cache.invalidateAll(IntStream.range(0, 50).boxed().collect(Collectors.toList()));
+        assertEquals(52, cache.size());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void bulkLoadSharesInFlightLoads() throws Exception {
+        ShardedBasilCache<Integer, String> cache = sharded(4);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> single = executor.submit(() -> cache.get(1, () -> {
+            loading.countDown();
+            release.await();
+            return "single";
+        }));
+        loading.await();
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        });
+        releaser.start();
+        List<Set<Integer>> calls = new ArrayList<>();
+        Map<Integer, String> all = cache.getAll(List.of(1, 2, 3), missing -> {
+            calls.add(missing);
+            return missing.stream().collect(Collectors.toMap(key -> key, key -> "bulk" + key));
+        });
+        assertEquals(List.of(Set.of(2, 3)), calls);
+        assertEquals(Map.of(1, "single", 2, "bulk2", 3, "bulk3"), all);
+        assertEquals("single", single.get());
+        releaser.join();
+        executor.shutdown();
+
+        // and the other way around, a single-key load waits for a bulk load of its key
+        CountDownLatch bulkLoading = new CountDownLatch(1);
+        CountDownLatch bulkRelease = new CountDownLatch(1);
+        ExecutorService bulkExecutor = Executors.newSingleThreadExecutor();
+        Future<Map<Integer, String>> bulk = bulkExecutor.submit(() -> cache.getAll(List.of(4, 5), missing -> {
+            bulkLoading.countDown();
+            try {
+                bulkRelease.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return Map.of(4, "bulk4", 5, "bulk5");
+        }));
+        bulkLoading.await();
+        Thread bulkReleaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            bulkRelease.countDown();
+        });
+        bulkReleaser.start();
+        assertEquals("bulk4", cache.get(4, () -> "single"));
+        assertEquals(Map.of(4, "bulk4", 5, "bulk5"), bulk.get());
+        bulkReleaser.join();
+        bulkExecutor.shutdown();
+    }
+
+    @Test
+    public void mapView() {
+        ShardedBasilCache<Integer, String> cache = sharded(4);
+        Map<Integer, String> map = cache.asMap();
+        for (int i = 0; i < 100; i++) {
+            assertNull(map.putIfAbsent(i, "v" + i));
+        }
+        assertEquals("v5", map.get(5));
+        assertEquals("v5!", map.merge(5, "!", String::concat));
+        assertEquals("v5!", cache.shardFor(5).getIfPresent(5));
+        assertEquals(100, map.size());
+        assertEquals(100, map.entrySet().stream().count());
+
+        map.entrySet().removeIf(entry -> entry.getKey() % 2 == 0);
+        assertEquals(50, cache.size());
+        assertFalse(map.containsKey(4));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void stream() {
+        ShardedBasilCache<Integer, String> cache = sharded(4);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals(10_000, cache.stream().count());
+        assertEquals(49_995_000L, cache.parallelStream().mapToLong(Map.Entry::getKey).sum());
+
+        Spliterator<Map.Entry<Integer, String>> spliterator = cache.spliterator();
+        assertEquals(10_000, spliterator.estimateSize());
+        Spliterator<Map.Entry<Integer, String>> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        Set<Integer> keys = new HashSet<>();
+        prefix.forEachRemaining(entry -> assertTrue(keys.add(entry.getKey())));
+        spliterator.forEachRemaining(entry -> assertTrue(keys.add(entry.getKey())));
+        assertEquals(10_000, keys.size());
+    }
+}
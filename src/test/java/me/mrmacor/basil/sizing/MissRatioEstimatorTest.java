@@ -0,0 +1,149 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.sizing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import org.junit.Test;
+
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests the curves a {@link MissRatioEstimator} estimates, and the sizes an {@link AdaptiveSizer} resizes to.
+ */
+public class MissRatioEstimatorTest {
+
+    private static void loop(MissRatioEstimator<Integer> estimator, int keys, int references) {
+        for (int i = 0; i < references; i++) {
+            estimator.record(i % keys);
+        }
+    }
+
+    @Test
+    public void exactCurveOfALoop() {
+        MissRatioEstimator<Integer> estimator = BasilCacheBuilder.newMissRatioEstimator(200).samplingRate(1).buckets(200).build();
+        BasilCache<Integer, Integer> cache = estimator.track(BasilCacheBuilder.wrap(Caffeine.newBuilder().<Integer, Integer>build()).basilCache());
+        for (int i = 0; i < 10000; i++) {
+            cache.getIfPresent(i % 100);
+        }
+        MissRatioCurve curve = estimator.curve();
+        assertEquals(10000, curve.references());
+        assertEquals(200, curve.maximumSize());
+        assertEquals(0, curve.hitRatio(99), 0);
+        assertEquals(0.99, curve.hitRatio(100), 1e-9);
+        assertEquals(0.99, curve.hitRatio(1000), 1e-9);
+        assertEquals(OptionalLong.of(100), curve.sizeFor(0.5));
+        assertEquals(OptionalLong.empty(), curve.sizeFor(1));
+
+        estimator.clear();
+        assertEquals(0, estimator.curve().references());
+        assertEquals(0, estimator.curve().hitRatio(100), 0);
+    }
+
+    @Test
+    public void sampledCurveIsClose() {
+        MissRatioEstimator<Integer> exact = BasilCacheBuilder.newMissRatioEstimator(10000).samplingRate(1).build();
+        MissRatioEstimator<Integer> sampled = BasilCacheBuilder.newMissRatioEstimator(10000).samplingRate(0.1).build();
+        Random random = new Random(42);
+        for (int i = 0; i < 300000; i++) {
+            int key = random.nextInt(10000);
+            exact.record(key);
+            sampled.record(key);
+        }
+        MissRatioCurve exactCurve = exact.curve();
+        MissRatioCurve sampledCurve = sampled.curve();
+        assertEquals(0.5, exactCurve.hitRatio(5000), 0.05);
+        for (int size = 1000; size <= 9000; size += 1000) {
+            assertEquals(exactCurve.hitRatio(size), sampledCurve.hitRatio(size), 0.05);
+        }
+        assertEquals(300000, sampledCurve.references(), 30000);
+    }
+
+    @Test
+    public void boundedCurveIsClose() {
+        MissRatioEstimator<Integer> exact = BasilCacheBuilder.newMissRatioEstimator(10000).samplingRate(1).build();
+        MissRatioEstimator<Integer> bounded = BasilCacheBuilder.newMissRatioEstimator(10000).samplingRate(1)
+                .maximumSampledKeys(2000).build();
+        Random random = new Random(42);
+        for (int i = 0; i < 300000; i++) {
+            int key = random.nextInt(10000);
+            exact.record(key);
+            bounded.record(key);
+        }
+        MissRatioCurve exactCurve = exact.curve();
+        MissRatioCurve boundedCurve = bounded.curve();
+        for (int size = 1000; size <= 9000; size += 1000) {
+            assertEquals(exactCurve.hitRatio(size), boundedCurve.hitRatio(size), 0.05);
+        }
+        assertEquals(300000, boundedCurve.references(), 30000);
+    }
+
+    @Test
+    public void resizesToTarget() {
+        Cache<Integer, Integer> cache = Caffeine.newBuilder().maximumSize(10).<Integer, Integer>build();
+        MissRatioEstimator<Integer> estimator = BasilCacheBuilder.newMissRatioEstimator(1000).samplingRate(1).buckets(1000).build();
+        AdaptiveSizer sizer = BasilCacheBuilder.newAdaptiveSizer(estimator, cache).targetHitRatio(0.9).sizeBounds(10, 500).build();
+        assertEquals(10, sizer.resize());
+
+        loop(estimator, 100, 10000);
+        assertEquals(100, sizer.resize());
+        assertEquals(100, cache.policy().eviction().get().getMaximum());
+
+        AdaptiveSizer bounded = BasilCacheBuilder.newAdaptiveSizer(estimator, cache).sizeBounds(10, 50).build();
+        assertEquals(50, bounded.resize());
+        AdaptiveSizer unreachable = BasilCacheBuilder.newAdaptiveSizer(estimator, cache).targetHitRatio(1).sizeBounds(10, 500).build();
+        assertEquals(500, unreachable.resize());
+    }
+
+    @Test
+    public void resizesWeightedCacheWithinBudget() {
+        Cache<Integer, Integer> cache = Caffeine.newBuilder().executor(Runnable::run)
+                .maximumWeight(1000).weigher((Integer key, Integer value) -> 10).build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        MissRatioEstimator<Integer> estimator = BasilCacheBuilder.newMissRatioEstimator(1000).samplingRate(1).buckets(1000).build();
+        loop(estimator, 100, 10000);
+        assertEquals(1000, BasilCacheBuilder.newAdaptiveSizer(estimator, cache).build().resize());
+        assertEquals(800, BasilCacheBuilder.newAdaptiveSizer(estimator, cache).memoryBudget(800).build().resize());
+        assertEquals(800, cache.policy().eviction().get().getMaximum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnboundedCache() {
+        MissRatioEstimator<Integer> estimator = BasilCacheBuilder.newMissRatioEstimator(1000).build();
+        BasilCacheBuilder.newAdaptiveSizer(estimator, Caffeine.newBuilder().build()).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBudgetForUnweightedCache() {
+        MissRatioEstimator<Integer> estimator = BasilCacheBuilder.newMissRatioEstimator(1000).build();
+        BasilCacheBuilder.newAdaptiveSizer(estimator, Caffeine.newBuilder().maximumSize(10).build()).memoryBudget(100).build();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.snapshot;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import me.mrmacor.basil.codec.Codecs;
+import me.mrmacor.basil.wrapper.WrappedCaffeineCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests writing and restoring snapshots of caches and sets.
+ */
+public class CacheSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    public void guavaRoundTrip() throws IOException {
+        BasilCache<String, String> cache = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, String>build()).basilCache();
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        Path file = this.folder.getRoot().toPath().resolve("guava.snapshot");
+        assertEquals(10_000, CacheSnapshot.write(cache, file, Codecs.utf8(), Codecs.utf8()));
+
+        BasilCache<String, String> restored = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, String>build()).basilCache();
+        restored.put("key0", "fresher");
+        assertEquals(Long.valueOf(10_000), CacheSnapshot.restore(restored, file, Codecs.utf8(), Codecs.utf8(), ForkJoinPool.commonPool()).join());
+        assertEquals(10_000, restored.size());
+        assertEquals("fresher", restored.getIfPresent("key0"));
+        assertEquals("value9999", restored.getIfPresent("key9999"));
+    }
+
+    @Test
+    public void remainingLifetime() throws IOException {
+        BasilCache<String, Long> cache = BasilCacheBuilder.wrap(Caffeine.newBuilder()
+                .expireAfterWrite(10, TimeUnit.SECONDS)
+                .ticker(this.nanos::get)
+                .<String, Long>build()).basilCache();
+        cache.put("old", 1L);
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        cache.put("new", 2L);
+        Path file = this.folder.getRoot().toPath().resolve("caffeine.snapshot");
+        CacheSnapshot.write(cache, file, Codecs.utf8(), Codecs.longs());
+
+        WrappedCaffeineCache<String, Long> restored = (WrappedCaffeineCache<String, Long>) BasilCacheBuilder.wrap(Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long value, long currentTime) {
+                        return TimeUnit.HOURS.toNanos(1);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(this.nanos::get)
+                .<String, Long>build()).basilCache();
+        CacheSnapshot.restore(restored, file, Codecs.utf8(), Codecs.longs(), ForkJoinPool.commonPool()).join();
+
+        long old = restored.delegate().policy().expireVariably().orElseThrow().getExpiresAfter("old", TimeUnit.SECONDS).orElseThrow();
+        long fresh = restored.delegate().policy().expireVariably().orElseThrow().getExpiresAfter("new", TimeUnit.SECONDS).orElseThrow();
+        // a little wall-clock time passes between writing and restoring
+        assertTrue("old expires after " + old, old == 5 || old == 6);
+        assertTrue("new expires after " + fresh, fresh == 9 || fresh == 10);
+    }
+
+    @Test
+    public void cacheSetRoundTrip() throws IOException {
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().build();
+        set.addAll("owo", "uwu", "");
+        Path file = this.folder.getRoot().toPath().resolve("set.snapshot");
+        assertEquals(3, CacheSnapshot.write(set, file, Codecs.utf8()));
+
+        CacheSet<String> restored = BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).cacheSet();
+        assertEquals(Long.valueOf(3), CacheSnapshot.restore(restored, file, Codecs.utf8(), ForkJoinPool.commonPool()).join());
+        assertTrue(restored.contains("owo"));
+        assertTrue(restored.contains("uwu"));
+        assertTrue(restored.contains(""));
+    }
+
+    @Test
+    public void emptySnapshot() throws IOException {
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().build();
+        Path file = this.folder.getRoot().toPath().resolve("empty.snapshot");
+        assertEquals(0, CacheSnapshot.write(set, file, Codecs.utf8()));
+        assertEquals(Long.valueOf(0), CacheSnapshot.restore(set, file, Codecs.utf8(), ForkJoinPool.commonPool()).join());
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve("garbage.snapshot");
+        Files.write(file, new byte[64]);
+        CacheSet<String> set = BasilCacheBuilder.newCacheSet().build();
+        try {
+            CacheSnapshot.restore(set, file, Codecs.utf8(), ForkJoinPool.commonPool()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+
+        CacheSnapshot.write(set, file, Codecs.utf8());
+        BasilCache<String, String> cache = BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, String>build()).basilCache();
+        try {
+            CacheSnapshot.restore(cache, file, Codecs.utf8(), Codecs.utf8(), ForkJoinPool.commonPool()).join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+    }
+}
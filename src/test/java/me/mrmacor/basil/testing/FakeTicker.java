@@ -0,0 +1,65 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.testing;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ticker that only moves when a test advances it, usable as a Guava and as a Caffeine ticker.
+ */
+public final class FakeTicker extends Ticker implements com.github.benmanes.caffeine.cache.Ticker {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+        return this.nanos.get();
+    }
+
+    /**
+     * Moves the time forward by the provided duration.
+     *
+     * @param duration to move the time by
+     * @param unit of the duration
+     * @return this ticker
+     */
+    public FakeTicker advance(long duration, TimeUnit unit) {
+        this.nanos.addAndGet(unit.toNanos(duration));
+        return this;
+    }
+
+    /**
+     * Sets the time to the provided number of nanoseconds.
+     *
+     * @param nanos the new time
+     * @return this ticker
+     */
+    public FakeTicker set(long nanos) {
+        this.nanos.set(nanos);
+        return this;
+    }
+}
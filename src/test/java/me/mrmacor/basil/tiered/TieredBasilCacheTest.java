@@ -0,0 +1,171 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.tiered;
+
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.codec.Codecs;
+import me.mrmacor.basil.testing.FakeTicker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests a {@link TieredBasilCache} over a Guava cache and over an off-heap cache.
+ */
+public class TieredBasilCacheTest {
+
+    private static BasilCache<Integer, String> guava() {
+        return BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<Integer, String>build()).basilCache();
+    }
+
+    @Test
+    public void promotesOnLowerHits() throws ExecutionException {
+        BasilCache<Integer, String> l2 = guava();
+        TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).l1MaximumSize(16).build();
+        l2.put(1, "one");
+
+        assertEquals("one", cache.getIfPresent(1));
+        assertEquals("one", cache.get(1, () -> "uno"));
+        assertNull(cache.getIfPresent(2));
+
+        assertEquals(2, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.l1Stats().hitCount());
+        assertEquals(2, cache.l1Stats().missCount());
+        assertEquals(1, cache.l2Stats().hitCount());
+        assertEquals(1, cache.l2Stats().missCount());
+    }
+
+    @Test
+    public void dropsWhatL2Dropped() {
+        BasilCache<Integer, String> l2 = guava();
+        TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).l1MaximumSize(1).build();
+        cache.put(1, "one");
+        cache.cleanUp();
+        l2.invalidate(1);
+        assertEquals(0, cache.size());
+
+        cache.put(2, "two");
+        cache.cleanUp();
+        assertEquals(1, cache.l1Stats().evictionCount());
+        assertEquals(Map.of(2, "two"), l2.asMap());
+        assertEquals(Map.of(2, "two"), cache.asMap());
+    }
+
+    @Test
+    public void followsL2Expiry() {
+        FakeTicker ticker = new FakeTicker();
+        BasilCache<Integer, String> l2 = BasilCacheBuilder.wrap(CacheBuilder.newBuilder()
+                .expireAfterWrite(1, TimeUnit.MINUTES).ticker(ticker).<Integer, String>build()).basilCache();
+        TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).l1MaximumSize(1).build();
+        cache.put(1, "one");
+        assertEquals("one", cache.getIfPresent(1));
+        assertEquals(1, cache.l1Stats().hitCount());
+
+        ticker.advance(1, TimeUnit.HOURS);
+        assertNull(l2.getIfPresent(1));
+        assertNull(cache.getIfPresent(1));
+        assertNull(cache.asMap().get(1));
+        assertFalse(cache.asMap().containsKey(1));
+
+        // the expired entry left L1 when it was read, so this eviction does not write it back
+        cache.put(2, "two");
+        cache.cleanUp();
+        assertNull(l2.getIfPresent(1));
+        assertEquals(Map.of(2, "two"), cache.asMap());
+    }
+
+    @Test
+    public void writePolicies() {
+        for (TieredBasilCache.WritePolicy policy : TieredBasilCache.WritePolicy.values()) {
+            BasilCache<Integer, String> l2 = guava();
+            TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).writePolicy(policy).build();
+            cache.put(1, "one");
+            assertEquals("one", l2.getIfPresent(1));
+            assertEquals("one", cache.getIfPresent(1));
+            assertEquals(policy == TieredBasilCache.WritePolicy.WRITE_THROUGH ? 1 : 0, cache.l1Stats().hitCount());
+
+            cache.put(1, "uno");
+            assertEquals("uno", cache.getIfPresent(1));
+            cache.asMap().put(1, "eins");
+            assertEquals("eins", cache.getIfPresent(1));
+
+            cache.invalidate(1);
+            assertNull(cache.getIfPresent(1));
+            assertTrue(cache.asMap().isEmpty());
+        }
+    }
+
+    @Test
+    public void spliteratorCoversL2() {
+        BasilCache<Integer, String> l2 = guava();
+        TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).l1MaximumSize(16).build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        cache.getIfPresent(999);
+        l2.invalidate(999);
+
+        assertEquals(999, cache.stream().count());
+        assertEquals(999, cache.parallelStream().map(Map.Entry::getKey).distinct().count());
+        Spliterator<Map.Entry<Integer, String>> spliterator = cache.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT));
+        assertNotNull(spliterator.trySplit());
+        assertEquals(999, cache.asMap().entrySet().parallelStream().count());
+    }
+
+    @Test
+    public void bulkLoadOffHeap() {
+        BasilCache<Integer, String> l2 = BasilCacheBuilder.newOffHeapCache(Codecs.utf8())
+                .maximumBytes(1 << 20).pageSize(64 << 10).concurrencyLevel(1).build();
+        TieredBasilCache<Integer, String> cache = BasilCacheBuilder.newTieredCache(l2).l1MaximumSize(16).build();
+        cache.put(1, "one");
+        List<Set<Integer>> calls = new ArrayList<>();
+        Map<Integer, String> all = cache.getAll(Arrays.asList(1, 2, 3), keys -> {
+            calls.add(keys);
+            return Map.of(2, "two", 3, "three");
+        });
+        assertEquals(List.of(Set.of(2, 3)), calls);
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(all.keySet()));
+        assertEquals("three", l2.getIfPresent(3));
+        assertEquals(Map.of(1, "one", 2, "two", 3, "three"), cache.allPresent(Arrays.asList(1, 2, 3)));
+        assertTrue(cache.weightedSize().getAsLong() > 0);
+        assertEquals(l2.weightedSize(), cache.weightedSize());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize().getAsLong());
+    }
+}
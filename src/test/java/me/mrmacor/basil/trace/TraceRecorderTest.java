@@ -0,0 +1,181 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.trace;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests that the operations a {@link TraceRecorder} records are read back by {@link Trace#read(Path)}.
+ */
+public class TraceRecorderTest {
+
+    @Test
+    public void recordsCacheOperations() throws IOException, ExecutionException {
+        Path file = Files.createTempFile("basil", ".trace");
+        try {
+            TraceRecorder recorder = BasilCacheBuilder.newTraceRecorder(file).bufferSize(3).build();
+            BasilCache<String, Integer> cache = recorder.track(BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, Integer>build()).basilCache());
+            cache.get("foo", () -> 1);
+            cache.getIfPresent("bar");
+            cache.put("bar", 2);
+            cache.putAll(Map.of("baz", 3));
+            cache.allPresent(Arrays.asList("foo", "baz"));
+            cache.invalidate("foo");
+            recorder.close();
+            cache.getIfPresent("qux");
+            assertEquals(7, recorder.recorded());
+            assertEquals(1, recorder.dropped());
+
+            Trace trace = Trace.read(file);
+            assertEquals(7, trace.size());
+            List<TraceOperation> expected = List.of(TraceOperation.GET, TraceOperation.GET_IF_PRESENT, TraceOperation.PUT,
+                    TraceOperation.PUT, TraceOperation.GET_IF_PRESENT, TraceOperation.GET_IF_PRESENT, TraceOperation.INVALIDATE);
+            List<String> keys = List.of("foo", "bar", "bar", "baz", "foo", "baz", "foo");
+            for (int i = 0; i < trace.size(); i++) {
+                assertEquals(expected.get(i), trace.operation(i));
+                assertEquals(keys.get(i).hashCode(), trace.key(i));
+                assertTrue(i == 0 || trace.time(i) >= trace.time(i - 1));
+            }
+            assertEquals(2, trace.operationCounts()[TraceOperation.PUT.ordinal()]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void mergesThreadsByTime() throws Exception {
+        Path file = Files.createTempFile("basil", ".trace");
+        try {
+            TraceRecorder recorder = BasilCacheBuilder.newTraceRecorder(file).bufferSize(16).build();
+            CacheSet<Integer> set = recorder.track(BasilCacheBuilder.wrap(Caffeine.newBuilder().<Integer, Integer>build()).<Integer>cacheSet());
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int offset = t * 1000;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        set.add(offset + i);
+                        set.contains(offset + i);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            recorder.close();
+
+            Trace trace = Trace.read(file);
+            assertEquals(4000, trace.size());
+            for (int i = 1; i < trace.size(); i++) {
+                assertTrue(trace.time(i) >= trace.time(i - 1));
+            }
+            assertEquals(2000, trace.operationCounts()[TraceOperation.CONTAINS.ordinal()]);
+            assertEquals(2000, trace.operationCounts()[TraceOperation.ADD.ordinal()]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void forgetsBuffersOfEndedThreads() throws Exception {
+        Path file = Files.createTempFile("basil", ".trace");
+        try {
+            TraceRecorder recorder = BasilCacheBuilder.newTraceRecorder(file).bufferSize(64).build();
+            for (int t = 0; t < 200; t++) {
+                int offset = t * 5;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        recorder.record(TraceOperation.GET, offset + i);
+                    }
+                });
+                thread.start();
+                thread.join();
+            }
+            assertTrue(recorder.registeredBuffers() <= 16);
+            recorder.close();
+            assertEquals(0, recorder.registeredBuffers());
+            assertEquals(1000, recorder.recorded());
+            assertEquals(1000, Trace.read(file).size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void closesWhileRecording() throws Exception {
+        Path file = Files.createTempFile("basil", ".trace");
+        try {
+            TraceRecorder recorder = BasilCacheBuilder.newTraceRecorder(file).bufferSize(16).build();
+            AtomicBoolean done = new AtomicBoolean();
+            LongAdder attempts = new LongAdder();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; !done.get(); i++) {
+                        recorder.record(TraceOperation.GET, i);
+                        attempts.increment();
+                    }
+                });
+                threads[t].start();
+            }
+            Thread.sleep(20);
+            recorder.close();
+            done.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(attempts.sum(), recorder.recorded() + recorder.dropped());
+            assertEquals(recorder.recorded(), Trace.read(file).size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Path file = Files.createTempFile("basil", ".trace");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+            Trace.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.weight;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.builder.WeightedCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.negative.NegativeCachingCache;
+import me.mrmacor.basil.refresh.RefreshAheadCache;
+import me.mrmacor.basil.wrapper.EmulatedAsyncCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests weight-bounded caches and the object size estimator.
+ */
+public class WeightedCacheTest {
+
+    private static List<BasilCache<String, byte[]>> caches(long maximumWeight) {
+        WeightedCacheBuilder<String, byte[]> builder = BasilCacheBuilder.newWeightedCache(maximumWeight)
+                .<String, byte[]>weigher((key, value) -> value.length);
+        return Arrays.asList(builder.buildGuava(CacheBuilder.newBuilder().concurrencyLevel(1)),
+                builder.buildCaffeine(Caffeine.newBuilder().executor(Runnable::run)));
+    }
+
+    @Test
+    public void evictsToStayUnderBudget() {
+        for (BasilCache<String, byte[]> cache : caches(10_000)) {
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, new byte[1000]);
+            }
+            cache.cleanUp();
+            assertTrue(cache.weightedSize().getAsLong() <= 10_000);
+            assertTrue(cache.size() <= 10);
+            assertEquals(cache.size() * 1000, cache.weightedSize().getAsLong());
+        }
+    }
+
+    @Test
+    public void tracksWeightedSize() {
+        for (BasilCache<String, byte[]> cache : caches(1 << 20)) {
+            cache.put("foo", new byte[100]);
+            cache.put("bar", new byte[200]);
+            assertEquals(OptionalLong.of(300), cache.weightedSize());
+            cache.put("foo", new byte[400]);
+            assertEquals(OptionalLong.of(600), cache.weightedSize());
+            cache.invalidate("bar");
+            cache.cleanUp();
+            assertEquals(OptionalLong.of(400), cache.weightedSize());
+            cache.invalidateAll();
+            cache.cleanUp();
+            assertEquals(OptionalLong.of(0), cache.weightedSize());
+        }
+    }
+
+    @Test
+    public void keepsGuavaRemovalListener() {
+        List<Object> removed = new ArrayList<>();
+        BasilCache<String, byte[]> cache = BasilCacheBuilder.newWeightedCache(1 << 20)
+                .<String, byte[]>weigher((key, value) -> value.length)
+                .buildGuava(CacheBuilder.newBuilder().removalListener(removal -> removed.add(removal.getKey())));
+        cache.put("foo", new byte[100]);
+        cache.put("bar", new byte[200]);
+        cache.invalidate("foo");
+        assertEquals(Arrays.asList("foo"), removed);
+        cache.invalidateAll();
+        assertEquals(Arrays.asList("foo", "bar"), removed);
+        assertEquals(OptionalLong.of(0), cache.weightedSize());
+    }
+
+    @Test
+    public void rejectsCollectableGuavaReferences() {
+        WeightedCacheBuilder<String, byte[]> builder = BasilCacheBuilder.newWeightedCache(1 << 20)
+                .<String, byte[]>weigher((key, value) -> value.length);
+        for (CacheBuilder<Object, Object> guava : Arrays.asList(CacheBuilder.newBuilder().weakKeys(),
+                CacheBuilder.newBuilder().weakValues(), CacheBuilder.newBuilder().softValues())) {
+            assertThrows(IllegalArgumentException.class, () -> builder.buildGuava(guava));
+        }
+    }
+
+    @Test
+    public void unweightedCachesReportNoWeight() {
+        assertFalse(BasilCacheBuilder.wrap(Caffeine.newBuilder().<String, String>build()).basilCache().weightedSize().isPresent());
+        assertFalse(BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<String, String>build()).basilCache().weightedSize().isPresent());
+    }
+
+    @Test
+    public void estimatedWeigher() {
+        BasilCache<String, String> cache = BasilCacheBuilder.newWeightedCache(1 << 20)
+                .<String, String>buildCaffeine(Caffeine.newBuilder().executor(Runnable::run));
+        cache.put("abc", "abc");
+        assertEquals(OptionalLong.of(96), cache.weightedSize());
+    }
+
+    @Test
+    public void estimates() {
+        assertEquals(0, ObjectSizeEstimator.estimate(null));
+        assertEquals(120, ObjectSizeEstimator.estimate(new byte[100]));
+        assertEquals(56, ObjectSizeEstimator.estimate(new long[5]));
+        assertEquals(48, ObjectSizeEstimator.estimate("abc"));
+        assertEquals(16, ObjectSizeEstimator.estimate(1000));
+        assertEquals(24, ObjectSizeEstimator.estimate(1000L));
+
+        // a node, its string, and the boxed integer, while the cycle back to the node is only counted once
+        Node node = new Node("abc", 1000);
+        node.next = node;
+        assertEquals(24 + 48 + 16, ObjectSizeEstimator.estimate(node));
+
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            strings.add("abc" + i);
+        }
+        assertTrue(ObjectSizeEstimator.estimate(strings) > 10 * 48);
+    }
+
+    static final class Node {
+
+        final String name;
+        final Integer value;
+        Node next;
+
+        Node(String name, Integer value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void decoratorsReportWeight() {
+        BasilCache<String, byte[]> weighted = caches(10_000).get(1);
+        weighted.put("foo", new byte[100]);
+        List<BasilCache<String, byte[]>> decorators = Arrays.asList(
+                new RefreshAheadCache<>(weighted, TimeUnit.MINUTES.toNanos(1), 0.8, 1, Runnable::run, Ticker.systemTicker()),
+                new NegativeCachingCache<>(weighted, 1, 1, 16, Ticker.systemTicker()),
+                new EmulatedAsyncCache<>(weighted, Runnable::run).synchronous());
+        for (BasilCache<String, byte[]> decorator : decorators) {
+            assertEquals(OptionalLong.of(100), decorator.weightedSize());
+        }
+    }
+}
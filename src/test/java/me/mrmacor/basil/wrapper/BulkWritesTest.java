@@ -0,0 +1,113 @@
+/*
+ * This file is licensed under the MIT license.
+ *
+ * Copyright (c) 2021 MrMacor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.mrmacor.basil.wrapper;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.cache.CacheBuilder;
+import me.mrmacor.basil.builder.BasilCacheBuilder;
+import me.mrmacor.basil.cache.BasilCache;
+import me.mrmacor.basil.cache.CacheSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * This tests that large bulk writes are split into batches that write every entry exactly once.
+ */
+public class BulkWritesTest {
+
+    private static final int ENTRIES = BulkWrites.PARALLEL_THRESHOLD * 3 + 7;
+
+    @Test
+    public void batchesCoverEveryEntryOnce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AtomicIntegerArray writes = new AtomicIntegerArray(ENTRIES);
+        List<Integer> batchSizes = new ArrayList<>();
+        BulkWrites.run(pool, ENTRIES, (from, to) -> {
+            synchronized (batchSizes) {
+                batchSizes.add(to - from);
+            }
+            for (int i = from; i < to; i++) {
+                writes.incrementAndGet(i);
+            }
+        });
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals(1, writes.get(i));
+        }
+        assertTrue(batchSizes.size() > 1);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= BulkWrites.BATCH_SIZE));
+        pool.shutdown();
+    }
+
+    @Test
+    public void largeCacheWrites() {
+        Map<Integer, Integer> map = new HashMap<>();
+        List<Integer> odd = new LinkedList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            map.put(i, -i);
+            if (i % 2 == 1) {
+                odd.add(i);
+            }
+        }
+        List<BasilCache<Integer, Integer>> caches = Arrays.asList(
+                BasilCacheBuilder.wrap(CacheBuilder.newBuilder().<Integer, Integer>build()).basilCache(),
+                BasilCacheBuilder.wrap(Caffeine.newBuilder().executor(Runnable::run).<Integer, Integer>build()).basilCache());
+        for (BasilCache<Integer, Integer> cache : caches) {
+            cache.putAll(map);
+            assertEquals(ENTRIES, cache.size());
+            assertEquals(map, cache.asMap());
+
+            cache.invalidateAll(odd);
+            cache.cleanUp();
+            assertEquals(ENTRIES - odd.size(), cache.size());
+            assertNull(cache.getIfPresent(1));
+            assertEquals(Integer.valueOf(-2), cache.getIfPresent(2));
+        }
+    }
+
+    @Test
+    public void largeSetWrites() {
+        Integer[] values = new Integer[ENTRIES];
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            values[i] = i;
+            list.add(ENTRIES + i);
+        }
+        CacheSet<Integer> set = BasilCacheBuilder.wrap(Caffeine.newBuilder().executor(Runnable::run).<Integer, Integer>build()).cacheSet();
+        set.addAll(values);
+        set.addAll(list);
+        assertEquals(2L * ENTRIES, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(2 * ENTRIES - 1));
+    }
+}